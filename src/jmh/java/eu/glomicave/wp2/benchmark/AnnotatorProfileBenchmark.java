@@ -0,0 +1,64 @@
+/* Measure pipeline build time and throughput (sentences/s) of CoreNLP annotator profiles. */
+
+package eu.glomicave.wp2.benchmark;
+
+import java.util.List;
+import java.util.Locale;
+
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import eu.glomicave.data_import.extract_entities.CoreNLPUtils;
+import eu.glomicave.data_import.extract_entities.ExtractEntities;
+
+/**
+ * Usage: AnnotatorProfileBenchmark [sentences file] [max sentences] [profile ...]
+ *
+ * The sentences file is a TSV file with header and columns doi, sentence index, sentence (as written by SplitAbstractText).
+ * If no profiles are given, all annotator profiles are measured.
+ */
+public class AnnotatorProfileBenchmark {
+
+	private static final String DEFAULT_FILE = "./data/extract_entities/abstract_sentences.txt";
+	private static final int DEFAULT_MAX_SENTENCES = 1000;
+	// sentences annotated before measuring, to warm up the JIT
+	private static final int WARMUP_SENTENCES = 50;
+
+	public static void main(String[] args) throws Exception {
+		String file = args.length > 0 ? args[0] : DEFAULT_FILE;
+		int maxSentences = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_SENTENCES;
+		String[] profiles = CoreNLPUtils.PROFILES;
+		if (args.length > 2) {
+			profiles = new String[args.length - 2];
+			System.arraycopy(args, 2, profiles, 0, profiles.length);
+		}
+
+		List<List<String>> records = ExtractEntities.readAbstractSentences(file);
+		String[] sentences = records.stream()
+				.filter(record -> record.size() > 2)
+				.limit(maxSentences)
+				.map(record -> record.get(2))
+				.toArray(String[]::new);
+
+		System.out.println("Sentences: " + sentences.length);
+		System.out.println(String.format(Locale.ROOT, "%-12s %12s %12s %14s", "profile", "build [ms]", "total [ms]", "sentences/s"));
+
+		for (String profile : profiles) {
+			long start = System.nanoTime();
+			StanfordCoreNLP pipeline = CoreNLPUtils.createPipeline(profile);
+			long buildMillis = (System.nanoTime() - start) / 1000000;
+
+			for (int i = 0; i < Math.min(WARMUP_SENTENCES, sentences.length); i++) {
+				pipeline.annotate(new Annotation(sentences[i]));
+			}
+
+			start = System.nanoTime();
+			for (String sentence : sentences) {
+				pipeline.annotate(new Annotation(sentence));
+			}
+			long totalNanos = System.nanoTime() - start;
+
+			double sentencesPerSecond = sentences.length / (totalNanos / 1e9);
+			System.out.println(String.format(Locale.ROOT, "%-12s %12d %12d %14.1f", profile, buildMillis, totalNanos / 1000000, sentencesPerSecond));
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/* Fixed corpus of abstract sentences and lexical forms used by the JMH benchmarks. */
+
+package eu.glomicave.wp2.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The corpus is stored in src/jmh/resources/benchmark:
+ *  - abstract_sentences.tsv: TSV file with header and columns doi, sentence index, sentence (as written by SplitAbstractText);
+ *  - lexical_forms.txt: one lexical form per line.
+ *
+ * The corpus is part of the benchmark sources and must not be changed, so that results stay comparable between runs.
+ */
+public class BenchmarkCorpus {
+
+	private static final String SENTENCES_RESOURCE = "/benchmark/abstract_sentences.tsv";
+	private static final String LEXICAL_FORMS_RESOURCE = "/benchmark/lexical_forms.txt";
+
+	public static List<String> readSentences() throws IOException {
+		List<String> sentences = new ArrayList<>();
+		List<String> lines = readLines(SENTENCES_RESOURCE);
+		// skip header
+		for (String line : lines.subList(1, lines.size())) {
+			String[] fields = line.split("\t");
+			if (fields.length > 2) {
+				sentences.add(fields[2]);
+			}
+		}
+		return sentences;
+	}
+
+	public static List<String> readLexicalForms() throws IOException {
+		return readLines(LEXICAL_FORMS_RESOURCE);
+	}
+
+	private static List<String> readLines(String resource) throws IOException {
+		List<String> lines = new ArrayList<>();
+		try (InputStream is = BenchmarkCorpus.class.getResourceAsStream(resource)) {
+			if (is == null) {
+				throw new IOException("Benchmark resource not found: " + resource);
+			}
+			BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.isBlank()) {
+					lines.add(line);
+				}
+			}
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,238 @@
+/* JMH benchmarks of the candidate extraction hot path: parsing, candidate generation and dictionary matching. */
+
+package eu.glomicave.wp2.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import eu.glomicave.data_import.extract_entities.AnnotatedSentence;
+import eu.glomicave.data_import.extract_entities.CoreNLPUtils;
+import eu.glomicave.data_import.extract_entities.EncodedSentence;
+import eu.glomicave.data_import.extract_entities.ExtractEntities;
+import eu.glomicave.data_import.extract_entities.LexicalFormIndex;
+import eu.glomicave.data_import.extract_entities.LexicalFormMatcher;
+import eu.glomicave.data_import.extract_entities.SubConstituent;
+import eu.glomicave.data_import.extract_entities.SubConstituentEnumerator;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+/**
+ * Each benchmark processes one sentence of the fixed corpus per operation (cycling through the corpus), so the
+ * throughput is in sentences/s. The stages are measured separately on inputs prepared in the setup:
+ *  - parse: CoreNLP annotation with the candidates profile;
+ *  - candidates: ExtractEntities.extractNamedEntities on an annotated sentence (all steps below);
+ *  - chainedNouns: CoreNLPUtils.getChainedNouns on the word list (POS tag strings, one list per chain) for all nouns
+ *    of the sentence;
+ *  - chainedNounsEncoded: the same with EncodedSentence (POS tag codes, index ranges), encoding of the sentence included;
+ *  - subConstituents: SubConstituent.generateSubConstituentsFromLeft for all compound noun constituents of the sentence;
+ *  - subConstituentsBitmask: the same with the bitmask enumeration of SubConstituentEnumerator (without cap);
+ *  - matchCandidates: lookup of the candidates of the sentence in the lexical form index;
+ *  - matchText: gazetteer matching of the sentence text;
+ *  - parseFast and candidatesFast: the same as parse and candidates in extraction mode FAST (POS tagging only and
+ *    ExtractEntities.extractNounChunks).
+ *
+ * The setup prints the share of the lexical forms matched in extraction mode FULL that are also matched in mode FAST.
+ *
+ * Run with the gc profiler to get the allocation rate, e.g.:
+ * java -jar target/benchmarks.jar CandidateExtractionBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Thread)
+public class CandidateExtractionBenchmark {
+
+	// Inputs of the sub-constituent generation for one compound noun
+	public static class SubConstituentInput {
+		final AnnotatedSentence sentence;
+		final IndexedWord root;
+		final ObjectArrayList<IndexedWord> constituents;
+
+		SubConstituentInput(AnnotatedSentence sentence, IndexedWord root, ObjectArrayList<IndexedWord> constituents) {
+			this.sentence = sentence;
+			this.root = root;
+			this.constituents = constituents;
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Corpus {
+		StanfordCoreNLP pipeline;
+		StanfordCoreNLP fastPipeline;
+		List<String> sentences;
+		List<AnnotatedSentence> annotatedSentences = new ArrayList<>();
+		List<AnnotatedSentence> taggedSentences = new ArrayList<>();
+		List<List<IndexedWord>> nouns = new ArrayList<>();
+		List<List<SubConstituentInput>> subConstituentInputs = new ArrayList<>();
+		List<Set<String>> candidates = new ArrayList<>();
+		LexicalFormMatcher matcher;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			pipeline = CoreNLPUtils.createPipeline(CoreNLPUtils.PROFILE_CANDIDATES);
+			fastPipeline = CoreNLPUtils.createPipeline(CoreNLPUtils.PROFILE_LEMMA);
+			sentences = BenchmarkCorpus.readSentences();
+
+			for (String sentence : sentences) {
+				AnnotatedSentence annotatedSentence = AnnotatedSentence.annotate(pipeline, sentence);
+				annotatedSentences.add(annotatedSentence);
+				taggedSentences.add(AnnotatedSentence.annotate(fastPipeline, sentence));
+				nouns.add(ExtractEntities.getNouns(annotatedSentence));
+				subConstituentInputs.add(getSubConstituentInputs(annotatedSentence));
+				candidates.add(ExtractEntities.extractNamedEntities(annotatedSentence));
+			}
+
+			LexicalFormIndex index = new LexicalFormIndex();
+			for (String lexicalForm : BenchmarkCorpus.readLexicalForms()) {
+				index.add(lexicalForm);
+			}
+			index.trim();
+			matcher = new LexicalFormMatcher(index);
+			matcher.buildTrie();
+
+			printFastRecall();
+		}
+
+		// share of the lexical forms matched with FULL candidates also matched with FAST candidates
+		private void printFastRecall() {
+			int full = 0;
+			int found = 0;
+			for (int i = 0; i < sentences.size(); i++) {
+				Set<String> fastForms = new HashSet<>();
+				for (LexicalFormMatcher.Match match : matcher.matchCandidates(ExtractEntities.extractNounChunks(taggedSentences.get(i)))) {
+					fastForms.add(match.getLexicalForm());
+				}
+				Set<String> fullForms = new HashSet<>();
+				for (LexicalFormMatcher.Match match : matcher.matchCandidates(candidates.get(i))) {
+					fullForms.add(match.getLexicalForm());
+				}
+				full += fullForms.size();
+				fullForms.retainAll(fastForms);
+				found += fullForms.size();
+			}
+			System.out.printf("Extraction mode FAST matches %d of %d lexical forms matched in mode FULL (%.1f%%).%n",
+					found, full, full > 0 ? 100.0 * found / full : 100.0);
+		}
+
+		// same steps as in ExtractEntities.extractNamedEntities(AnnotatedSentence)
+		private static List<SubConstituentInput> getSubConstituentInputs(AnnotatedSentence sentence) {
+			List<SubConstituentInput> inputs = new ArrayList<>();
+			SemanticGraph semGraph = sentence.getSemanticGraph();
+			EncodedSentence encoded = sentence.getEncoded();
+			long previous = -1;
+			for (int noun : encoded.getNouns()) {
+				long range = encoded.getChainedNouns(noun);
+				if (range == previous) {
+					continue;
+				}
+				previous = range;
+				try {
+					ObjectArrayList<IndexedWord> compoundNoun = encoded.getWords(range);
+					IndexedWord rootWord = CoreNLPUtils.getRootFromWordList(semGraph, compoundNoun);
+					SemanticGraph subgraph = CoreNLPUtils.getSubgraph(semGraph, rootWord);
+					if (!subgraph.isEmpty()) {
+						Set<IndexedWord> allWords = new HashSet<>();
+						allWords.add(rootWord);
+						allWords.addAll(subgraph.getChildren(rootWord));
+						inputs.add(new SubConstituentInput(sentence, rootWord, CoreNLPUtils.getSortedWordsFromSetOfWords(allWords)));
+					}
+				} catch (Exception e) {
+					// skipped, as in the extraction
+				}
+			}
+			return inputs;
+		}
+	}
+
+	private int cursor = 0;
+
+	private int next(Corpus corpus) {
+		int i = cursor;
+		cursor = (cursor + 1) % corpus.sentences.size();
+		return i;
+	}
+
+	@Benchmark
+	public AnnotatedSentence parse(Corpus corpus) {
+		return AnnotatedSentence.annotate(corpus.pipeline, corpus.sentences.get(next(corpus)));
+	}
+
+	@Benchmark
+	public HashSet<String> candidates(Corpus corpus) {
+		return ExtractEntities.extractNamedEntities(corpus.annotatedSentences.get(next(corpus)));
+	}
+
+	@Benchmark
+	public AnnotatedSentence parseFast(Corpus corpus) {
+		return AnnotatedSentence.annotate(corpus.fastPipeline, corpus.sentences.get(next(corpus)));
+	}
+
+	@Benchmark
+	public HashSet<String> candidatesFast(Corpus corpus) {
+		return ExtractEntities.extractNounChunks(corpus.taggedSentences.get(next(corpus)));
+	}
+
+	@Benchmark
+	public void chainedNouns(Corpus corpus, Blackhole bh) {
+		int i = next(corpus);
+		ObjectArrayList<IndexedWord> words = corpus.annotatedSentences.get(i).getWords();
+		for (IndexedWord noun : corpus.nouns.get(i)) {
+			bh.consume(CoreNLPUtils.getChainedNouns(words, noun.index() - 1));
+		}
+	}
+
+	@Benchmark
+	public void chainedNounsEncoded(Corpus corpus, Blackhole bh) {
+		EncodedSentence encoded = new EncodedSentence(corpus.annotatedSentences.get(next(corpus)).getWords());
+		for (int noun : encoded.getNouns()) {
+			bh.consume(encoded.getChainedNouns(noun));
+		}
+	}
+
+	@Benchmark
+	public void subConstituents(Corpus corpus, Blackhole bh) {
+		for (SubConstituentInput input : corpus.subConstituentInputs.get(next(corpus))) {
+			SubConstituent subconstituents = new SubConstituent(input.sentence, input.root, input.constituents);
+			subconstituents.clearSubConstituentsAndCandidates();
+			subconstituents.generateSubConstituentsFromLeft();
+			bh.consume(subconstituents.getStringSubConstituents());
+		}
+	}
+
+	@Benchmark
+	public void subConstituentsBitmask(Corpus corpus, Blackhole bh) {
+		for (SubConstituentInput input : corpus.subConstituentInputs.get(next(corpus))) {
+			bh.consume(SubConstituentEnumerator.generateFromLeft(input.sentence.getSemanticGraph(), input.root, input.constituents, 0));
+		}
+	}
+
+	@Benchmark
+	public ObjectArrayList<LexicalFormMatcher.Match> matchCandidates(Corpus corpus) {
+		return corpus.matcher.matchCandidates(corpus.candidates.get(next(corpus)));
+	}
+
+	@Benchmark
+	public ObjectArrayList<LexicalFormMatcher.Match> matchText(Corpus corpus) {
+		return corpus.matcher.matchText(corpus.sentences.get(next(corpus)));
+	}
+}
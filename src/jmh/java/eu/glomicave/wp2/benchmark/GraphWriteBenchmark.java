@@ -0,0 +1,116 @@
+/* JMH benchmark of the throughput of concurrent node writes into the graph database. */
+
+package eu.glomicave.wp2.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.glomicave.config.GraphDatabaseConfig;
+import eu.glomicave.persistence.CoreGraphDatabase;
+import eu.glomicave.persistence.GraphSchema;
+
+/**
+ * Each operation writes one node with a random uid out of {@code uids} (createUIDNodeIfNotExistent), so the throughput
+ * is in nodes/s. The number of writer threads is set with the JMH option -t, the scaling with the thread count is
+ * measured by running the benchmark with e.g. -t 1, -t 4 and -t 16. Lock modes:
+ *  - global: all writes under one JVM-wide monitor (the former synchronized createUIDNodeIfNotExistent);
+ *  - striped: writes of different uids in parallel (uniqueness constraint, or the stripe of the uid in UIDLocks).
+ *
+ * Without graph database (parameter cfgGraphDB empty) the database round trip of a write is simulated by parking
+ * the thread for {@code roundTripMicros}, so that only the locking of the writes is measured: the striped writes
+ * run under the stripes of the production code (CoreGraphDatabase.runLocked, as for a label without uniqueness
+ * constraint), with the simulated round trip as write. With the path of a
+ * graph database config file the nodes are written into the database with label BENCHMARK_NODE, deleted at the end
+ * together with the uniqueness constraint created on their first write.
+ *
+ * e.g.:
+ * java -jar target/benchmarks.jar GraphWriteBenchmark -t 16
+ * java -jar target/benchmarks.jar GraphWriteBenchmark -t 16 -p cfgGraphDB=./config/graphdb/graphdb_config.xml
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1)
+@State(Scope.Benchmark)
+public class GraphWriteBenchmark {
+	private static final String LABEL = "BENCHMARK_NODE";
+	private static final Object GLOBAL_LOCK = new Object();
+
+	@Param({"global", "striped"})
+	public String lockMode;
+
+	// number of distinct uids written (fewer uids, more writes of the same node)
+	@Param({"100000"})
+	public int uids;
+
+	// simulated database round trip of a write in microseconds (without graph database)
+	@Param({"200"})
+	public long roundTripMicros;
+
+	// path of the graph database config file (empty: simulated database)
+	@Param({""})
+	public String cfgGraphDB;
+
+	private boolean database;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		database = !cfgGraphDB.isEmpty();
+		if (database) {
+			GraphDatabaseConfig.setupInstance(cfgGraphDB);
+			CoreGraphDatabase.testConnection();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (database) {
+			CoreGraphDatabase.runCypherQuery("MATCH (n:" + LABEL + ") DETACH DELETE n");
+			GraphSchema.dropSchema(LABEL);
+			CoreGraphDatabase.closeDriver();
+		}
+	}
+
+	@Benchmark
+	public Object writeNode() {
+		String uid = "node/" + ThreadLocalRandom.current().nextInt(uids);
+		if (lockMode.equals("global")) {
+			synchronized (GLOBAL_LOCK) {
+				return write(uid, true);
+			}
+		}
+		return write(uid, false);
+	}
+
+	private Object write(String uid, boolean locked) {
+		if (database) {
+			return CoreGraphDatabase.createUIDNodeIfNotExistent(LABEL, uid);
+		}
+		if (locked) {
+			return roundTrip(uid);
+		}
+		return CoreGraphDatabase.runLocked(LABEL, Collections.singletonList(uid), () -> roundTrip(uid));
+	}
+
+	private Object roundTrip(String uid) {
+		LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(roundTripMicros));
+		return uid;
+	}
+}
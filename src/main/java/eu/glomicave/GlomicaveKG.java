@@ -13,14 +13,18 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.core.LoggerContext;
 
 import eu.glomicave.config.GlobalParamsConfig;
+import eu.glomicave.config.ExtractionMode;
+import eu.glomicave.config.LinkingMode;
 import eu.glomicave.pipelines.aws.AddOntologyAWS;
 import eu.glomicave.pipelines.aws.AddPhenotypesAWS;
 import eu.glomicave.pipelines.aws.AddPublicationsAWS;
+import eu.glomicave.pipelines.aws.ExtractOIEFactsAWS;
 import eu.glomicave.pipelines.aws.FullProcessingPipelineAWS;
 import eu.glomicave.pipelines.aws.LoadOIEFactsAWS;
 import eu.glomicave.pipelines.local.AddOntologyLocal;
 import eu.glomicave.pipelines.local.AddPhenotypesLocal;
 import eu.glomicave.pipelines.local.AddPublicationsLocal;
+import eu.glomicave.pipelines.local.ExtractOIEFactsLocal;
 import eu.glomicave.pipelines.local.FullProcessingPipelineLocal;
 import eu.glomicave.pipelines.local.LoadOIEFactsLocal;
 import picocli.CommandLine;
@@ -35,10 +39,10 @@ import picocli.CommandLine.Parameters;
 
 public class GlomicaveKG implements Callable<Integer> {
 	
-		final String[] piplineNames = { "full", "addPublications", "addOntology", "addTraits", "loadFacts" };
+		final String[] piplineNames = { "full", "addPublications", "addOntology", "addTraits", "loadFacts", "extractFacts" };
 
 		@Parameters(index = "0", description = "Name of the pipeline to run. "
-				+ "\nShould be one of: 'full'| 'addPublications' | 'addOntology' | 'addTraits' | 'loadFacts'.")
+				+ "\nShould be one of: 'full'| 'addPublications' | 'addOntology' | 'addTraits' | 'loadFacts' | 'extractFacts'.")
 		private String pipelineName = null;
 		
 		@Option(names = {"-a", "--abridge"}, description = "Run shortend version of the pipeline for test purposes.")
@@ -64,6 +68,95 @@ public class GlomicaveKG implements Callable<Integer> {
 		@Option(names = {"-t", "--threads"}, description = "Max number of threads to execute in parallel.")
 		private int pool_size = 1; // default pool size is '1' 
 
+		// cache of sentence annotations
+		
+		@Option(names = {"--annotation_store"}, description = "Directory of the on-disk cache of sentence annotations, "
+				+ "e.g. './data/annotation_store'."
+				+ "\nDefault: disabled.")
+		private String annotation_store_dir = null;
+		
+		@Option(names = {"--candidate_store"}, description = "Directory storing lexical form candidates of each sentence, "
+				+ "e.g. './data/candidate_store'. Stored candidates are used to link existing sentences to new lexical forms without parsing. "
+				+ "Candidates are stored separately for each extraction settings and graph database."
+				+ "\nDefault: disabled.")
+		private String candidate_store_dir = null;
+		
+		@Option(names = {"--dictionary_dir"}, description = "Directory of the memory-mapped binary dictionaries, "
+				+ "e.g. './data/dictionaries'. The word list resources are converted into it on first use and shared by all processes on the host."
+				+ "\nDefault: disabled (word lists loaded into memory).")
+		private String dictionary_dir = null;
+		
+		// linking sentences to lexical forms
+		
+		@Option(names = {"--linking_mode"}, description = "Mode of linking sentences to lexical forms: "
+				+ "'PARSER' (candidates from the dependency parse of the sentence) | 'GAZETTEER' (token matching of all lexical forms)."
+				+ "\nDefault: 'PARSER'.")
+		private LinkingMode linking_mode = null;
+		
+		@Option(names = {"--extraction_mode"}, description = "Mode of extraction of lexical form candidates with linking mode 'PARSER': "
+				+ "'FULL' (dependency parse and sub-constituents of noun phrases) | 'FAST' (noun chunks from POS tags only, "
+				+ "about 10 times faster with a lower recall)."
+				+ "\nDefault: 'FULL'.")
+		private ExtractionMode extraction_mode = null;
+		
+		@Option(names = {"--bitmask_subconstituents"}, description = "Enumerate sub-constituents of noun phrases as bitmasks over the phrase words "
+				+ "instead of lists of words. Uses less time and memory on long noun phrases.")
+		private boolean bitmask_subconstituents = false;
+		
+		@Option(names = {"--max_subconstituents"}, description = "Max number of sub-constituent candidates per noun phrase. "
+				+ "Has only effect with option '--bitmask_subconstituents'. Set to 0 for no limit."
+				+ "\nDefault: 1000.")
+		private Integer max_subconstituents = null;
+		
+		@Option(names = {"--max_parse_tokens"}, description = "Max number of tokens of a sentence for dependency parsing. "
+				+ "Longer sentences get only candidates from POS tags (noun chunks as in extraction mode 'FAST'). Set to 0 for no limit."
+				+ "\nDefault: 150.")
+		private Integer max_parse_tokens = null;
+		
+		@Option(names = {"--parse_time_budget"}, description = "Time budget in milliseconds of the sub-constituent enumeration "
+				+ "of a sentence. Sentences over the budget get the noun chunks of their POS tags, which are not stored. Set to 0 for no limit."
+				+ "\nDefault: 5000.")
+		private Long parse_time_budget = null;
+		
+		@Option(names = {"--no_sentence_dedup"}, description = "Parse and link every sentence, also if another sentence of the run has the same text. "
+				+ "By default sentences with the same text (e.g. copyright lines) are parsed once and their links are copied.")
+		private boolean no_sentence_dedup = false;
+		
+		@Option(names = {"--fact_queue_size"}, description = "Max number of extracted facts waiting to be written into the graph database. "
+				+ "Sentence annotation pauses while the queue is full."
+				+ "\nHas only effect with pipeline 'extractFacts'."
+				+ "\nDefault: 10000.")
+		private int fact_queue_size = 0;
+		
+		@Option(names = {"--no_lemma_index"}, description = "Do not lemmatize the lexical forms when their index is built. "
+				+ "By default candidates are also matched with plural lexical forms by lemma (e.g. candidate 'heat shock protein' "
+				+ "with lexical form 'heat shock proteins'). Has only effect with linking mode 'PARSER'.")
+		private boolean no_lemma_index = false;
+		
+		@Option(names = {"--node_batch_size"}, description = "Max number of nodes written into the graph database in one batch statement "
+				+ "and transaction (publication and sentence nodes, lexical forms of an ontology record)."
+				+ "\nDefault: 1000.")
+		private int node_batch_size = 0;
+		
+		@Option(names = {"--relationship_batch_size"}, description = "Max number of relationships written into the graph database in one batch statement "
+				+ "and transaction (e.g. links of sentences to publications and lexical forms, lexical forms of an ontology record)."
+				+ "\nDefault: 1000.")
+		private int relationship_batch_size = 0;
+		
+		@Option(names = {"--transaction_batch_size"}, description = "Max number of write statements of a loader committed into the graph database "
+				+ "in one transaction (e.g. ontology records, traits, facts)."
+				+ "\nDefault: 1000.")
+		private int transaction_batch_size = 0;
+		
+		@Option(names = {"--transaction_retry_time"}, description = "Max time in seconds to retry a transaction of the graph database "
+				+ "failed with a transient error (e.g. deadlock), with exponential backoff."
+				+ "\nDefault: 30.")
+		private int transaction_retry_time = 0;
+		
+		@Option(names = {"--check_query_plans"}, description = "Explain the key queries of the graph database at pipeline start "
+				+ "and warn about the ones planned with a scan of all nodes (or all nodes of a label) instead of an index lookup.")
+		private boolean check_query_plans = false;
+
 		// config files	
 		
 		@Option(names = {"--cfg_logs"}, description = "Path to file 'log4j2.xml' with the logger settings.")
@@ -136,7 +229,7 @@ public class GlomicaveKG implements Callable<Integer> {
 			if (!Arrays.asList(piplineNames).contains(pipelineName)) {
 				System.out.println("Wrong pipline name. "
 						+ "\nPlease start again and select one of the pipelines from list: "
-						+ "\n\t'full'| 'addPublications' | 'addOntology' | 'addTraits' | 'loadFacts'.");
+						+ "\n\t'full'| 'addPublications' | 'addOntology' | 'addTraits' | 'loadFacts' | 'extractFacts'.");
 				return 1;
 			}
 			
@@ -144,6 +237,74 @@ public class GlomicaveKG implements Callable<Integer> {
 				GlobalParamsConfig.MAX_POOL_SIZE = pool_size;
 			}
 			
+			if (annotation_store_dir != null) {
+				GlobalParamsConfig.ANNOTATION_STORE_DIR = annotation_store_dir;
+			}
+			
+			if (candidate_store_dir != null) {
+				GlobalParamsConfig.CANDIDATE_STORE_DIR = candidate_store_dir;
+			}
+			
+			if (dictionary_dir != null) {
+				GlobalParamsConfig.DICTIONARY_DIR = dictionary_dir;
+			}
+			
+			if (linking_mode != null) {
+				GlobalParamsConfig.LINKING_MODE = linking_mode;
+			}
+			
+			if (extraction_mode != null) {
+				GlobalParamsConfig.EXTRACTION_MODE = extraction_mode;
+			}
+			
+			if (bitmask_subconstituents) {
+				GlobalParamsConfig.BITMASK_SUBCONSTITUENTS = true;
+			}
+			
+			if (max_subconstituents != null) {
+				GlobalParamsConfig.MAX_SUBCONSTITUENTS = max_subconstituents;
+			}
+			
+			if (max_parse_tokens != null) {
+				GlobalParamsConfig.MAX_PARSE_TOKENS = max_parse_tokens;
+			}
+			
+			if (parse_time_budget != null) {
+				GlobalParamsConfig.PARSE_TIME_BUDGET_MS = parse_time_budget;
+			}
+			
+			if (no_sentence_dedup) {
+				GlobalParamsConfig.SENTENCE_DEDUP = false;
+			}
+			
+			if (fact_queue_size > 0) {
+				GlobalParamsConfig.FACT_QUEUE_SIZE = fact_queue_size;
+			}
+			
+			if (no_lemma_index) {
+				GlobalParamsConfig.LEMMA_INDEX = false;
+			}
+			
+			if (node_batch_size > 0) {
+				GlobalParamsConfig.NODE_BATCH_SIZE = node_batch_size;
+			}
+			
+			if (relationship_batch_size > 0) {
+				GlobalParamsConfig.RELATIONSHIP_BATCH_SIZE = relationship_batch_size;
+			}
+			
+			if (transaction_batch_size > 0) {
+				GlobalParamsConfig.TRANSACTION_BATCH_SIZE = transaction_batch_size;
+			}
+			
+			if (transaction_retry_time > 0) {
+				GlobalParamsConfig.TRANSACTION_RETRY_TIME = transaction_retry_time;
+			}
+			
+			if (check_query_plans) {
+				GlobalParamsConfig.CHECK_QUERY_PLANS = true;
+			}
+			
 			initLoggers();
 			
 			if (pipelineName != null && !local_version) {
@@ -183,6 +344,11 @@ public class GlomicaveKG implements Callable<Integer> {
 								cfg_graphdb_file,
 								oie_triples_file);
 						break;
+					case "extractFacts":
+						ExtractOIEFactsAWS.run(
+								abridge,
+								cfg_graphdb_file);
+						break;
 					case "addOntology":
 						AddOntologyAWS.run(
 								abridge,
@@ -231,6 +397,11 @@ public class GlomicaveKG implements Callable<Integer> {
 								cfg_graphdb_file,
 								oie_triples_file);
 						break;
+					case "extractFacts":
+						ExtractOIEFactsLocal.run(
+								abridge, 
+								cfg_graphdb_file);
+						break;
 					case "addOntology":
 						AddOntologyLocal.run(
 								abridge,
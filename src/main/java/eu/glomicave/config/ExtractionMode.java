@@ -0,0 +1,10 @@
+package eu.glomicave.config;
+
+/**
+ *  Modes of extraction of lexical form candidates from sentences (linking mode PARSER).
+ *  	FULL: candidates from the dependency parse of the sentence, with all sub-constituents of the noun phrases.
+ *  	FAST: noun chunks from the POS tags only (no dependency parse), about 10 times faster with a lower recall.
+ */
+public enum ExtractionMode {
+	FULL, FAST;
+}
@@ -8,6 +8,40 @@ public class GlobalParamsConfig {
 	public static int MAX_POOL_SIZE = 1;
 	// Local paths for temporarily stored data
 	public static final String TMP_DATA_DIR = "./data/tmp_data";
+	// Local directory of the on-disk cache of sentence annotations (cache is disabled if null or empty)
+	public static String ANNOTATION_STORE_DIR = null;
+	// Local directory of the files with lexical form candidates of each sentence, one per extraction settings (store is disabled if null or empty)
+	public static String CANDIDATE_STORE_DIR = null;
+	// Local directory of the memory-mapped binary dictionaries, converted from the dictionary resources on first use (dictionaries are loaded into memory if null or empty)
+	public static String DICTIONARY_DIR = null;
+	// Mode of linking sentences to lexical forms
+	public static LinkingMode LINKING_MODE = LinkingMode.PARSER;
+	// Mode of extraction of lexical form candidates (linking mode PARSER)
+	public static ExtractionMode EXTRACTION_MODE = ExtractionMode.FULL;
+	// Enumerate sub-constituents of noun phrases as bitmasks over the phrase words
+	public static boolean BITMASK_SUBCONSTITUENTS = false;
+	// Max number of sub-constituent candidates per noun phrase with bitmask enumeration (no limit if not positive)
+	public static int MAX_SUBCONSTITUENTS = 1000;
+	// Max number of tokens of a dependency-parsed sentence, longer sentences get POS-only candidates (no limit if not positive)
+	public static int MAX_PARSE_TOKENS = 150;
+	// Time budget in ms of the sub-constituent enumeration of a sentence (no limit if not positive)
+	public static long PARSE_TIME_BUDGET_MS = 5000;
+	// Parse and link sentences with the same text only once per run
+	public static boolean SENTENCE_DEDUP = true;
+	// Max number of extracted facts waiting to be written into the graph database (pipeline 'extractFacts')
+	public static int FACT_QUEUE_SIZE = 10000;
+	// Lemmatize the lexical forms once when their index is built, and match candidates also by lemma (linking mode PARSER)
+	public static boolean LEMMA_INDEX = true;
+	// Max number of nodes written into the graph database in one batch statement and transaction
+	public static int NODE_BATCH_SIZE = 1000;
+	// Max number of relationships written into the graph database in one batch statement and transaction
+	public static int RELATIONSHIP_BATCH_SIZE = 1000;
+	// Max number of write statements of a loader committed in one transaction
+	public static int TRANSACTION_BATCH_SIZE = 1000;
+	// Max time in seconds to retry a graph database transaction failed with a transient error (e.g. deadlock)
+	public static int TRANSACTION_RETRY_TIME = 30;
+	// Explain the key graph database queries at pipeline start and warn about the ones scanning all nodes of a label
+	public static boolean CHECK_QUERY_PLANS = false;
 	// Path to loggers configuration file
 	public static final String CFG_LOGGER_FILE = "./config/log4j2.xml";
 	
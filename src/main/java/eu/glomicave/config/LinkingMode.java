@@ -0,0 +1,10 @@
+package eu.glomicave.config;
+
+/**
+ *  Modes of linking sentences to lexical forms.
+ *  	PARSER: lexical forms are looked up among the candidates extracted from the dependency parse of the sentence.
+ *  	GAZETTEER: all occurrences of the lexical forms are found by matching the sentence tokens against a trie of all lexical forms.
+ */
+public enum LinkingMode {
+	PARSER, GAZETTEER;
+}
@@ -0,0 +1,246 @@
+/**
+ * Side store of the lexical form candidates extracted from each sentence.
+ */
+
+package eu.glomicave.data_import;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import eu.glomicave.config.GlobalParamsConfig;
+import eu.glomicave.config.GraphDatabaseConfig;
+import eu.glomicave.data_import.extract_entities.Hashes;
+
+/**
+ * Candidate sets depend only on the sentence and the extraction settings, so they are extracted once (when the
+ * sentence node is created) and stored by sentence uid. Linking existing sentences to newly added lexical forms
+ * then only needs a lookup of the stored candidates in the lexical form maps, without parsing.
+ *
+ * The store keeps one append-only UTF-8 text file per extraction settings (see {@link #getSettings()}) and graph
+ * database, named by the hash of the settings, so that a run with other settings never gets stale candidates:
+ *
+ *     [store dir]/candidates-[settings hash].tsv
+ *
+ * The first line of the file holds the settings, the others one sentence each: uid and candidates separated by tabs.
+ * The file is loaded into memory on first use (one string per sentence; the last line of a uid wins). Lines are
+ * flushed every {@link #FLUSH_INTERVAL} sentences and when the store is closed.
+ * The store is disabled by default, i.e. if {@link GlobalParamsConfig#CANDIDATE_STORE_DIR} is null or empty.
+ */
+public class CandidateStore {
+	private static final Logger logger = LogManager.getLogger(CandidateStore.class);
+
+	private static final String SEPARATOR = "\t";
+	private static final String SETTINGS_PREFIX = "# ";
+	// number of stored sentences between two flushes of the store file
+	public static final int FLUSH_INTERVAL = 1000;
+
+	// store file of the loaded candidates, and its store directory and settings
+	private static Path file;
+	private static volatile String loadedKey;
+	// sentence uid -> candidates joined with SEPARATOR
+	private static volatile Map<String, String> candidates;
+	private static BufferedWriter writer;
+	private static int unflushed = 0;
+	private static final Object writerLock = new Object();
+
+	// statistics
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+
+
+	/** Check if the store is enabled. */
+	public static boolean isEnabled() {
+		return GlobalParamsConfig.CANDIDATE_STORE_DIR != null && !GlobalParamsConfig.CANDIDATE_STORE_DIR.isEmpty();
+	}
+
+
+	/**
+	 * Settings the extracted candidates depend on: extraction mode, sub-constituent enumeration and limits,
+	 * and the graph database the sentences are stored in.
+	 *
+	 * @return settings string
+	 */
+	public static String getSettings() {
+		GraphDatabaseConfig graphDB = GraphDatabaseConfig.getInstance();
+		return "extraction_mode=" + GlobalParamsConfig.EXTRACTION_MODE
+				+ " bitmask_subconstituents=" + GlobalParamsConfig.BITMASK_SUBCONSTITUENTS
+				+ " max_subconstituents=" + GlobalParamsConfig.MAX_SUBCONSTITUENTS
+				+ " max_parse_tokens=" + GlobalParamsConfig.MAX_PARSE_TOKENS
+				+ " graph_db=" + (graphDB != null ? graphDB.getURI() : "");
+	}
+
+
+	/**
+	 * Store file of the current settings.
+	 *
+	 * @return path of the store file, or null if the store is disabled
+	 */
+	public static Path getFile() {
+		if (!isEnabled()) {
+			return null;
+		}
+		String hash = Hashes.sha256(getSettings()).substring(0, 16);
+		return Paths.get(GlobalParamsConfig.CANDIDATE_STORE_DIR, "candidates-" + hash + ".tsv");
+	}
+
+
+	/**
+	 * Get stored candidates of a sentence.
+	 *
+	 * @param uid - sentence uid
+	 * @return set of candidates, or null if the sentence has no stored candidates
+	 */
+	public static HashSet<String> get(String uid) {
+		if (!isEnabled()) {
+			return null;
+		}
+
+		String line = getCandidates().get(uid);
+		if (line == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+
+		HashSet<String> result = new HashSet<>();
+		if (!line.isEmpty()) {
+			result.addAll(Arrays.asList(line.split(SEPARATOR)));
+		}
+		return result;
+	}
+
+
+	/**
+	 * Store candidates of a sentence, replacing previously stored ones.
+	 *
+	 * @param uid - sentence uid
+	 * @param sentenceCandidates - candidates extracted from the sentence
+	 */
+	public static void put(String uid, Collection<String> sentenceCandidates) {
+		if (!isEnabled()) {
+			return;
+		}
+
+		String line = String.join(SEPARATOR, sentenceCandidates);
+		Map<String, String> stored = getCandidates();
+		if (line.equals(stored.put(uid, line))) {
+			return;
+		}
+
+		synchronized (writerLock) {
+			try {
+				if (writer == null) {
+					boolean exists = Files.exists(file);
+					if (file.getParent() != null) {
+						Files.createDirectories(file.getParent());
+					}
+					writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+							StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+					if (!exists) {
+						writer.write(SETTINGS_PREFIX + getSettings());
+						writer.newLine();
+					}
+				}
+				writer.write(uid);
+				if (!line.isEmpty()) {
+					writer.write(SEPARATOR);
+					writer.write(line);
+				}
+				writer.newLine();
+				if (++unflushed >= FLUSH_INTERVAL) {
+					writer.flush();
+					unflushed = 0;
+				}
+			} catch (IOException e) {
+				logger.error("Cannot write candidates of sentence '{}' to '{}'.", uid, file, e);
+			}
+		}
+	}
+
+
+	/** Load the store file of the current settings on first use, or when the store directory or settings have changed. */
+	private static Map<String, String> getCandidates() {
+		String key = GlobalParamsConfig.CANDIDATE_STORE_DIR + SEPARATOR + getSettings();
+		Map<String, String> loaded = candidates;
+		if (loaded != null && key.equals(loadedKey)) {
+			return loaded;
+		}
+		return load(key);
+	}
+
+	private static synchronized Map<String, String> load(String key) {
+		if (candidates != null && key.equals(loadedKey)) {
+			return candidates;
+		}
+		close();
+		file = getFile();
+		Map<String, String> loaded = new ConcurrentHashMap<>();
+
+		if (Files.exists(file)) {
+			try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				String line;
+				boolean first = true;
+				while ((line = reader.readLine()) != null) {
+					if (first) {
+						first = false;
+						if (line.startsWith(SETTINGS_PREFIX)) {
+							continue;
+						}
+					}
+					int split = line.indexOf(SEPARATOR);
+					if (split < 0) {
+						loaded.put(line, "");
+					} else {
+						loaded.put(line.substring(0, split), line.substring(split + 1));
+					}
+				}
+			} catch (IOException e) {
+				logger.error("Cannot read candidate store '{}'.", file, e);
+			}
+		}
+		logger.info("Candidate store '{}' ({}): candidates of {} sentences loaded.", file, getSettings(), loaded.size());
+
+		candidates = loaded;
+		loadedKey = key;
+		return loaded;
+	}
+
+
+	/** Flush and close the store file. */
+	public static void close() {
+		synchronized (writerLock) {
+			if (writer != null) {
+				try {
+					writer.close();
+				} catch (IOException e) {
+					logger.error("Cannot close candidate store '{}'.", file, e);
+				}
+				writer = null;
+				unflushed = 0;
+			}
+		}
+	}
+
+
+	/** Log number of sentences with and without stored candidates. */
+	public static void logStatistics() {
+		if (isEnabled()) {
+			logger.info("Candidate store '{}': {} hits, {} misses.", file, hits.get(), misses.get());
+		}
+	}
+}
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -90,7 +91,12 @@ public class LoadAthenaPublicationsDataIntoGraphDB {
 			logger.info(processed + " / " + dois.size() + " publications processed.");
 		}
 		pool.shutdown();
-        while (!pool.isTerminated()) {}
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		} catch (InterruptedException e) {
+			logger.error("Interrupted while waiting for all threads to finish.", e);
+			Thread.currentThread().interrupt();
+		}
         
         publicationNodesCounts = CoreGraphDatabase.countNodeType(PredefinedCategories.PUBLICATION.toString()) - publicationNodesCounts;
         
@@ -138,7 +144,12 @@ public class LoadAthenaPublicationsDataIntoGraphDB {
 			logger.info(processed + " / " + dois.size() + " publications processed.");
 		}
 		pool.shutdown();
-        while (!pool.isTerminated()) {}
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		} catch (InterruptedException e) {
+			logger.error("Interrupted while waiting for all threads to finish.", e);
+			Thread.currentThread().interrupt();
+		}
         
         publicationNodesCounts = CoreGraphDatabase.countNodeType(PredefinedCategories.PUBLICATION.toString()) - publicationNodesCounts;
         
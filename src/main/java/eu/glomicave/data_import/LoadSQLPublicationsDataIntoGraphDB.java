@@ -1,7 +1,9 @@
 package eu.glomicave.data_import;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import eu.glomicave.config.GlobalParamsConfig;
 import eu.glomicave.persistence.CoreGraphDatabase;
 import eu.glomicave.persistence.PredefinedCategories;
 import eu.glomicave.persistence.PredefinedRelations;
@@ -27,23 +29,30 @@ public class LoadSQLPublicationsDataIntoGraphDB {
 			logger.info("! Shortened pipeline. {} publications will be processed !", dois.size());
 		}
 
+		// publication nodes are written in batches
+		List<Publication> publications = new ArrayList<>();
 		int processed = 0;
 		for (String doi : dois) {
-			integrateSQLPublicationIntoGraphDB(doi);
+			Publication publication = readSQLPublication(doi);
+			if (publication.paperAbstract != null && publication.paperAbstract.length() != 0) {
+				publications.add(publication);
+			} else {
+				logger.info("Publication '{}' containt no abstract text, skipped.", doi);
+			}
+			if (publications.size() >= GlobalParamsConfig.NODE_BATCH_SIZE) {
+				PublicationGraphDatabase.createPublicationNodesWithProperties(publications);
+				publications.clear();
+			}
 			logger.info(++processed + " / " + dois.size() + " publications processed.");
 		}
+		PublicationGraphDatabase.createPublicationNodesWithProperties(publications);
 	}
 
-	private static Publication integrateSQLPublicationIntoGraphDB(String doi) throws Exception {
+	private static Publication readSQLPublication(String doi) throws Exception {
 		Publication publication = new Publication();
 		publication.sqlId = SQLDatabase.getPublicationId(doi);
 		publication.doi = doi;
 		publication.paperAbstract = SQLDatabase.getAbstract(publication.sqlId);
-		if (publication.paperAbstract != null && publication.paperAbstract.length() != 0) {
-			PublicationGraphDatabase.createPublicationNodeWithProperties(publication);
-		} else {
-			logger.info("Publication '{}' containt no abstract text, skipped.", doi);
-		}
 
 		return publication;
 	}
@@ -9,54 +9,60 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Properties;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.neo4j.driver.Value;
 import org.neo4j.driver.types.Node;
 
-import edu.stanford.nlp.pipeline.CoreDocument;
-import edu.stanford.nlp.pipeline.CoreSentence;
-import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.ling.CoreLabel;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import eu.glomicave.persistence.CoreGraphDatabase;
+import eu.glomicave.persistence.MergeSummary;
 import eu.glomicave.persistence.PredefinedCategories;
 import eu.glomicave.persistence.PredefinedRelations;
+import eu.glomicave.persistence.RelationshipRow;
 import eu.glomicave.config.GlobalParamsConfig;
+import eu.glomicave.config.LinkingMode;
+import eu.glomicave.data_import.extract_entities.AnnotatedSentence;
+import eu.glomicave.data_import.extract_entities.AnnotationStore;
+import eu.glomicave.data_import.extract_entities.BatchAnnotator;
+import eu.glomicave.data_import.extract_entities.CoreNLPPipelinePool;
+import eu.glomicave.data_import.extract_entities.CoreNLPUtils;
 import eu.glomicave.data_import.extract_entities.ExtractEntities;
+import eu.glomicave.data_import.extract_entities.LexicalFormIndex;
+import eu.glomicave.data_import.extract_entities.LexicalFormMatcher;
+import eu.glomicave.data_import.extract_entities.ParseGuard;
+import eu.glomicave.data_import.extract_entities.SubConstituentEnumerator;
 
 
 public class PublicationGraphDatabase {
 	private static final Logger logger = LogManager.getLogger(PublicationGraphDatabase.class);
 	
 	private static final int ABRIDGE_MAX_NUM = 100;
+	// number of publications annotated in one batch
+	private static final int ANNOTATION_CHUNK_SIZE = 100;
 	
 	public static String UID_FIELD = "uid";
 	public static String LEXICAL_FORM_INITIALIZED = "initialized"; 
+	// number of sentences of a publication, set once all its sentence nodes are written
+	public static String SENTENCE_COUNT = "sentenceCount";
 	
-	private static HashMap<String, Node> lexicalFormToNode;
-	private static HashMap<String, Node> lexicalFormLowerCaseToNode;
-	
-	private static StanfordCoreNLP pipeline;
+	private static LexicalFormIndex lexicalFormIndex;
+	private static LexicalFormMatcher lexicalFormMatcher;
 	
 	static int poolSize = GlobalParamsConfig.MAX_POOL_SIZE;
 	//static int poolSize = 11;
 
-	static {
-		Properties props = new Properties();
-		props.setProperty("annotators", "tokenize,ssplit");
-		pipeline = new StanfordCoreNLP(props);
-	}
-
 	
 	/** 
 	 * Create publication node in GraphDB.
@@ -65,86 +71,97 @@ public class PublicationGraphDatabase {
 	 * @return
 	 */
 	static Node createPublicationNodeWithProperties(Publication publication) {
-		Node publicationNode = CoreGraphDatabase.createUIDNodeIfNotExistent(PredefinedCategories.PUBLICATION.toString(), publication.doi);
-
-		CoreGraphDatabase.setProperty(publicationNode, "sqlId", publication.sqlId);
-		CoreGraphDatabase.setProperty(publicationNode, "doi", publication.doi);
-		CoreGraphDatabase.setProperty(publicationNode, "s2Id", publication.s2Id);
-		CoreGraphDatabase.setProperty(publicationNode, "title", publication.title);
-		CoreGraphDatabase.setProperty(publicationNode, "year", publication.year);
-		CoreGraphDatabase.setProperty(publicationNode, "authors", publication.authors);
-		CoreGraphDatabase.setProperty(publicationNode, "paperAbstract", publication.paperAbstract);
-		//publicationNode = CoreGraphDatabase.getNodeById(publicationNode.id());
-		publicationNode = CoreGraphDatabase.getNodeById(publicationNode.get(UID_FIELD).asString());
-
-		return publicationNode;
+		List<Map<String, Object>> rows = new ArrayList<>();
+		rows.add(getPublicationProperties(publication));
+		
+		return CoreGraphDatabase.upsertNodesReturnNodes(PredefinedCategories.PUBLICATION.toString(), rows).get(0);
+	}
+	
+	
+	/** 
+	 * Create publication nodes in GraphDB in batches (see {@link CoreGraphDatabase#upsertNodes(String, List)}).
+	 * 
+	 * @param publications
+	 * @return number of nodes created or updated
+	 */
+	static int createPublicationNodesWithProperties(List<Publication> publications) {
+		List<Map<String, Object>> rows = new ArrayList<>(publications.size());
+		for (Publication publication : publications) {
+			rows.add(getPublicationProperties(publication));
+		}
+		
+		return CoreGraphDatabase.upsertNodes(PredefinedCategories.PUBLICATION.toString(), rows);
+	}
+	
+	
+	private static Map<String, Object> getPublicationProperties(Publication publication) {
+		Map<String, Object> properties = new HashMap<>();
+		properties.put(UID_FIELD, publication.doi);
+		properties.put("sqlId", publication.sqlId);
+		properties.put("doi", publication.doi);
+		properties.put("s2Id", publication.s2Id);
+		properties.put("title", publication.title);
+		properties.put("year", publication.year);
+		properties.put("authors", publication.authors);
+		properties.put("paperAbstract", publication.paperAbstract);
+		return properties;
 	}
 
 
-	/** Initialize mappings between lexical form texts and node instances in graphDB.
+	/** Initialize index of lexical form texts (uids of lexical form nodes in graphDB).
 	 * 
 	 */
 	public static void initializeLexicalFormNodeMaps() {
 		logger.info("*** Initializing mappings to lexical forms nodes ***");
 		
-		if (lexicalFormToNode == null || lexicalFormLowerCaseToNode == null) {
-			lexicalFormToNode = new HashMap<String, Node>();
-			lexicalFormLowerCaseToNode = new HashMap<String, Node>();
-
-			//List<Node> lexicalFormNodes = CoreGraphDatabase.getNodesByLabel(PredefinedCategories.LEXICAL_FORM.toString());
-			// get all lexical forms and set the initialization property to 'initialized'
-			List<Node> lexicalFormNodes = CoreGraphDatabase.updateNodesByLabel(
+		if (lexicalFormIndex == null) {
+			// get uids of all lexical forms and set the initialization property to 'initialized'
+			List<String> lexicalFormUIDs = CoreGraphDatabase.updateNodesByLabelReturnUIDs(
 											PredefinedCategories.LEXICAL_FORM.toString(), 
 											LEXICAL_FORM_INITIALIZED, Boolean.valueOf("true"));
 			
-			for (Node node : lexicalFormNodes) {
-				String lexicalFormString = node.get(CoreGraphDatabase.UID_FIELD).asString();
-				lexicalFormToNode.put(lexicalFormString, node);
-
-				String lexicalFormLowerCaseString = node.get(CoreGraphDatabase.UID_FIELD).asString().toLowerCase();
-				lexicalFormLowerCaseToNode.put(lexicalFormLowerCaseString, node);
-				
-				// set lexical form node as initialized
-				//CoreGraphDatabase.setProperty(node, LEXICAL_FORM_INITIALIZED, Boolean.valueOf("true"));
-			}
+			initializeLexicalFormIndex(lexicalFormUIDs);
 		}
 
-		logger.info("lexicalFormToNode: {} initialized.", lexicalFormToNode.size());
-		logger.info("lexicalFormLowerCaseToNode: {} initialized.", lexicalFormLowerCaseToNode.size());
+		logger.info("lexicalFormIndex: {} initialized.", lexicalFormIndex.size());
 	}
 	
 	
 	/** 
-	 * Initialize mappings between lexical form texts and node instances in graphDB 
+	 * Initialize index of lexical form texts (uids of lexical form nodes in graphDB)
 	 * only for nodes with the property 'initialized' = False
 	 */
 	public static void initializeNewLexicalFormNodeMaps() {
 		logger.info("*** Initializing mappings to recently added lexical forms nodes ***");
 		
-		if (lexicalFormToNode == null || lexicalFormLowerCaseToNode == null) {
-			lexicalFormToNode = new HashMap<String, Node>();
-			lexicalFormLowerCaseToNode = new HashMap<String, Node>();
-
-			// get only not-initialized lexical forms and set them to 'initialized'
-			List<Node> lexicalFormNodes = CoreGraphDatabase.updateNodesByLabelAndProperty(
+		if (lexicalFormIndex == null) {
+			// get uids of only not-initialized lexical forms and set them to 'initialized'
+			List<String> lexicalFormUIDs = CoreGraphDatabase.updateNodesByLabelAndPropertyReturnUIDs(
 												PredefinedCategories.LEXICAL_FORM.toString(), 
 												LEXICAL_FORM_INITIALIZED, Boolean.valueOf("false"),
 												LEXICAL_FORM_INITIALIZED, Boolean.valueOf("true"));
 			
-			for (Node node : lexicalFormNodes) {
-				String lexicalFormString = node.get(CoreGraphDatabase.UID_FIELD).asString();
-				lexicalFormToNode.put(lexicalFormString, node);
-
-				String lexicalFormLowerCaseString = node.get(CoreGraphDatabase.UID_FIELD).asString().toLowerCase();
-				lexicalFormLowerCaseToNode.put(lexicalFormLowerCaseString, node);
-				
-				// set lexical form node as initialized
-				//CoreGraphDatabase.setProperty(node, LEXICAL_FORM_INITIALIZED, Boolean.valueOf("true"));
-			}
+			initializeLexicalFormIndex(lexicalFormUIDs);
 		}
 
-		logger.info("lexicalFormToNode: {} initialized.", lexicalFormToNode.size());
-		logger.info("lexicalFormLowerCaseToNode: {} initialized.", lexicalFormLowerCaseToNode.size());
+		logger.info("lexicalFormIndex: {} initialized.", lexicalFormIndex.size());
+	}
+	
+	
+	private static void initializeLexicalFormIndex(List<String> lexicalFormUIDs) {
+		lexicalFormIndex = new LexicalFormIndex(lexicalFormUIDs.size());
+		for (String uid : lexicalFormUIDs) {
+			lexicalFormIndex.add(uid);
+		}
+		lexicalFormIndex.trim();
+		
+		lexicalFormMatcher = new LexicalFormMatcher(lexicalFormIndex);
+		if (GlobalParamsConfig.LINKING_MODE == LinkingMode.GAZETTEER) {
+			lexicalFormMatcher.buildTrie();
+			logger.info("Lexical forms trie: {} nodes.", lexicalFormMatcher.getTrieSize());
+		} else if (GlobalParamsConfig.LEMMA_INDEX) {
+			lexicalFormIndex.buildLemmaIndex(GlobalParamsConfig.MAX_POOL_SIZE);
+		}
 	}
 
 	
@@ -154,28 +171,77 @@ public class PublicationGraphDatabase {
 	 */
 	public static void connectSentenceNodeWithLexicalFormNodesSingleTokens(Node sentenceNode) {
 		//CoreGraphDatabase.runCypherQuery("MATCH (n)-[r:" + PredefinedRelations.APPEARS_IN.toString() + "]->() WHERE id(n)=" + sentenceNode.elementId() + " DELETE r");
-		CoreGraphDatabase.runCypherQuery("MATCH (n)-[r:" + PredefinedRelations.APPEARS_IN.toString() + "]->() WHERE n.uid=" + sentenceNode.get(UID_FIELD) + " DELETE r");
+		CoreGraphDatabase.deleteIncomingRelationships(PredefinedCategories.SENTENCE.toString(), sentenceNode.get(UID_FIELD).asString(), PredefinedRelations.APPEARS_IN.toString());
 		//CoreGraphDatabase.runCypherQuery("MATCH (n)-[r:" + PredefinedRelations.APPEARS_IN_LOWERCASE.toString() + "]->() WHERE id(n)=" + sentenceNode.elementId() + " DELETE r");
-		CoreGraphDatabase.runCypherQuery("MATCH (n)-[r:" + PredefinedRelations.APPEARS_IN_LOWERCASE.toString() + "]->() WHERE n.uid=" + sentenceNode.get(UID_FIELD) + " DELETE r");
+		CoreGraphDatabase.deleteIncomingRelationships(PredefinedCategories.SENTENCE.toString(), sentenceNode.get(UID_FIELD).asString(), PredefinedRelations.APPEARS_IN_LOWERCASE.toString());
 
-		Value value = sentenceNode.get("tokens");
-		//List<String> tokens = value.asList(t -> t.toString());
-		List<String> tokens = Arrays.asList(value.toString().split(";"));
-		tokens = tokens.stream().map(t -> t.substring(1, t.length() - 1)).collect(Collectors.toList()); 
-//			System.out.println(tokens);
+		SentenceTokens tokens = SentenceTokens.of(sentenceNode);
+		
+		Map<String, IntArrayList> spans = new LinkedHashMap<>();
+		Map<String, IntArrayList> spansLowerCase = new LinkedHashMap<>();
+		for (int i = 0; i < tokens.size(); i++) {
+			String token = tokens.get(i);
+			int begin = tokens.hasOffsets() ? tokens.begin(i) : -1;
+			int end = tokens.hasOffsets() ? tokens.end(i) : -1;
+			int lexicalFormId = lexicalFormIndex.getId(token);
+			if (lexicalFormId >= 0) {
+				addSpan(spans, lexicalFormIndex.getUID(lexicalFormId), begin, end);
+			} else if ((lexicalFormId = lexicalFormIndex.lookup(token)) >= 0) {
+				addSpan(spansLowerCase, lexicalFormIndex.getUID(lexicalFormId), begin, end);
+			}
+		}
 
-		for (String token : tokens) {
-			if (lexicalFormToNode.containsKey(token)) {
-//					System.out.println("found: " + token);
-				Node lexicalFormNode = lexicalFormToNode.get(token);
-				CoreGraphDatabase.createRelationshipIfNotExistent(lexicalFormNode, sentenceNode, PredefinedRelations.APPEARS_IN.toString());
-				//CoreGraphDatabase.createRelationship(lexicalFormNode, sentenceNode, PredefinedRelations.APPEARS_IN.toString());
-			} else if (lexicalFormLowerCaseToNode.containsKey(token.toLowerCase())) {
-//					System.out.println("found lowercase: " + token);
-				Node lexicalFormNode = lexicalFormLowerCaseToNode.get(token.toLowerCase());
-				CoreGraphDatabase.createRelationshipIfNotExistent(lexicalFormNode, sentenceNode, PredefinedRelations.APPEARS_IN_LOWERCASE.toString());
-				//CoreGraphDatabase.createRelationship(lexicalFormNode, sentenceNode, PredefinedRelations.APPEARS_IN_LOWERCASE.toString());
-			} else { }
+		String sentenceUID = sentenceNode.get(UID_FIELD).asString();
+		createAppearsInRelations(sentenceUID, spans, PredefinedRelations.APPEARS_IN.toString());
+		createAppearsInRelations(sentenceUID, spansLowerCase, PredefinedRelations.APPEARS_IN_LOWERCASE.toString());
+	}
+	
+	
+	/** 
+	 * Add a character span of a lexical form occurrence in a sentence (ignored if the span is unknown).
+	 * 
+	 * @param spans - begin and end offsets of the occurrences of each lexical form
+	 * @param lexicalForm
+	 * @param begin
+	 * @param end
+	 */
+	private static void addSpan(Map<String, IntArrayList> spans, String lexicalForm, int begin, int end) {
+		IntArrayList offsets = spans.computeIfAbsent(lexicalForm, k -> new IntArrayList(2));
+		if (begin >= 0 && end >= 0) {
+			offsets.add(begin);
+			offsets.add(end);
+		}
+	}
+	
+	
+	/** 
+	 * Connect lexical_form nodes to a sentence node, storing the character spans of the occurrences 
+	 * of the lexical form in the relation properties 'begins' and 'ends' (if known).
+	 * 
+	 * @param sentenceUID
+	 * @param spans - begin and end offsets of the occurrences of each lexical form
+	 * @param relation
+	 */
+	private static void createAppearsInRelations(String sentenceUID, Map<String, IntArrayList> spans, String relation) {
+		List<RelationshipRow> rows = new ArrayList<>(spans.size());
+		for (Map.Entry<String, IntArrayList> entry : spans.entrySet()) {
+			IntArrayList offsets = entry.getValue();
+			Map<String, Object> properties = new HashMap<>();
+			if (!offsets.isEmpty()) {
+				int[] begins = new int[offsets.size() / 2];
+				int[] ends = new int[offsets.size() / 2];
+				for (int i = 0; i < begins.length; i++) {
+					begins[i] = offsets.getInt(2 * i);
+					ends[i] = offsets.getInt(2 * i + 1);
+				}
+				properties.put("begins", begins);
+				properties.put("ends", ends);
+			}
+			rows.add(new RelationshipRow(PredefinedCategories.LEXICAL_FORM.toString(), entry.getKey(), 
+					PredefinedCategories.SENTENCE.toString(), sentenceUID, properties));
+		}
+		if (!rows.isEmpty()) {
+			CoreGraphDatabase.mergeRelationships(relation, rows);
 		}
 	}
 	
@@ -187,56 +253,132 @@ public class PublicationGraphDatabase {
 	 * @param sentenceNode
 	 */
 	public static void connectSentenceNodeWithLexicalFormNodes(Node sentenceNode) {
+		connectSentenceNodeWithLexicalFormNodes(sentenceNode, null);
+	}
+	
+	
+	/** 
+	 * Clear existing APPEARS_IN and APPEARS_IN_LOWERCASE relations and connect 
+	 * lexical_form nodes to a sentence node using an already annotated sentence. 
+	 * 
+	 * @param sentenceNode
+	 * @param annotatedSentence - annotation of the sentence (parsed again if null)
+	 */
+	public static void connectSentenceNodeWithLexicalFormNodes(Node sentenceNode, AnnotatedSentence annotatedSentence) {
 		// Clear first appers_in relations for the sentence node
-		CoreGraphDatabase.runCypherQuery("MATCH (n)-[r:" + PredefinedRelations.APPEARS_IN.toString() + "]->() WHERE n.uid=" + sentenceNode.get(UID_FIELD) + " DELETE r");
-		CoreGraphDatabase.runCypherQuery("MATCH (n)-[r:" + PredefinedRelations.APPEARS_IN_LOWERCASE.toString() + "]->() WHERE n.uid=" + sentenceNode.get(UID_FIELD) + " DELETE r");
+		CoreGraphDatabase.deleteIncomingRelationships(PredefinedCategories.SENTENCE.toString(), sentenceNode.get(UID_FIELD).asString(), PredefinedRelations.APPEARS_IN.toString());
+		CoreGraphDatabase.deleteIncomingRelationships(PredefinedCategories.SENTENCE.toString(), sentenceNode.get(UID_FIELD).asString(), PredefinedRelations.APPEARS_IN_LOWERCASE.toString());
 
-		connectSentenceNodeWithNewLexicalFormNodes(sentenceNode);
+		connectSentenceNodeWithNewLexicalFormNodes(sentenceNode, annotatedSentence);
 	}
 	
 	
 	/** 
-	 * Connect lexical_form nodes to a sentence node based on advanced sentence parsing.
+	 * Get lexical form candidates of a sentence node. Candidates are extracted by sentence parsing 
+	 * only once and then taken from the candidate store.
+	 * 
+	 * @param sentenceNode
+	 * @return
+	 */
+	public static HashSet<String> getSentenceCandidates(Node sentenceNode) {
+		return getSentenceCandidates(sentenceNode, null);
+	}
+	
+	
+	/** 
+	 * Get lexical form candidates of a sentence node. If the sentence is already annotated, candidates 
+	 * are extracted from the annotation and stored, otherwise they are taken from the candidate store 
+	 * (or extracted by sentence parsing if not stored yet). Candidates of a sentence whose time budget ran out
+	 * are the noun chunks only and are not stored, so that a later run extracts them again.
+	 * 
+	 * @param sentenceNode
+	 * @param annotatedSentence - annotation of the sentence with dependency parse, or only with POS tags if the 
+	 * sentence is not parsed (or null)
+	 * @return
+	 */
+	public static HashSet<String> getSentenceCandidates(Node sentenceNode, AnnotatedSentence annotatedSentence) {
+		String sentenceUID = sentenceNode.get(UID_FIELD).asString();
+		
+		HashSet<String> candidates = null;
+		if (annotatedSentence == null || !annotatedSentence.hasPartsOfSpeech()) {
+			candidates = CandidateStore.get(sentenceUID);
+			if (candidates != null) {
+				return candidates;
+			}
+			annotatedSentence = ExtractEntities.annotate(sentenceNode.get("text").asString());
+		}
+		
+		candidates = ExtractEntities.extractNamedEntitiesWithinBudget(annotatedSentence);
+		if (candidates == null) {
+			return ExtractEntities.extractNounChunks(annotatedSentence);
+		}
+		CandidateStore.put(sentenceUID, candidates);
+		return candidates;
+	}
+	
+	
+	/** 
+	 * Connect lexical_form nodes to a sentence node. Depending on the linking mode, lexical forms are 
+	 * matched with candidates from advanced sentence parsing or with the sentence tokens (gazetteer).
 	 * 
 	 * @param sentenceNode
 	 */
 	public static int connectSentenceNodeWithNewLexicalFormNodes(Node sentenceNode) {
+		return connectSentenceNodeWithNewLexicalFormNodes(sentenceNode, null);
+	}
+	
+	
+	/** 
+	 * Connect lexical_form nodes to a sentence node using an already annotated sentence.
+	 * 
+	 * @param sentenceNode
+	 * @param annotatedSentence - annotation of the sentence (or null)
+	 */
+	public static int connectSentenceNodeWithNewLexicalFormNodes(Node sentenceNode, AnnotatedSentence annotatedSentence) {
 		int connectionsCount = 0;
-		String sentenceText = sentenceNode.get("text").toString();
 		
-		logger.info("Check matches with {} lexical forms.", lexicalFormToNode.size());
+		logger.info("Check matches with {} lexical forms.", lexicalFormIndex.size());
 		
-		HashSet<String> candidates = ExtractEntities.extractNamedEntities(sentenceText);
-        for (String cand: candidates) {
-        	// trim
-        	cand = cand.trim();
-        	// check match to the lexical form independently on the first letter case
-    		if (lexicalFormToNode.containsKey(StringUtils.uncapitalize(cand))) {
-				logger.info("found: " + cand);
-				//System.out.println("found: " + cand);
-				Node lexicalFormNode = lexicalFormToNode.get(StringUtils.uncapitalize(cand));
-				CoreGraphDatabase.createRelationshipIfNotExistent(lexicalFormNode, sentenceNode, PredefinedRelations.APPEARS_IN.toString());
-				connectionsCount++;
-			} 
-    		else if (lexicalFormToNode.containsKey(StringUtils.capitalize(cand))) {
-				Node lexicalFormNode = lexicalFormToNode.get(StringUtils.capitalize(cand));
-				CoreGraphDatabase.createRelationshipIfNotExistent(lexicalFormNode, sentenceNode, PredefinedRelations.APPEARS_IN.toString());
-				connectionsCount++;
-			}
-    		// compare in lowercase if searched term is longer than 3 symbols
-			else if (cand.length() > 3 && lexicalFormLowerCaseToNode.containsKey(cand.toLowerCase())) {
-				logger.info("found lowercase: " + cand);
-				//System.out.println("found lowercase: " + cand);
-				Node lexicalFormNode = lexicalFormLowerCaseToNode.get(cand.toLowerCase());
-				CoreGraphDatabase.createRelationshipIfNotExistent(lexicalFormNode, sentenceNode, PredefinedRelations.APPEARS_IN_LOWERCASE.toString());
+		List<LexicalFormMatcher.Match> matches;
+		if (GlobalParamsConfig.LINKING_MODE == LinkingMode.GAZETTEER) {
+			matches = lexicalFormMatcher.matchText(sentenceNode.get("text").asString());
+		} else {
+			matches = lexicalFormMatcher.matchCandidates(getSentenceCandidates(sentenceNode, annotatedSentence));
+		}
+		
+		// each relation is created once, with the spans of all occurrences (gazetteer matching only)
+		Map<String, IntArrayList> spans = new LinkedHashMap<>();
+		Map<String, IntArrayList> spansLowerCase = new LinkedHashMap<>();
+		for (LexicalFormMatcher.Match match : matches) {
+			Map<String, IntArrayList> target = match.isLowerCase() ? spansLowerCase : spans;
+			if (!target.containsKey(match.getLexicalForm())) {
+				logger.info((match.isLowerCase() ? "found lowercase: " : "found: ") + match.getLexicalForm());
 				connectionsCount++;
 			}
-			else {
-				//logger.info("No matches for candidate '{}' among new lexical forms.", cand);
-			}
-        }
-        
-        return connectionsCount;
+			addSpan(target, match.getLexicalForm(), match.getCharBegin(), match.getCharEnd());
+		}
+		
+		String sentenceUID = sentenceNode.get(UID_FIELD).asString();
+		createAppearsInRelations(sentenceUID, spans, PredefinedRelations.APPEARS_IN.toString());
+		createAppearsInRelations(sentenceUID, spansLowerCase, PredefinedRelations.APPEARS_IN_LOWERCASE.toString());
+		
+		return connectionsCount;
+	}
+	
+	
+	/** 
+	 * Replace the annotations of sentences by their annotations from a second pass. A sentence split 
+	 * differently on its own gets no annotation (it is parsed again when linked).
+	 * 
+	 * @param sentences
+	 * @param indexes - indexes of the annotated sentences in the list
+	 * @param annotations - annotations of the sentence texts
+	 */
+	private static void setAnnotations(List<AnnotatedSentence> sentences, List<Integer> indexes, List<ObjectArrayList<AnnotatedSentence>> annotations) {
+		for (int i = 0; i < indexes.size(); i++) {
+			ObjectArrayList<AnnotatedSentence> annotation = annotations.get(i);
+			sentences.set(indexes.get(i), annotation.size() == 1 ? annotation.get(0) : null);
+		}
 	}
 	
 	
@@ -247,15 +389,29 @@ public class PublicationGraphDatabase {
 	 * @return
 	 */
 	public static Node createSentenceNode(Sentence sentence) {
-		Node sentenceNode = CoreGraphDatabase.createUIDNodeIfNotExistent(PredefinedCategories.SENTENCE.toString(), sentence.uid);
-		CoreGraphDatabase.setProperty(sentenceNode, "index", sentence.index);
-		CoreGraphDatabase.setProperty(sentenceNode, "text", sentence.text);
-		//CoreGraphDatabase.setProperty(sentenceNode, "tokens", sentence.tokens);
-		CoreGraphDatabase.setProperty(sentenceNode, "tokens", String.join(";",sentence.tokens));
+		List<Sentence> sentences = new ArrayList<>();
+		sentences.add(sentence);
+		return createSentenceNodes(sentences).get(0);
+	}
+	
+	
+	/** 
+	 * Create the nodes of sentences in GraphDB in batches (see {@link CoreGraphDatabase#upsertNodes(String, List)}).
+	 * 
+	 * @param sentences
+	 * @return sentence nodes, in the order of the sentences
+	 */
+	public static List<Node> createSentenceNodes(List<Sentence> sentences) {
+		List<Map<String, Object>> rows = new ArrayList<>(sentences.size());
+		for (Sentence sentence : sentences) {
+			Map<String, Object> properties = SentenceTokens.toProperties(sentence);
+			properties.put(UID_FIELD, sentence.uid);
+			properties.put("index", sentence.index);
+			properties.put("text", sentence.text);
+			rows.add(properties);
+		}
 		
-		//sentenceNode = CoreGraphDatabase.getNodeById(sentenceNode.id());
-		sentenceNode = CoreGraphDatabase.getNodeById(sentenceNode.get(UID_FIELD).asString());
-		return sentenceNode;
+		return CoreGraphDatabase.upsertNodesReturnNodes(PredefinedCategories.SENTENCE.toString(), rows);
 	}
 	
 	
@@ -278,23 +434,25 @@ public class PublicationGraphDatabase {
 		final class WorkerThread implements Runnable {
 		    private String command;
 		    private Node sentenceNode;
+		    private AnnotatedSentence annotatedSentence;
 		    
-		    public WorkerThread(String s, Node sentenceNode){
+		    public WorkerThread(String s, Node sentenceNode, AnnotatedSentence annotatedSentence){
 		        this.command=s;
 		        this.sentenceNode=sentenceNode;
+		        this.annotatedSentence=annotatedSentence;
 		    }
 
 		    @Override
 		    public void run() {
 		        //System.out.println(Thread.currentThread().getName()+" Start. "+command);
 		    	logger.info(Thread.currentThread().getName()+" Start. "+command);
-		        processCommand(sentenceNode);
+		        processCommand(sentenceNode, annotatedSentence);
 		        //System.out.println(Thread.currentThread().getName()+" End.");
 		        logger.info(Thread.currentThread().getName()+" End.");
 		    }
 
-		    private void processCommand(Node sentenceNode) {
-		    	connectSentenceNodeWithLexicalFormNodes(sentenceNode);
+		    private void processCommand(Node sentenceNode, AnnotatedSentence annotatedSentence) {
+		    	connectSentenceNodeWithLexicalFormNodes(sentenceNode, annotatedSentence);
 		    }
 		    
 		    @Override
@@ -310,41 +468,144 @@ public class PublicationGraphDatabase {
 		List<Node> publicationNodes = CoreGraphDatabase.getNodesByLabel(PredefinedCategories.PUBLICATION.toString());
 		logger.info("Publication nodes retrieved: {}.", publicationNodes.size());
 
-		for (int publicationIndex = 0; publicationIndex < publicationNodes.size(); publicationIndex++) {
-			Node publicationNode = publicationNodes.get(publicationIndex);
-			String text = publicationNode.get("paperAbstract").asString();
-			String documentDOI = publicationNode.get("doi").asString();
-			try {
-				if (text != null && text.length() != 0) {
-					List<Sentence> sentences = splitSentences(text);
-					for (Sentence sentence : sentences) {			
+		// sentences are split in one batch per chunk of publications, and parsed afterwards in PARSER linking mode
+		// (without the sentences over the token limit, see ParseGuard)
+		boolean parse = GlobalParamsConfig.LINKING_MODE == LinkingMode.PARSER;
+		
+		// with sentence dedup, only the first sentence with a given text is parsed
+		SentenceDeduplicator deduplicator = GlobalParamsConfig.SENTENCE_DEDUP ? new SentenceDeduplicator() : null;
+		
+		for (int chunkStart = 0; chunkStart < publicationNodes.size(); chunkStart += ANNOTATION_CHUNK_SIZE) {
+			List<Integer> chunkIndexes = new ArrayList<>();
+			List<String> chunkTexts = new ArrayList<>();
+			
+			for (int publicationIndex = chunkStart; publicationIndex < Math.min(chunkStart + ANNOTATION_CHUNK_SIZE, publicationNodes.size()); publicationIndex++) {
+				Node publicationNode = publicationNodes.get(publicationIndex);
+				String text = publicationNode.get("paperAbstract").asString();
+				String documentDOI = publicationNode.get("doi").asString();
+				
+				if (text == null || text.length() == 0) {
+					continue;
+				}
+				// Skip publication if all its sentence nodes exist
+				if (publicationNode.containsKey(SENTENCE_COUNT)) {
+					logger.info("Data for publication index {} already exist.", publicationIndex);
+					continue;
+				}
+				chunkIndexes.add(publicationIndex);
+				chunkTexts.add(text);
+			}
+			
+			List<ObjectArrayList<AnnotatedSentence>> chunkSentences = BatchAnnotator.annotate(CoreNLPUtils.PROFILE_SPLIT, chunkTexts, poolSize);
+			
+			// sentences of the chunk, with their publication nodes and annotations
+			List<Sentence> sentences = new ArrayList<>();
+			List<Node> sentencePublicationNodes = new ArrayList<>();
+			List<AnnotatedSentence> sentenceAnnotations = new ArrayList<>();
+			// publications with sentences, marked as done once their sentences are written
+			List<Map<String, Object>> finishedPublications = new ArrayList<>();
+			
+			for (int i = 0; i < chunkIndexes.size(); i++) {
+				int publicationIndex = chunkIndexes.get(i);
+				Node publicationNode = publicationNodes.get(publicationIndex);
+				String documentDOI = publicationNode.get("doi").asString();
+				try {
+					ObjectArrayList<AnnotatedSentence> annotatedSentences = chunkSentences.get(i);
+					for (int sentenceIndex = 0; sentenceIndex < annotatedSentences.size(); sentenceIndex++) {
+						AnnotatedSentence annotatedSentence = annotatedSentences.get(sentenceIndex);
+						Sentence sentence = toSentence(annotatedSentence, sentenceIndex + 1);
 						sentence.uid = documentDOI + "/" + sentence.index;
 						
-						// Stop if sentence node exists
-						Node uidNode = CoreGraphDatabase.getUIDNode(PredefinedCategories.SENTENCE.toString(), sentence.uid);
-						if (uidNode != null) {
-							logger.info("Data for publication index {} already exist.", publicationIndex);
-							break;
-						}
-						// Create sentence node
-						Node sentenceNode = createSentenceNode(sentence);
-						// Link sentence to publication
-						CoreGraphDatabase.createRelationshipIfNotExistent(
-								sentenceNode, publicationNode, PredefinedRelations.IS_PART_OF_SENTENCE.toString());
-						//CoreGraphDatabase.createRelationship(sentenceNode, publicationNode, PredefinedRelations.IS_PART_OF_SENTENCE.toString());
-						
-						// Link sentence to lexical forms
-						pool.execute(new WorkerThread("Reading: " + sentence.uid, sentenceNode));
-						//connectSentenceNodeWithLexicalFormNodes(sentenceNode);
+						sentences.add(sentence);
+						sentencePublicationNodes.add(publicationNode);
+						sentenceAnnotations.add(annotatedSentence);
 					}
+					if (!annotatedSentences.isEmpty()) {
+						Map<String, Object> row = new HashMap<>();
+						row.put(UID_FIELD, publicationNode.get(UID_FIELD).asString());
+						row.put(SENTENCE_COUNT, annotatedSentences.size());
+						finishedPublications.add(row);
+					}
+				} catch (Exception e) {
+					logger.error("Error creating sentences for publication {} with doi '{}'.", publicationIndex, documentDOI, e);
 				}
+			}
+			
+			// Create sentence nodes of the chunk in batches
+			List<Node> sentenceNodes;
+			try {
+				sentenceNodes = createSentenceNodes(sentences);
+			} catch (Exception e) {
+				logger.error("Error creating {} sentence nodes for publications {} to {}.", sentences.size(), 
+						chunkStart + 1, Math.min(chunkStart + ANNOTATION_CHUNK_SIZE, publicationNodes.size()), e);
+				continue;
+			}
+			
+			// Link sentences of the chunk to their publications in batches
+			List<RelationshipRow> publicationRelations = new ArrayList<>(sentenceNodes.size());
+			for (int i = 0; i < sentenceNodes.size(); i++) {
+				publicationRelations.add(new RelationshipRow(PredefinedCategories.SENTENCE.toString(), sentences.get(i).uid, 
+						PredefinedCategories.PUBLICATION.toString(), sentencePublicationNodes.get(i).get(UID_FIELD).asString()));
+			}
+			try {
+				MergeSummary summary = CoreGraphDatabase.mergeRelationships(PredefinedRelations.IS_PART_OF_SENTENCE.toString(), publicationRelations);
+				logger.info("'{}' relations: {}.", PredefinedRelations.IS_PART_OF_SENTENCE.toString(), summary);
+				CoreGraphDatabase.upsertNodes(PredefinedCategories.PUBLICATION.toString(), finishedPublications);
 			} catch (Exception e) {
-				logger.error("Error creating sentence nodes for publication {} with doi '{}'.", publicationIndex, documentDOI, e);
+				logger.error("Error linking {} sentences to their publications.", publicationRelations.size(), e);
+			}
+			
+			// sentence nodes to link to lexical forms, with their annotations
+			List<Node> linkedNodes = new ArrayList<>();
+			List<AnnotatedSentence> linkedSentences = new ArrayList<>();
+			
+			for (int i = 0; i < sentenceNodes.size(); i++) {
+				Sentence sentence = sentences.get(i);
+				Node sentenceNode = sentenceNodes.get(i);
+				
+				// Sentence with the same text as an earlier sentence gets its links at the end
+				if (deduplicator != null && deduplicator.add(sentence.uid, sentence.text) != null) {
+					continue;
+				}
+				linkedNodes.add(sentenceNode);
+				linkedSentences.add(sentenceAnnotations.get(i));
+			}
+			logger.info("Publication {} / {} procesed.", Math.min(chunkStart + ANNOTATION_CHUNK_SIZE, publicationNodes.size()), publicationNodes.size());
+			
+			// Parse the (unique) sentences of the chunk in one batch, sentences over the token limit are only POS tagged
+			if (parse && !linkedSentences.isEmpty()) {
+				List<Integer> parseIndexes = new ArrayList<>();
+				List<String> parseTexts = new ArrayList<>();
+				List<Integer> tagIndexes = new ArrayList<>();
+				List<String> tagTexts = new ArrayList<>();
+				for (int i = 0; i < linkedSentences.size(); i++) {
+					AnnotatedSentence annotatedSentence = linkedSentences.get(i);
+					boolean tooLong = ParseGuard.exceedsLength(annotatedSentence.size());
+					(tooLong ? tagIndexes : parseIndexes).add(i);
+					(tooLong ? tagTexts : parseTexts).add(annotatedSentence.getText());
+				}
+				setAnnotations(linkedSentences, parseIndexes, BatchAnnotator.annotate(ExtractEntities.getAnnotatorProfile(), parseTexts, poolSize));
+				setAnnotations(linkedSentences, tagIndexes, BatchAnnotator.annotate(CoreNLPUtils.PROFILE_LEMMA, tagTexts, poolSize));
+			}
+			
+			// Link sentences to lexical forms
+			for (int i = 0; i < linkedNodes.size(); i++) {
+				Node sentenceNode = linkedNodes.get(i);
+				pool.execute(new WorkerThread("Reading: " + sentenceNode.get(UID_FIELD).asString(), sentenceNode, linkedSentences.get(i)));
 			}
-			logger.info("Publication {} / {} procesed.", publicationIndex+1, publicationNodes.size());
 		}
 		pool.shutdown();
-        while (!pool.isTerminated()) {}
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		} catch (InterruptedException e) {
+			logger.error("Interrupted while waiting for all threads to finish.", e);
+			Thread.currentThread().interrupt();
+		}
+        
+        // Copy links to sentences with the same text
+        if (deduplicator != null) {
+        	deduplicator.fanOut();
+        }
         
 		// node counts
 		sentenceNodesCounts = CoreGraphDatabase.countNodeType(PredefinedCategories.SENTENCE.toString()) - sentenceNodesCounts;
@@ -354,6 +615,15 @@ public class PublicationGraphDatabase {
 		appearsInLowercaseCounts = CoreGraphDatabase.countRelationType(PredefinedRelations.APPEARS_IN_LOWERCASE.toString()) - appearsInLowercaseCounts;
         
         logger.info("Finished all threads.");
+        CoreNLPPipelinePool.logStatistics();
+        AnnotationStore.logStatistics();
+        CandidateStore.logStatistics();
+        SubConstituentEnumerator.logStatistics();
+        ParseGuard.logStatistics();
+        if (deduplicator != null) {
+        	deduplicator.logStatistics();
+        }
+        CandidateStore.close();
         logger.info("{} SENTENCE nodes created.", sentenceNodesCounts);
         logger.info("Relations added: "
         		+ "{} 'IS_PART_OF_SENTENCE', {} 'APPEARS_IN', {} 'APPEARS_IN_LOWERCASE'.", 
@@ -446,9 +716,19 @@ public class PublicationGraphDatabase {
 	    }
 
 		pool.shutdown();
-        while (!pool.isTerminated()) {}
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		} catch (InterruptedException e) {
+			logger.error("Interrupted while waiting for all threads to finish.", e);
+			Thread.currentThread().interrupt();
+		}
         
         logger.info("Finished all threads.");
+        CoreNLPPipelinePool.logStatistics();
+        AnnotationStore.logStatistics();
+        CandidateStore.logStatistics();
+        SubConstituentEnumerator.logStatistics();
+        CandidateStore.close();
         logger.info("{} sentence nodes processed. {} connections created or re-established.", processed, connectionsEstablished); 
 	}
 	
@@ -459,20 +739,65 @@ public class PublicationGraphDatabase {
 	 * @return
 	 */
 	public static List<Sentence> splitSentences(String text) {
-		CoreDocument coreDocument = pipeline.processToCoreDocument(text);
-		List<Sentence> sentences = new LinkedList<>();
-		int index = 1;
-		for (CoreSentence coreSentence : coreDocument.sentences()) {
-			Sentence sentence = new Sentence();
-			sentence.index = index++;
-			sentence.text = coreSentence.text();
-			sentence.tokens = coreSentence.tokens().stream().map(t -> t.originalText()).collect(Collectors.toList());
-			sentences.add(sentence);
+		return splitSentences(Arrays.asList(text)).get(0);
+	}
+	
+	/** 
+	 * Split a chunk of texts into sentences and words in one batch.
+	 * 
+	 * @param texts
+	 * @return sentences of each text
+	 */
+	public static List<List<Sentence>> splitSentences(List<String> texts) {
+		return splitSentences(texts, poolSize);
+	}
+	
+	/** 
+	 * Split a chunk of texts into sentences and words in one batch with the given number of CoreNLP threads.
+	 * 
+	 * @param texts
+	 * @param threads
+	 * @return sentences of each text
+	 */
+	public static List<List<Sentence>> splitSentences(List<String> texts, int threads) {
+		List<ObjectArrayList<AnnotatedSentence>> annotatedTexts = BatchAnnotator.annotate(CoreNLPUtils.PROFILE_SPLIT, texts, threads);
+		List<List<Sentence>> sentences = new ArrayList<>(annotatedTexts.size());
+		for (ObjectArrayList<AnnotatedSentence> annotatedSentences : annotatedTexts) {
+			List<Sentence> textSentences = new ArrayList<>(annotatedSentences.size());
+			for (int index = 0; index < annotatedSentences.size(); index++) {
+				textSentences.add(toSentence(annotatedSentences.get(index), index + 1));
+			}
+			sentences.add(textSentences);
 		}
-
 		return sentences;
 	}
 	
+	/** 
+	 * Convert annotated sentence into sentence (text and words).
+	 * 
+	 * @param annotatedSentence
+	 * @param index - index of the sentence in the text, starting from 1
+	 * @return
+	 */
+	public static Sentence toSentence(AnnotatedSentence annotatedSentence, int index) {
+		Sentence sentence = new Sentence();
+		sentence.index = index;
+		sentence.text = annotatedSentence.getText();
+		List<CoreLabel> tokens = annotatedSentence.getTokens();
+		sentence.tokens = new ArrayList<>(tokens.size());
+		sentence.tokenBegins = new int[tokens.size()];
+		sentence.tokenEnds = new int[tokens.size()];
+		// token positions are offsets in the annotated document
+		int offset = annotatedSentence.getBeginOffset();
+		for (int i = 0; i < tokens.size(); i++) {
+			CoreLabel token = tokens.get(i);
+			sentence.tokens.add(token.originalText());
+			sentence.tokenBegins[i] = token.beginPosition() - offset;
+			sentence.tokenEnds[i] = token.endPosition() - offset;
+		}
+		return sentence;
+	}
+	
 	/** Create cooccurs_with relations when lexical forms are in the same sentence. */
 	public static void createCooccursWithRelations() {
 		logger.info("Re-create 'cooccurs_with' relations.");
@@ -7,6 +7,9 @@ public class Sentence {
 	public int index;
 	public String text;
 	public List<String> tokens;
+	/** Character offsets of the tokens in the sentence text (end exclusive) */
+	public int[] tokenBegins;
+	public int[] tokenEnds;
 
 	@Override
 	public String toString() {
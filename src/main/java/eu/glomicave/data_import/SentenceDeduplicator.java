@@ -0,0 +1,101 @@
+/**
+ * Deduplication of sentence texts across publications.
+ */
+
+package eu.glomicave.data_import;
+
+import java.util.HashSet;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import eu.glomicave.persistence.CoreGraphDatabase;
+import eu.glomicave.persistence.PredefinedCategories;
+import eu.glomicave.persistence.PredefinedRelations;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+/**
+ * Abstracts share boilerplate sentences (copyright lines, funding statements, ...). Sentences with
+ * the same text have the same candidates and the same lexical form links, so only the first sentence
+ * with a given text (the representative) is parsed and linked. The links of the representative are
+ * then copied to the other sentences with the same text (see {@link #fanOut()}).
+ *
+ * Sentences are deduplicated on their exact text: the relations copied to a duplicate carry the spans
+ * of the lexical forms in the text of the representative (see {@link SentenceTokens}), which are only
+ * valid for the same text. The text and the uid of each representative are kept in memory.
+ */
+public class SentenceDeduplicator {
+	private static final Logger logger = LogManager.getLogger(SentenceDeduplicator.class);
+
+	// sentence text -> uid of the representative sentence
+	private final Object2ObjectOpenHashMap<String, String> representatives = new Object2ObjectOpenHashMap<>();
+	// pairs of duplicate sentence uid and representative sentence uid
+	private final ObjectArrayList<String[]> duplicates = new ObjectArrayList<>();
+
+	private long sentences = 0;
+	private long copiedRelations = 0;
+
+
+	/**
+	 * Register a sentence.
+	 *
+	 * @param uid - sentence uid
+	 * @param text - sentence text
+	 * @return uid of the representative sentence with the same text, or null if the sentence is the first with its text
+	 */
+	public String add(String uid, String text) {
+		sentences++;
+		String representative = representatives.putIfAbsent(text, uid);
+		if (representative == null) {
+			return null;
+		}
+		duplicates.add(new String[] {uid, representative});
+		return representative;
+	}
+
+
+	/**
+	 * Copy the lexical form links (and the stored candidates) of the representative sentences to
+	 * their duplicates. Called once all representatives are linked.
+	 *
+	 * @return number of copied relations
+	 */
+	public long fanOut() {
+		long count = 0;
+		for (String[] duplicate : duplicates) {
+			try {
+				count += CoreGraphDatabase.copyIncomingRelationships(PredefinedCategories.SENTENCE.toString(), duplicate[1], duplicate[0], PredefinedRelations.APPEARS_IN.toString());
+				count += CoreGraphDatabase.copyIncomingRelationships(PredefinedCategories.SENTENCE.toString(), duplicate[1], duplicate[0], PredefinedRelations.APPEARS_IN_LOWERCASE.toString());
+
+				HashSet<String> candidates = CandidateStore.get(duplicate[1]);
+				if (candidates != null) {
+					CandidateStore.put(duplicate[0], candidates);
+				}
+			} catch (Exception e) {
+				logger.error("Error copying links of sentence '{}' to sentence '{}'.", duplicate[1], duplicate[0], e);
+			}
+		}
+		copiedRelations += count;
+		duplicates.clear();
+		return count;
+	}
+
+
+	/** Log the number of sentences, unique sentence texts and the dedup ratio. */
+	public void logStatistics() {
+		long unique = representatives.size();
+		logger.info("Sentence dedup: {} sentences, {} unique texts, {} duplicates (dedup ratio {}), {} relations copied.",
+				sentences, unique, sentences - unique,
+				String.format("%.3f", sentences > 0 ? (double) (sentences - unique) / sentences : 0.0), copiedRelations);
+	}
+
+	// Getters
+	public long getSentences() {
+		return sentences;
+	}
+
+	public int getUniqueSentences() {
+		return representatives.size();
+	}
+}
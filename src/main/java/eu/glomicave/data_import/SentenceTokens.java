@@ -0,0 +1,117 @@
+/**
+ * Read access to the tokens stored on a sentence node.
+ */
+
+package eu.glomicave.data_import;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import org.neo4j.driver.Value;
+import org.neo4j.driver.types.Node;
+import org.neo4j.driver.types.TypeSystem;
+
+/**
+ * Tokens of a sentence node. Tokens are stored as a list of strings, together with the begin and end
+ * character offsets of each token in the sentence text (end exclusive):
+ *  - tokens: ["Salt", "stress", "induces", ...]
+ *  - token_begins: [0, 5, 12, ...]
+ *  - token_ends: [4, 11, 19, ...]
+ *
+ * The list is a view over the property values of the node, no token is copied. Sentence nodes
+ * written before token lists were introduced hold the tokens as one string joined by ';' and
+ * have no offsets; their tokens are split once when read.
+ */
+public class SentenceTokens extends AbstractList<String> implements RandomAccess {
+	public static final String TOKENS_FIELD = "tokens";
+	public static final String TOKEN_BEGINS_FIELD = "token_begins";
+	public static final String TOKEN_ENDS_FIELD = "token_ends";
+
+	private static final String LEGACY_SEPARATOR = ";";
+
+	// list value of the tokens (null for the legacy format)
+	private final Value tokens;
+	// tokens in the legacy format
+	private final String[] legacyTokens;
+	// list values of the offsets (null if not stored)
+	private final Value begins;
+	private final Value ends;
+
+	private SentenceTokens(Value tokens, String[] legacyTokens, Value begins, Value ends) {
+		this.tokens = tokens;
+		this.legacyTokens = legacyTokens;
+		this.begins = begins;
+		this.ends = ends;
+	}
+
+
+	/**
+	 * Get the tokens of a sentence node.
+	 *
+	 * @param sentenceNode
+	 * @return tokens (empty if the node has no tokens)
+	 */
+	public static SentenceTokens of(Node sentenceNode) {
+		Value value = sentenceNode.get(TOKENS_FIELD);
+		if (value.isNull()) {
+			return new SentenceTokens(null, new String[0], null, null);
+		}
+		if (!value.hasType(TypeSystem.getDefault().LIST())) {
+			String joined = value.asString();
+			return new SentenceTokens(null, joined.isEmpty() ? new String[0] : joined.split(LEGACY_SEPARATOR), null, null);
+		}
+
+		Value begins = sentenceNode.get(TOKEN_BEGINS_FIELD);
+		Value ends = sentenceNode.get(TOKEN_ENDS_FIELD);
+		if (begins.isNull() || ends.isNull() || begins.size() != value.size() || ends.size() != value.size()) {
+			begins = null;
+			ends = null;
+		}
+		return new SentenceTokens(value, null, begins, ends);
+	}
+
+
+	/**
+	 * Get the properties of a sentence node holding the tokens of a sentence.
+	 *
+	 * @param sentence
+	 * @return map of property names to values
+	 */
+	public static Map<String, Object> toProperties(Sentence sentence) {
+		Map<String, Object> properties = new HashMap<>();
+		properties.put(TOKENS_FIELD, sentence.tokens);
+		if (sentence.tokenBegins != null && sentence.tokenEnds != null) {
+			properties.put(TOKEN_BEGINS_FIELD, sentence.tokenBegins);
+			properties.put(TOKEN_ENDS_FIELD, sentence.tokenEnds);
+		}
+		return properties;
+	}
+
+
+	@Override
+	public String get(int index) {
+		return tokens != null ? tokens.get(index).asString() : legacyTokens[index];
+	}
+
+	@Override
+	public int size() {
+		return tokens != null ? tokens.size() : legacyTokens.length;
+	}
+
+	/** True if the character offsets of the tokens are stored. */
+	public boolean hasOffsets() {
+		return begins != null;
+	}
+
+	/** Begin character offset of a token in the sentence text. */
+	public int begin(int index) {
+		return begins.get(index).asInt();
+	}
+
+	/** End character offset of a token in the sentence text (exclusive). */
+	public int end(int index) {
+		return ends.get(index).asInt();
+	}
+}
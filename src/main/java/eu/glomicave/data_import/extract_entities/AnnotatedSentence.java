@@ -0,0 +1,143 @@
+package eu.glomicave.data_import.extract_entities;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.BasicDependenciesAnnotation;
+import edu.stanford.nlp.util.CoreMap;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a single annotation pass over a sentence: the tokens, the tokens as indexed words and the dependency
+ * parse (semantic graph) of the sentence. The indexed words are new objects wrapping the tokens, not the vertices
+ * of the semantic graph; as both come from the same annotation they have the same indices, so a word equals
+ * (see {@link IndexedWord#equals(Object)}) the vertex of its token and can be used to look it up in the graph.
+ */
+public class AnnotatedSentence {
+    private static final Logger logger = LogManager.getLogger(AnnotatedSentence.class);
+
+    /** Sentence text **/
+    private final String text;
+    /** Character offset of the sentence text in the annotated document (token positions are document offsets) **/
+    private final int beginOffset;
+    /** Tokens of the sentence **/
+    private final List<CoreLabel> tokens;
+    /** Tokens as indexed words **/
+    private final ObjectArrayList<IndexedWord> words;
+    /** Dependency parse of the sentence (null if the pipeline has no dependency parser) **/
+    private final SemanticGraph semanticGraph;
+    /** POS tag codes and word indices of the sentence (built on first use) **/
+    private EncodedSentence encoded;
+
+    public AnnotatedSentence(String text, List<CoreLabel> tokens, SemanticGraph semanticGraph) {
+        this(text, 0, tokens, semanticGraph);
+    }
+
+    public AnnotatedSentence(String text, int beginOffset, List<CoreLabel> tokens, SemanticGraph semanticGraph) {
+        this.text = text;
+        this.beginOffset = beginOffset;
+        this.tokens = tokens != null ? tokens : Collections.emptyList();
+        this.words = new ObjectArrayList<>(this.tokens.size());
+        for (CoreLabel token: this.tokens) {
+            this.words.add(new IndexedWord(token));
+        }
+        this.semanticGraph = semanticGraph;
+    }
+
+    /**
+     * Annotate a sentence with the given pipeline (one annotation pass) and return the result
+     * @param pipeline: CoreNLP pipeline
+     * @param text: input sentence
+     * @return annotated sentence (without words if the annotation fails)
+     */
+    public static AnnotatedSentence annotate(StanfordCoreNLP pipeline, String text) {
+        Annotation document = new Annotation(text);
+        try {
+            pipeline.annotate(document);
+        } catch (Exception e) {
+            // a sentence the pipeline fails on yields no words, the other sentences are still processed
+            logger.error("Pipeline annotation error for sentence '{}'.", text, e);
+            return new AnnotatedSentence(text, null, null);
+        }
+        return fromAnnotation(document);
+    }
+
+    /**
+     * Given an annotated document holding one sentence, return its tokens and dependency parse. If the document
+     * contains several sentences, the tokens of the whole document and the parse of the last sentence are returned.
+     * @param document: annotated document
+     * @return annotated sentence
+     */
+    public static AnnotatedSentence fromAnnotation(Annotation document) {
+        List<CoreLabel> tokens = document.get(CoreAnnotations.TokensAnnotation.class);
+        SemanticGraph semanticGraph = null;
+        List<CoreMap> sentences = document.get(SentencesAnnotation.class);
+        if (sentences != null) {
+            for (CoreMap sentence: sentences) {
+                semanticGraph = sentence.get(BasicDependenciesAnnotation.class);
+            }
+        }
+        if (semanticGraph != null) {
+            semanticGraph = CoreNLPUtils.semanticGraphUniversalEnglishToEnglish(semanticGraph);
+        }
+        return new AnnotatedSentence(document.get(CoreAnnotations.TextAnnotation.class), tokens, semanticGraph);
+    }
+
+    /**
+     * Given a sentence of an annotated document, return its tokens and dependency parse
+     * @param sentence: annotated sentence (element of the SentencesAnnotation of a document)
+     * @return annotated sentence
+     */
+    public static AnnotatedSentence fromCoreMap(CoreMap sentence) {
+        SemanticGraph semanticGraph = sentence.get(BasicDependenciesAnnotation.class);
+        if (semanticGraph != null) {
+            semanticGraph = CoreNLPUtils.semanticGraphUniversalEnglishToEnglish(semanticGraph);
+        }
+        Integer beginOffset = sentence.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class);
+        return new AnnotatedSentence(sentence.get(CoreAnnotations.TextAnnotation.class),
+                beginOffset != null ? beginOffset : 0, sentence.get(CoreAnnotations.TokensAnnotation.class), semanticGraph);
+    }
+
+    // Getters
+    public String getText() {
+        return this.text;
+    }
+    public int getBeginOffset() {
+        return this.beginOffset;
+    }
+    public List<CoreLabel> getTokens() {
+        return this.tokens;
+    }
+    public ObjectArrayList<IndexedWord> getWords() {
+        return this.words;
+    }
+    public SemanticGraph getSemanticGraph() {
+        return this.semanticGraph;
+    }
+    public EncodedSentence getEncoded() {
+        if (this.encoded == null) {
+            this.encoded = new EncodedSentence(this.words);
+        }
+        return this.encoded;
+    }
+    public boolean hasSemanticGraph() {
+        return this.semanticGraph != null;
+    }
+    public boolean hasPartsOfSpeech() {
+        return !this.tokens.isEmpty() && this.tokens.get(0).tag() != null;
+    }
+    public int size() {
+        return this.words.size();
+    }
+}
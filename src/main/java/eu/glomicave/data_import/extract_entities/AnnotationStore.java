@@ -0,0 +1,187 @@
+package eu.glomicave.data_import.extract_entities;
+
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.ProtobufAnnotationSerializer;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+import eu.glomicave.config.GlobalParamsConfig;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * On-disk cache of CoreNLP annotations. The annotation of a text (a sentence, or a document annotated by
+ * {@link BatchAnnotator}) is serialized with the CoreNLP protobuf serializer and stored under the SHA-256 hash
+ * of the raw text, separately for each annotator profile:
+ *
+ *     [store dir]/[profile]/[first 2 hex digits of hash]/[hash].pb.gz
+ *
+ * Sentence text never changes, so the stored annotation can be reused by every later run (e.g. when re-linking
+ * existing sentences to the lexical forms of a new ontology). The pipeline of a profile is only borrowed on a cache
+ * miss. The store is disabled by default, i.e. if {@link GlobalParamsConfig#ANNOTATION_STORE_DIR} is null or empty.
+ */
+public class AnnotationStore {
+    private static final Logger logger = LogManager.getLogger(AnnotationStore.class);
+
+    /** Extension of the stored annotation files **/
+    private static final String FILE_EXTENSION = ".pb.gz";
+
+    /** Serializer of annotations (not lossless: annotations without protobuf field are dropped) **/
+    private static final ProtobufAnnotationSerializer serializer = new ProtobufAnnotationSerializer(false);
+
+    // Statistics
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong errors = new AtomicLong();
+
+    /**
+     * Given an annotator profile and a sentence, return the annotated sentence. The annotation is read from the
+     * store if present, otherwise the sentence is annotated with a pipeline from the pool of the profile and the
+     * annotation is written to the store.
+     * @param profile: annotator profile (one of CoreNLPUtils.PROFILE_*)
+     * @param text: input sentence
+     * @return annotated sentence (without words if the annotation fails)
+     */
+    public static AnnotatedSentence annotate(String profile, String text) {
+        Annotation document = load(profile, text);
+        if (document != null) {
+            return AnnotatedSentence.fromAnnotation(document);
+        }
+
+        document = new Annotation(text);
+        CoreNLPPipelinePool pool = CoreNLPPipelinePool.get(profile);
+        StanfordCoreNLP pipeline = pool.borrow();
+        try {
+            pipeline.annotate(document);
+        } catch (Exception e) {
+            // a sentence the pipeline fails on yields no words and is not stored, the other sentences are still processed
+            logger.error("Pipeline annotation error for sentence '{}'.", text, e);
+            return new AnnotatedSentence(text, null, null);
+        } finally {
+            pool.release(pipeline);
+        }
+
+        store(profile, text, document);
+        return AnnotatedSentence.fromAnnotation(document);
+    }
+
+    /**
+     * Given an annotator profile and a text, return its stored annotation
+     * @param profile: annotator profile
+     * @param text: raw text (sentence or document)
+     * @return stored annotation (null if there is none or the store is disabled)
+     */
+    public static Annotation load(String profile, String text) {
+        Path path = getPath(profile, text);
+        if (path == null) {
+            return null;
+        }
+        Annotation document = read(path);
+        if (document != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return document;
+    }
+
+    /**
+     * Store the annotation of a text (nothing is done if the store is disabled)
+     * @param profile: annotator profile
+     * @param text: raw text (sentence or document)
+     * @param document: annotation of the text
+     */
+    public static void store(String profile, String text, Annotation document) {
+        Path path = getPath(profile, text);
+        if (path != null) {
+            write(path, document);
+        }
+    }
+
+    /** Checks if the store is enabled **/
+    public static boolean isEnabled() {
+        return GlobalParamsConfig.ANNOTATION_STORE_DIR != null && !GlobalParamsConfig.ANNOTATION_STORE_DIR.isEmpty();
+    }
+
+    /**
+     * Given an annotator profile and a sentence, return the path of the stored annotation
+     * @param profile: annotator profile
+     * @param text: sentence
+     * @return path of the annotation file (null if the store is disabled)
+     */
+    public static Path getPath(String profile, String text) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String hash = Hashes.sha256(text);
+        return Paths.get(GlobalParamsConfig.ANNOTATION_STORE_DIR, profile, hash.substring(0, 2), hash + FILE_EXTENSION);
+    }
+
+    /** Read stored annotation, return null if there is none or it cannot be read **/
+    private static Annotation read(Path path) {
+        try (InputStream is = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            return serializer.read(is).first;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (Exception e) {
+            errors.incrementAndGet();
+            logger.warn("Cannot read stored annotation '{}': {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /** Write annotation to a temporary file first, so that concurrent readers never see a partial file **/
+    private static void write(Path path, Annotation document) {
+        Path tmp = null;
+        try {
+            Files.createDirectories(path.getParent());
+            tmp = Files.createTempFile(path.getParent(), null, ".tmp");
+            try (OutputStream os = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                serializer.write(document, os);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            errors.incrementAndGet();
+            logger.warn("Cannot store annotation '{}': {}", path, e.getMessage());
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    // Getters
+    public static long getHits() {
+        return hits.get();
+    }
+    public static long getMisses() {
+        return misses.get();
+    }
+    public static long getErrors() {
+        return errors.get();
+    }
+
+    /** Log number of store hits, misses and read/write errors **/
+    public static void logStatistics() {
+        if (isEnabled()) {
+            logger.info("Annotation store '{}': {} hits, {} misses, {} errors.",
+                    GlobalParamsConfig.ANNOTATION_STORE_DIR, getHits(), getMisses(), getErrors());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package eu.glomicave.data_import.extract_entities;
+
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TextAnnotation;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.CoreMap;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Batch annotation of documents (e.g. abstracts). A chunk of documents is annotated at once with the multithreaded
+ * {@link StanfordCoreNLP#annotate(Iterable, int, java.util.function.Consumer)}, so document-level parallelism comes
+ * from the CoreNLP worker pool. Sentence splitting and the other annotators of the profile (e.g. the dependency parse)
+ * run in the same pass, and the result of each document is the list of its annotated sentences.
+ *
+ * Documents with an annotation in the {@link AnnotationStore} are not annotated again, the annotations of the other
+ * documents are written to the store (if enabled).
+ */
+public class BatchAnnotator {
+    private static final Logger logger = LogManager.getLogger(BatchAnnotator.class);
+
+    /**
+     * Given a chunk of documents, split them into sentences and annotate them with the given profile
+     * @param profile: annotator profile (one of CoreNLPUtils.PROFILE_*)
+     * @param documents: document texts
+     * @param threads: number of CoreNLP worker threads (1: annotate in the calling thread)
+     * @return annotated sentences of each document, in the order of the documents (empty for a document which
+     *          cannot be annotated)
+     */
+    public static List<ObjectArrayList<AnnotatedSentence>> annotate(String profile, List<String> documents, int threads) {
+        if (documents.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<ObjectArrayList<AnnotatedSentence>> results = new ArrayList<>(Collections.nCopies(documents.size(), null));
+
+        // Annotate only the documents not in the store
+        List<Annotation> annotations = new ArrayList<>(documents.size());
+        Map<Annotation, Integer> positions = new IdentityHashMap<>(documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+            String text = documents.get(i) != null ? documents.get(i) : "";
+            Annotation stored = AnnotationStore.load(profile, text);
+            if (stored != null) {
+                results.set(i, getSentences(stored));
+                continue;
+            }
+            Annotation annotation = new Annotation(text);
+            positions.put(annotation, i);
+            annotations.add(annotation);
+        }
+        if (annotations.isEmpty()) {
+            return results;
+        }
+
+        CoreNLPPipelinePool pool = CoreNLPPipelinePool.get(profile);
+        StanfordCoreNLP pipeline = pool.borrow();
+        try {
+            if (threads > 1) {
+                try {
+                    pipeline.annotate(annotations, threads, annotation -> {
+                        AnnotationStore.store(profile, annotation.get(TextAnnotation.class), annotation);
+                        ObjectArrayList<AnnotatedSentence> sentences = getSentences(annotation);
+                        synchronized (results) {
+                            results.set(positions.get(annotation), sentences);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    logger.error("Batch annotation error, annotating the remaining documents one by one.", e);
+                }
+            }
+            // Single thread: annotate in the calling thread, so that several batches can run concurrently
+            for (Annotation annotation: annotations) {
+                int position = positions.get(annotation);
+                if (results.get(position) != null) {
+                    continue;
+                }
+                try {
+                    pipeline.annotate(annotation);
+                    AnnotationStore.store(profile, annotation.get(TextAnnotation.class), annotation);
+                    results.set(position, getSentences(annotation));
+                } catch (RuntimeException e) {
+                    logger.error("Pipeline annotation error for document {} of the batch.", position, e);
+                    results.set(position, new ObjectArrayList<>());
+                }
+            }
+        } finally {
+            pool.release(pipeline);
+        }
+
+        return results;
+    }
+
+    /**
+     * Given an annotated document, return its annotated sentences
+     * @param document: annotated document
+     * @return annotated sentences (tokens and dependency parse of each sentence)
+     */
+    public static ObjectArrayList<AnnotatedSentence> getSentences(Annotation document) {
+        ObjectArrayList<AnnotatedSentence> sentences = new ObjectArrayList<>();
+        List<CoreMap> coreSentences = document.get(SentencesAnnotation.class);
+        if (coreSentences != null) {
+            for (CoreMap sentence: coreSentences) {
+                sentences.add(AnnotatedSentence.fromCoreMap(sentence));
+            }
+        }
+        return sentences;
+    }
+}
@@ -0,0 +1,170 @@
+package eu.glomicave.data_import.extract_entities;
+
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+import eu.glomicave.config.GlobalParamsConfig;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Registry of CoreNLP pipelines. Each annotator profile (see {@link CoreNLPUtils#getProfileProperties(String)})
+ * is built once per JVM and handed out to worker threads
+ * either as a single shared instance or through a bounded pool of instances (borrow / release).
+ *
+ * The pool size defaults to the number of worker threads ({@link GlobalParamsConfig#MAX_POOL_SIZE}). Statistics
+ * about pool size, number of borrows and time spent waiting for a free pipeline are kept for each profile.
+ */
+public class CoreNLPPipelinePool {
+    private static final Logger logger = LogManager.getLogger(CoreNLPPipelinePool.class);
+
+    /** One pool per annotator profile **/
+    private static final Map<String, CoreNLPPipelinePool> pools = new ConcurrentHashMap<>();
+
+    /** Profile name of the pipelines in the pool **/
+    private final String profile;
+    /** Max number of pipeline instances **/
+    private final int maxSize;
+    /** Idle pipeline instances **/
+    private final BlockingQueue<StanfordCoreNLP> idle;
+    /** Pipeline instance shared among all threads (built on first use) **/
+    private volatile StanfordCoreNLP shared;
+
+    // Statistics
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong buildNanos = new AtomicLong();
+
+    private CoreNLPPipelinePool(String profile, int maxSize) {
+        this.profile = profile;
+        this.maxSize = Math.max(1, maxSize);
+        this.idle = new ArrayBlockingQueue<>(this.maxSize);
+    }
+
+    /**
+     * Get the pool for the given profile. The pool is created on first call with the current max pool size.
+     * @param profile: annotator profile name (e.g. {@link CoreNLPUtils#PROFILE_CANDIDATES})
+     * @return pool of pipelines for the profile
+     */
+    public static CoreNLPPipelinePool get(String profile) {
+        if (!CoreNLPUtils.isProfile(profile)) {
+            throw new IllegalArgumentException("Unknown CoreNLP pipeline profile: '" + profile + "'.");
+        }
+        return pools.computeIfAbsent(profile, p -> new CoreNLPPipelinePool(p, GlobalParamsConfig.MAX_POOL_SIZE));
+    }
+
+    /**
+     * Get the pipeline instance shared among all threads for the given profile.
+     * @param profile: annotator profile name
+     * @return shared pipeline
+     */
+    public static StanfordCoreNLP shared(String profile) {
+        return get(profile).shared();
+    }
+
+    /** Pipeline instance shared among all threads, built once **/
+    public StanfordCoreNLP shared() {
+        StanfordCoreNLP pipeline = this.shared;
+        if (pipeline == null) {
+            synchronized (this) {
+                if (this.shared == null) {
+                    this.shared = this.build();
+                }
+                pipeline = this.shared;
+            }
+        }
+        return pipeline;
+    }
+
+    /**
+     * Borrow a pipeline from the pool. A new instance is built while the pool has not reached its max size,
+     * otherwise the calling thread waits until another thread releases its pipeline.
+     * @return pipeline which must be given back with {@link #release(StanfordCoreNLP)}
+     */
+    public StanfordCoreNLP borrow() {
+        this.borrows.incrementAndGet();
+
+        StanfordCoreNLP pipeline = this.idle.poll();
+        if (pipeline != null) {
+            return pipeline;
+        }
+
+        // Build a new instance if the pool is not full yet
+        if (this.created.getAndIncrement() < this.maxSize) {
+            try {
+                return this.build();
+            } catch (RuntimeException | Error e) {
+                // free the slot, otherwise borrowers wait forever for a pipeline which is never built
+                this.created.decrementAndGet();
+                throw e;
+            }
+        }
+        this.created.decrementAndGet();
+
+        // Wait for a free instance
+        long start = System.nanoTime();
+        try {
+            pipeline = this.idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for CoreNLP pipeline '" + this.profile + "'.", e);
+        } finally {
+            this.waitNanos.addAndGet(System.nanoTime() - start);
+        }
+        return pipeline;
+    }
+
+    /**
+     * Give a borrowed pipeline back to the pool.
+     * @param pipeline: pipeline obtained with {@link #borrow()}
+     */
+    public void release(StanfordCoreNLP pipeline) {
+        if (pipeline != null && !this.idle.offer(pipeline)) {
+            logger.warn("CoreNLP pipeline pool '{}' is full, released pipeline is dropped.", this.profile);
+        }
+    }
+
+    private StanfordCoreNLP build() {
+        long start = System.nanoTime();
+        StanfordCoreNLP pipeline = CoreNLPUtils.createPipeline(this.profile);
+        long elapsed = System.nanoTime() - start;
+        this.buildNanos.addAndGet(elapsed);
+        logger.info("CoreNLP pipeline '{}' built in {} ms.", this.profile, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return pipeline;
+    }
+
+    // Getters
+    public String getProfile() {
+        return this.profile;
+    }
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+    public int getCreated() {
+        return this.created.get() + (this.shared != null ? 1 : 0);
+    }
+    public long getBorrows() {
+        return this.borrows.get();
+    }
+    public long getWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.waitNanos.get());
+    }
+
+    /** Log pool size, number of borrows and wait time for each pipeline profile in use **/
+    public static void logStatistics() {
+        for (CoreNLPPipelinePool pool: pools.values()) {
+            logger.info("CoreNLP pipeline '{}': pool size {} (max {}), {} borrows, {} ms waited, {} ms spent building.",
+                    pool.profile, pool.getCreated(), pool.maxSize, pool.getBorrows(), pool.getWaitMillis(),
+                    TimeUnit.NANOSECONDS.toMillis(pool.buildNanos.get()));
+        }
+    }
+}
@@ -8,7 +8,6 @@ import edu.stanford.nlp.naturalli.NaturalLogicAnnotations;
 import edu.stanford.nlp.pipeline.Annotation;
 import edu.stanford.nlp.pipeline.StanfordCoreNLP;
 import edu.stanford.nlp.semgraph.SemanticGraph;
-import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations.BasicDependenciesAnnotation;
 import edu.stanford.nlp.semgraph.SemanticGraphEdge;
 import edu.stanford.nlp.semgraph.SemanticGraphFactory;
 import edu.stanford.nlp.trees.*;
@@ -29,50 +28,98 @@ import java.util.Set;
  * @author Kiril Gashteovski
  */
 public class CoreNLPUtils {
+    /** Annotator profile: full pipeline with NER, dependency parse, natural logic and OpenIE **/
+    public static final String PROFILE_FULL = "full";
+    /** Annotator profile: annotations read by the entity candidate extraction (POS tags, lemmas, NE types, dependency parse) **/
+    public static final String PROFILE_CANDIDATES = "candidates";
+    /** Annotator profile: OpenIE triples extraction **/
+    public static final String PROFILE_OIE = "oie";
+    /** Annotator profile: POS tags and lemmas **/
+    public static final String PROFILE_LEMMA = "lemma";
+    /** Annotator profile: tokenization and sentence splitting **/
+    public static final String PROFILE_SPLIT = "split";
+    /** All annotator profiles **/
+    public static final String [] PROFILES = {PROFILE_FULL, PROFILE_CANDIDATES, PROFILE_OIE, PROFILE_LEMMA, PROFILE_SPLIT};
+    
+    /** Dependency parser model used by the profiles with a dependency parse **/
+    private static final String DEPPARSE_MODEL = "edu/stanford/nlp/models/parser/nndep/english_SD.gz";
+    
+    /**
+     * Checks if the given name is one of the annotator profiles
+     * @param profile: profile name
+     * @return true if there is an annotator profile with this name, false otherwise
+     */
+    public static boolean isProfile(String profile){
+        for (String p: PROFILES){
+            if (p.equals(profile))
+                return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Returns the pipeline properties of an annotator profile
+     * @param profile: profile name (one of PROFILE_*)
+     * @return properties to initialize the StanfordCoreNLP pipeline with
+     */
+    public static Properties getProfileProperties(String profile){
+        Properties props = new Properties();
+        props.put("language", "english");
+        
+        switch (profile) {
+            case PROFILE_FULL:
+                props.setProperty("annotators", "tokenize, ssplit, pos, lemma, ner, depparse, natlog, openie");
+                props.put("depparse.model", DEPPARSE_MODEL);
+                props.put("parse.originalDependencies", true);
+                break;
+            case PROFILE_CANDIDATES:
+                props.setProperty("annotators", "tokenize, ssplit, pos, lemma, ner, depparse");
+                props.put("depparse.model", DEPPARSE_MODEL);
+                props.put("parse.originalDependencies", true);
+                break;
+            case PROFILE_OIE:
+                props.setProperty("annotators", "tokenize, ssplit, pos, lemma, depparse, natlog, openie");
+                break;
+            case PROFILE_LEMMA:
+                props.setProperty("annotators", "tokenize, ssplit, pos, lemma");
+                break;
+            case PROFILE_SPLIT:
+                props.setProperty("annotators", "tokenize, ssplit");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown annotator profile: '" + profile + "'.");
+        }
+        
+        return props;
+    }
+    
+    /**
+     * Initializes and returns StanfordCoreNLP pipeline for an annotator profile
+     * @param profile: profile name (one of PROFILE_*)
+     * @return StanfordCoreNLP pipeline
+     */
+    public static StanfordCoreNLP createPipeline(String profile){
+        return new StanfordCoreNLP(getProfileProperties(profile));
+    }
+    
     /**
      * Initializes and returns StanfordCoreNLP pipeline
      * @return StanfordCoreNLP pipeline
      */
     public static StanfordCoreNLP StanfordDepNNParser(){
-        Properties props = new Properties();
-
-        props.put("language", "english");
-        props.setProperty("annotators", "tokenize, ssplit, pos, lemma, ner, depparse, natlog, openie");
-        props.put("depparse.model", "edu/stanford/nlp/models/parser/nndep/english_SD.gz");
-        props.put("parse.originalDependencies", true);
-
-        StanfordCoreNLP pipeline =  new StanfordCoreNLP(props);
-
-        return pipeline;
+        return createPipeline(PROFILE_FULL);
     }
 
     public static StanfordCoreNLP StanfordOIE() {
-        // Create the Stanford CoreNLP pipeline
-        Properties props = new Properties();
-        props.setProperty("annotators", "tokenize,ssplit,pos,lemma,depparse,natlog,openie");
-        StanfordCoreNLP pipeline = new StanfordCoreNLP(props);
-
-        return pipeline;
+        return createPipeline(PROFILE_OIE);
     }
 
     public static StanfordCoreNLP StanfordLemmatizer() {
-        Properties props = new Properties();
-
-        props.put("language", "english");
-        props.setProperty("annotators", "tokenize, ssplit, pos, lemma");
-        StanfordCoreNLP pipeline =  new StanfordCoreNLP(props);
-
-        return pipeline;
+        return createPipeline(PROFILE_LEMMA);
     }
 
     public static StanfordCoreNLP StanfordSentenceSplitter() {
-        Properties props = new Properties();
-
-        props.put("language", "english");
-        props.setProperty("annotators", "tokenize, ssplit");
-        StanfordCoreNLP pipeline = new StanfordCoreNLP(props);
-
-        return pipeline;
+        return createPipeline(PROFILE_SPLIT);
     }
     
     /**
@@ -83,17 +130,7 @@ public class CoreNLPUtils {
      * @return dependency parse in SemanticGraph object
      */
     public static SemanticGraph parse(StanfordCoreNLP pipeline, String snt) {
-        Annotation document = new Annotation(snt);
-        pipeline.annotate(document);
-        
-        //A CoreMap is a sentence with annotations
-        List<CoreMap> sentences = document.get(SentencesAnnotation.class);
-        SemanticGraph semanticGraph = null;
-        for(CoreMap sentence: sentences) {
-            semanticGraph = sentence.get(BasicDependenciesAnnotation.class);
-        }
-        
-        return semanticGraphUniversalEnglishToEnglish(semanticGraph);
+        return AnnotatedSentence.annotate(pipeline, snt).getSemanticGraph();
     }
     
     /**
@@ -106,7 +143,7 @@ public class CoreNLPUtils {
     public static String wordsToPosMergedNerSeq(ObjectArrayList<IndexedWord> words){
         StringBuffer sbSeq = new StringBuffer();
         for (int i = 0; i < words.size(); i++){
-            if (words.get(i).ner().equals(NE_TYPE.NO_NER)){
+            if (isNoNER(words.get(i))){
                 if (isAdj(words.get(i).tag()))
                     sbSeq.append(POS_TAG.JJ);
                 else if (isAdverb(words.get(i).tag()))
@@ -377,7 +414,7 @@ public class CoreNLPUtils {
             return new ObjectArrayList<>();
         
         ObjectArrayList<IndexedWord> chainedWords = new ObjectArrayList<>();
-        if (!pivot.ner().equals(NE_TYPE.NO_NER)) 
+        if (!isNoNER(pivot)) 
             chainedWords = getChainedNERs(words, words.indexOf(pivot));
         else if (CoreNLPUtils.isNoun(pivot.tag()))
             chainedWords = getChainedNouns(words, words.indexOf(pivot));
@@ -413,6 +450,17 @@ public class CoreNLPUtils {
         
         return iChainedNouns;
     }
+    /**
+     * Given an annotated sentence and a pivot-word index, return the chained nouns from the left and from the right
+     * of the pivot word (see {@link EncodedSentence#getChainedNouns(int)} for the index range without word list).
+     * @param sentence: annotated sentence
+     * @param wordInd: the index of the pivot word (0-based position in the sentence words)
+     * @return a list of chained nouns to the left and the right of the pivot word (the pivot word is included)
+     */
+    public static ObjectArrayList<IndexedWord> getChainedNouns(AnnotatedSentence sentence, int wordInd){
+        EncodedSentence encoded = sentence.getEncoded();
+        return encoded.getWords(encoded.getChainedNouns(wordInd));
+    }
     /**
      * Given a sequence of indexed words and a noun, get all the nouns 'chained' to the word from the left.
      * @param sequence: a list of words
@@ -548,7 +596,7 @@ public class CoreNLPUtils {
             IntArrayList chainedPosWords, int wordInd){
         // If the word is the leftiest word or it's not with the same POS tag - return
         if (wordInd > 0 && sequence.get(wordInd).tag().equals(sequence.get(wordInd-1).tag()) && 
-                sequence.get(wordInd-1).ner().equals(NE_TYPE.NO_NER)){
+                isNoNER(sequence.get(wordInd-1))){
             chainedPosWords.add(wordInd-1);
             getChainedTagsFromLeftNoNER(sequence, chainedPosWords, wordInd-1);
         }
@@ -566,7 +614,7 @@ public class CoreNLPUtils {
             IntArrayList chainedNouns, int wordInd){
         // If the word is the rightiest word or it's not a noun - return
         if (wordInd < sequence.size()-1 && sequence.get(wordInd).tag().equals(sequence.get(wordInd+1).tag()) && 
-                sequence.get(wordInd+1).ner().equals(NE_TYPE.NO_NER)){
+                isNoNER(sequence.get(wordInd+1))){
             chainedNouns.add(wordInd + 1);
             getChainedTagsFromRightNoNER(sequence, chainedNouns, wordInd + 1);
         }
@@ -615,7 +663,7 @@ public class CoreNLPUtils {
     private static IntArrayList getChainedNERsFromLeft(ObjectArrayList<IndexedWord> sequence, 
             IntArrayList chainedNERs, int wordInd, String ner){
         // If the word is the leftiest word or it's not a noun - return
-        if (wordInd > 0 && sequence.get(wordInd-1).ner().equals(ner)){
+        if (wordInd > 0 && ner.equals(sequence.get(wordInd-1).ner())){
             chainedNERs.add(wordInd-1);
             getChainedNERsFromLeft(sequence, chainedNERs, wordInd-1, ner);
         }
@@ -633,7 +681,7 @@ public class CoreNLPUtils {
     private static IntArrayList getChainedNERsFromRight(ObjectArrayList<IndexedWord> sequence, 
             IntArrayList chainedNERs, int wordInd, String ner){
         // If the word is the rightiest word or it's not a noun - return
-        if (wordInd < sequence.size()-1 && sequence.get(wordInd+1).ner().equals(ner)){
+        if (wordInd < sequence.size()-1 && ner.equals(sequence.get(wordInd+1).ner())){
             chainedNERs.add(wordInd + 1);
             getChainedNERsFromRight(sequence, chainedNERs, wordInd + 1, ner);
         }
@@ -642,6 +690,16 @@ public class CoreNLPUtils {
     }
     
     
+    /**
+     * Checks if a word has no NE type. Words annotated by a pipeline without NER (e.g. PROFILE_LEMMA) have no
+     * NE type at all and are treated as words without NE type.
+     * @param word: indexed word
+     * @return true if the word has no NE type, false otherwise
+     */
+    public static boolean isNoNER(IndexedWord word){
+        return word.ner() == null || word.ner().equals(NE_TYPE.NO_NER);
+    }
+    
     /**
      * Checks if a word is some kind of a verb (i.e. if it has POS tag: VB, VBD, VBG, VBN, VBP or VBZ)
      * @param word: String the POS tag of the word
@@ -1087,13 +1145,13 @@ public class CoreNLPUtils {
     }
 
     public static boolean isOneNER(ObjectArrayList<IndexedWord> wordList) {
-        String firstType = wordList.get(0).ner();
-        if (firstType.equals(NE_TYPE.NO_NER)) {
+        if (isNoNER(wordList.get(0))) {
             return false;
         }
+        String firstType = wordList.get(0).ner();
         boolean isOneNER = true;
         for (IndexedWord w: wordList) {
-            if (!w.ner().equals(firstType)) {
+            if (!firstType.equals(w.ner())) {
                 isOneNER = false;
             }
         }
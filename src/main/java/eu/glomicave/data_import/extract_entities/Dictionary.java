@@ -1,16 +1,25 @@
 package eu.glomicave.data_import.extract_entities;
 
-import java.io.DataInput;
-import java.io.DataInputStream;
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 
 import edu.stanford.nlp.ling.IndexedWord;
 
 /**
- * A dictionary stores a set of strings.
+ * A dictionary stores a set of strings. Large read-only dictionaries can be kept in a binary file
+ * (see {@link MappedDictionary}), which is memory-mapped instead of loaded into the set.
  *
  * @author Kiril Gashteovski
  */
@@ -19,6 +28,8 @@ public class Dictionary {
 
     /** Stores the strings */
     public ObjectOpenHashSet<String> words;
+    /** Binary dictionary checked in addition to the words (null if none) **/
+    private MappedDictionary mapped;
 
     /** Default constructor **/
     public Dictionary() {
@@ -44,19 +55,72 @@ public class Dictionary {
         this.load(resourcePaths);
     }
 
+    /** Opens an empty set of strings (the dictionary) and maps the binary dictionary file (see {@link MappedDictionary}) 
+      * @throws IOException **/
+    public Dictionary(Path binaryPath) throws IOException {
+        this.words = new ObjectOpenHashSet<String>();
+        this.mapped = MappedDictionary.open(binaryPath);
+    }
+
+    /**
+     * Opens the dictionary of a resource as a binary dictionary file in the given directory (see {@link MappedDictionary}).
+     * The binary file is converted from the resource on first use; its name holds the size and the last-modified time
+     * of the resource, so that a changed resource is converted again without reading the resource on every open.
+     * @param resourcePath: resource path of the dictionary (one entry per line)
+     * @param binaryDir: directory of the binary dictionary files, the resource is loaded into the set if null or empty
+     * @return dictionary
+     * @throws IOException
+     */
+    public static Dictionary open(String resourcePath, String binaryDir) throws IOException {
+        if (binaryDir == null || binaryDir.isEmpty()) {
+            return new Dictionary(resourcePath);
+        }
+        URL resource = Dictionary.class.getResource(resourcePath);
+        if (resource == null) {
+            throw new FileNotFoundException("Resource not found: " + resourcePath);
+        }
+        String name = Paths.get(resourcePath).getFileName().toString();
+        Path binaryPath = Paths.get(binaryDir, name + "-" + getVersion(resource) + ".bin");
+        if (!Files.exists(binaryPath)) {
+            Dictionary text = new Dictionary(resourcePath);
+            MappedDictionary.write(text.words(), binaryPath);
+        }
+        return new Dictionary(binaryPath);
+    }
+
+    /**
+     * Given a resource, return its size and last-modified time (without reading the content)
+     * @param resource: URL of the resource
+     * @return '[size]-[last-modified time in ms]'
+     * @throws IOException
+     */
+    private static String getVersion(URL resource) throws IOException {
+        if ("file".equals(resource.getProtocol())) {
+            try {
+                Path path = Paths.get(resource.toURI());
+                return Files.size(path) + "-" + Files.getLastModifiedTime(path).toMillis();
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        }
+        // e.g. an entry of a jar: the size and time are read from the jar directory
+        URLConnection connection = resource.openConnection();
+        return connection.getContentLengthLong() + "-" + connection.getLastModified();
+    }
+
     /** The size of the dictionary (number of words) **/
     public int size() {
-        return this.words.size();
+        return this.words.size() + (this.mapped != null ? this.mapped.size() : 0);
     }
 
     /** Checks if a certain word (as a string) is in the dictionary **/
     public boolean contains(String word) {
-        return this.words.contains(word);
+        return this.words.contains(word) || (this.mapped != null && this.mapped.contains(word));
     }
 
     /** Checks if a certain word (IndexedWord object) is in the dictionary in its lemmatized form **/
     public boolean containsLemmatized(IndexedWord word) {
-        return this.words.contains(word.lemma());
+        return this.contains(word.lemma());
     }
 
     private InputStream getInputStreamFromResource(String resourceName) throws IOException {
@@ -67,7 +131,9 @@ public class Dictionary {
      * @throws IOException 
      **/
     public void load(String resourcePath) throws IOException {
-        this.load(this.getInputStreamFromResource(resourcePath));
+        try (InputStream in = this.getInputStreamFromResource(resourcePath)) {
+            this.load(in);
+        }
     }
     
     /** Loads a dictionary from several resource paths 
@@ -78,22 +144,22 @@ public class Dictionary {
         }
     }
     
-    /** Loads the dictionary out of an {@link InputStream}. 
+    /** Loads the dictionary out of an {@link InputStream} (UTF-8). 
      *  Each line of the original file should contain an entry to the dictionary
      */
     public void load(InputStream in) throws IOException {
-        DataInput data = new DataInputStream(in);
-        String line = data.readLine();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line = reader.readLine();
         while (line != null) {
             line = line.trim();
             if (line.length() > 0) {
                 this.words.add(line);
             }
-            line = data.readLine();
+            line = reader.readLine();
         }
     }
 	
-    /** Get the set of words **/
+    /** Get the set of words (without the words of the binary dictionary) **/
     public ObjectOpenHashSet<String> words() {
         return this.words;
     }
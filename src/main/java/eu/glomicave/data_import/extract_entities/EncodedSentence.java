@@ -0,0 +1,217 @@
+package eu.glomicave.data_import.extract_entities;
+
+import edu.stanford.nlp.ling.IndexedWord;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import java.util.Objects;
+
+/**
+ * Encoded form of an annotated sentence for the chained-word functions: the POS tags of the words as byte codes
+ * (see {@link POS_TAG#encode(String)}), the NE types of the words as int ids and the indices of the nouns and verbs.
+ * The chain functions scan these arrays and return index ranges of the words (begin inclusive, end exclusive, packed
+ * into a long, see {@link #range(int, int)}), no word list is built unless asked for with {@link #getWords(long)}.
+ *
+ * Word indices are 0-based positions in {@link AnnotatedSentence#getWords()}.
+ */
+public class EncodedSentence {
+    /** NE type id of the words with NE type 'O' **/
+    private static final int NO_NER = 0;
+    /** NE type id of the words without NE type annotation **/
+    private static final int NULL_NER = -1;
+
+    /** Words of the sentence **/
+    private final ObjectArrayList<IndexedWord> words;
+    /** POS tag code of each word **/
+    private final byte [] tags;
+    /** NE type id of each word (ids are only comparable within the sentence) **/
+    private final int [] ners;
+    /** Indices of the nouns **/
+    private final int [] nouns;
+    /** Indices of the verbs **/
+    private final int [] verbs;
+
+    public EncodedSentence(ObjectArrayList<IndexedWord> words) {
+        this.words = words;
+        this.tags = new byte[words.size()];
+        this.ners = new int[words.size()];
+        IntArrayList nouns = new IntArrayList();
+        IntArrayList verbs = new IntArrayList();
+        Object2IntOpenHashMap<String> nerIds = null;
+        for (int i = 0; i < words.size(); i++) {
+            IndexedWord word = words.get(i);
+            this.tags[i] = POS_TAG.encode(word.tag());
+            if (POS_TAG.isNoun(this.tags[i])) {
+                nouns.add(i);
+            } else if (POS_TAG.isVerb(this.tags[i])) {
+                verbs.add(i);
+            }
+
+            String ner = word.ner();
+            if (ner == null) {
+                this.ners[i] = NULL_NER;
+            } else if (ner.equals(NE_TYPE.NO_NER)) {
+                this.ners[i] = NO_NER;
+            } else {
+                if (nerIds == null) {
+                    nerIds = new Object2IntOpenHashMap<>();
+                }
+                if (!nerIds.containsKey(ner)) {
+                    nerIds.put(ner, nerIds.size() + 1);
+                }
+                this.ners[i] = nerIds.getInt(ner);
+            }
+        }
+        this.nouns = nouns.toIntArray();
+        this.verbs = verbs.toIntArray();
+    }
+
+    // Index ranges
+    /** Pack an index range (begin inclusive, end exclusive) into a long **/
+    public static long range(int begin, int end) {
+        return ((long) begin << 32) | (end & 0xFFFFFFFFL);
+    }
+    public static int begin(long range) {
+        return (int) (range >>> 32);
+    }
+    public static int end(long range) {
+        return (int) range;
+    }
+    public static int length(long range) {
+        return end(range) - begin(range);
+    }
+
+    /**
+     * Given a pivot-word index, return the range of the chained nouns to the left and to the right of the pivot word
+     * (the pivot word is included)
+     * @param wordInd: the index of the pivot word
+     * @return index range of the chained nouns
+     */
+    public long getChainedNouns(int wordInd) {
+        int begin = wordInd;
+        while (begin > 0 && POS_TAG.isNoun(this.tags[begin - 1])) {
+            begin--;
+        }
+        int end = wordInd + 1;
+        while (end < this.tags.length && POS_TAG.isNoun(this.tags[end])) {
+            end++;
+        }
+        return range(begin, end);
+    }
+
+    /**
+     * Given a pivot-word index, return the range of the chained verbs to the left and to the right of the pivot word
+     * (the pivot word is included)
+     * @param wordInd: the index of the pivot word
+     * @return index range of the chained verbs
+     */
+    public long getChainedVerbs(int wordInd) {
+        int begin = wordInd;
+        while (begin > 0 && POS_TAG.isVerb(this.tags[begin - 1])) {
+            begin--;
+        }
+        int end = wordInd + 1;
+        while (end < this.tags.length && POS_TAG.isVerb(this.tags[end])) {
+            end++;
+        }
+        return range(begin, end);
+    }
+
+    /**
+     * Given a pivot-word index, return the range of the words with the same NE type as the pivot word, to the left
+     * and to the right of the pivot word (the pivot word is assumed to have a NE type and is included)
+     * @param wordInd: the index of the pivot word
+     * @return index range of the chained NEs
+     */
+    public long getChainedNERs(int wordInd) {
+        int ner = this.ners[wordInd];
+        int begin = wordInd;
+        while (begin > 0 && this.ners[begin - 1] == ner) {
+            begin--;
+        }
+        int end = wordInd + 1;
+        while (end < this.ners.length && this.ners[end] == ner) {
+            end++;
+        }
+        return range(begin, end);
+    }
+
+    /**
+     * Given a pivot-word index, return the range of the words with the same POS tag as the pivot word and without
+     * NE type, to the left and to the right of the pivot word (the pivot word is included)
+     * @param wordInd: the index of the pivot word
+     * @return index range of the chained words
+     */
+    public long getChainedTagNoNER(int wordInd) {
+        int begin = wordInd;
+        while (begin > 0 && this.sameTag(begin - 1, wordInd) && this.isNoNER(begin - 1)) {
+            begin--;
+        }
+        int end = wordInd + 1;
+        while (end < this.tags.length && this.sameTag(end, wordInd) && this.isNoNER(end)) {
+            end++;
+        }
+        return range(begin, end);
+    }
+
+    /** Checks if two words have the same POS tag (tags without code are compared as strings) **/
+    private boolean sameTag(int i, int j) {
+        if (this.tags[i] != this.tags[j]) {
+            return false;
+        }
+        return this.tags[i] != POS_TAG.CODE_OTHER || Objects.equals(this.words.get(i).tag(), this.words.get(j).tag());
+    }
+
+    // Word classes
+    public boolean isNoun(int wordInd) {
+        return POS_TAG.isNoun(this.tags[wordInd]);
+    }
+    public boolean isVerb(int wordInd) {
+        return POS_TAG.isVerb(this.tags[wordInd]);
+    }
+    public boolean isAdj(int wordInd) {
+        return POS_TAG.isAdj(this.tags[wordInd]);
+    }
+    public boolean isNoNER(int wordInd) {
+        return this.ners[wordInd] <= NO_NER;
+    }
+
+    /** The words of an index range as a new list **/
+    public ObjectArrayList<IndexedWord> getWords(long range) {
+        return new ObjectArrayList<>(this.words.subList(begin(range), end(range)));
+    }
+
+    /** The words of an index range separated by space (see CoreNLPUtils.listOfWordsToWordsString) **/
+    public String getWordsString(long range) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = begin(range); i < end(range); i++) {
+            sb.append(this.words.get(i).word()).append(SEPARATOR.SPACE);
+        }
+        return sb.toString().trim();
+    }
+
+    /** The lemmas of an index range separated by space (see CoreNLPUtils.listOfWordsToLemmaString) **/
+    public String getLemmaString(long range) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = begin(range); i < end(range); i++) {
+            sb.append(this.words.get(i).lemma()).append(SEPARATOR.SPACE);
+        }
+        return sb.toString().trim();
+    }
+
+    // Getters
+    public byte [] getTags() {
+        return this.tags;
+    }
+    public int [] getNouns() {
+        return this.nouns;
+    }
+    public int [] getVerbs() {
+        return this.verbs;
+    }
+    public int size() {
+        return this.tags.length;
+    }
+}
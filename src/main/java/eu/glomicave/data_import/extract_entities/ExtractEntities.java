@@ -6,18 +6,26 @@ import edu.stanford.nlp.ling.IndexedWord;
 import edu.stanford.nlp.pipeline.Annotation;
 import edu.stanford.nlp.pipeline.StanfordCoreNLP;
 import edu.stanford.nlp.semgraph.SemanticGraph;
+import eu.glomicave.config.ExtractionMode;
+import eu.glomicave.config.GlobalParamsConfig;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 
+import org.apache.commons.lang3.StringUtils;
+
 import java.io.*;
 import java.util.*;
 
 public class ExtractEntities {
+    /** Max number of nouns of the sub-sequences of a noun chunk in extraction mode FAST **/
+    private static final int MAX_CHUNK_SUBSEQUENCE_LENGTH = 6;
+
     public static void main(String args[]) throws IOException {
         Set<String> entities = readEntities("./data/extract_entities/entities.txt");
         List<List<String>> sentences = readAbstractSentences("./data/extract_entities/abstract_sentences.txt");
 
-        //StanfordCoreNLP pipeline = CoreNLPUtils.StanfordDepNNParser();
+        //StanfordCoreNLP pipeline = CoreNLPUtils.createPipeline(CoreNLPUtils.PROFILE_CANDIDATES);
         HashMap<String, String> newEntities = new HashMap<>();
 
         System.out.println("Discovering new entities ... ");
@@ -56,46 +64,90 @@ public class ExtractEntities {
         bw.close();
     }
     
-    /** Parse a sentence and extract single nouns and combination of words that
+    /** Parse a sentence (or load its stored annotation) and extract single nouns and combination of words that
      * can be potentially considered as named entities in the downstream analysis.
      * 
      * @param sentence
      * @return set of potential single- and multi-word named entities
      */
     public static HashSet<String> extractNamedEntities(String sentence) {
-    	StanfordCoreNLP pipeline = CoreNLPUtils.StanfordDepNNParser();
+        return extractNamedEntities(annotate(sentence));
+    }
+    
+    /** Parse a sentence (or load its stored annotation) for candidate extraction. Sentences surely over the token
+     * limit (more words than tokens) and all sentences in extraction mode FAST are only POS tagged.
+     * 
+     * @param sentence
+     * @return annotated sentence
+     */
+    public static AnnotatedSentence annotate(String sentence) {
+        if (GlobalParamsConfig.EXTRACTION_MODE == ExtractionMode.FAST
+                || ParseGuard.exceedsLength(StringUtils.split(sentence).length)) {
+            return AnnotationStore.annotate(CoreNLPUtils.PROFILE_LEMMA, sentence);
+        }
+        return AnnotationStore.annotate(CoreNLPUtils.PROFILE_CANDIDATES, sentence);
+    }
+    
+    /** Parse a sentence with the given pipeline and extract single nouns and combination of words that
+     * can be potentially considered as named entities in the downstream analysis.
+     * 
+     * @param pipeline
+     * @param sentence
+     * @return set of potential single- and multi-word named entities
+     */
+    public static HashSet<String> extractNamedEntities(StanfordCoreNLP pipeline, String sentence) {
+        return extractNamedEntities(AnnotatedSentence.annotate(pipeline, sentence));
+    }
+    
+    /** Extract single nouns and combination of words that can be potentially considered as named entities 
+     * from an already annotated sentence. In extraction mode FAST, and for sentences over the token limit or without
+     * dependency parse, only the candidates of {@link #extractNounChunks(AnnotatedSentence)} are extracted (see
+     * {@link ParseGuard}). The same candidates are extracted if the time budget of the sentence runs out.
+     * 
+     * @param sentence - annotated sentence (tokens and dependency parse from one annotation pass)
+     * @return set of potential single- and multi-word named entities
+     */
+    public static HashSet<String> extractNamedEntities(AnnotatedSentence sentence) {
+        HashSet<String> candidates = extractNamedEntitiesWithinBudget(sentence);
+        return candidates != null ? candidates : extractNounChunks(sentence);
+    }
+    
+    /** Extract the candidates of an already annotated sentence as {@link #extractNamedEntities(AnnotatedSentence)},
+     * without fallback if the time budget of the sentence runs out. Candidates depend only on the sentence and on
+     * the extraction settings, and can be stored (see CandidateStore), unless the budget ran out.
+     * 
+     * @param sentence - annotated sentence (tokens and dependency parse from one annotation pass)
+     * @return set of potential single- and multi-word named entities, or null if the time budget ran out
+     */
+    public static HashSet<String> extractNamedEntitiesWithinBudget(AnnotatedSentence sentence) {
+        if (GlobalParamsConfig.EXTRACTION_MODE == ExtractionMode.FAST) {
+            return extractNounChunks(sentence);
+        }
+        ParseGuard.countSentence();
+        if (ParseGuard.exceedsLength(sentence.size())) {
+            ParseGuard.countLengthFallback();
+            return extractNounChunks(sentence);
+        }
+        if (!sentence.hasSemanticGraph()) {
+            ParseGuard.countParseFallback();
+            return extractNounChunks(sentence);
+        }
+        long deadline = ParseGuard.getDeadline();
+        
         HashSet<String> candidates = new HashSet<>();
         
-        SemanticGraph semGraph = CoreNLPUtils.parse(pipeline, sentence);
-        Annotation document = new Annotation(sentence);
+        SemanticGraph semGraph = sentence.getSemanticGraph();
         
-        try {
-            pipeline.annotate(document);
-        } catch (Exception e) {
-            System.out.println("Pipeline annotation error");
-        }
-
-        ObjectArrayList<IndexedWord> words = getWords(document);
-
-        List<IndexedWord> nouns = getNouns(words);
-        List<ObjectArrayList<IndexedWord>> compoundNouns = new ArrayList<>();
-        for (IndexedWord w: nouns) {
-            candidates.add(w.word());
-            candidates.add(w.lemma());            
-            
-            try {
-                compoundNouns.add(CoreNLPUtils.getChainedNouns(words, w.index()));
-            }
-            catch (Exception e) {
-                //ObjectArrayList<IndexedWord> cWords = CoreNLPUtils.getChainedNouns(words, w.index());
-                System.out.println("");
-            }
-        }
+        EncodedSentence encoded = sentence.getEncoded();
+        LongArrayList compoundNouns = addNounChunks(encoded, candidates);
 
         //int i = 0;
-        for (ObjectArrayList<IndexedWord> compoundNoun: compoundNouns) {
-            candidates.add(CoreNLPUtils.listOfWordsToWordsString(compoundNoun));
-            candidates.add(CoreNLPUtils.listOfWordsToLemmaString(compoundNoun));
+        for (long range: compoundNouns) {
+            if (ParseGuard.isExpired(deadline)) {
+                ParseGuard.countBudgetExceeded();
+                return null;
+            }
+            ObjectArrayList<IndexedWord> compoundNoun = encoded.getWords(range);
 
             try {
                 IndexedWord testWord = CoreNLPUtils.getRootFromWordList(semGraph, compoundNoun);
@@ -118,7 +170,13 @@ public class ExtractEntities {
                     ObjectArrayList<IndexedWord> constituents = CoreNLPUtils.getSortedWordsFromSetOfWords(allWords);
                     System.out.print("");
 
-                    SubConstituent subconstituents = new SubConstituent(semGraph, rootWord, constituents);
+                    if (GlobalParamsConfig.BITMASK_SUBCONSTITUENTS) {
+                        candidates.addAll(SubConstituentEnumerator.generateFromLeft(semGraph, rootWord, constituents,
+                                GlobalParamsConfig.MAX_SUBCONSTITUENTS));
+                        continue;
+                    }
+
+                    SubConstituent subconstituents = new SubConstituent(sentence, rootWord, constituents);
                     subconstituents.clearSubConstituentsAndCandidates();
                     subconstituents.generateSubConstituentsFromLeft();
 
@@ -142,6 +200,91 @@ public class ExtractEntities {
     	
     }
 
+    /** Extract candidates of a sentence from the POS tags only, without dependency parse and sub-constituents
+     * (extraction mode FAST). For each noun chunk (maximal sequence of nouns, see CoreNLPUtils.getChainedNouns):
+     *  - the single nouns (words and lemmas);
+     *  - the chunk and its contiguous sub-sequences of at least two nouns (words and lemmas);
+     *  - the chunk preceded by the adjectives chained to its left (see CoreNLPUtils.getChainedTagNoNER), with each
+     *    suffix of the adjectives (words and lemmas).
+     * 
+     * @param sentence - annotated sentence with POS tags and lemmas
+     * @return set of potential single- and multi-word named entities
+     */
+    public static HashSet<String> extractNounChunks(AnnotatedSentence sentence) {
+        HashSet<String> candidates = new HashSet<>();
+        EncodedSentence encoded = sentence.getEncoded();
+        
+        int i = 0;
+        while (i < encoded.size()) {
+            if (!encoded.isNoun(i)) {
+                i++;
+                continue;
+            }
+            long chunk = encoded.getChainedNouns(i);
+            int start = EncodedSentence.begin(chunk);
+            int end = EncodedSentence.end(chunk);
+            
+            // chunk and its sub-sequences (single nouns included)
+            for (int begin = start; begin < end; begin++) {
+                for (int stop = begin + 1; stop <= Math.min(end, begin + MAX_CHUNK_SUBSEQUENCE_LENGTH); stop++) {
+                    addWordsAndLemmas(candidates, encoded, EncodedSentence.range(begin, stop));
+                }
+            }
+            if (end - start > MAX_CHUNK_SUBSEQUENCE_LENGTH) {
+                addWordsAndLemmas(candidates, encoded, chunk);
+            }
+            
+            // adjectives chained to the left of the chunk
+            if (start > 0 && encoded.isAdj(start - 1) && encoded.isNoNER(start - 1)) {
+                long adjectives = encoded.getChainedTagNoNER(start - 1);
+                for (int begin = start - 1; begin >= EncodedSentence.begin(adjectives); begin--) {
+                    addWordsAndLemmas(candidates, encoded, EncodedSentence.range(begin, end));
+                }
+            }
+            
+            i = end;
+        }
+        return candidates;
+    }
+    
+    /** Add the words string and the lemma string of a range of words to the candidates **/
+    private static void addWordsAndLemmas(HashSet<String> candidates, EncodedSentence sentence, long range) {
+        candidates.add(sentence.getWordsString(range));
+        candidates.add(sentence.getLemmaString(range));
+    }
+    
+    /**
+     * Return the annotator profile of the candidate extraction in the current extraction mode
+     * @return CoreNLPUtils.PROFILE_CANDIDATES (mode FULL) or CoreNLPUtils.PROFILE_LEMMA (mode FAST)
+     */
+    public static String getAnnotatorProfile() {
+        return GlobalParamsConfig.EXTRACTION_MODE == ExtractionMode.FAST ?
+                CoreNLPUtils.PROFILE_LEMMA : CoreNLPUtils.PROFILE_CANDIDATES;
+    }
+
+    /** Add the nouns and chained nouns of a sentence to the candidates and return the ranges of the chained nouns
+     * (each distinct chain once) **/
+    private static LongArrayList addNounChunks(EncodedSentence sentence, HashSet<String> candidates) {
+        LongArrayList compoundNouns = new LongArrayList();
+        for (int i: sentence.getNouns()) {
+            long single = EncodedSentence.range(i, i + 1);
+            candidates.add(sentence.getWordsString(single));
+            candidates.add(sentence.getLemmaString(single));
+            
+            // nouns of the same chain have the same range, and the nouns are in sentence order
+            long range = sentence.getChainedNouns(i);
+            if (compoundNouns.isEmpty() || compoundNouns.getLong(compoundNouns.size() - 1) != range) {
+                compoundNouns.add(range);
+                addWordsAndLemmas(candidates, sentence, range);
+            }
+        }
+        return compoundNouns;
+    }
+
+    public static ObjectArrayList<IndexedWord> getWords(AnnotatedSentence sentence) {
+        return sentence.getWords();
+    }
+
     public static ObjectArrayList<IndexedWord> getWords(Annotation document) {
         ObjectArrayList<IndexedWord> words = new ObjectArrayList<>();
         //A CoreMap is a sentence with annotations
@@ -153,6 +296,10 @@ public class ExtractEntities {
         return words;
     }
 
+    public static List<IndexedWord> getNouns(AnnotatedSentence sentence) {
+        return getNouns(sentence.getWords());
+    }
+
     public static List<IndexedWord> getNouns(List<IndexedWord> words) {
         List<IndexedWord> nouns = new ArrayList<>();
         for (IndexedWord w: words) {
@@ -0,0 +1,33 @@
+package eu.glomicave.data_import.extract_entities;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hashes of texts used as keys of the on-disk stores (see {@link AnnotationStore}).
+ */
+public class Hashes {
+
+    /**
+     * Given a string, return hex representation of its SHA-256 hash
+     * @param text: input string
+     * @return SHA-256 hash (64 hex digits)
+     */
+    public static String sha256(String text) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte [] hash = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder sb = new StringBuilder(2 * hash.length);
+        for (byte b: hash) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
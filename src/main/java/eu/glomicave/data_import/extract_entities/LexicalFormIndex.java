@@ -0,0 +1,295 @@
+package eu.glomicave.data_import.extract_entities;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Compact in-memory index of lexical forms. Each lexical form (the uid of its LEXICAL_FORM node) gets an int id;
+ * the uid is kept in an id -> uid array. Lookups go through one map from the normalization key of the form
+ * (see {@link LexicalFormNormalizer}) to the first entry with this key; the key of each form is computed once, when
+ * the form is added. Entries with the same key are chained in an entry -> next entry array, so that an exact match
+ * can be preferred. No driver Node objects are kept.
+ *
+ * Optionally ({@link #buildLemmaIndex(int)}) the plural nouns of each lexical form are lemmatized once, and a form
+ * whose lemma key differs from its normalization key (e.g. the plural "heat shock proteins") gets a second, lemma
+ * entry under its lemma key ("heat shock protein") in the same map. A candidate is then looked up with one probe (see
+ * {@link #lookupWithLemmas(String)}), which finds both the forms with the same key and the plural forms with
+ * this lemma.
+ */
+public class LexicalFormIndex {
+    private static final Logger logger = LogManager.getLogger(LexicalFormIndex.class);
+
+    /** Number of lexical forms lemmatized per CoreNLP batch **/
+    private static final int LEMMA_BATCH_SIZE = 1000;
+
+    /** Lexical form id -> uid **/
+    private final ObjectArrayList<String> uids;
+    /** Normalization key (or lemma key) -> first entry with this key **/
+    private final Object2IntOpenHashMap<String> keyEntries;
+    /** Entry -> lexical form id **/
+    private final IntArrayList entryIds;
+    /** Entry -> next entry with the same key (-1 if none) **/
+    private final IntArrayList nextWithSameKey;
+    /** Entries by lemma key **/
+    private final BitSet lemmaEntries = new BitSet();
+    /** Number of lemma entries **/
+    private int lemmaEntryCount = 0;
+    /** Approximate memory of the lemma entries in bytes **/
+    private long lemmaIndexMemory = 0;
+
+    public LexicalFormIndex() {
+        this(16);
+    }
+
+    public LexicalFormIndex(int expectedSize) {
+        this.uids = new ObjectArrayList<>(expectedSize);
+        this.keyEntries = new Object2IntOpenHashMap<>(expectedSize);
+        this.keyEntries.defaultReturnValue(-1);
+        this.entryIds = new IntArrayList(expectedSize);
+        this.nextWithSameKey = new IntArrayList(expectedSize);
+    }
+
+    /**
+     * Add lexical form to the index
+     * @param uid: uid of the lexical form
+     * @return id of the lexical form (the existing id, if the form is already in the index)
+     */
+    public int add(String uid) {
+        String key = LexicalFormNormalizer.normalize(uid);
+
+        // Check if already added
+        for (int entry = this.keyEntries.getInt(key); entry >= 0; entry = this.nextWithSameKey.getInt(entry)) {
+            if (!this.lemmaEntries.get(entry) && this.uids.get(this.entryIds.getInt(entry)).equals(uid)) {
+                return this.entryIds.getInt(entry);
+            }
+        }
+
+        int id = this.uids.size();
+        this.uids.add(uid);
+        this.addEntry(key, id);
+        return id;
+    }
+
+    /** Append an entry of a lexical form to the chain of a key, return the entry **/
+    private int addEntry(String key, int id) {
+        int entry = this.entryIds.size();
+        this.entryIds.add(id);
+        this.nextWithSameKey.add(-1);
+
+        int last = -1;
+        for (int e = this.keyEntries.getInt(key); e >= 0; e = this.nextWithSameKey.getInt(e)) {
+            last = e;
+        }
+        if (last < 0) {
+            this.keyEntries.put(key, entry);
+        } else {
+            this.nextWithSameKey.set(last, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Given a lexical form, return its id (exact match)
+     * @param form: lexical form
+     * @return id of the lexical form, -1 if the form is not in the index
+     */
+    public int getId(String form) {
+        for (int entry = this.keyEntries.getInt(LexicalFormNormalizer.normalize(form)); entry >= 0; entry = this.nextWithSameKey.getInt(entry)) {
+            if (!this.lemmaEntries.get(entry) && this.uids.get(this.entryIds.getInt(entry)).equals(form)) {
+                return this.entryIds.getInt(entry);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Given a string, return the id of the lexical form with the same normalization key. A form equal to the string
+     * up to the case of the first letter is preferred, otherwise the first added form with the same key is returned.
+     * Use {@link #isExact(String, int)} to check which kind of match was found.
+     * @param form: lexical form (e.g. candidate or token from a sentence)
+     * @return id of the lexical form, -1 if there is no form with the same normalization key
+     */
+    public int lookup(String form) {
+        return this.lookup(form, false);
+    }
+
+    /**
+     * Given a string, return the id of the lexical form with the same normalization key or, if there is none, of the
+     * first lexical form whose lemma key is the key of the string. A form equal to the string up to the case of the
+     * first letter is preferred. One map probe, see {@link #buildLemmaIndex(int)}.
+     * @param form: lexical form (e.g. candidate from a sentence, words or lemmas)
+     * @return id of the lexical form, -1 if there is no form with the same normalization key or lemma key
+     */
+    public int lookupWithLemmas(String form) {
+        return this.lookup(form, true);
+    }
+
+    private int lookup(String form, boolean lemmas) {
+        int first = -1;
+        int firstLemma = -1;
+        for (int entry = this.keyEntries.getInt(LexicalFormNormalizer.normalize(form)); entry >= 0; entry = this.nextWithSameKey.getInt(entry)) {
+            int id = this.entryIds.getInt(entry);
+            if (this.lemmaEntries.get(entry)) {
+                if (lemmas && firstLemma < 0) {
+                    firstLemma = id;
+                }
+                continue;
+            }
+            if (isExact(form, id)) {
+                return id;
+            }
+            if (first < 0) {
+                first = id;
+            }
+        }
+        return first >= 0 ? first : firstLemma;
+    }
+
+    /**
+     * Lemmatize every lexical form once (CoreNLP annotator profile {@link CoreNLPUtils#PROFILE_LEMMA}, as in
+     * {@link CoreNLPUtils#StanfordLemmatizer()}) and add a lemma entry for each form whose lemma key differs from its
+     * normalization key. Forms added to the index afterwards get no lemma entry.
+     * @param threads: number of CoreNLP worker threads
+     */
+    public void buildLemmaIndex(int threads) {
+        long start = System.nanoTime();
+        int keys = this.keyEntries.size();
+        int lemmatized = this.uids.size();
+
+        for (int begin = 0; begin < lemmatized; begin += LEMMA_BATCH_SIZE) {
+            List<String> forms = this.uids.subList(begin, Math.min(begin + LEMMA_BATCH_SIZE, lemmatized));
+            List<ObjectArrayList<AnnotatedSentence>> annotations = BatchAnnotator.annotate(CoreNLPUtils.PROFILE_LEMMA, forms, threads);
+            for (int i = 0; i < forms.size(); i++) {
+                this.addLemma(begin + i, getLemmaString(annotations.get(i)));
+            }
+        }
+        this.trim();
+
+        logger.info("Lemma index: {} lexical forms lemmatized in {} ms, {} forms with a different lemma key, "
+                + "{} new keys, approx. {} KB more memory.",
+                lemmatized, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), this.lemmaEntryCount,
+                this.keyEntries.size() - keys, this.lemmaIndexMemory / 1024);
+    }
+
+    /**
+     * Add a lemma entry of a lexical form, if its lemma key differs from its normalization key
+     * @param id: lexical form id
+     * @param lemma: lemmas of the lexical form separated by space
+     * @return true if a lemma entry was added
+     */
+    public boolean addLemma(int id, String lemma) {
+        if (lemma == null || lemma.isEmpty()) {
+            return false;
+        }
+        String key = LexicalFormNormalizer.normalize(lemma);
+        if (key.isEmpty() || key.equals(LexicalFormNormalizer.normalize(this.uids.get(id)))) {
+            return false;
+        }
+        for (int entry = this.keyEntries.getInt(key); entry >= 0; entry = this.nextWithSameKey.getInt(entry)) {
+            if (this.entryIds.getInt(entry) == id) {
+                return false;
+            }
+        }
+        if (!this.keyEntries.containsKey(key)) {
+            // map slot (key reference and value) and the key string (String object and byte array, compressed references)
+            this.lemmaIndexMemory += 2 * Integer.BYTES + 24 + 16 + key.length();
+        }
+        this.lemmaEntries.set(this.addEntry(key, id));
+        this.lemmaEntryCount++;
+        this.lemmaIndexMemory += 2 * Integer.BYTES;
+        return true;
+    }
+
+    /**
+     * The tokens of an annotated lexical form separated by space, with the plural nouns (tagged NNS or NNPS)
+     * replaced by their lemma. Lexical forms are tagged without context: the other tokens keep their word, so that
+     * singular nouns and names are not lemmatized as plurals (e.g. "lens" as "len").
+     **/
+    static String getLemmaString(ObjectArrayList<AnnotatedSentence> sentences) {
+        StringBuilder sb = new StringBuilder();
+        for (AnnotatedSentence sentence: sentences) {
+            for (CoreLabel token: sentence.getTokens()) {
+                if (sb.length() > 0) {
+                    sb.append(SEPARATOR.SPACE);
+                }
+                boolean plural = POS_TAG.NNS.equals(token.tag()) || POS_TAG.NNPS.equals(token.tag());
+                sb.append(plural && token.lemma() != null ? token.lemma() : token.word());
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Checks if a string equals the lexical form up to the case of the first letter
+     * @param form: string
+     * @param id: lexical form id
+     * @return true if the string equals the lexical form up to the case of the first letter, false otherwise
+     */
+    public boolean isExact(String form, int id) {
+        String uid = this.uids.get(id);
+        if (form.length() != uid.length()) {
+            return false;
+        }
+        if (form.isEmpty()) {
+            return true;
+        }
+        return Character.toLowerCase(form.charAt(0)) == Character.toLowerCase(uid.charAt(0))
+                && form.regionMatches(1, uid, 1, form.length() - 1);
+    }
+
+    /**
+     * Given a normalization key, return the id of the first lexical form with this key
+     * @param key: normalization key (see {@link LexicalFormNormalizer#normalize(String)})
+     * @return id of the lexical form, -1 if there is no form with this key
+     */
+    public int getKeyId(String key) {
+        for (int entry = this.keyEntries.getInt(key); entry >= 0; entry = this.nextWithSameKey.getInt(entry)) {
+            if (!this.lemmaEntries.get(entry)) {
+                return this.entryIds.getInt(entry);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Given a lexical form id, return its uid
+     * @param id: lexical form id
+     * @return uid of the lexical form
+     */
+    public String getUID(int id) {
+        return this.uids.get(id);
+    }
+
+    public boolean contains(String form) {
+        return this.getId(form) >= 0;
+    }
+
+    public int size() {
+        return this.uids.size();
+    }
+
+    public int getLemmaEntryCount() {
+        return this.lemmaEntryCount;
+    }
+
+    public long getLemmaIndexMemory() {
+        return this.lemmaIndexMemory;
+    }
+
+    /** Reduce memory footprint of the index once all forms are added **/
+    public void trim() {
+        this.uids.trim();
+        this.keyEntries.trim();
+        this.entryIds.trim();
+        this.nextWithSameKey.trim();
+    }
+}
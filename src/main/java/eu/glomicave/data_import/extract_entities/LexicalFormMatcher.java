@@ -0,0 +1,338 @@
+package eu.glomicave.data_import.extract_entities;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Matcher of lexical forms in sentences. Two ways of matching are supported:
+ *  - candidate matching: candidates extracted from the parsed sentence (see ExtractEntities) are looked up among the
+ *    lexical forms independently of the case of the first letter, and by normalization key (see LexicalFormNormalizer)
+ *    or by the lemma key of inflected lexical forms (see {@link LexicalFormIndex#buildLemmaIndex(int)}) if longer
+ *    than 3 characters;
+ *  - gazetteer matching: all lexical forms are stored in a token-level trie over normalized tokens, so every
+ *    occurrence of a lexical form in the sentence is found in one pass over the sentence tokens, without parsing.
+ *
+ * Both return the matched lexical forms together with the information whether the match is exact (up to the case of
+ * the first letter) or only by normalization key (reported as lowercase match). The lexical forms are kept in a
+ * {@link LexicalFormIndex}; the trie is only built on first gazetteer matching (or with {@link #buildTrie()}) and is
+ * published last, so it is read without locking.
+ */
+public class LexicalFormMatcher {
+    /** Index of the lexical forms **/
+    private final LexicalFormIndex index;
+
+    /** Trie: children of each trie node (normalized token -> child node), null for leaves **/
+    private volatile ObjectArrayList<Object2IntOpenHashMap<String>> children;
+    /** Trie: lexical form ids ending at a trie node **/
+    private Int2ObjectOpenHashMap<IntArrayList> terminals;
+    /** Trie: tokens of each lexical form (by id), compared with the sentence tokens on a trie hit **/
+    private String [][] formTokens;
+    /** Max number of tokens of a lexical form **/
+    private int maxFormLength;
+
+    /** Minimal length of a lexical form matched only in lowercase **/
+    public static final int MIN_LOWERCASE_MATCH_LENGTH = 4;
+
+    /**
+     * Match of a lexical form in a sentence
+     */
+    public static class Match {
+        /** Matched lexical form **/
+        private final String lexicalForm;
+        /** True if the form matched only in lowercase **/
+        private final boolean lowerCase;
+        /** Token span of the match in the sentence (-1 for candidate matches) **/
+        private final int begin;
+        private final int end;
+        /** Character span of the match in the sentence text (-1 if unknown) **/
+        private final int charBegin;
+        private final int charEnd;
+
+        public Match(String lexicalForm, boolean lowerCase, int begin, int end) {
+            this(lexicalForm, lowerCase, begin, end, -1, -1);
+        }
+
+        public Match(String lexicalForm, boolean lowerCase, int begin, int end, int charBegin, int charEnd) {
+            this.lexicalForm = lexicalForm;
+            this.lowerCase = lowerCase;
+            this.begin = begin;
+            this.end = end;
+            this.charBegin = charBegin;
+            this.charEnd = charEnd;
+        }
+
+        // Getters
+        public String getLexicalForm() {
+            return this.lexicalForm;
+        }
+        public boolean isLowerCase() {
+            return this.lowerCase;
+        }
+        public int getBegin() {
+            return this.begin;
+        }
+        public int getEnd() {
+            return this.end;
+        }
+        public int getCharBegin() {
+            return this.charBegin;
+        }
+        public int getCharEnd() {
+            return this.charEnd;
+        }
+        public boolean hasCharSpan() {
+            return this.charBegin >= 0;
+        }
+
+        @Override
+        public String toString() {
+            return this.lexicalForm + (this.lowerCase ? " (lowercase)" : "");
+        }
+    }
+
+    public LexicalFormMatcher(LexicalFormIndex index) {
+        this.index = index;
+    }
+
+    public LexicalFormMatcher(Collection<String> lexicalForms) {
+        this(new LexicalFormIndex(lexicalForms.size()));
+        for (String form: lexicalForms) {
+            this.index.add(form);
+        }
+    }
+
+    /**
+     * Build the token trie of all lexical forms in the index (needed for gazetteer matching only)
+     */
+    public synchronized void buildTrie() {
+        if (this.children != null) {
+            return;
+        }
+        ObjectArrayList<Object2IntOpenHashMap<String>> children = new ObjectArrayList<>();
+        children.add(null);
+        Int2ObjectOpenHashMap<IntArrayList> terminals = new Int2ObjectOpenHashMap<>();
+        String [][] formTokens = new String[this.index.size()][];
+        int maxFormLength = 0;
+
+        for (int id = 0; id < formTokens.length; id++) {
+            String [] tokens = tokenize(this.index.getUID(id));
+            formTokens[id] = tokens;
+            if (tokens.length == 0) {
+                continue;
+            }
+
+            // Insert normalized tokens into the trie
+            int node = 0;
+            for (String token: tokens) {
+                String key = LexicalFormNormalizer.normalize(token);
+                Object2IntOpenHashMap<String> next = children.get(node);
+                if (next == null) {
+                    next = new Object2IntOpenHashMap<>(2);
+                    next.defaultReturnValue(-1);
+                    children.set(node, next);
+                }
+                int child = next.getInt(key);
+                if (child < 0) {
+                    child = children.size();
+                    children.add(null);
+                    next.put(key, child);
+                }
+                node = child;
+            }
+            IntArrayList ids = terminals.get(node);
+            if (ids == null) {
+                ids = new IntArrayList(1);
+                terminals.put(node, ids);
+            }
+            ids.add(id);
+            maxFormLength = Math.max(maxFormLength, tokens.length);
+        }
+
+        this.terminals = terminals;
+        this.formTokens = formTokens;
+        this.maxFormLength = maxFormLength;
+        this.children = children;
+    }
+
+    /**
+     * Given candidates extracted from a sentence, return the lexical forms they match. A candidate matches a
+     * lexical form exactly independently of the case of its first letter, otherwise by normalization key or, if the
+     * lemma index of the lexical forms is built, by lemma key (in lowercase) if the candidate is longer than 3
+     * characters. Each candidate is looked up with one probe (see {@link LexicalFormIndex#lookupWithLemmas(String)}).
+     * @param candidates: candidates extracted from a sentence
+     * @return list of matches
+     */
+    public ObjectArrayList<Match> matchCandidates(Collection<String> candidates) {
+        ObjectArrayList<Match> matches = new ObjectArrayList<>();
+        for (String cand: candidates) {
+            cand = cand.trim();
+            int id = this.index.lookupWithLemmas(cand);
+            if (id < 0) {
+                continue;
+            }
+            if (this.index.isExact(cand, id)) {
+                matches.add(new Match(this.index.getUID(id), false, -1, -1));
+            } else if (cand.length() >= MIN_LOWERCASE_MATCH_LENGTH) {
+                matches.add(new Match(this.index.getUID(id), true, -1, -1));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Given a sentence, return all occurrences of the lexical forms in it (gazetteer matching), with their character
+     * spans in the sentence text
+     * @param sentence: sentence text
+     * @return list of matches
+     */
+    public ObjectArrayList<Match> matchText(String sentence) {
+        IntArrayList offsets = new IntArrayList();
+        String [] tokens = tokenize(sentence, offsets);
+        return this.matchTokens(tokens, offsets.toIntArray());
+    }
+
+    /**
+     * Given sentence tokens, return all occurrences of the lexical forms in them. Overlapping and nested occurrences
+     * are all returned. A lexical form is matched exactly if all tokens are equal up to the case of the first letter,
+     * otherwise by normalization key (in lowercase) if the form is longer than 3 characters.
+     * @param tokens: sentence tokens (see {@link #tokenize(String)})
+     * @return list of matches
+     */
+    public ObjectArrayList<Match> matchTokens(String [] tokens) {
+        return this.matchTokens(tokens, null);
+    }
+
+    /** Gazetteer matching of sentence tokens, with the character offsets of the tokens (or null) **/
+    private ObjectArrayList<Match> matchTokens(String [] tokens, int [] offsets) {
+        if (this.children == null) {
+            this.buildTrie();
+        }
+        ObjectArrayList<Match> matches = new ObjectArrayList<>();
+        String [] keys = new String[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            keys[i] = LexicalFormNormalizer.normalize(tokens[i]);
+        }
+
+        for (int begin = 0; begin < tokens.length; begin++) {
+            int node = 0;
+            for (int end = begin; end < tokens.length && end - begin < this.maxFormLength; end++) {
+                Object2IntOpenHashMap<String> next = this.children.get(node);
+                if (next == null) {
+                    break;
+                }
+                node = next.getInt(keys[end]);
+                if (node < 0) {
+                    break;
+                }
+                IntArrayList ids = this.terminals.get(node);
+                if (ids != null) {
+                    this.addMatches(matches, ids, tokens, offsets, begin, end + 1);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /** Add exact matches of the forms ending at a trie node, or a lowercase match if none is exact **/
+    private void addMatches(ObjectArrayList<Match> matches, IntArrayList ids, String [] tokens, int [] offsets,
+            int begin, int end) {
+        int charBegin = offsets != null ? offsets[begin] : -1;
+        int charEnd = offsets != null ? offsets[end - 1] + tokens[end - 1].length() : -1;
+        boolean exact = false;
+        String last = null;
+        for (int i = 0; i < ids.size(); i++) {
+            int id = ids.getInt(i);
+            String form = this.index.getUID(id);
+            if (isExact(this.formTokens[id], tokens, begin)) {
+                matches.add(new Match(form, false, begin, end, charBegin, charEnd));
+                exact = true;
+            }
+            last = form;
+        }
+        if (!exact && last.length() >= MIN_LOWERCASE_MATCH_LENGTH) {
+            matches.add(new Match(last, true, begin, end, charBegin, charEnd));
+        }
+    }
+
+    /** Check if tokens of a form equal the sentence tokens, up to the case of the first letter **/
+    private static boolean isExact(String [] formTokens, String [] tokens, int begin) {
+        if (!StringUtils.uncapitalize(formTokens[0]).equals(StringUtils.uncapitalize(tokens[begin]))) {
+            return false;
+        }
+        for (int i = 1; i < formTokens.length; i++) {
+            if (!formTokens[i].equals(tokens[begin + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Given a text, return its tokens used for gazetteer matching: maximal runs of letters and digits, and every
+     * other non-whitespace character as a single token. Lexical forms and sentences are tokenized the same way.
+     * @param text: input text
+     * @return tokens
+     */
+    public static String [] tokenize(String text) {
+        return tokenize(text, null);
+    }
+
+    /**
+     * Tokenize a text as {@link #tokenize(String)} and collect the character offsets of the tokens
+     * @param text: input text
+     * @param offsets: list to which the begin offset of each token is added (or null)
+     * @return tokens
+     */
+    public static String [] tokenize(String text, IntArrayList offsets) {
+        List<String> tokens = new ObjectArrayList<>();
+        int start = -1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (start < 0) {
+                    start = i;
+                }
+                continue;
+            }
+            if (start >= 0) {
+                addToken(tokens, offsets, text.substring(start, i), start);
+                start = -1;
+            }
+            if (!Character.isWhitespace(c)) {
+                addToken(tokens, offsets, String.valueOf(c), i);
+            }
+        }
+        if (start >= 0) {
+            addToken(tokens, offsets, text.substring(start), start);
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    private static void addToken(List<String> tokens, IntArrayList offsets, String token, int offset) {
+        tokens.add(token);
+        if (offsets != null) {
+            offsets.add(offset);
+        }
+    }
+
+    // Getters
+    public LexicalFormIndex getIndex() {
+        return this.index;
+    }
+    public int size() {
+        return this.index.size();
+    }
+    public int getTrieSize() {
+        return this.children != null ? this.children.size() : 0;
+    }
+    public int getMaxFormLength() {
+        return this.maxFormLength;
+    }
+}
@@ -0,0 +1,86 @@
+package eu.glomicave.data_import.extract_entities;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Normalization of lexical forms for case-, hyphen- and Greek-insensitive lookup. The normalization key of a string is:
+ *  - Unicode NFKC normalized (e.g. ligatures, full-width and super-/subscript characters are replaced);
+ *  - lowercase;
+ *  - with all Unicode hyphens and dashes replaced by '-' and soft hyphens removed;
+ *  - with Greek letters replaced by their Latin names (e.g. alpha U+03B1 -> 'alpha', micro sign U+00B5 -> 'mu');
+ *  - with whitespace runs replaced by a single space and trimmed.
+ *
+ * E.g. "TNF-" + capital alpha (U+0391) and "tnf-alpha" have the same key "tnf-alpha".
+ */
+public class LexicalFormNormalizer {
+    /** Latin names of the lowercase Greek letters alpha (U+03B1) ... omega (U+03C9) **/
+    private static final String [] GREEK_NAMES = {
+            "alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta", "theta", "iota", "kappa", "lambda", "mu",
+            "nu", "xi", "omicron", "pi", "rho", "sigma", "sigma", "tau", "upsilon", "phi", "chi", "psi", "omega"
+    };
+    private static final char GREEK_FIRST = '\u03B1';
+    private static final char GREEK_LAST = '\u03C9';
+
+    /**
+     * Given a string, return its normalization key
+     * @param text: input string
+     * @return normalization key
+     */
+    public static String normalize(String text) {
+        if (isSimpleAscii(text)) {
+            // Nothing to normalize apart from the case
+            return text.toLowerCase(Locale.ROOT);
+        }
+
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(normalized.length() + 8);
+        boolean space = false;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                space = sb.length() > 0;
+                continue;
+            }
+            if (space) {
+                sb.append(' ');
+                space = false;
+            }
+            if (c >= GREEK_FIRST && c <= GREEK_LAST) {
+                sb.append(GREEK_NAMES[c - GREEK_FIRST]);
+            } else if (isHyphen(c)) {
+                sb.append('-');
+            } else if (c != '\u00AD') {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Checks if a character is a Unicode hyphen, dash or minus sign
+     * @param c: character
+     * @return true if the character is a hyphen, dash or minus sign, false otherwise
+     */
+    public static boolean isHyphen(char c) {
+        return c == '-' || (c >= '\u2010' && c <= '\u2015') || c == '\u2212' || c == '\u2043' || c == '\uFE58'
+                || c == '\uFE63' || c == '\uFF0D' || Character.getType(c) == Character.DASH_PUNCTUATION;
+    }
+
+    /** Checks if the string is ASCII without whitespace other than single inner spaces **/
+    private static boolean isSimpleAscii(String text) {
+        int length = text.length();
+        if (length > 0 && (text.charAt(0) == ' ' || text.charAt(length - 1) == ' ')) {
+            return false;
+        }
+        char prev = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c > 0x7E || (c < 0x20) || (c == ' ' && prev == ' ')) {
+                return false;
+            }
+            prev = c;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,300 @@
+package eu.glomicave.data_import.extract_entities;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+/**
+ * Read-only dictionary in a binary file, memory-mapped with {@link FileChannel#map}. Opening the dictionary reads only
+ * the header, the pages are loaded by the OS on demand and shared by all processes mapping the same file.
+ *
+ * The file holds the UTF-8 encoded strings sorted by unsigned byte order, front-coded in blocks of BLOCK_SIZE strings:
+ * the first string of a block is stored in full, each other string as the length of the prefix shared with the
+ * previous string and the remaining suffix. Lookups do a binary search on the first strings of the blocks followed
+ * by a scan of one block, on the bytes of the mapped file (no String objects are created). The block index holds the
+ * first 8 bytes of the first string of each block, so that most steps of the binary search only read the index.
+ *
+ * Format (ints are big-endian, lengths are variable-length ints of 7 bits per byte):
+ *  - header: magic, version, number of strings, block size, number of blocks, max string length in bytes;
+ *  - block index: for each block, the first 8 bytes of its first string (zero padded, as a long) and the offset
+ *    of the block (int) relative to the start of the data;
+ *  - data: for each block, [length, bytes] of the first string and [shared length, suffix length, suffix bytes]
+ *    of the other strings.
+ *
+ * A dictionary file is limited to 2 GB.
+ */
+public class MappedDictionary {
+    /** "GKDC" **/
+    private static final int MAGIC = 0x474B4443;
+    private static final int VERSION = 1;
+    /** Number of strings per front-coded block **/
+    public static final int BLOCK_SIZE = 16;
+    private static final int HEADER_SIZE = 6 * Integer.BYTES;
+    /** Size of an entry of the block index: prefix and offset **/
+    private static final int INDEX_ENTRY_SIZE = Long.BYTES + Integer.BYTES;
+
+    /** Mapped file **/
+    private final ByteBuffer buffer;
+    /** Number of strings **/
+    private final int size;
+    private final int blockSize;
+    private final int blocks;
+    /** Length of the longest string in bytes **/
+    private final int maxLength;
+    /** Start of the data in the file **/
+    private final int dataStart;
+
+    private MappedDictionary(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary dictionary file.");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported binary dictionary version: " + buffer.getInt(4));
+        }
+        this.buffer = buffer;
+        this.size = buffer.getInt(8);
+        this.blockSize = buffer.getInt(12);
+        this.blocks = buffer.getInt(16);
+        this.maxLength = buffer.getInt(20);
+        this.dataStart = HEADER_SIZE + this.blocks * INDEX_ENTRY_SIZE;
+    }
+
+    /**
+     * Map a binary dictionary file into memory
+     * @param path: binary dictionary file (see {@link #write(Collection, Path)})
+     * @return dictionary
+     * @throws IOException
+     */
+    public static MappedDictionary open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new MappedDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /** The size of the dictionary (number of strings) **/
+    public int size() {
+        return this.size;
+    }
+
+    /** Checks if a string is in the dictionary **/
+    public boolean contains(String word) {
+        if (word == null || this.blocks == 0) {
+            return false;
+        }
+        byte [] key = word.getBytes(StandardCharsets.UTF_8);
+        if (key.length > this.maxLength) {
+            return false;
+        }
+
+        // Binary search of the last block whose first string is not greater than the key
+        long keyPrefix = getPrefix(key);
+        int low = 0;
+        int high = this.blocks - 1;
+        int block = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Long.compareUnsigned(this.buffer.getLong(HEADER_SIZE + mid * INDEX_ENTRY_SIZE), keyPrefix);
+            if (cmp == 0) {
+                // Same first 8 bytes, compare the whole string
+                int pos = this.getBlockStart(mid);
+                int length = readVInt(this.buffer, pos);
+                cmp = compare(this.buffer, pos + vIntSize(length), length, key);
+            }
+            if (cmp == 0) {
+                return true;
+            } else if (cmp < 0) {
+                block = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (block < 0) {
+            return false;
+        }
+
+        // Scan the block, rebuilding the front-coded strings in a byte array
+        byte [] entry = new byte[this.maxLength];
+        int pos = this.getBlockStart(block);
+        int length = readVInt(this.buffer, pos);
+        pos += vIntSize(length);
+        this.buffer.get(pos, entry, 0, length);
+        pos += length;
+        int count = Math.min(this.blockSize, this.size - block * this.blockSize);
+        for (int i = 1; i < count; i++) {
+            int shared = readVInt(this.buffer, pos);
+            pos += vIntSize(shared);
+            int suffix = readVInt(this.buffer, pos);
+            pos += vIntSize(suffix);
+            this.buffer.get(pos, entry, shared, suffix);
+            pos += suffix;
+            length = shared + suffix;
+
+            int cmp = Arrays.compareUnsigned(entry, 0, length, key, 0, key.length);
+            if (cmp == 0) {
+                return true;
+            } else if (cmp > 0) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /** Position of the first string of a block in the buffer **/
+    private int getBlockStart(int block) {
+        return this.dataStart + this.buffer.getInt(HEADER_SIZE + block * INDEX_ENTRY_SIZE + Long.BYTES);
+    }
+
+    /** First 8 bytes of a string as a long (big-endian, zero padded), ordered as the strings by unsigned comparison **/
+    private static long getPrefix(byte [] bytes) {
+        long prefix = 0L;
+        for (int i = 0; i < Long.BYTES; i++) {
+            prefix = (prefix << 8) | (i < bytes.length ? bytes[i] & 0xFF : 0);
+        }
+        return prefix;
+    }
+
+    /** Compare the string of the given length at a position of the buffer with the key (unsigned byte order) **/
+    private static int compare(ByteBuffer buffer, int pos, int length, byte [] key) {
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = Integer.compare(buffer.get(pos + i) & 0xFF, key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private static int readVInt(ByteBuffer buffer, int pos) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get(pos++);
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static int vIntSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static void writeVInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Write a binary dictionary file. Empty strings and duplicates are skipped, strings are trimmed.
+     * @param words: strings of the dictionary
+     * @param path: binary dictionary file
+     * @throws IOException
+     */
+    public static void write(Collection<String> words, Path path) throws IOException {
+        ObjectArrayList<byte []> entries = new ObjectArrayList<>(words.size());
+        for (String word: words) {
+            word = word.trim();
+            if (!word.isEmpty()) {
+                entries.add(word.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        entries.sort(Arrays::compareUnsigned);
+
+        // Front-coded data and the block offsets
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        IntArrayList offsets = new IntArrayList();
+        ObjectArrayList<byte []> firstEntries = new ObjectArrayList<>();
+        byte [] previous = null;
+        int count = 0;
+        int maxLength = 0;
+        for (byte [] entry: entries) {
+            if (previous != null && Arrays.equals(previous, entry)) {
+                continue;
+            }
+            if (count % BLOCK_SIZE == 0) {
+                offsets.add(data.size());
+                firstEntries.add(entry);
+                writeVInt(data, entry.length);
+                data.write(entry);
+            } else {
+                int shared = Arrays.mismatch(previous, entry);
+                writeVInt(data, shared);
+                writeVInt(data, entry.length - shared);
+                data.write(entry, shared, entry.length - shared);
+            }
+            maxLength = Math.max(maxLength, entry.length);
+            previous = entry;
+            count++;
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(count);
+            out.writeInt(BLOCK_SIZE);
+            out.writeInt(offsets.size());
+            out.writeInt(maxLength);
+            for (int i = 0; i < offsets.size(); i++) {
+                out.writeLong(getPrefix(firstEntries.get(i)));
+                out.writeInt(offsets.getInt(i));
+            }
+            data.writeTo(out);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Convert dictionary text files (one entry per line, as loaded by {@link Dictionary}) into one binary dictionary file.
+     * Usage: MappedDictionary [output file] [input file ...]
+     */
+    public static void main(String [] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: MappedDictionary <output file> <input file> [<input file> ...]");
+            return;
+        }
+        ObjectArrayList<String> words = new ObjectArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[i]), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    words.add(line);
+                }
+            }
+        }
+        long start = System.currentTimeMillis();
+        write(words, Paths.get(args[0]));
+        MappedDictionary dictionary = open(Paths.get(args[0]));
+        System.out.println("Written " + dictionary.size() + " entries to " + args[0] + " in "
+                + (System.currentTimeMillis() - start) + " ms.");
+    }
+}
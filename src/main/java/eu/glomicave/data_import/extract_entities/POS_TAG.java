@@ -1,5 +1,7 @@
 package eu.glomicave.data_import.extract_entities;
 
+import it.unimi.dsi.fastutil.objects.Object2ByteOpenHashMap;
+
 /**
  * @author Kiril Gashteovski
  */
@@ -35,4 +37,52 @@ public class POS_TAG {
     public static final String SYM = "SYM";
     public static final String IN = "IN";
     public static final String TO = "TO";
+
+    /** Byte code of the tags not listed above **/
+    public static final byte CODE_OTHER = 0;
+    /** Tags with a byte code (code = position), tags of the same word class have consecutive codes **/
+    private static final String [] CODED_TAGS = {null, CD, DT, VB, VBD, VBG, VBN, VBP, VBZ, MD, NN, NNS, NNP, NNPS,
+            JJ, JJR, JJS, RB, RBR, RBS, RP, PRP, PRP_P, WP, WP_P, WDT, WRB, POS, SYM, IN, TO};
+    private static final Object2ByteOpenHashMap<String> CODES = new Object2ByteOpenHashMap<>(CODED_TAGS.length);
+    static {
+        CODES.defaultReturnValue(CODE_OTHER);
+        for (byte code = 1; code < CODED_TAGS.length; code++) {
+            CODES.put(CODED_TAGS[code], code);
+        }
+    }
+    private static final byte CODE_VB = encode(VB);
+    private static final byte CODE_VBZ = encode(VBZ);
+    private static final byte CODE_NN = encode(NN);
+    private static final byte CODE_NNPS = encode(NNPS);
+    private static final byte CODE_JJ = encode(JJ);
+    private static final byte CODE_JJS = encode(JJS);
+
+    /**
+     * Return the byte code of a POS tag
+     * @param tag: POS tag
+     * @return code of the tag, CODE_OTHER if the tag has no code (or is null)
+     */
+    public static byte encode(String tag) {
+        return tag == null ? CODE_OTHER : CODES.getByte(tag);
+    }
+
+    /** The POS tag of a byte code (null for CODE_OTHER) **/
+    public static String decode(byte code) {
+        return CODED_TAGS[code];
+    }
+
+    /** Checks if a code is the code of a verb tag (VB, VBD, VBG, VBN, VBP or VBZ) **/
+    public static boolean isVerb(byte code) {
+        return code >= CODE_VB && code <= CODE_VBZ;
+    }
+
+    /** Checks if a code is the code of a noun tag (NN, NNS, NNP or NNPS) **/
+    public static boolean isNoun(byte code) {
+        return code >= CODE_NN && code <= CODE_NNPS;
+    }
+
+    /** Checks if a code is the code of an adjective tag (JJ, JJR or JJS) **/
+    public static boolean isAdj(byte code) {
+        return code >= CODE_JJ && code <= CODE_JJS;
+    }
 }
@@ -0,0 +1,102 @@
+package eu.glomicave.data_import.extract_entities;
+
+import eu.glomicave.config.GlobalParamsConfig;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Limits of the candidate extraction of a single sentence. Very long sentences (chemical lists, run-on abstracts)
+ * take seconds in the dependency parser and in the sub-constituent enumeration, so:
+ *  - sentences with more tokens than {@link GlobalParamsConfig#MAX_PARSE_TOKENS} are not parsed, their candidates
+ *    are the noun chunks found from the POS tags only (see {@link ExtractEntities#extractNounChunks});
+ *    sentences annotated without dependency parse for other reasons get the same candidates;
+ *  - the sub-constituent enumeration of a sentence stops after {@link GlobalParamsConfig#PARSE_TIME_BUDGET_MS},
+ *    the sentence then gets the noun chunk candidates as well. These depend on the timing of the run and are not
+ *    stored in the candidate store (see {@link ExtractEntities#extractNamedEntitiesWithinBudget}). The budget is
+ *    only checked between the compound nouns of the sentence: the enumeration of one compound noun is not
+ *    interrupted and can still run past the budget. With {@link GlobalParamsConfig#BITMASK_SUBCONSTITUENTS} it is
+ *    capped by {@link GlobalParamsConfig#MAX_SUBCONSTITUENTS}, the SubConstituent enumeration (the default) has
+ *    no cap.
+ *
+ * The time of the (transition-based, linear) dependency parser is bounded by the token limit. The CoreNLP sentence
+ * timeout (depparse.sentenceTimeout) is not used: in CoreNLP 4.2.0 the annotator does not return after an
+ * interrupted sentence.
+ *
+ * The number of sentences handled by each fallback is counted, to tune the limits.
+ */
+public class ParseGuard {
+    private static final Logger logger = LogManager.getLogger(ParseGuard.class);
+
+    /** Number of sentences with candidate extraction **/
+    private static final AtomicLong sentences = new AtomicLong();
+    /** Number of sentences not parsed because of their length **/
+    private static final AtomicLong lengthFallbacks = new AtomicLong();
+    /** Number of sentences without dependency parse (other than the ones over the token limit) **/
+    private static final AtomicLong parseFallbacks = new AtomicLong();
+    /** Number of sentences whose sub-constituent enumeration was stopped by the time budget (noun chunks only) **/
+    private static final AtomicLong budgetExceeded = new AtomicLong();
+
+    /**
+     * Check if a sentence is too long to be parsed
+     * @param tokens: number of tokens of the sentence
+     * @return true if the number of tokens is over the limit
+     */
+    public static boolean exceedsLength(int tokens) {
+        return GlobalParamsConfig.MAX_PARSE_TOKENS > 0 && tokens > GlobalParamsConfig.MAX_PARSE_TOKENS;
+    }
+
+    /**
+     * Return the end of the time budget of a sentence whose processing starts now
+     * @return deadline in System.nanoTime() units (Long.MAX_VALUE without budget)
+     */
+    public static long getDeadline() {
+        if (GlobalParamsConfig.PARSE_TIME_BUDGET_MS <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(GlobalParamsConfig.PARSE_TIME_BUDGET_MS);
+    }
+
+    public static boolean isExpired(long deadline) {
+        return deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0;
+    }
+
+    // Counters
+    static void countSentence() {
+        sentences.incrementAndGet();
+    }
+    static void countLengthFallback() {
+        lengthFallbacks.incrementAndGet();
+    }
+    static void countParseFallback() {
+        parseFallbacks.incrementAndGet();
+    }
+    static void countBudgetExceeded() {
+        budgetExceeded.incrementAndGet();
+    }
+
+    // Getters
+    public static long getSentences() {
+        return sentences.get();
+    }
+    public static long getLengthFallbacks() {
+        return lengthFallbacks.get();
+    }
+    public static long getParseFallbacks() {
+        return parseFallbacks.get();
+    }
+    public static long getBudgetExceeded() {
+        return budgetExceeded.get();
+    }
+
+    /** Log the number of sentences handled by each fallback **/
+    public static void logStatistics() {
+        logger.info("Candidate extraction: {} sentences, {} over {} tokens (not parsed), {} without parse, "
+                + "{} over the time budget of {} ms (noun chunks only).",
+                getSentences(), getLengthFallbacks(), GlobalParamsConfig.MAX_PARSE_TOKENS, getParseFallbacks(),
+                getBudgetExceeded(), GlobalParamsConfig.PARSE_TIME_BUDGET_MS);
+    }
+}
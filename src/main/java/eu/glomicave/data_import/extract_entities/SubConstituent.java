@@ -60,6 +60,11 @@ public class SubConstituent {
         this.siblingCandidates = new ObjectOpenHashSet<>();
     }
     
+    /** Constructor from an annotated sentence, the root of the phrase and the words of the phrase **/
+    public SubConstituent(AnnotatedSentence sentence, IndexedWord pRoot, ObjectArrayList<IndexedWord> pWords){
+        this(sentence.getSemanticGraph(), pRoot, pWords);
+    }
+    
     /** Initialize an object with semantic graph only. Everything else is empty. **/
     public SubConstituent(SemanticGraph sentenceSg){
         this.sg = sentenceSg;
@@ -207,7 +212,7 @@ public class SubConstituent {
     public ObjectArrayList<IndexedWord> getRootChainedWords(){
         // TODO: double check how we generate chained words (considering the NERs)
         ObjectArrayList<IndexedWord> chainedWords = new ObjectArrayList<>();
-        if (!this.phraseRoot.ner().equals(NE_TYPE.NO_NER)) 
+        if (!CoreNLPUtils.isNoNER(this.phraseRoot)) 
             chainedWords = CoreNLPUtils.getChainedNERs(this.phraseWords, this.phraseWords.indexOf(this.phraseRoot));
         else if (CoreNLPUtils.isNoun(this.phraseRoot.tag()))
             chainedWords = CoreNLPUtils.getChainedNouns(this.phraseWords, this.phraseWords.indexOf(this.phraseRoot));
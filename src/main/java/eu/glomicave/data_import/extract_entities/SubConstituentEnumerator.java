@@ -0,0 +1,256 @@
+package eu.glomicave.data_import.extract_entities;
+
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphEdge;
+import eu.glomicave.config.GlobalParamsConfig;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Allocation-light alternative to {@link SubConstituent#generateSubConstituentsFromLeft()}. Each candidate
+ * (chained candidate, sub-tree candidate and sub-constituent) is a bitmask over the positions of the phrase words,
+ * so that merging two candidates is a bitwise OR and duplicates are removed on the long value. Since the phrase
+ * words are sorted by index, the words of a mask are always in sentence order. The lemma string of a candidate is
+ * built only once it is added to the result, and the number of strings per phrase is limited by a cap. Of a phrase
+ * with more than {@link #MAX_PHRASE_WORDS} words only the words around the root are enumerated.
+ *
+ * The sibling candidates (pairs of sub-tree candidates of different dependents of the root, in both orders) are
+ * enumerated directly instead of materializing all index permutations and element combinations.
+ *
+ * For the phrases of ExtractEntities (the root and its dependents) the result equals the string sub-constituents of
+ * SubConstituent. Only a phrase with deeper words of a sub-tree can have a sub-tree candidate sharing words with
+ * a chained candidate: SubConstituent repeats the shared words in the merged candidate, here a word never appears
+ * twice in a candidate (the candidate of SubConstituent with the repeated words removed).
+ */
+public class SubConstituentEnumerator {
+    /** Max number of phrase words (one bit per word); of longer phrases only the words around the root are used **/
+    public static final int MAX_PHRASE_WORDS = Long.SIZE;
+    /** Max number of sub-tree groups combined into sibling candidates (same as in SubConstituent) **/
+    private static final int MAX_SIBLING_GROUPS = 5;
+
+    private static final Logger logger = LogManager.getLogger(SubConstituentEnumerator.class);
+
+    /** Number of phrases whose candidates were cut by the cap or the max number of words **/
+    private static final AtomicLong truncatedPhrases = new AtomicLong();
+
+    /**
+     * Given a sentence semantic graph, a phrase root and the phrase words, return the lemma strings of all the
+     * sub-constituents from the left (see {@link SubConstituent#generateSubConstituentsFromLeft()}).
+     *
+     * @param sg: semantic graph of the sentence
+     * @param phraseRoot: root of the phrase
+     * @param phraseWords: words of the phrase, sorted by index
+     * @param maxCandidates: max number of returned candidates (no limit if not positive)
+     * @return set of lemma strings of the sub-constituents
+     */
+    public static ObjectOpenHashSet<String> generateFromLeft(SemanticGraph sg, IndexedWord phraseRoot,
+            ObjectArrayList<IndexedWord> phraseWords, int maxCandidates) {
+        boolean truncated = false;
+        if (phraseWords.size() > MAX_PHRASE_WORDS) {
+            int rootPosition = Math.max(0, phraseWords.indexOf(phraseRoot));
+            int from = Math.min(Math.max(0, rootPosition - MAX_PHRASE_WORDS / 2), phraseWords.size() - MAX_PHRASE_WORDS);
+            logger.warn("Phrase of {} words, only the {} words around the root '{}' are enumerated.",
+                    phraseWords.size(), MAX_PHRASE_WORDS, phraseRoot.word());
+            phraseWords = new ObjectArrayList<>(phraseWords.subList(from, from + MAX_PHRASE_WORDS));
+            truncated = true;
+        }
+
+        int cap = maxCandidates > 0 ? maxCandidates : Integer.MAX_VALUE;
+        ObjectOpenHashSet<String> result = new ObjectOpenHashSet<>();
+
+        // Chained words of the root and the chained candidates (prefixes of the chained words)
+        ObjectArrayList<IndexedWord> chainedWords = new SubConstituent(sg, phraseRoot, phraseWords).getRootChainedWords();
+        long chainedMask = toMask(chainedWords, phraseWords);
+        LongArrayList chainedCandidates = new LongArrayList();
+        LongOpenHashSet seenChained = new LongOpenHashSet();
+        long prefix = 0L;
+        for (long rest = chainedMask; rest != 0L; rest &= rest - 1) {
+            prefix |= Long.lowestOneBit(rest);
+            if (seenChained.add(prefix)) {
+                chainedCandidates.add(prefix);
+            }
+        }
+
+        // Sub-tree candidates: for each dependent of the root, the suffixes of its sub-tree
+        ObjectArrayList<LongArrayList> subTreeGroups = new ObjectArrayList<>();
+        LongOpenHashSet seenSubTrees = new LongOpenHashSet();
+        IndexedWord rootVertex = phraseRoot.index() > -1 ? sg.getNodeByIndexSafe(phraseRoot.index()) : null;
+        if (rootVertex != null) {
+            for (SemanticGraphEdge edge: sg.outgoingEdgeIterable(rootVertex)) {
+                IndexedWord dependent = edge.getDependent();
+                long subTree;
+                if (sg.hasChildren(dependent)) {
+                    subTree = toMask(sg.descendants(dependent), phraseWords);
+                } else if (chainedWords.contains(dependent)) {
+                    // Include the parent of a chained word without dependents
+                    subTree = toMask(dependent, phraseWords) | toMask(sg.getParent(dependent), phraseWords);
+                } else {
+                    subTree = toMask(dependent, phraseWords);
+                }
+
+                if (subTree == 0L) {
+                    continue;
+                }
+                if ((subTree & ~chainedMask) == 0L) {
+                    // Part of the chained words: the suffixes are chained candidates
+                    for (long suffix = subTree; suffix != 0L; suffix &= suffix - 1) {
+                        if (seenChained.add(suffix)) {
+                            chainedCandidates.add(suffix);
+                        }
+                    }
+                } else if (seenSubTrees.add(subTree)) {
+                    LongArrayList group = new LongArrayList(Long.bitCount(subTree));
+                    for (long suffix = subTree; suffix != 0L; suffix &= suffix - 1) {
+                        group.add(suffix);
+                    }
+                    subTreeGroups.add(group);
+                }
+            }
+        }
+
+        // Lemma strings of the candidates, built only once per mask
+        Long2ObjectOpenHashMap<String> lemmas = new Long2ObjectOpenHashMap<>();
+
+        // Sub-constituents: chained candidates alone first, then merged with each sub-tree candidate
+        LongOpenHashSet seenSubConstituents = new LongOpenHashSet();
+        boolean capped = false;
+        for (int i = 0; i < chainedCandidates.size() && !capped; i++) {
+            long candidate = chainedCandidates.getLong(i);
+            if (seenSubConstituents.add(candidate)) {
+                capped = !add(result, getLemmaString(candidate, phraseWords, lemmas), cap);
+            }
+        }
+        for (int i = 0; i < chainedCandidates.size() && !capped; i++) {
+            long chained = chainedCandidates.getLong(i);
+            for (int g = 0; g < subTreeGroups.size() && !capped; g++) {
+                LongArrayList group = subTreeGroups.get(g);
+                for (int j = 0; j < group.size() && !capped; j++) {
+                    long candidate = chained | group.getLong(j);
+                    if (seenSubConstituents.add(candidate)) {
+                        capped = !add(result, getLemmaString(candidate, phraseWords, lemmas), cap);
+                    }
+                }
+            }
+        }
+
+        // Sibling candidates followed by each chained candidate
+        if (!capped && subTreeGroups.size() >= 2 && subTreeGroups.size() <= MAX_SIBLING_GROUPS
+                && !chainedCandidates.isEmpty()) {
+            String [][] groupLemmas = new String[subTreeGroups.size()][];
+            for (int g = 0; g < subTreeGroups.size(); g++) {
+                LongArrayList group = subTreeGroups.get(g);
+                groupLemmas[g] = new String[group.size()];
+                for (int j = 0; j < group.size(); j++) {
+                    groupLemmas[g][j] = getLemmaString(group.getLong(j), phraseWords, lemmas);
+                }
+            }
+            ObjectOpenHashSet<String> siblings = new ObjectOpenHashSet<>();
+            addSiblings(groupLemmas, siblings, cap);
+
+            for (int i = 0; i < chainedCandidates.size() && !capped; i++) {
+                String chained = getLemmaString(chainedCandidates.getLong(i), phraseWords, lemmas);
+                for (String sibling: siblings) {
+                    if (!add(result, sibling + SEPARATOR.SPACE + chained, cap)) {
+                        capped = true;
+                        break;
+                    }
+                }
+            }
+            capped |= siblings.size() >= cap;
+        }
+
+        if (truncated || capped) {
+            truncatedPhrases.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * Enumerate the sibling candidates: pairs of sub-tree candidates of two different groups (in both orders), joined
+     * by space. Like in SubConstituent, where FastUtil.getElementsCombinations yields no combinations of more than
+     * two lists, longer combinations are not generated.
+     * @param groupLemmas: lemma strings of the sub-tree candidates of each group
+     * @param siblings: set of sibling candidates
+     * @param cap: max number of sibling candidates
+     */
+    private static void addSiblings(String [][] groupLemmas, ObjectOpenHashSet<String> siblings, int cap) {
+        for (int g1 = 0; g1 < groupLemmas.length; g1++) {
+            for (int g2 = 0; g2 < groupLemmas.length; g2++) {
+                if (g1 == g2) {
+                    continue;
+                }
+                for (String first: groupLemmas[g1]) {
+                    for (String second: groupLemmas[g2]) {
+                        if (siblings.size() >= cap) {
+                            return;
+                        }
+                        siblings.add(first + SEPARATOR.SPACE + second);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Add a candidate to the result, return false if the cap is reached **/
+    private static boolean add(ObjectOpenHashSet<String> result, String candidate, int cap) {
+        if (result.size() >= cap) {
+            return false;
+        }
+        result.add(candidate);
+        return true;
+    }
+
+    /** Lemma string of the words of a mask, in sentence order **/
+    private static String getLemmaString(long mask, ObjectArrayList<IndexedWord> phraseWords,
+            Long2ObjectOpenHashMap<String> lemmas) {
+        String lemmaString = lemmas.get(mask);
+        if (lemmaString == null) {
+            StringBuilder sb = new StringBuilder();
+            for (long rest = mask; rest != 0L; rest &= rest - 1) {
+                if (sb.length() > 0) {
+                    sb.append(SEPARATOR.SPACE);
+                }
+                sb.append(phraseWords.get(Long.numberOfTrailingZeros(rest)).lemma());
+            }
+            lemmaString = sb.toString().trim();
+            lemmas.put(mask, lemmaString);
+        }
+        return lemmaString;
+    }
+
+    /** Bitmask of the positions of the words in the phrase (words outside the phrase are ignored) **/
+    private static long toMask(Iterable<IndexedWord> words, ObjectArrayList<IndexedWord> phraseWords) {
+        long mask = 0L;
+        for (IndexedWord word: words) {
+            mask |= toMask(word, phraseWords);
+        }
+        return mask;
+    }
+
+    private static long toMask(IndexedWord word, ObjectArrayList<IndexedWord> phraseWords) {
+        int position = word != null ? phraseWords.indexOf(word) : -1;
+        return position >= 0 ? 1L << position : 0L;
+    }
+
+    public static long getTruncatedPhrases() {
+        return truncatedPhrases.get();
+    }
+
+    /** Log the number of phrases cut by the cap **/
+    public static void logStatistics() {
+        if (GlobalParamsConfig.BITMASK_SUBCONSTITUENTS) {
+            logger.info("Sub-constituent enumeration: {} phrases cut at {} candidates or {} words.",
+                    getTruncatedPhrases(), GlobalParamsConfig.MAX_SUBCONSTITUENTS, MAX_PHRASE_WORDS);
+        }
+    }
+}
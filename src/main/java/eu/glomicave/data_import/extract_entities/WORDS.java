@@ -2,6 +2,8 @@ package eu.glomicave.data_import.extract_entities;
 
 import java.io.IOException;
 
+import eu.glomicave.config.GlobalParamsConfig;
+
 /**
  * @author Kiril Gashteovski
  */
@@ -16,7 +18,7 @@ public class WORDS {
     public static Dictionary NON_SUBSECTIVE_JJ_MODAL;
     static {
         try {
-            NON_SUBSECTIVE_JJ_MODAL = new Dictionary("/minie-resources/non-subsective-adjectives-modal.dict");
+            NON_SUBSECTIVE_JJ_MODAL = Dictionary.open("/minie-resources/non-subsective-adjectives-modal.dict", GlobalParamsConfig.DICTIONARY_DIR);
         } catch (IOException e) {
             throw new Error(e);
         } 
@@ -26,7 +28,7 @@ public class WORDS {
     public static Dictionary NON_SUBSECTIVE_JJ_CF;
     static {
         try {
-            NON_SUBSECTIVE_JJ_CF = new Dictionary("/minie-resources/non-subsective-adjectives-cf.dict");
+            NON_SUBSECTIVE_JJ_CF = Dictionary.open("/minie-resources/non-subsective-adjectives-cf.dict", GlobalParamsConfig.DICTIONARY_DIR);
         } catch (IOException e) {
             throw new Error(e);
         } 
@@ -36,7 +38,7 @@ public class WORDS {
     public static Dictionary NON_SUBSECTIVE_JJ_TEMP;
     static {
         try {
-            NON_SUBSECTIVE_JJ_TEMP = new Dictionary("/minie-resources/non-subsective-adjectives-temp.dict");
+            NON_SUBSECTIVE_JJ_TEMP = Dictionary.open("/minie-resources/non-subsective-adjectives-temp.dict", GlobalParamsConfig.DICTIONARY_DIR);
         } catch (IOException e) {
             throw new Error(e);
         } 
@@ -1,10 +1,16 @@
 package eu.glomicave.persistence;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -19,11 +25,13 @@ import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.types.Node;
 import org.neo4j.driver.types.Relationship;
+import org.neo4j.driver.summary.SummaryCounters;
 import org.neo4j.driver.Config;
 import org.neo4j.driver.Config.TrustStrategy;
 import org.neo4j.driver.exceptions.ServiceUnavailableException;
 import org.neo4j.driver.GraphDatabase;
 
+import eu.glomicave.config.GlobalParamsConfig;
 import eu.glomicave.config.GraphDatabaseConfig;
 import eu.glomicave.persistence.PredefinedCategories;
 
@@ -34,8 +42,13 @@ import eu.glomicave.persistence.PredefinedCategories;
 public class CoreGraphDatabase {
 	private static final Logger logger = LogManager.getLogger(CoreGraphDatabase.class);
 	
-	private static Driver driver = null;
-	private static boolean driverIsClosed = false;
+	private static volatile Driver driver = null;
+	private static volatile boolean driverIsClosed = false;
+	
+	// number of stripes of the locks by uid
+	private static final int UID_LOCK_STRIPES = 256;
+	// locks of node writes by uid, for labels without uniqueness constraint on the uid
+	private static final UIDLocks uidLocks = new UIDLocks(UID_LOCK_STRIPES);
 	
 	public String toString()
 	{
@@ -43,6 +56,12 @@ public class CoreGraphDatabase {
 	}
 
 	private static Driver getDriver() {
+		// open driver is returned without lock
+		Driver openDriver = driver;
+		if (openDriver != null && !driverIsClosed) {
+			return openDriver;
+		}
+		
 		GraphDatabaseConfig instance = GraphDatabaseConfig.getInstance();
 		
 		if (instance == null) {
@@ -58,14 +77,16 @@ public class CoreGraphDatabase {
 		}
 	}
 	
-	private static Driver getNeo4jDriver() {
+	private synchronized static Driver getNeo4jDriver() {
 		if (driver == null || driverIsClosed) {
 			try {
 				driver = GraphDatabase.driver(
 						GraphDatabaseConfig.getInstance().getURI(),
 						AuthTokens.basic(
 								GraphDatabaseConfig.getInstance().getUsername(), 
-								GraphDatabaseConfig.getInstance().getPassword())
+								GraphDatabaseConfig.getInstance().getPassword()),
+						Config.builder().withMaxTransactionRetryTime(GlobalParamsConfig.TRANSACTION_RETRY_TIME, TimeUnit.SECONDS)
+										.build()
 				);
 				driverIsClosed = false;
 				
@@ -76,7 +97,7 @@ public class CoreGraphDatabase {
 		return driver;
 	}
 	
-	private static Driver getNeptuneDriver() {
+	private synchronized static Driver getNeptuneDriver() {
 		if (driver == null || driverIsClosed) {
 			try {
 				driver = GraphDatabase.driver(
@@ -84,6 +105,7 @@ public class CoreGraphDatabase {
 					    Config.builder().withConnectionTimeout(30, TimeUnit.SECONDS)
 					    				.withEncryption()
 					                    .withTrustStrategy(TrustStrategy.trustAllCertificates().withoutHostnameVerification())
+					                    .withMaxTransactionRetryTime(GlobalParamsConfig.TRANSACTION_RETRY_TIME, TimeUnit.SECONDS)
 					                    .build()
 				);
 				driverIsClosed = false;
@@ -95,6 +117,11 @@ public class CoreGraphDatabase {
 		return driver;
 	}
 
+	/** Session of the graph database, for the schema commands of {@link GraphSchema} */
+	static Session getSession() {
+		return getDriver().session();
+	}
+
 	public static void testConnection() throws ServiceUnavailableException {
 		try {
 			logger.info("Test connection to the graph database...");
@@ -155,14 +182,59 @@ public class CoreGraphDatabase {
 	}
 	
 	
-	public static void closeDriver() {
+	public synchronized static void closeDriver() {
 		if (driver != null && !driverIsClosed) {
 			driver.close();
 			driverIsClosed = true;
 		}
 	}
 
+	/**
+	 * Begin the unit of work of the calling thread: the statements of the thread run in one transaction, committed 
+	 * every {@link GlobalParamsConfig#TRANSACTION_BATCH_SIZE} write statements and when the unit of work is closed, 
+	 * see {@link UnitOfWork}.
+	 * 
+	 * @return unit of work, to close when the work is done
+	 */
+	public static UnitOfWork beginUnitOfWork() {
+		return beginUnitOfWork(GlobalParamsConfig.TRANSACTION_BATCH_SIZE);
+	}
+	
+	/**
+	 * Begin the unit of work of the calling thread, see {@link #beginUnitOfWork()}.
+	 * 
+	 * @param batchSize - max number of write statements per transaction
+	 * @return unit of work, to close when the work is done
+	 */
+	public static UnitOfWork beginUnitOfWork(int batchSize) {
+		return UnitOfWork.begin(batchSize, uidLocks);
+	}
+	
+	/**
+	 * Run a task in the unit of work of the calling thread (see {@link #beginUnitOfWork()}), closed when the task is done.
+	 * 
+	 * @param task
+	 * @throws E - error thrown by the task
+	 */
+	public static <E extends Exception> void inUnitOfWork(UnitOfWork.Task<E> task) throws E {
+		UnitOfWork work = beginUnitOfWork();
+		try {
+			task.run();
+		} finally {
+			work.close();
+		}
+	}
+
 	public static List<Record> runCypherQuery(String query) {
+		UnitOfWork work = UnitOfWork.current();
+		if (work != null) {
+			try {
+				return work.run(query, new HashMap<>(), Result::list);
+			} catch (Exception e) {
+				logger.error("Error running query in Graph DB: " + query, e);
+			}
+			return null;
+		}
 		try {
 			Session session = getDriver().session();
 			Result result = session.run(query);
@@ -177,6 +249,15 @@ public class CoreGraphDatabase {
 
 	private static List<Record> runParametrizedCypherQuery(String query, Map<String, Object> params) {
 		List<org.neo4j.driver.Record> records = null;
+		UnitOfWork work = UnitOfWork.current();
+		if (work != null) {
+			try {
+				records = work.run(query, params, Result::list);
+			} catch (Exception e) {
+				logger.error("Error running query in Graph DB: {}, params: {}", query, params, e);
+			}
+			return records;
+		}
 		try (Session session = getDriver().session()) {
 			Result result = session.run(query, params);
 			records = result.list();
@@ -208,6 +289,37 @@ public class CoreGraphDatabase {
 		return records;
 	}
 
+	/**
+	 * Run a parametrized query in a write transaction. Transient failures (e.g. deadlocks, leader switch) 
+	 * are retried by the driver, other errors are thrown to the caller.
+	 * 
+	 * @param query
+	 * @param params
+	 * @return records returned by the query
+	 */
+	private static List<Record> runParametrizedWriteTransaction(String query, Map<String, Object> params) {
+		return runWriteTransaction(query, params, Result::list);
+	}
+	
+	/**
+	 * Run a parametrized query in a write transaction, or in the unit of work of the calling thread if it has one 
+	 * (see {@link #runParametrizedWriteTransaction(String, Map)}).
+	 * 
+	 * @param query
+	 * @param params
+	 * @param reader - reads the result of the query
+	 * @return value read from the result
+	 */
+	private static <T> T runWriteTransaction(String query, Map<String, Object> params, Function<Result, T> reader) {
+		UnitOfWork work = UnitOfWork.current();
+		if (work != null) {
+			return work.run(query, params, reader);
+		}
+		try (Session session = getDriver().session()) {
+			return session.executeWrite(tx -> reader.apply(tx.run(query, params)));
+		}
+	}
+
 	public static void clearDatabase() {
 		//runCypherQuery("MATCH (n) DETACH DELETE n");
 		//runCypherQuery("MATCH (n) RETURN distinct labels(n), count(*)");
@@ -220,21 +332,56 @@ public class CoreGraphDatabase {
 
 	public static Node addLabel(Node node, String label) {
 		//return runCypherQuery("MATCH (n) WHERE ID(n) = " + node.id() + " SET n :" + label + " RETURN n").get(0).get(0).asNode();
-		return runCypherQuery("MATCH (n) WHERE n.uid = " + node.get(UID_FIELD) + " SET n :" + label + " RETURN n").get(0).get(0).asNode();
+		return runParametrizedCypherQuery("MATCH " + getNodePattern("n", getLabel(node), "$uid") + " SET n :" + label + " RETURN n", getUIDParams(node)).get(0).get(0).asNode();
 	}
 
 //	public static Node getNodeById(long id) {
 //		return runCypherQuery("MATCH (n) WHERE id(n)=" + id + " RETURN n").get(0).get(0).asNode();
 //	}
 	
-	public static Node getNodeById(String id) {
-		return runCypherQuery("MATCH (n) WHERE n.uid=\"" + id + "\" RETURN n").get(0).get(0).asNode();
+	/**
+	 * Get a node by label and uid, looked up in the index of the uid of the label.
+	 * 
+	 * @param label - node label, null for any
+	 * @param id - uid of the node
+	 * @return
+	 */
+	public static Node getNodeById(String label, String id) {
+		Map<String, Object> params = new HashMap<>();
+		params.put("uid", id);
+		return runParametrizedCypherQuery("MATCH " + getNodePattern("n", label, "$uid") + " RETURN n", params).get(0).get(0).asNode();
 	}
 
 	public static List<Node> getNodesByLabel(String label) {
 		return runCypherQuery("MATCH (n:" + label + ") RETURN n").stream().map(record -> record.get(0).asNode()).collect(Collectors.toList());
 	}
 	
+	/**
+	 * Get a page of the uids and properties of the nodes of a label, ordered by uid, e.g. to go through all nodes 
+	 * of a label without loading them at once.
+	 * 
+	 * @param label - node label
+	 * @param afterUID - uid of the last node of the previous page (null for the first page)
+	 * @param limit - max number of nodes of the page
+	 * @param properties - properties returned besides the uid
+	 * @return records with the uid (key 'uid') and the properties (keys of the property names), empty after the last page
+	 */
+	public static List<Record> getNodePropertiesByLabel(String label, String afterUID, int limit, String... properties) {
+		StringBuilder returned = new StringBuilder("n." + UID_FIELD + " AS " + UID_FIELD);
+		for (String property : properties) {
+			returned.append(", n.").append(property).append(" AS ").append(property);
+		}
+		Map<String, Object> params = new HashMap<>();
+		params.put("after", afterUID);
+		params.put("limit", limit);
+		String where = afterUID != null ? " WHERE n." + UID_FIELD + " > $after" : "";
+		return runParametrizedCypherQuery("MATCH (n:" + label + ")" + where + " RETURN " + returned + " ORDER BY n." + UID_FIELD + " LIMIT $limit", params);
+	}
+	
+	public static List<String> getNodeUIDsByLabel(String label) {
+		return runCypherQuery("MATCH (n:" + label + ") RETURN n." + UID_FIELD).stream().map(record -> record.get(0).asString()).collect(Collectors.toList());
+	}
+	
 	public static List<Node> updateNodesByLabel(String label, String targetProperty, Object targetValue) {
 		Map<String, Object> params = new HashMap<>();
 		params.put("targetValue", targetValue);
@@ -242,6 +389,13 @@ public class CoreGraphDatabase {
 																	.stream().map(record -> record.get(0).asNode()).collect(Collectors.toList());
 	}
 	
+	public static List<String> updateNodesByLabelReturnUIDs(String label, String targetProperty, Object targetValue) {
+		Map<String, Object> params = new HashMap<>();
+		params.put("targetValue", targetValue);
+		return runParametrizedCypherQuery("MATCH (n:" + label + ") SET n." + targetProperty + "=$targetValue  RETURN n." + UID_FIELD, params)
+																	.stream().map(record -> record.get(0).asString()).collect(Collectors.toList());
+	}
+	
 	public static List<Node> getNodesByLabelAndProperty(String label, String property, Object value) {
 		Map<String, Object> params = new HashMap<>();
 		params.put("value", value);
@@ -269,12 +423,40 @@ public class CoreGraphDatabase {
 																	.stream().map(record -> record.get(0).asNode()).collect(Collectors.toList());
 	}
 
+	public static List<String> updateNodesByLabelAndPropertyReturnUIDs(String label, String property, Object value, String targetProperty, Object targetValue) {
+		Map<String, Object> params = new HashMap<>();
+		params.put("value", value);
+		params.put("targetValue", targetValue);
+		return runParametrizedCypherQuery("MATCH (n:" + label + ") WHERE n." + property + "= $value SET n." + targetProperty + "=$targetValue  RETURN n." + UID_FIELD, params)
+																	.stream().map(record -> record.get(0).asString()).collect(Collectors.toList());
+	}
+
 //	public static List<Record> deleteNodeAndRelationshipsByNodeId(long id) {
 //		return runCypherQuery("MATCH (n) WHERE id(n)=" + id + " DETACH DELETE n");
 //	}
 	
-	public static List<Record> deleteNodeAndRelationshipsByNodeId(String id) {
-		return runCypherQuery("MATCH (n) WHERE n.uid=\"" + id + "\" DETACH DELETE n");
+	public static List<Record> deleteNodeAndRelationshipsByNodeId(String label, String id) {
+		Map<String, Object> params = new HashMap<>();
+		params.put("uid", id);
+		return runParametrizedCypherQuery("MATCH " + getNodePattern("n", label, "$uid") + " DETACH DELETE n", params);
+	}
+	
+	public static List<Record> deleteNodeAndRelationships(Node node) {
+		return deleteNodeAndRelationshipsByNodeId(getLabel(node), node.get(UID_FIELD).asString());
+	}
+	
+	/**
+	 * Delete the relationships of a type ending in a node, e.g. the APPEARS_IN relationships of a sentence.
+	 * 
+	 * @param label - label of the node
+	 * @param uid - uid of the node
+	 * @param relationship - relationship type
+	 */
+	public static void deleteIncomingRelationships(String label, String uid, String relationship) {
+		String relationshipType = convertToRelationshipType(relationship);
+		Map<String, Object> params = new HashMap<>();
+		params.put("uid", uid);
+		runParametrizedCypherQuery("MATCH ()-[r:" + relationshipType + "]->" + getNodePattern("n", label, "$uid") + " DELETE r", params);
 	}
 
 	public static String UID_FIELD = "uid";
@@ -316,48 +498,141 @@ public class CoreGraphDatabase {
 //		return uidNode;
 //	}
 	
-	public synchronized static Node createUIDNodeIfNotExistent(String label, String uniqueIdentifier) {
-		Node uidNode = getUIDNode(label, uniqueIdentifier);
-
+	/**
+	 * Get the node of a label with a uid, created if not existent, with one MERGE statement. Concurrent writers 
+	 * of the same node are safe without JVM-wide lock: with the uniqueness constraint on the uid of the label 
+	 * (see {@link GraphSchema#hasUniqueUID(String)}) by the database, else by the stripe of the uid in {@link #uidLocks}.
+	 * 
+	 * @param label
+	 * @param uniqueIdentifier
+	 * @return
+	 */
+	public static Node createUIDNodeIfNotExistent(String label, String uniqueIdentifier) {
 		Map<String, Object> params = new HashMap<>();
 		params.put("uniqueIdentifier", uniqueIdentifier);
+		String query = "MERGE (n:" + label + " {" + UID_FIELD + ": $uniqueIdentifier}) RETURN n";
 
-		if (uidNode == null) {
-			uidNode = runParametrizedCypherQuery("CREATE (n:" + label + " {" + UID_FIELD + ": $uniqueIdentifier}) RETURN n", params).get(0).get(0).asNode();
+		if (GraphSchema.hasUniqueUID(label)) {
+			return runParametrizedCypherQuery(query, params).get(0).get(0).asNode();
 		}
-		// debug
-		//System.out.println("node element ID: " + uidNode.elementId() + " " + uidNode.get(UID_FIELD));
-		//
+		return runLocked(label, Collections.singletonList(uniqueIdentifier), 
+				() -> runParametrizedCypherQuery(query, params).get(0).get(0).asNode());
+	}
 
-		return uidNode;
+	/**
+	 * Create or update nodes of a label in batches. Each row holds the uid and the properties of one node:
+	 * the node with the uid is merged and the properties of the row are set on it (existing properties not 
+	 * in the row are kept, properties with null value are removed). The rows are written with one 
+	 * 'UNWIND $rows' statement per chunk of {@link GlobalParamsConfig#NODE_BATCH_SIZE} rows, each chunk 
+	 * in its own transaction (or in the unit of work of the calling thread). Concurrent writers of the same uid are safe as in 
+	 * {@link #createUIDNodeIfNotExistent(String, String)}, for labels without uniqueness constraint 
+	 * the stripes of all uids of a chunk are taken.
+	 * 
+	 * @param label - node label
+	 * @param rows - properties of the nodes, each with the key 'uid'
+	 * @return number of nodes created or updated
+	 */
+	public static int upsertNodes(String label, List<Map<String, Object>> rows) {
+		int count = 0;
+		for (List<Map<String, Object>> chunk : chunks(rows)) {
+			count += runUpsertNodes(label, chunk, " RETURN count(n)").get(0).get(0).asInt();
+		}
+		return count;
+	}
+	
+	/**
+	 * Create or update nodes of a label in batches, see {@link #upsertNodes(String, List)}.
+	 * 
+	 * @param label - node label
+	 * @param rows - properties of the nodes, each with the key 'uid'
+	 * @return nodes created or updated, in the order of the rows
+	 */
+	public static List<Node> upsertNodesReturnNodes(String label, List<Map<String, Object>> rows) {
+		List<Node> nodes = new ArrayList<>(rows.size());
+		for (List<Map<String, Object>> chunk : chunks(rows)) {
+			for (Record record : runUpsertNodes(label, chunk, " RETURN n")) {
+				nodes.add(record.get(0).asNode());
+			}
+		}
+		return nodes;
+	}
+	
+	private static List<Record> runUpsertNodes(String label, List<Map<String, Object>> chunk, String returnClause) {
+		Map<String, Object> params = new HashMap<>();
+		params.put("rows", chunk);
+		String query = "UNWIND $rows AS row MERGE (n:" + label + " {" + UID_FIELD + ": row." + UID_FIELD + "}) SET n += row" + returnClause;
+		
+		if (GraphSchema.hasUniqueUID(label)) {
+			return runParametrizedWriteTransaction(query, params);
+		}
+		return runLocked(label, chunk.stream().map(row -> (String) row.get(UID_FIELD)).collect(Collectors.toList()), 
+				() -> runParametrizedWriteTransaction(query, params));
+	}
+	
+	/**
+	 * Run a write of nodes of a label without uniqueness constraint with the stripes of their uids in {@link #uidLocks}: 
+	 * held while the write runs, or until it is committed in the unit of work of the calling thread 
+	 * (see {@link UnitOfWork#lock(int[])}). Public for the write benchmark, which runs it with a simulated write.
+	 * 
+	 * @param label - node label
+	 * @param uids - uids of the written nodes
+	 * @param write
+	 * @return value returned by the write
+	 */
+	public static <T> T runLocked(String label, Collection<String> uids, Supplier<T> write) {
+		int[] stripes = uidLocks.indexes(label, uids);
+		UnitOfWork work = UnitOfWork.current();
+		if (work != null) {
+			work.lock(stripes);
+			return write.get();
+		}
+		uidLocks.lockAll(stripes);
+		try {
+			return write.get();
+		} finally {
+			uidLocks.unlockAll(stripes);
+		}
+	}
+	
+	private static <T> List<List<T>> chunks(List<T> rows) {
+		return chunks(rows, GlobalParamsConfig.NODE_BATCH_SIZE);
+	}
+	
+	private static <T> List<List<T>> chunks(List<T> rows, int chunkSize) {
+		chunkSize = Math.max(1, chunkSize);
+		List<List<T>> chunks = new ArrayList<>();
+		for (int start = 0; start < rows.size(); start += chunkSize) {
+			chunks.add(rows.subList(start, Math.min(start + chunkSize, rows.size())));
+		}
+		return chunks;
 	}
 
 	public static void setProperty(Node node, String name, Object value) {
-		Map<String, Object> params = new HashMap<>();
+		Map<String, Object> params = getUIDParams(node);
 		params.put("value", value);
 
 		//runParametrizedCypherQuery("MATCH (n) WHERE id(n)=" + node.id() + " SET n." + name + " = $value RETURN n", params).get(0).get(0).asNode();
-		runParametrizedCypherQuery("MATCH (n) WHERE n.uid=" + node.get(UID_FIELD) + " SET n." + name + " = $value RETURN n", params).get(0).get(0).asNode();
+		runParametrizedCypherQuery("MATCH " + getNodePattern("n", getLabel(node), "$uid") + " SET n." + name + " = $value RETURN n", params).get(0).get(0).asNode();
+	}
+	
+	public static void setProperties(Node node, Map<String, Object> properties) {
+		Map<String, Object> params = getUIDParams(node);
+		params.put("properties", properties);
+
+		runParametrizedCypherQuery("MATCH " + getNodePattern("n", getLabel(node), "$uid") + " SET n += $properties RETURN n", params).get(0).get(0).asNode();
 	}
 	
 	public static void setPropertyAsList(Node node, String name, Object value) {
-		Map<String, Object> params = new HashMap<>();
+		Map<String, Object> params = getUIDParams(node);
 		params.put("value", value);
 
 		//runParametrizedCypherQuery("MATCH (n) WHERE id(n)=" + node.id() + " SET n." + name + " = $value RETURN n", params).get(0).get(0).asNode();
-		runParametrizedCypherQuery("MATCH (n) WHERE n.uid=" + node.get(UID_FIELD) + " SET n." + name + " = join($value,';') RETURN n", params).get(0).get(0).asNode();
-	}
-
-	private static List<Record> getRelationships(Node sourceNode, Node targetNode, String relationship) {
-		String relationshipType = convertToRelationshipType(relationship);
-		//return runCypherQuery("MATCH (source) -[r:" + relationshipType + "]-> (destination) WHERE ID(source) = " + sourceNode.id() + " AND ID(destination) = " + targetNode.id() + " RETURN r");
-		return runCypherQuery("MATCH (source) -[r:" + relationshipType + "]-> (destination) WHERE source.uid = " + sourceNode.get(UID_FIELD) + " AND destination.uid = " + targetNode.get(UID_FIELD) + " RETURN r");
-		
+		runParametrizedCypherQuery("MATCH " + getNodePattern("n", getLabel(node), "$uid") + " SET n." + name + " = join($value,';') RETURN n", params).get(0).get(0).asNode();
 	}
 
-	public synchronized static Relationship createRelationship(Node sourceNode, Node targetNode, String relationship) {
+	public static Relationship createRelationship(Node sourceNode, Node targetNode, String relationship) {
 		//return createRelationship(sourceNode.id(), targetNode.id(), relationship);
-		return createRelationship(sourceNode.get(UID_FIELD).asString(), targetNode.get(UID_FIELD).asString(), relationship);
+		return createRelationship(getLabel(sourceNode), sourceNode.get(UID_FIELD).asString(), getLabel(targetNode), targetNode.get(UID_FIELD).asString(), relationship);
 	}
 
 //	public static Relationship createRelationship(long sourceNodeId, long destinationNodeId, String relationship) {
@@ -365,25 +640,150 @@ public class CoreGraphDatabase {
 //		return runCypherQuery("MATCH (source), (destination) WHERE ID(source) = " + sourceNodeId + " AND ID(destination) = " + destinationNodeId + " CREATE (source)-[r:" + relationshipType + "]->(destination) RETURN r").get(0).get("r").asRelationship();
 //	}
 	
-	public synchronized static Relationship createRelationship(String sourceNodeId, String destinationNodeId, String relationship) {
+	/**
+	 * Create a relationship between two nodes looked up by label and uid (label null for any).
+	 */
+	public static Relationship createRelationship(String sourceLabel, String sourceUID, String targetLabel, String targetUID, String relationship) {
 		String relationshipType = convertToRelationshipType(relationship);
-		return runCypherQuery("MATCH (source), (destination) WHERE source.uid = \"" + sourceNodeId + "\" AND destination.uid = \"" + destinationNodeId + "\" CREATE (source)-[r:" + relationshipType + "]->(destination) RETURN r").get(0).get("r").asRelationship();
+		return runParametrizedCypherQuery(getRelationshipMatch(sourceLabel, targetLabel) + " CREATE (source)-[r:" + relationshipType + "]->(destination) RETURN r", 
+				getRelationshipParams(sourceUID, targetUID)).get(0).get("r").asRelationship();
 		//return runCypherQuery("MATCH (source), (destination) WHERE source.uid = " + sourceNodeId + " AND destination.uid = " + destinationNodeId + " CREATE (source)-[r:" + relationshipType + "]->(destination) RETURN r").get(0).get("r").asRelationship();
 	}
 
-	public synchronized static Relationship createRelationshipIfNotExistent(Node sourceNode, Node targetNode, String relationship) {
-		List<Record> records = getRelationships(sourceNode, targetNode, relationship);
+	/**
+	 * Create a relationship if not existent, with one MERGE statement. The database locks the source and target 
+	 * nodes while merging, so that concurrent writers of the same relationship do not create duplicates.
+	 */
+	public static Relationship createRelationshipIfNotExistent(Node sourceNode, Node targetNode, String relationship) {
+		return createRelationshipIfNotExistent(getLabel(sourceNode), sourceNode.get(UID_FIELD).asString(), getLabel(targetNode), targetNode.get(UID_FIELD).asString(), relationship);
+	}
 
-		if (records.size() == 0) {
-			return createRelationship(sourceNode, targetNode, relationship);
-		} else if (records.size() == 1) {
-			logger.warn("GraphDB data info: existing relationship will be returned for source {} and target {}.", sourceNode, targetNode);
-			return records.get(0).get(0).asRelationship();
-		} else {
-			logger.warn("GraphDB data warning: {} relationships already exist for source {} and target {}.", records.size(), sourceNode, targetNode);
-			//throw new IllegalStateException();
-			return records.get(0).get(0).asRelationship();
+	/**
+	 * Create a relationship between two nodes looked up by label and uid (label null for any) if not existent,
+	 * see {@link #createRelationshipIfNotExistent(Node, Node, String)}.
+	 */
+	public static Relationship createRelationshipIfNotExistent(String sourceLabel, String sourceUID, String targetLabel, String targetUID, String relationship) {
+		String relationshipType = convertToRelationshipType(relationship);
+		return runParametrizedCypherQuery(getRelationshipMatch(sourceLabel, targetLabel) + " MERGE (source)-[r:" + relationshipType + "]->(destination) RETURN r", 
+				getRelationshipParams(sourceUID, targetUID)).get(0).get("r").asRelationship();
+	}
+
+	/**
+	 * Create a relationship if not existent and set the character spans of the source in the target,
+	 * e.g. the occurrences of a lexical form in a sentence. Existing spans are replaced.
+	 */
+	public static Relationship mergeRelationshipWithSpans(String sourceLabel, String sourceUID, String targetLabel, String targetUID, String relationship, int[] begins, int[] ends) {
+		String relationshipType = convertToRelationshipType(relationship);
+		Map<String, Object> params = getRelationshipParams(sourceUID, targetUID);
+		params.put("begins", begins);
+		params.put("ends", ends);
+		return runParametrizedCypherQuery(getRelationshipMatch(sourceLabel, targetLabel) + " MERGE (source)-[r:" + relationshipType + "]->(destination) SET r.begins = $begins, r.ends = $ends RETURN r", params).get(0).get("r").asRelationship();
+	}
+
+	/**
+	 * Create relationships of a type if not existent, in batches. The source and target nodes of each row are 
+	 * looked up by label and uid, the relationship between them is merged and the properties of the row are set 
+	 * on it (existing properties not in the row are kept). Rows whose source or target node does not exist are 
+	 * skipped. The rows are written with one 'UNWIND $rows' statement per pair of source and target labels and 
+	 * chunk of {@link GlobalParamsConfig#RELATIONSHIP_BATCH_SIZE} rows, each chunk in its own transaction
+	 * (or in the unit of work of the calling thread).
+	 * 
+	 * @param relationship - relationship type
+	 * @param rows - source and target nodes and properties of the relationships
+	 * @return counters of merged and created relationships
+	 */
+	public static MergeSummary mergeRelationships(String relationship, List<RelationshipRow> rows) {
+		String relationshipType = convertToRelationshipType(relationship);
+		MergeSummary summary = new MergeSummary();
+		
+		// the labels are part of the query, so rows are grouped by source and target labels
+		Map<String, List<RelationshipRow>> groups = new LinkedHashMap<>();
+		for (RelationshipRow row : rows) {
+			groups.computeIfAbsent(row.getSourceLabel() + "\t" + row.getTargetLabel(), k -> new ArrayList<>()).add(row);
 		}
+		
+		for (List<RelationshipRow> group : groups.values()) {
+			String query = "UNWIND $rows AS row"
+					+ " MATCH " + getNodePattern("source", group.get(0).getSourceLabel(), "row.sourceUID")
+					+ " MATCH " + getNodePattern("destination", group.get(0).getTargetLabel(), "row.targetUID")
+					+ " MERGE (source)-[r:" + relationshipType + "]->(destination) SET r += row.properties RETURN count(r)";
+			
+			for (List<RelationshipRow> chunk : chunks(group, GlobalParamsConfig.RELATIONSHIP_BATCH_SIZE)) {
+				List<Map<String, Object>> params = new ArrayList<>(chunk.size());
+				for (RelationshipRow row : chunk) {
+					Map<String, Object> param = new HashMap<>();
+					param.put("sourceUID", row.getSourceUID());
+					param.put("targetUID", row.getTargetUID());
+					param.put("properties", row.getProperties());
+					params.add(param);
+				}
+				Map<String, Object> queryParams = new HashMap<>();
+				queryParams.put("rows", params);
+				
+				int[] counts = runWriteTransaction(query, queryParams, result -> {
+					int merged = result.single().get(0).asInt();
+					SummaryCounters counters = result.consume().counters();
+					return new int[] {merged, counters.relationshipsCreated(), counters.propertiesSet()};
+				});
+				summary.add(chunk.size(), counts[0], counts[1], counts[2]);
+			}
+		}
+		return summary;
+	}
+	
+	/** Node pattern matching a node by uid, with label if not null */
+	private static String getNodePattern(String variable, String label, String uid) {
+		return "(" + variable + (label != null ? ":" + label : "") + " {" + UID_FIELD + ": " + uid + "})";
+	}
+	
+	/** Match of the source and destination nodes of a relationship by the uids $sourceUID and $targetUID */
+	private static String getRelationshipMatch(String sourceLabel, String targetLabel) {
+		return "MATCH " + getNodePattern("source", sourceLabel, "$sourceUID") + " MATCH " + getNodePattern("destination", targetLabel, "$targetUID");
+	}
+	
+	private static Map<String, Object> getRelationshipParams(String sourceUID, String targetUID) {
+		Map<String, Object> params = new HashMap<>();
+		params.put("sourceUID", sourceUID);
+		params.put("targetUID", targetUID);
+		return params;
+	}
+	
+	private static Map<String, Object> getUIDParams(Node node) {
+		Map<String, Object> params = new HashMap<>();
+		params.put("uid", node.get(UID_FIELD).asString());
+		return params;
+	}
+	
+	/**
+	 * Label of a node to look it up by uid: a predefined category (with uid constraint) if the node has one, 
+	 * else its first label, null if it has none.
+	 */
+	private static String getLabel(Node node) {
+		String label = null;
+		for (String nodeLabel : node.labels()) {
+			if (PredefinedCategories.contains(nodeLabel)) {
+				return nodeLabel;
+			}
+			if (label == null) {
+				label = nodeLabel;
+			}
+		}
+		return label;
+	}
+
+	/**
+	 * Copy the relationships of a type ending in a node to another node, with their properties.
+	 * Properties describing the end node (e.g. the spans of a lexical form in a sentence) are copied as they are,
+	 * the other node must have the same content.
+	 * 
+	 * @return number of copied relationships
+	 */
+	public static int copyIncomingRelationships(String label, String fromUID, String toUID, String relationship) {
+		String relationshipType = convertToRelationshipType(relationship);
+		Map<String, Object> params = new HashMap<>();
+		params.put("fromUID", fromUID);
+		params.put("toUID", toUID);
+		return runParametrizedCypherQuery("MATCH (source)-[r:" + relationshipType + "]->" + getNodePattern("from", label, "$fromUID") + " MATCH " + getNodePattern("to", label, "$toUID") + " MERGE (source)-[c:" + relationshipType + "]->(to) SET c = properties(r) RETURN count(c)", params).get(0).get(0).asInt();
 	}
 
 //	public static int mergeRelationship(long sourceNodeId, long destinationNodeId, String relationship) {
@@ -392,11 +792,15 @@ public class CoreGraphDatabase {
 //	
 //	}
 	
-	public static int mergeRelationship(String sourceNodeId, String destinationNodeId, String relationship) {
+	public static int mergeRelationship(Node sourceNode, Node targetNode, String relationship) {
+		return mergeRelationship(getLabel(sourceNode), sourceNode.get(UID_FIELD).asString(), getLabel(targetNode), targetNode.get(UID_FIELD).asString(), relationship);
+	}
+	
+	public static int mergeRelationship(String sourceLabel, String sourceNodeId, String targetLabel, String destinationNodeId, String relationship) {
 		String relationshipType = convertToRelationshipType(relationship);
 		//return runCypherQuery("MATCH (source), (destination) WHERE source.uid = " + sourceNodeId + " AND destination.uid = " + destinationNodeId + " MERGE (source)-[r:" + relationshipType + "]->(destination) RETURN ID(r)").get(0).get("ID(r)").asInt();
-		return runCypherQuery("MATCH (source), (destination) WHERE source.uid = \"" + sourceNodeId + "\" AND destination.uid = \"" + destinationNodeId + "\" MERGE (source)-[r:" + relationshipType + "]->(destination) RETURN ID(r)").get(0).get("ID(r)").asInt();
-	
+		return runParametrizedCypherQuery(getRelationshipMatch(sourceLabel, targetLabel) + " MERGE (source)-[r:" + relationshipType + "]->(destination) RETURN ID(r)", 
+				getRelationshipParams(sourceNodeId, destinationNodeId)).get(0).get("ID(r)").asInt();
 	}
 
 	private static String convertToRelationshipType(String stringToConvert) {
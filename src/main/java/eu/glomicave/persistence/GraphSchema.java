@@ -0,0 +1,218 @@
+package eu.glomicave.persistence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.summary.Plan;
+
+import eu.glomicave.config.GlobalParamsConfig;
+import eu.glomicave.config.GraphDatabaseConfig;
+
+/**
+ * Schema of the graph database: a uniqueness constraint on the uid of the nodes of each category (backed by an index),
+ * and indexes of the other properties nodes are looked up by. Lookups by uid are label-scoped, so that they use
+ * the index of the label instead of scanning all nodes.
+ *
+ * The schema is created at pipeline start (see {@link #createSchema()}), labels not in {@link PredefinedCategories}
+ * get their constraint on their first node write out of a unit of work (see {@link #hasUniqueUID(String)}). A constraint can't be created
+ * if the label already has nodes with the same uid: the label gets an index on the uid instead, and node writes of
+ * the label are serialized by uid in {@link CoreGraphDatabase}.
+ *
+ * Only Neo4j has schema commands, Amazon Neptune indexes all properties itself.
+ */
+public class GraphSchema {
+	private static final Logger logger = LogManager.getLogger(GraphSchema.class);
+
+	// properties other than the uid looked up by label and value
+	private static final String[][] PROPERTY_INDEXES = {
+			{PredefinedCategories.LEXICAL_FORM.toString(), "initialized"},
+			{PredefinedCategories.NAMED_ENTITY.toString(), "source"}
+	};
+
+	// plan operators reading all nodes, or all nodes of a label
+	private static final String[] SCAN_OPERATORS = {"AllNodesScan", "NodeByLabelScan"};
+
+	// labels checked for uniqueness constraint on the uid, and labels with the constraint
+	private static final Set<String> checkedLabels = ConcurrentHashMap.newKeySet();
+	private static final Set<String> uniqueUIDLabels = ConcurrentHashMap.newKeySet();
+
+
+	/**
+	 * Create the uniqueness constraints on the uid of all categories and the property indexes (if not existent).
+	 * The key queries are explained afterwards with option {@link GlobalParamsConfig#CHECK_QUERY_PLANS}.
+	 */
+	public static void createSchema() {
+		if (!hasSchemaCommands()) {
+			logger.info("Graph database without schema commands, no constraints and indexes created.");
+			return;
+		}
+		logger.info("Creating constraints and indexes of the graph schema.");
+		for (PredefinedCategories category : PredefinedCategories.values()) {
+			hasUniqueUID(category.toString());
+		}
+		for (String[] index : PROPERTY_INDEXES) {
+			createIndex(index[0], index[1]);
+		}
+		logger.info("Graph schema: {} of {} labels with unique uid.", uniqueUIDLabels.size(), checkedLabels.size());
+		
+		if (GlobalParamsConfig.CHECK_QUERY_PLANS) {
+			checkQueryPlans();
+		}
+	}
+
+
+	/**
+	 * Check if the uids of the nodes of a label are unique by constraint. The constraint is created on the first
+	 * check of the label, with an index on the uid instead if it can't be created. Schema commands wait for the open
+	 * transactions, so labels are not checked in a {@link UnitOfWork}: until their first check out of it, writes of
+	 * the label are serialized by uid.
+	 *
+	 * @param label
+	 * @return true if the label has a uniqueness constraint on the uid
+	 */
+	public static boolean hasUniqueUID(String label) {
+		if (UnitOfWork.current() == null && checkedLabels.add(label) && hasSchemaCommands()) {
+			try (Session session = CoreGraphDatabase.getSession()) {
+				session.run("CREATE CONSTRAINT IF NOT EXISTS FOR (n:" + label + ") REQUIRE n." + CoreGraphDatabase.UID_FIELD + " IS UNIQUE").consume();
+				uniqueUIDLabels.add(label);
+				logger.debug("Uniqueness constraint on '{}' of label '{}'.", CoreGraphDatabase.UID_FIELD, label);
+			} catch (Exception e) {
+				logger.warn("Can't create uniqueness constraint on '{}' of label '{}', writes of the label are serialized by uid.",
+						CoreGraphDatabase.UID_FIELD, label, e);
+				createIndex(label, CoreGraphDatabase.UID_FIELD);
+			}
+		}
+		return uniqueUIDLabels.contains(label);
+	}
+
+
+	/**
+	 * Create an index of a property of the nodes of a label (if not existent).
+	 *
+	 * @param label
+	 * @param property
+	 */
+	private static void createIndex(String label, String property) {
+		try (Session session = CoreGraphDatabase.getSession()) {
+			session.run("CREATE INDEX IF NOT EXISTS FOR (n:" + label + ") ON (n." + property + ")").consume();
+			logger.debug("Index on '{}' of label '{}'.", property, label);
+		} catch (Exception e) {
+			logger.warn("Can't create index on '{}' of label '{}'.", property, label, e);
+		}
+	}
+
+
+	/**
+	 * Drop the uniqueness constraint and the indexes of the nodes of a label (e.g. of a label written by a test or benchmark).
+	 *
+	 * @param label
+	 */
+	public static void dropSchema(String label) {
+		checkedLabels.remove(label);
+		uniqueUIDLabels.remove(label);
+		if (!hasSchemaCommands()) {
+			return;
+		}
+		try (Session session = CoreGraphDatabase.getSession()) {
+			Map<String, Object> params = new HashMap<>();
+			params.put("label", label);
+			for (Record record : session.run("SHOW CONSTRAINTS YIELD name, labelsOrTypes WHERE $label IN labelsOrTypes RETURN name", params).list()) {
+				session.run("DROP CONSTRAINT `" + record.get("name").asString() + "` IF EXISTS").consume();
+			}
+			// indexes of constraints are dropped with the constraint
+			for (Record record : session.run("SHOW INDEXES YIELD name, labelsOrTypes, owningConstraint WHERE $label IN labelsOrTypes AND owningConstraint IS NULL RETURN name", params).list()) {
+				session.run("DROP INDEX `" + record.get("name").asString() + "` IF EXISTS").consume();
+			}
+			logger.debug("Constraints and indexes of label '{}' dropped.", label);
+		} catch (Exception e) {
+			logger.warn("Can't drop constraints and indexes of label '{}'.", label, e);
+		}
+	}
+
+
+	/**
+	 * Explain the key lookup and write queries and warn about the ones planned with a scan of all nodes or
+	 * of all nodes of a label instead of an index lookup.
+	 *
+	 * @return number of queries with scan
+	 */
+	public static int checkQueryPlans() {
+		if (!hasSchemaCommands()) {
+			return 0;
+		}
+
+		String uid = CoreGraphDatabase.UID_FIELD;
+		Map<String, String> queries = new LinkedHashMap<>();
+		queries.put("lookup by uid", "MATCH (n:" + PredefinedCategories.LEXICAL_FORM + " {" + uid + ": $uid}) RETURN n");
+		queries.put("node merge", "MERGE (n:" + PredefinedCategories.SENTENCE + " {" + uid + ": $uid}) RETURN n");
+		queries.put("node batch merge", "UNWIND $rows AS row MERGE (n:" + PredefinedCategories.LEXICAL_FORM + " {" + uid + ": row." + uid + "}) SET n += row RETURN count(n)");
+		queries.put("property update", "MATCH (n:" + PredefinedCategories.NAMED_ENTITY + " {" + uid + ": $uid}) SET n.source = $value RETURN n");
+		queries.put("relationship merge", "MATCH (source:" + PredefinedCategories.NAMED_ENTITY + " {" + uid + ": $uid}) MATCH (destination:"
+				+ PredefinedCategories.LEXICAL_FORM + " {" + uid + ": $value}) MERGE (source)-[r:" + PredefinedRelations.HAS_LF + "]->(destination) RETURN r");
+		queries.put("relationship batch merge", "UNWIND $rows AS row MATCH (source:" + PredefinedCategories.LEXICAL_FORM + " {" + uid + ": row.sourceUID}) MATCH (destination:"
+				+ PredefinedCategories.SENTENCE + " {" + uid + ": row.targetUID}) MERGE (source)-[r:" + PredefinedRelations.APPEARS_IN + "]->(destination) RETURN count(r)");
+		queries.put("new lexical forms", "MATCH (n:" + PredefinedCategories.LEXICAL_FORM + ") WHERE n.initialized = $value RETURN n." + uid);
+		queries.put("named entities of a source", "MATCH (n:" + PredefinedCategories.NAMED_ENTITY + ") WHERE n.source = $value RETURN n");
+
+		Map<String, Object> params = new HashMap<>();
+		params.put("uid", "");
+		params.put("value", "");
+		params.put("rows", new ArrayList<>());
+
+		int scans = 0;
+		try (Session session = CoreGraphDatabase.getSession()) {
+			for (Map.Entry<String, String> query : queries.entrySet()) {
+				List<String> operators = new ArrayList<>();
+				getScanOperators(session.run("EXPLAIN " + query.getValue(), params).consume().plan(), operators);
+				if (operators.isEmpty()) {
+					logger.info("Query plan of '{}': index lookup.", query.getKey());
+				} else {
+					scans++;
+					logger.warn("Query plan of '{}' with {}: {}", query.getKey(), operators, query.getValue());
+				}
+			}
+		} catch (Exception e) {
+			logger.error("Error explaining the key queries.", e);
+		}
+		return scans;
+	}
+
+	private static void getScanOperators(Plan plan, List<String> operators) {
+		if (plan == null) {
+			return;
+		}
+		for (String scan : SCAN_OPERATORS) {
+			if (plan.operatorType().startsWith(scan)) {
+				operators.add(plan.operatorType());
+			}
+		}
+		for (Plan child : plan.children()) {
+			getScanOperators(child, operators);
+		}
+	}
+
+
+	/**
+	 * Only Neo4j has schema commands (constraints, indexes).
+	 */
+	private static boolean hasSchemaCommands() {
+		GraphDatabaseConfig instance = GraphDatabaseConfig.getInstance();
+		return instance != null && instance.getGraphDB_type().toLowerCase().contains("neo4j");
+	}
+
+
+	// Getters
+	public static Set<String> getUniqueUIDLabels() {
+		return uniqueUIDLabels;
+	}
+}
@@ -0,0 +1,53 @@
+package eu.glomicave.persistence;
+
+/**
+ * Counters of a batch merge of relationships (see {@link CoreGraphDatabase#mergeRelationships(String, java.util.List)}).
+ */
+public class MergeSummary {
+	private int rows = 0;
+	private int merged = 0;
+	private int relationshipsCreated = 0;
+	private int propertiesSet = 0;
+
+	void add(int rows, int merged, int relationshipsCreated, int propertiesSet) {
+		this.rows += rows;
+		this.merged += merged;
+		this.relationshipsCreated += relationshipsCreated;
+		this.propertiesSet += propertiesSet;
+	}
+
+	public void add(MergeSummary summary) {
+		add(summary.rows, summary.merged, summary.relationshipsCreated, summary.propertiesSet);
+	}
+
+	// Getters
+	/** Number of rows given */
+	public int getRows() {
+		return rows;
+	}
+
+	/** Number of rows whose source and target nodes were found, and the relationship created or kept */
+	public int getMerged() {
+		return merged;
+	}
+
+	/** Number of rows skipped because the source or target node was not found */
+	public int getMissing() {
+		return rows - merged;
+	}
+
+	/** Number of new relationships */
+	public int getRelationshipsCreated() {
+		return relationshipsCreated;
+	}
+
+	public int getPropertiesSet() {
+		return propertiesSet;
+	}
+
+	@Override
+	public String toString() {
+		return rows + " rows, " + relationshipsCreated + " relationships created, " + (merged - relationshipsCreated) 
+				+ " existing, " + getMissing() + " without source or target node";
+	}
+}
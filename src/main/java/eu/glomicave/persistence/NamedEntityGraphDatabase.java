@@ -1,10 +1,14 @@
 package eu.glomicave.persistence;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.neo4j.driver.Record;
 import org.neo4j.driver.types.Node;
-import org.neo4j.driver.types.Relationship;
 
 /**
  * Contains all database interface methods related to named entities.
@@ -23,6 +27,25 @@ public class NamedEntityGraphDatabase {
 		return node;
 	}
 
+	/**
+	 * Add the named entity nodes of a source in batches (see {@link CoreGraphDatabase#upsertNodes(String, List)}).
+	 * 
+	 * @param source - source of the entities, e.g. the ontology name
+	 * @param identifiers - identifiers of the entities in the source
+	 * @return number of nodes created or updated
+	 */
+	public static int addNamedEntityNodes(String source, Collection<String> identifiers) {
+		List<Map<String, Object>> rows = new ArrayList<>();
+		for (String identifier : new LinkedHashSet<>(identifiers)) {
+			Map<String, Object> row = new HashMap<>();
+			row.put(CoreGraphDatabase.UID_FIELD, createUniqueIdentifier(source, identifier));
+			row.put(NAMED_ENTITY_SOURCE, source);
+			row.put(NAMED_ENTITY_IDENTIFIER, identifier);
+			rows.add(row);
+		}
+		return CoreGraphDatabase.upsertNodes(PredefinedCategories.NAMED_ENTITY.toString(), rows);
+	}
+
 	private static String createUniqueIdentifier(String source, String identifier) {
 		if (source == null || source.length() == 0 || identifier == null || identifier.length() == 0) {
 			throw new IllegalStateException("'source' and 'identifier' must not be null or have length 0.");
@@ -35,12 +58,65 @@ public class NamedEntityGraphDatabase {
 		//return CoreGraphDatabase.createUIDNodeIfNotExistent(PredefinedCategories.LEXICAL_FORM.toString(), lexicalForm);
 		Node node = CoreGraphDatabase.createUIDNodeIfNotExistent(PredefinedCategories.LEXICAL_FORM.toString(), lexicalForm);
 		CoreGraphDatabase.setProperty(node, LEXICAL_FORM_INITIALIZED, Boolean.valueOf("false"));
+		OpenRelationsGraphDatabase.resetLexicalFormIndex();
 		return node;
 		
 	}
 
-	public static Relationship addNamedEntitiyToLexicalFormConnection(Node namedEntityNode, Node lexicalFormNode) {
-		return CoreGraphDatabase.createRelationshipIfNotExistent(namedEntityNode, lexicalFormNode, PredefinedRelations.HAS_LF.toString());
+	/**
+	 * Add lexical form nodes in batches (see {@link CoreGraphDatabase#upsertNodes(String, List)}), 
+	 * the nodes are marked as not initialized. The index of lexical forms of open relations is reloaded on next use.
+	 * 
+	 * @param lexicalForms
+	 * @return number of nodes created or updated
+	 */
+	public static int addLexicalFormNodes(Collection<String> lexicalForms) {
+		List<Map<String, Object>> rows = new ArrayList<>();
+		for (String lexicalForm : new LinkedHashSet<>(lexicalForms)) {
+			Map<String, Object> row = new HashMap<>();
+			row.put(CoreGraphDatabase.UID_FIELD, lexicalForm);
+			row.put(LEXICAL_FORM_INITIALIZED, Boolean.FALSE);
+			rows.add(row);
+		}
+		int count = CoreGraphDatabase.upsertNodes(PredefinedCategories.LEXICAL_FORM.toString(), rows);
+		OpenRelationsGraphDatabase.resetLexicalFormIndex();
+		return count;
+	}
+
+	/**
+	 * Connect a named entity to a lexical form (see {@link #addNamedEntitiyToLexicalFormConnections(Node, Collection)}).
+	 * 
+	 * @param namedEntityNode
+	 * @param lexicalFormNode
+	 * @return counters of merged and created relationships
+	 */
+	public static MergeSummary addNamedEntitiyToLexicalFormConnection(Node namedEntityNode, Node lexicalFormNode) {
+		return addNamedEntitiyToLexicalFormConnections(namedEntityNode, 
+				List.of(lexicalFormNode.get(CoreGraphDatabase.UID_FIELD).asString()));
+	}
+
+	/**
+	 * Connect a named entity to lexical forms in batches (see {@link CoreGraphDatabase#mergeRelationships(String, List)}).
+	 * 
+	 * @param namedEntityNode
+	 * @param lexicalForms - uids of the lexical form nodes
+	 * @return counters of merged and created relationships
+	 */
+	public static MergeSummary addNamedEntitiyToLexicalFormConnections(Node namedEntityNode, Collection<String> lexicalForms) {
+		String namedEntityUID = namedEntityNode.get(CoreGraphDatabase.UID_FIELD).asString();
+		List<RelationshipRow> rows = new ArrayList<>();
+		for (String lexicalForm : new LinkedHashSet<>(lexicalForms)) {
+			rows.add(getNamedEntitiyToLexicalFormConnection(namedEntityUID, lexicalForm));
+		}
+		return CoreGraphDatabase.mergeRelationships(PredefinedRelations.HAS_LF.toString(), rows);
+	}
+
+	/**
+	 * HAS_LF relationship of a named entity, to merge in a batch with {@link CoreGraphDatabase#mergeRelationships(String, List)}.
+	 */
+	public static RelationshipRow getNamedEntitiyToLexicalFormConnection(String namedEntityUID, String lexicalForm) {
+		return new RelationshipRow(PredefinedCategories.NAMED_ENTITY.toString(), namedEntityUID, 
+				PredefinedCategories.LEXICAL_FORM.toString(), lexicalForm);
 	}
 
 	public static List<Record> getLexicalFormsOfNamedEntities(String source) {
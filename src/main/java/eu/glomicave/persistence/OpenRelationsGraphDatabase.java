@@ -1,5 +1,6 @@
 package eu.glomicave.persistence;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -11,6 +12,8 @@ import org.neo4j.driver.Session;
 import org.neo4j.driver.types.Node;
 import org.neo4j.driver.types.Relationship;
 
+import eu.glomicave.data_import.extract_entities.LexicalFormIndex;
+
 /**
  * Contains all database interface methods related to open relations.
  * 
@@ -27,25 +30,45 @@ public class OpenRelationsGraphDatabase {
 	
 	public static final String UID_FIELD = "uid";
 	
+	private static LexicalFormIndex lexicalFormIndex;
+	
 	
 	
 	public static Node addFactNode(String subject, String relation, String object, String polarity, String modality, String attribution) {
+		List<Map<String, Object>> rows = new ArrayList<>();
+		rows.add(getFactProperties(subject, relation, object, polarity, modality, attribution));
+		
+		return CoreGraphDatabase.upsertNodesReturnNodes(PredefinedCategories.FACT.toString(), rows).get(0);
+	}
+	
+	/**
+	 * Add fact nodes in batches (see {@link CoreGraphDatabase#upsertNodes(String, List)}).
+	 * 
+	 * @param facts - properties of the facts, see {@link #getFactProperties}
+	 * @return number of nodes created or updated
+	 */
+	public static int addFactNodes(List<Map<String, Object>> facts) {
+		return CoreGraphDatabase.upsertNodes(PredefinedCategories.FACT.toString(), facts);
+	}
+	
+	/**
+	 * Properties of a fact node, with its uid.
+	 */
+	public static Map<String, Object> getFactProperties(String subject, String relation, String object, String polarity, String modality, String attribution) {
 		if (subject == null || subject.length() == 0 || relation == null || relation.length() == 0 
 				|| object == null || object.length() == 0) {
 			throw new IllegalStateException("'subject', 'relation' or 'object' must not be null or have length 0.");
 		}
 		
-		String uniqueIdentifier = subject + "/" + relation + "/" + object;
-
-		Node node = CoreGraphDatabase.createUIDNodeIfNotExistent(PredefinedCategories.FACT.toString(), uniqueIdentifier);
-		CoreGraphDatabase.setProperty(node, FACT_SUBJECT, subject);
-		CoreGraphDatabase.setProperty(node, FACT_RELATION, relation);
-		CoreGraphDatabase.setProperty(node, FACT_OBJECT, object);
-		CoreGraphDatabase.setProperty(node, FACT_POLARITY, polarity);
-		CoreGraphDatabase.setProperty(node, FACT_MODALITY, modality);		
-		CoreGraphDatabase.setProperty(node, FACT_ATTRIBUTION, attribution);				
-		
-		return node;
+		Map<String, Object> properties = new HashMap<>();
+		properties.put(UID_FIELD, subject + "/" + relation + "/" + object);
+		properties.put(FACT_SUBJECT, subject);
+		properties.put(FACT_RELATION, relation);
+		properties.put(FACT_OBJECT, object);
+		properties.put(FACT_POLARITY, polarity);
+		properties.put(FACT_MODALITY, modality);
+		properties.put(FACT_ATTRIBUTION, attribution);
+		return properties;
 	}
 	
 	public static Node addPolarityNode(String polarity) {
@@ -78,13 +101,18 @@ public class OpenRelationsGraphDatabase {
 	
 	// Added 14.10.2022
 	
+	/**
+	 * Get lexical form node by its uid. If there is no node with this uid, the node with the same 
+	 * normalization key (case, hyphens, Greek letters, whitespace) is taken from the lexical form index.
+	 */
 	public static Node getLexicalFormNode(String lexicalFormIdentifier) {
 		Node lexicalForm = CoreGraphDatabase.getUIDNode(PredefinedCategories.LEXICAL_FORM.toString(), lexicalFormIdentifier);
-		// if unsuccessful, then use case non-sensitive search
+		// if unsuccessful, then use normalized search
 		if (lexicalForm == null) {
-			List<Record> records = CoreGraphDatabase.getNodesByLabelAndPropertyCaseInsensitive(PredefinedCategories.LEXICAL_FORM.toString(), UID_FIELD, lexicalFormIdentifier);
-			if (records.size() >= 1) {
-				lexicalForm = records.get(0).get(0).asNode();
+			LexicalFormIndex index = getLexicalFormIndex();
+			int lexicalFormId = index.lookup(lexicalFormIdentifier);
+			if (lexicalFormId >= 0) {
+				lexicalForm = CoreGraphDatabase.getUIDNode(PredefinedCategories.LEXICAL_FORM.toString(), index.getUID(lexicalFormId));
 
 				return lexicalForm;
 			}
@@ -96,19 +124,63 @@ public class OpenRelationsGraphDatabase {
 		return lexicalForm;
 	}
 	
+	/**
+	 * Index of all lexical forms in the graph database, loaded on first use and again after lexical forms are added
+	 * (see {@link NamedEntityGraphDatabase#addLexicalFormNodes}).
+	 */
+	public static synchronized LexicalFormIndex getLexicalFormIndex() {
+		if (lexicalFormIndex == null) {
+			List<String> lexicalFormUIDs = CoreGraphDatabase.getNodeUIDsByLabel(PredefinedCategories.LEXICAL_FORM.toString());
+			lexicalFormIndex = new LexicalFormIndex(lexicalFormUIDs.size());
+			for (String uid : lexicalFormUIDs) {
+				lexicalFormIndex.add(uid);
+			}
+			lexicalFormIndex.trim();
+		}
+		return lexicalFormIndex;
+	}
+	
+	/**
+	 * Drop the index of lexical forms, so that it is reloaded on next use (e.g. after new lexical forms are added).
+	 */
+	public static synchronized void resetLexicalFormIndex() {
+		lexicalFormIndex = null;
+	}
+	
 	public static Node getSentenceNode(String sentenceUID) {
 		return CoreGraphDatabase.getUIDNode(PredefinedCategories.SENTENCE.toString(), sentenceUID);
 	}
 	
 	public static void addSubjectObjectConnection(Node lexicalFormNodeSubj, Node lexicalFormNodeObj) {
-		CoreGraphDatabase.createRelationshipIfNotExistent(lexicalFormNodeSubj, lexicalFormNodeObj, PredefinedRelations.OIE_RELATED_WITH.toString());		
-		CoreGraphDatabase.createRelationshipIfNotExistent(lexicalFormNodeObj, lexicalFormNodeSubj, PredefinedRelations.OIE_RELATED_WITH.toString());		
+		String subjectUID = lexicalFormNodeSubj.get(UID_FIELD).asString();
+		String objectUID = lexicalFormNodeObj.get(UID_FIELD).asString();
+		List<RelationshipRow> rows = new ArrayList<>();
+		rows.add(new RelationshipRow(PredefinedCategories.LEXICAL_FORM.toString(), subjectUID, PredefinedCategories.LEXICAL_FORM.toString(), objectUID));
+		rows.add(new RelationshipRow(PredefinedCategories.LEXICAL_FORM.toString(), objectUID, PredefinedCategories.LEXICAL_FORM.toString(), subjectUID));
+		CoreGraphDatabase.mergeRelationships(PredefinedRelations.OIE_RELATED_WITH.toString(), rows);
 	}
 	
 	public static Relationship addLexicalFormToFactConnection(Node lexicalFormNode, Node factNode) {
 		return CoreGraphDatabase.createRelationshipIfNotExistent(lexicalFormNode, factNode, PredefinedRelations.HAS_FACT.toString());
 	}
 	
+	/**
+	 * Connect lexical forms to a fact in one batch (see {@link CoreGraphDatabase#mergeRelationships(String, List)}).
+	 * 
+	 * @param lexicalFormNodes
+	 * @param factNode
+	 * @return counters of merged and created relationships
+	 */
+	public static MergeSummary addLexicalFormsToFactConnections(List<Node> lexicalFormNodes, Node factNode) {
+		String factUID = factNode.get(UID_FIELD).asString();
+		List<RelationshipRow> rows = new ArrayList<>();
+		for (Node lexicalFormNode : lexicalFormNodes) {
+			rows.add(new RelationshipRow(PredefinedCategories.LEXICAL_FORM.toString(), lexicalFormNode.get(UID_FIELD).asString(), 
+					PredefinedCategories.FACT.toString(), factUID));
+		}
+		return CoreGraphDatabase.mergeRelationships(PredefinedRelations.HAS_FACT.toString(), rows);
+	}
+	
 	public static Relationship addFactToPolarityConnection(Node factNode, Node polarityNode) {
 		return CoreGraphDatabase.createRelationshipIfNotExistent(factNode, polarityNode, PredefinedRelations.HAS_POLARITY.toString());
 	}
@@ -127,4 +199,9 @@ public class OpenRelationsGraphDatabase {
 	
 	}
 	
+	public static Relationship addFactToSentenceConnection(Node factNode, String sentenceUID) {
+		return CoreGraphDatabase.createRelationshipIfNotExistent(PredefinedCategories.FACT.toString(), factNode.get(UID_FIELD).asString(), 
+				PredefinedCategories.SENTENCE.toString(), sentenceUID, PredefinedRelations.FACT_APPEARS_IN.toString());
+	}
+	
 }
@@ -4,4 +4,19 @@ public enum PredefinedCategories {
 
 	CONCEPT, NAMED_ENTITY, PUBLICATION, SENTENCE, RELATION_NODE, ADJ_NOUN, PATHWAY, PREDICTOR, PREDICTION,
 	METABOLITE, GENE, GENE_PRODUCT, PROTEIN, TRAIT, LEXICAL_FORM, FACT, POLARITY, MODALITY, ATTRIBUTION;
+
+	/**
+	 * Check if a node label is a predefined category.
+	 * 
+	 * @param label
+	 * @return
+	 */
+	public static boolean contains(String label) {
+		for (PredefinedCategories category : values()) {
+			if (category.name().equals(label)) {
+				return true;
+			}
+		}
+		return false;
+	}
 }
@@ -0,0 +1,56 @@
+package eu.glomicave.persistence;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Relationship to merge in a batch (see {@link CoreGraphDatabase#mergeRelationships(String, java.util.List)}):
+ * the source and target nodes, given by label and uid, and the properties of the relationship.
+ */
+public class RelationshipRow {
+	private final String sourceLabel;
+	private final String sourceUID;
+	private final String targetLabel;
+	private final String targetUID;
+	private final Map<String, Object> properties;
+
+	/**
+	 * @param sourceLabel - label of the source node (null to look up the uid in all nodes)
+	 * @param sourceUID - uid of the source node
+	 * @param targetLabel - label of the target node (null to look up the uid in all nodes)
+	 * @param targetUID - uid of the target node
+	 * @param properties - properties set on the relationship (may be null)
+	 */
+	public RelationshipRow(String sourceLabel, String sourceUID, String targetLabel, String targetUID, Map<String, Object> properties) {
+		this.sourceLabel = sourceLabel;
+		this.sourceUID = sourceUID;
+		this.targetLabel = targetLabel;
+		this.targetUID = targetUID;
+		this.properties = properties != null ? properties : new HashMap<>();
+	}
+
+	public RelationshipRow(String sourceLabel, String sourceUID, String targetLabel, String targetUID) {
+		this(sourceLabel, sourceUID, targetLabel, targetUID, null);
+	}
+
+	// Getters
+	public String getSourceLabel() {
+		return sourceLabel;
+	}
+
+	public String getSourceUID() {
+		return sourceUID;
+	}
+
+	public String getTargetLabel() {
+		return targetLabel;
+	}
+
+	public String getTargetUID() {
+		return targetUID;
+	}
+
+	public Map<String, Object> getProperties() {
+		return properties;
+	}
+}
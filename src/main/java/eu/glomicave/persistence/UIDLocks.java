@@ -0,0 +1,127 @@
+package eu.glomicave.persistence;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks by node label and uid. Writers of the same node take the same lock, writers of different
+ * nodes take different locks with high probability, so that node writes of different threads run in parallel.
+ *
+ * Several stripes are always taken in ascending order (see {@link #lockAll(String, Collection)}), a thread
+ * holding a single stripe takes no other, so that writers do not deadlock. A {@link UnitOfWork} holds the stripes
+ * of its writes until commit: it only takes further stripes not held by other threads (see {@link #tryLockAll(int[])})
+ * and commits first if it has to wait for one.
+ */
+public class UIDLocks {
+	private final ReentrantLock[] stripes;
+	private final int mask;
+
+	/**
+	 * @param stripes - number of locks, rounded up to a power of 2
+	 */
+	public UIDLocks(int stripes) {
+		int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+		this.stripes = new ReentrantLock[size];
+		for (int i = 0; i < size; i++) {
+			this.stripes[i] = new ReentrantLock();
+		}
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Index of the stripe of a node.
+	 *
+	 * @param label
+	 * @param uid
+	 * @return
+	 */
+	public int index(String label, String uid) {
+		int hash = 31 * label.hashCode() + uid.hashCode();
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	/**
+	 * Lock of a node.
+	 *
+	 * @param label
+	 * @param uid
+	 * @return
+	 */
+	public ReentrantLock get(String label, String uid) {
+		return stripes[index(label, uid)];
+	}
+
+	/**
+	 * Indexes of the stripes of several nodes, distinct and in ascending order.
+	 *
+	 * @param label
+	 * @param uids
+	 * @return
+	 */
+	public int[] indexes(String label, Collection<String> uids) {
+		int[] indexes = uids.stream().mapToInt(uid -> index(label, uid)).distinct().toArray();
+		Arrays.sort(indexes);
+		return indexes;
+	}
+
+	/**
+	 * Take the locks of several nodes, in ascending stripe order.
+	 *
+	 * @param label
+	 * @param uids
+	 * @return indexes of the stripes taken, to pass to {@link #unlockAll(int[])}
+	 */
+	public int[] lockAll(String label, Collection<String> uids) {
+		int[] indexes = indexes(label, uids);
+		lockAll(indexes);
+		return indexes;
+	}
+
+	/**
+	 * Take the locks of stripes, waiting for the ones held by other threads.
+	 *
+	 * @param indexes - stripes in ascending order, see {@link #indexes(String, Collection)}
+	 */
+	public void lockAll(int[] indexes) {
+		for (int index : indexes) {
+			stripes[index].lock();
+		}
+	}
+
+	/**
+	 * Take the locks of stripes if none is held by another thread.
+	 *
+	 * @param indexes - stripes in ascending order, see {@link #indexes(String, Collection)}
+	 * @return true if all locks were taken, false if none was
+	 */
+	public boolean tryLockAll(int[] indexes) {
+		for (int i = 0; i < indexes.length; i++) {
+			if (!stripes[indexes[i]].tryLock()) {
+				unlockAll(Arrays.copyOf(indexes, i));
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public void unlockAll(int[] indexes) {
+		for (int i = indexes.length - 1; i >= 0; i--) {
+			stripes[indexes[i]].unlock();
+		}
+	}
+
+	/**
+	 * Check if the calling thread holds the lock of a stripe.
+	 *
+	 * @param index
+	 * @return
+	 */
+	public boolean isHeldByCurrentThread(int index) {
+		return stripes[index].isHeldByCurrentThread();
+	}
+
+	public int size() {
+		return stripes.length;
+	}
+}
@@ -0,0 +1,281 @@
+package eu.glomicave.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.exceptions.RetryableException;
+
+/**
+ * Unit of work of a thread: the statements of the thread run in one explicit transaction, committed every
+ * {@code batchSize} write statements and when the unit of work is closed, instead of one auto-commit transaction
+ * per statement. Begun with {@link CoreGraphDatabase#beginUnitOfWork()}; while it is open, the query methods of
+ * {@link CoreGraphDatabase} called by the thread run in its transaction (reads too, so that they see the writes
+ * not committed yet). Nested begins of the same thread join the open unit of work.
+ *
+ * The write statements of the open transaction are kept until commit. If a statement or the commit fails with
+ * a transient error (e.g. deadlock, leader switch), the transaction is rolled back and its write statements are
+ * run again with session.executeWrite, which retries transient errors with exponential backoff for
+ * {@link eu.glomicave.config.GlobalParamsConfig#TRANSACTION_RETRY_TIME} seconds. If a statement fails with another
+ * error, the write statements before it are run again and the error is thrown to the caller, as with auto-commit
+ * transactions.
+ *
+ * Nodes merged in a unit of work are unique by the uniqueness constraint of their label (see {@link GraphSchema}),
+ * the locks by uid of labels without constraint are held until the transaction is committed (see {@link #lock(int[])}),
+ * so that a concurrent writer of the same node sees it.
+ *
+ * e.g.:
+ * CoreGraphDatabase.inUnitOfWork(() -> {
+ *     for (...) { ... }
+ * });
+ */
+public class UnitOfWork implements AutoCloseable {
+	private static final Logger logger = LogManager.getLogger(UnitOfWork.class);
+
+	private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<>();
+
+	private final int batchSize;
+	private final Session session;
+	private final UIDLocks locks;
+	private Transaction transaction = null;
+	// write statements of the open transaction, run again if it fails
+	private final List<Statement> statements = new ArrayList<>();
+	// stripes of the locks by uid taken for the open transaction
+	private final List<int[]> lockedStripes = new ArrayList<>();
+	// begins of the thread not closed yet
+	private int depth = 1;
+
+	private long commits = 0;
+	private long retries = 0;
+
+	/**
+	 * Work run in a unit of work, see {@link CoreGraphDatabase#inUnitOfWork(Task)}.
+	 */
+	@FunctionalInterface
+	public interface Task<E extends Exception> {
+		void run() throws E;
+	}
+
+	private static class Statement {
+		private final String query;
+		private final Map<String, Object> params;
+
+		private Statement(String query, Map<String, Object> params) {
+			this.query = query;
+			this.params = params;
+		}
+	}
+
+	UnitOfWork(int batchSize, Session session, UIDLocks locks) {
+		this.batchSize = Math.max(1, batchSize);
+		this.session = session;
+		this.locks = locks;
+	}
+
+	/**
+	 * Begin the unit of work of the calling thread, or join the open one.
+	 *
+	 * @param batchSize - max number of write statements per transaction
+	 * @param locks - locks by uid of the node writes
+	 * @return
+	 */
+	static UnitOfWork begin(int batchSize, UIDLocks locks) {
+		UnitOfWork work = current.get();
+		if (work != null) {
+			work.depth++;
+			return work;
+		}
+		work = new UnitOfWork(batchSize, CoreGraphDatabase.getSession(), locks);
+		current.set(work);
+		return work;
+	}
+
+	/**
+	 * Open unit of work of the calling thread.
+	 *
+	 * @return null if the thread has none
+	 */
+	static UnitOfWork current() {
+		return current.get();
+	}
+
+	/**
+	 * Run a statement in the transaction of the unit of work.
+	 *
+	 * @param query
+	 * @param params
+	 * @param reader - reads the result of the statement
+	 * @return value read from the result
+	 */
+	<T> T run(String query, Map<String, Object> params, Function<Result, T> reader) {
+		if (transaction == null) {
+			transaction = session.beginTransaction();
+		}
+		Statement statement = new Statement(query, params);
+		T value;
+		boolean write;
+		try {
+			Result result = transaction.run(query, params);
+			value = reader.apply(result);
+			write = result.consume().counters().containsUpdates();
+		} catch (RuntimeException e) {
+			rollback();
+			try {
+				if (e instanceof RetryableException) {
+					logger.warn("Transient error in transaction of {} statements, running them again.", statements.size() + 1, e);
+					statements.add(statement);
+					return replay(reader);
+				}
+				replay(null);
+			} finally {
+				unlockStripes();
+			}
+			throw e;
+		}
+		if (write) {
+			statements.add(statement);
+			if (statements.size() >= batchSize) {
+				commit();
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Take the locks of the stripes of the nodes written by the next statement, held until the transaction is
+	 * committed. If a stripe is held by another thread, the open transaction is committed first and its stripes
+	 * released: a thread waiting for a stripe holds no other stripe and no lock of the database, so that writers
+	 * do not deadlock.
+	 *
+	 * @param stripes - stripes in ascending order, see {@link UIDLocks#indexes(String, java.util.Collection)}
+	 */
+	void lock(int[] stripes) {
+		if (!locks.tryLockAll(stripes)) {
+			commit();
+			locks.lockAll(stripes);
+		}
+		lockedStripes.add(stripes);
+	}
+
+	/**
+	 * Commit the open transaction of the unit of work (if any).
+	 */
+	public void commit() {
+		if (transaction == null) {
+			unlockStripes();
+			return;
+		}
+		try {
+			transaction.commit();
+			commits++;
+			statements.clear();
+		} catch (RuntimeException e) {
+			rollback();
+			if (e instanceof RetryableException) {
+				logger.warn("Transient error committing transaction of {} statements, running them again.", statements.size(), e);
+				replay(null);
+				return;
+			}
+			logger.error("Error committing transaction, {} write statements lost.", statements.size(), e);
+			statements.clear();
+			throw e;
+		} finally {
+			closeTransaction();
+			unlockStripes();
+		}
+	}
+
+	/**
+	 * Close the unit of work: the open transaction is committed. Joined units of work are closed by their last close.
+	 */
+	@Override
+	public void close() {
+		if (--depth > 0) {
+			return;
+		}
+		try {
+			commit();
+		} finally {
+			session.close();
+			current.remove();
+			logger.debug("Unit of work closed: {} transactions committed, {} retried.", commits, retries);
+		}
+	}
+
+	/**
+	 * Run the kept write statements again in one managed transaction, retried by the driver.
+	 *
+	 * @param reader - reads the result of the last statement (null for none)
+	 * @return value read from the result of the last statement
+	 */
+	private <T> T replay(Function<Result, T> reader) {
+		List<Statement> replayed = new ArrayList<>(statements);
+		statements.clear();
+		if (replayed.isEmpty()) {
+			return null;
+		}
+		retries++;
+		T value = session.executeWrite(tx -> {
+			T last = null;
+			for (int i = 0; i < replayed.size(); i++) {
+				Result result = tx.run(replayed.get(i).query, replayed.get(i).params);
+				if (reader != null && i == replayed.size() - 1) {
+					last = reader.apply(result);
+				} else {
+					result.consume();
+				}
+			}
+			return last;
+		});
+		commits++;
+		return value;
+	}
+
+	private void unlockStripes() {
+		for (int i = lockedStripes.size() - 1; i >= 0; i--) {
+			locks.unlockAll(lockedStripes.get(i));
+		}
+		lockedStripes.clear();
+	}
+
+	private void rollback() {
+		if (transaction == null) {
+			return;
+		}
+		try {
+			transaction.rollback();
+		} catch (Exception e) {
+			logger.debug("Error rolling back transaction.", e);
+		} finally {
+			closeTransaction();
+		}
+	}
+
+	private void closeTransaction() {
+		if (transaction == null) {
+			return;
+		}
+		try {
+			transaction.close();
+		} catch (Exception e) {
+			logger.debug("Error closing transaction.", e);
+		}
+		transaction = null;
+	}
+
+	// Getters
+	public long getCommits() {
+		return commits;
+	}
+
+	public long getRetries() {
+		return retries;
+	}
+}
@@ -37,6 +37,7 @@ import eu.glomicave.config.AmazonS3Config;
 import eu.glomicave.config.GraphDatabaseConfig;
 import eu.glomicave.data_import.PublicationGraphDatabase;
 import eu.glomicave.persistence.CoreGraphDatabase;
+import eu.glomicave.persistence.GraphSchema;
 import eu.glomicave.wp3.NamedEntityInitialization;
 
 import org.apache.logging.log4j.LogManager;
@@ -103,6 +104,8 @@ public class AddOntologyAWS {
 		GraphDatabaseConfig.setupInstance(cfg_graphdb_file);
 		// Test connection
 		CoreGraphDatabase.testConnection();
+		// Create constraints and indexes of the graph schema
+		GraphSchema.createSchema();
 	}	
 	
 	public static void loadOntologyData(boolean abridge, String[] extra_ontologies_files) throws Exception {
@@ -36,6 +36,7 @@ import eu.glomicave.config.AmazonS3Config;
 import eu.glomicave.config.GraphDatabaseConfig;
 import eu.glomicave.data_import.PublicationGraphDatabase;
 import eu.glomicave.persistence.CoreGraphDatabase;
+import eu.glomicave.persistence.GraphSchema;
 import eu.glomicave.wp3.IntegrateWP4Traits;
 
 public class AddPhenotypesAWS {
@@ -98,6 +99,8 @@ public class AddPhenotypesAWS {
 		GraphDatabaseConfig.setupInstance(cfg_graphdb_file);
 		// Test connection
 		CoreGraphDatabase.testConnection();
+		// Create constraints and indexes of the graph schema
+		GraphSchema.createSchema();
 	}
 	
 	public static void loadPhenotypeData(boolean abridge, String traits_s3_file) throws Exception {
@@ -41,6 +41,7 @@ import eu.glomicave.config.GraphDatabaseConfig;
 import eu.glomicave.data_import.LoadAthenaPublicationsDataIntoGraphDB;
 import eu.glomicave.data_import.PublicationGraphDatabase;
 import eu.glomicave.persistence.CoreGraphDatabase;
+import eu.glomicave.persistence.GraphSchema;
 import eu.glomicave.persistence.PublicationDatabase;
 
 import org.apache.logging.log4j.LogManager;
@@ -116,6 +117,8 @@ public class AddPublicationsAWS {
 		GraphDatabaseConfig.setupInstance(cfg_graphdb_file);
 		// Test connection
 		CoreGraphDatabase.testConnection();
+		// Create constraints and indexes of the graph schema
+		GraphSchema.createSchema();
 	}
 	
 	public static void loadPublicationsData(boolean abridge, boolean integrateOnly, String dois_file, int nrefs, int ncits) throws Exception {
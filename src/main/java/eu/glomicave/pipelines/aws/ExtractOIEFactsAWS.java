@@ -0,0 +1,90 @@
+/* 
+* GLOMICAVE-KG 
+* 
+* file: ExtractOIEFactsAWS.java
+* 
+* Authors: 	Roman Siarheyeu (raman.siarheyeu@neclab.eu) 
+* 			Kiril Gashteovski (kiril.gashteovski@neclab.eu) 
+*
+* Copyright (c) 2024 NEC Laboratories Europe GmbH All Rights Reserved. 
+* 
+* NEC Laboratories Europe GmbH DISCLAIMS ALL WARRANTIES, EITHER EXPRESS OR
+* IMPLIED, INCLUDING BUT NOT LIMITED TO IMPLIED WARRANTIES OF MERCHANTABILITY 
+* AND FITNESS FOR A PARTICULAR PURPOSE AND THE WARRANTY AGAINST LATENT 
+* DEFECTS, WITH RESPECT TO THE PROGRAM AND THE ACCOMPANYING 
+* DOCUMENTATION. 
+* 
+* NO LIABILITIES FOR CONSEQUENTIAL DAMAGES:
+* IN NO EVENT SHALL NEC Laboratories Europe GmbH or ANY OF ITS SUBSIDIARIES BE
+* LIABLE FOR ANY DAMAGES WHATSOEVER (INCLUDING, WITHOUT LIMITATION, DAMAGES
+* FOR LOSS OF BUSINESS PROFITS, BUSINESS INTERRUPTION, LOSS OF INFORMATION, OR 
+* OTHER PECUNIARY LOSS AND INDIRECT, CONSEQUENTIAL, INCIDENTAL, 
+* ECONOMIC OR PUNITIVE DAMAGES) ARISING OUT OF THE USE OF OR INABILITY 
+* TO USE THIS PROGRAM, EVEN IF NEC Laboratories Europe GmbH HAS BEEN ADVISED OF
+* THE POSSIBILITY OF SUCH DAMAGES. 
+* 
+* THIS HEADER MAY NOT BE EXTRACTED OR MODIFIED IN ANY WAY. 
+*/
+
+
+package eu.glomicave.pipelines.aws;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import eu.glomicave.config.GlobalParamsConfig;
+import eu.glomicave.config.GraphDatabaseConfig;
+import eu.glomicave.persistence.CoreGraphDatabase;
+import eu.glomicave.persistence.GraphSchema;
+import eu.glomicave.wp2.ore.ExtractOpenRelations;
+
+public class ExtractOIEFactsAWS {
+
+	private static final Logger logger = LogManager.getLogger(ExtractOIEFactsAWS.class);
+
+	public static void run(boolean abridge, String cfg_graphdb_file) throws Exception {
+		// assign parameters
+		if (cfg_graphdb_file == null) {
+			cfg_graphdb_file = GlobalParamsConfig.CFG_AWS_GRAPHDB_FILE;
+		}
+
+		if (abridge) {
+			logger.info("!!! This is a shortened version of the 'Extract text-mined facts' pipeline for test purposes!!!"
+					+ "\nThe pipeline has been started with the following options: "
+					+ "\n*** Section 1. Configuration options. ***"
+					+ "\n -GraphDB config file: '{}'. "
+					+ "\n*** Section 2. Fact extraction. ***"
+					+ "\n -Threads: {};"
+					+ "\n -Fact queue size: {}.",
+					cfg_graphdb_file, GlobalParamsConfig.MAX_POOL_SIZE, GlobalParamsConfig.FACT_QUEUE_SIZE);
+		}
+		else {
+			logger.info("'Extract text-mined facts' pipeline has been started with the following options: "
+					+ "\n*** Section 1. Configuration options. ***"
+					+ "\n -GraphDB config file: '{}'. "
+					+ "\n*** Section 2. Fact extraction. ***"
+					+ "\n -Threads: {};"
+					+ "\n -Fact queue size: {}.",
+					cfg_graphdb_file, GlobalParamsConfig.MAX_POOL_SIZE, GlobalParamsConfig.FACT_QUEUE_SIZE);
+		}
+		
+		// Start the pipeline
+		// connection to Graph database
+		GraphDatabaseConfig.setupInstance(cfg_graphdb_file);
+		// test connection
+		CoreGraphDatabase.testConnection();
+		// create constraints and indexes of the graph schema
+		GraphSchema.createSchema();
+		// extract facts from the sentences in the graph database and add them into the graph (no S3 round trip)
+		extractOpenRelations(abridge);
+		// close db connection
+		CoreGraphDatabase.closeDriver();
+		
+		logger.info("Pipeline finished!");
+	}
+	
+	public static void extractOpenRelations(boolean abridge) throws Exception {
+		ExtractOpenRelations.addOpenRelationsFromSentences(abridge);
+	}
+
+}
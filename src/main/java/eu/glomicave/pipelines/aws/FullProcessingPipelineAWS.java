@@ -19,6 +19,7 @@ import eu.glomicave.config.GraphDatabaseConfig;
 import eu.glomicave.data_import.LoadAthenaPublicationsDataIntoGraphDB;
 import eu.glomicave.persistence.PublicationDatabase;
 import eu.glomicave.persistence.CoreGraphDatabase;
+import eu.glomicave.persistence.GraphSchema;
 import eu.glomicave.persistence.PredefinedCategories;
 import eu.glomicave.wp3.IntegrateWP4Traits;
 import eu.glomicave.wp3.LoadWikipathwaysIntoGraphDB;
@@ -136,6 +137,8 @@ public class FullProcessingPipelineAWS {
 		
 		// Test connection
 		CoreGraphDatabase.testConnection();
+		// Create constraints and indexes of the graph schema
+		GraphSchema.createSchema();
 	}
 
 	public static void resetDatabases() {
@@ -36,6 +36,7 @@ import eu.glomicave.config.GlobalParamsConfig;
 import eu.glomicave.config.AmazonS3Config;
 import eu.glomicave.config.GraphDatabaseConfig;
 import eu.glomicave.persistence.CoreGraphDatabase;
+import eu.glomicave.persistence.GraphSchema;
 import eu.glomicave.pipelines.local.LoadOIEFactsLocal;
 import eu.glomicave.wp2.ore.IntegrateOpenRelations;
 
@@ -83,6 +84,8 @@ public class LoadOIEFactsAWS {
 		GraphDatabaseConfig.setupInstance(cfg_graphdb_file);
 		// test connection
 		CoreGraphDatabase.testConnection();
+		// create constraints and indexes of the graph schema
+		GraphSchema.createSchema();
 		// add text extracted extracted facts into graph database data from file
 		addOpenRelations(abridge, oie_triples_s3_file);
 		// close db connection
@@ -39,6 +39,7 @@ import org.apache.logging.log4j.core.LoggerContext;
 import eu.glomicave.config.GraphDatabaseConfig;
 import eu.glomicave.data_import.PublicationGraphDatabase;
 import eu.glomicave.persistence.CoreGraphDatabase;
+import eu.glomicave.persistence.GraphSchema;
 import eu.glomicave.wp3.NamedEntityInitialization;
 
 
@@ -105,6 +106,8 @@ public class AddOntologyLocal {
 		GraphDatabaseConfig.setupInstance(cfg_graphdb_file);
 		// Test connection
 		CoreGraphDatabase.testConnection();
+		// Create constraints and indexes of the graph schema
+		GraphSchema.createSchema();
 	}	
 	
 	public static void loadOntologyData(boolean abridge, String[] extra_ontologies_files) throws Exception {
@@ -35,6 +35,7 @@ import eu.glomicave.config.GlobalParamsConfig;
 import eu.glomicave.config.GraphDatabaseConfig;
 import eu.glomicave.data_import.PublicationGraphDatabase;
 import eu.glomicave.persistence.CoreGraphDatabase;
+import eu.glomicave.persistence.GraphSchema;
 import eu.glomicave.wp3.IntegrateWP4Traits;
 
 public class AddPhenotypesLocal {
@@ -86,6 +87,8 @@ public class AddPhenotypesLocal {
 		GraphDatabaseConfig.setupInstance(cfg_graphdb_file);
 		// Test connection
 		CoreGraphDatabase.testConnection();
+		// Create constraints and indexes of the graph schema
+		GraphSchema.createSchema();
 	}	
 	
 	public static void loadPhenotypeData(boolean abridge, String traits_file) throws Exception {
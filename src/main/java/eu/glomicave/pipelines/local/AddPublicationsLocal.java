@@ -36,6 +36,7 @@ import eu.glomicave.data_import.LoadSQLPublicationsDataIntoGraphDB;
 import eu.glomicave.data_import.PublicationGraphDatabase;
 import eu.glomicave.data_import.TitleAndAbstractRetrieval;
 import eu.glomicave.persistence.CoreGraphDatabase;
+import eu.glomicave.persistence.GraphSchema;
 import eu.glomicave.wp3.DOIInitialization;
 
 import org.apache.logging.log4j.LogManager;
@@ -96,6 +97,8 @@ public class AddPublicationsLocal {
 		GraphDatabaseConfig.setupInstance(cfg_graphdb_file);
 		// Test connection
 		CoreGraphDatabase.testConnection();
+		// Create constraints and indexes of the graph schema
+		GraphSchema.createSchema();
 	}
 
 	public static void loadPublicationsData(boolean abridge, String dois_file, int nrefs, int ncits) throws Exception {
@@ -44,6 +44,7 @@ import eu.glomicave.data_import.PublicationGraphDatabase;
 import eu.glomicave.data_import.TitleAndAbstractRetrieval;
 
 import eu.glomicave.persistence.CoreGraphDatabase;
+import eu.glomicave.persistence.GraphSchema;
 import eu.glomicave.persistence.PredefinedCategories;
 import eu.glomicave.persistence.SQLDatabaseTableGeneration;
 
@@ -152,6 +153,8 @@ public class FullProcessingPipelineLocal {
 		GraphDatabaseConfig.setupInstance(cfg_graphdb_file);
 		// Test connection
 		CoreGraphDatabase.testConnection();
+		// Create constraints and indexes of the graph schema
+		GraphSchema.createSchema();
 	}
 
 	public static void resetDatabases() {
@@ -34,6 +34,7 @@ import org.apache.logging.log4j.Logger;
 import eu.glomicave.config.GlobalParamsConfig;
 import eu.glomicave.config.GraphDatabaseConfig;
 import eu.glomicave.persistence.CoreGraphDatabase;
+import eu.glomicave.persistence.GraphSchema;
 import eu.glomicave.wp2.ore.IntegrateOpenRelations;
 
 
@@ -74,6 +75,8 @@ public class LoadOIEFactsLocal {
 		GraphDatabaseConfig.setupInstance(cfg_graphdb_file);
 		// test connection
 		CoreGraphDatabase.testConnection();
+		// create constraints and indexes of the graph schema
+		GraphSchema.createSchema();
 		// add text extracted extracted facts into graph database data from file
 		addOpenRelations(abridge, oie_triples_file);
 		// close connection
@@ -3,104 +3,239 @@
 package eu.glomicave.wp2.demo;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.LinkedList;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Properties;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import edu.stanford.nlp.pipeline.CoreDocument;
-import edu.stanford.nlp.pipeline.CoreSentence;
-import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import eu.glomicave.config.GlobalParamsConfig;
+import eu.glomicave.data_import.PublicationGraphDatabase;
 import eu.glomicave.data_import.Sentence;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 
+@Command(name = "split-abstracts", mixinStandardHelpOptions = true,
+		 description = "Splits abstract texts from a TSV file (columns: doi, abstract; with header) into sentences. "
+		 		+ "Output is a TSV file with header and columns: doi, sentence index, sentence.")
 
-public class SplitAbstractText {
+public class SplitAbstractText implements Callable<Integer> {
+
+	private static final String HEADER = "doi\tindex\tsentence";
+	// progress is printed at most once per interval
+	private static final long PROGRESS_INTERVAL_MS = 10000;
+
+	@Option(names = {"-i", "--input"}, required = true, description = "TSV file with abstracts (columns: doi, abstract).")
+	private String file = null;
+
+	@Option(names = {"-o", "--output"}, required = true, description = "Output TSV file with sentences. "
+			+ "With '--shards' it is the prefix of the shard files '<output>.<shard>'.")
+	private String outfile = null;
+
+	@Option(names = {"-t", "--threads"}, description = "Number of worker threads splitting sentences. Default: number of processors.")
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	@Option(names = {"-c", "--chunk"}, description = "Number of abstracts split in one batch. Default: 1000.")
+	private int chunkSize = 1000;
+
+	@Option(names = {"--shards"}, description = "Number of output shards. Without shards (default), the sentences are written "
+			+ "to one file in the order of the input. With shards, each chunk is written by its worker to shard "
+			+ "(chunk number mod shards), keeping chunks contiguous but not ordered.")
+	private int shards = 0;
+
+
+	// A chunk of abstracts
+	private static class Chunk {
+		final long number;
+		final List<String> dois = new ArrayList<>();
+		final List<String> texts = new ArrayList<>();
+
+		Chunk(long number) {
+			this.number = number;
+		}
+	}
+
+	// Sentences of a split chunk: output lines still to write (null if written to a shard) and number of sentences
+	private static class SplitChunk {
+		final List<String> lines;
+		final int sentences;
+
+		SplitChunk(List<String> lines, int sentences) {
+			this.lines = lines;
+			this.sentences = sentences;
+		}
+	}
 
-	// Read file
-	private static final String file = "/Users/nle5293/Documents/__Projects/3-Glomicave/WP2/_term_recognition/abstract_text.txt";
-	// Output file
-	private static final String outfile = "/Users/nle5293/Documents/__Projects/3-Glomicave/WP2/_term_recognition/abstract_sentences.txt";
-			
-	public static void main(String[] args) throws Exception {
-			
-		long readLength = 0;
-		long readLengthInMBPrinted = -1;
-		int processed = 0;		
-
-		
-		String line;
-		List<Sentence> sentences;
-		
-		// clear output file
-		PrintWriter writer = new PrintWriter(outfile);
-		writer.print("");
-		writer.close();
-		
-		try (BufferedReader bufferedReader = new BufferedReader(new FileReader(file))) {
-			line = bufferedReader.readLine(); // skip header
-			readLength += line.length();
 
+	public Integer call() throws Exception {
+		threads = Math.max(1, threads);
+		chunkSize = Math.max(1, chunkSize);
+		// one split pipeline per worker
+		GlobalParamsConfig.MAX_POOL_SIZE = threads;
+
+		Writer[] writers = openWriters();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		// chunks in progress, in input order; bounded to limit memory
+		ArrayDeque<Future<SplitChunk>> inProgress = new ArrayDeque<>();
+
+		long start = System.currentTimeMillis();
+		long lastProgress = start;
+		long readBytes = 0;
+		long abstracts = 0;
+		long skipped = 0;
+		long sentences = 0;
+		long chunks = 0;
+
+		try (BufferedReader bufferedReader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+			String line = bufferedReader.readLine(); // skip header
+			if (line != null) {
+				readBytes += getUTF8Length(line) + 1;
+			}
+
+			Chunk chunk = new Chunk(chunks++);
 			while ((line = bufferedReader.readLine()) != null) {
-				readLength += line.length();
-			
-				long readLengthInMB = Math.round(readLength / 1024.0 / 1024.0);
-				if (readLengthInMB > readLengthInMBPrinted) {
-					System.out.println("num processed: " + processed);
-					readLengthInMBPrinted = readLengthInMB;
+				readBytes += getUTF8Length(line) + 1;
+
+				String[] fields = line.split("\t", 3);
+				if (fields.length < 2 || fields[1].isEmpty()) {
+					skipped++;
+					continue;
 				}
+				chunk.dois.add(fields[0]);
+				chunk.texts.add(fields[1]);
+				abstracts++;
 
-				// split line into sentences
-				
-				String[] fields = line.split("\t");
-				String doi = fields[0];
-				String text = fields[1];
-				
-				sentences = splitSentences(text);
-				
-				// print sentences into file
-				try (BufferedWriter bw = new BufferedWriter(new FileWriter(outfile, true))) {
-					for (Sentence sentence : sentences) {
-						String outline = doi + "\t" + sentence.index + "\t" + sentence.text;
-
-						bw.write(outline);
-						bw.newLine();   // add new line, System.lineSeparator()
+				if (chunk.texts.size() >= chunkSize) {
+					inProgress.add(submit(pool, chunk, writers));
+					chunk = new Chunk(chunks++);
+
+					// write finished chunks in order, wait if too many chunks are in progress
+					while (!inProgress.isEmpty() && (inProgress.size() >= 2 * threads || inProgress.peek().isDone())) {
+						sentences += write(inProgress.poll().get(), writers);
 					}
 				}
-				
-				processed++;
+
+				long now = System.currentTimeMillis();
+				if (now - lastProgress >= PROGRESS_INTERVAL_MS) {
+					printProgress(readBytes, abstracts, sentences, now - start);
+					lastProgress = now;
+				}
+			}
+			if (!chunk.texts.isEmpty()) {
+				inProgress.add(submit(pool, chunk, writers));
+			}
+			while (!inProgress.isEmpty()) {
+				sentences += write(inProgress.poll().get(), writers);
+			}
+		} finally {
+			pool.shutdownNow();
+			for (Writer writer : writers) {
+				writer.close();
+			}
+		}
+
+		printProgress(readBytes, abstracts, sentences, System.currentTimeMillis() - start);
+		System.out.println("Done. " + abstracts + " abstracts split into " + sentences + " sentences, " + skipped + " lines skipped.");
+		return 0;
+	}
+
+
+	private Writer[] openWriters() throws IOException {
+		int count = shards > 0 ? shards : 1;
+		Writer[] writers = new Writer[count];
+		for (int i = 0; i < count; i++) {
+			Path path = shards > 0 ? Paths.get(String.format(Locale.ROOT, "%s.%05d", outfile, i)) : Paths.get(outfile);
+			writers[i] = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+			writers[i].write(HEADER);
+			writers[i].write(System.lineSeparator());
+		}
+		return writers;
+	}
+
+
+	// split chunk into sentences; with shards the worker writes the chunk itself and returns only the count
+	private Future<SplitChunk> submit(ExecutorService pool, Chunk chunk, Writer[] writers) {
+		return pool.submit(() -> {
+			List<List<Sentence>> chunkSentences = PublicationGraphDatabase.splitSentences(chunk.texts, 1);
+
+			List<String> lines = new ArrayList<>();
+			for (int i = 0; i < chunk.dois.size(); i++) {
+				for (Sentence sentence : chunkSentences.get(i)) {
+					lines.add(chunk.dois.get(i) + "\t" + sentence.index + "\t" + sentence.text);
+				}
+			}
+
+			if (shards > 0) {
+				Writer writer = writers[(int) (chunk.number % shards)];
+				synchronized (writer) {
+					writeLines(lines, writer);
+				}
+				return new SplitChunk(null, lines.size());
 			}
+			return new SplitChunk(lines, lines.size());
+		});
+	}
+
 
-		} catch(Exception e) {
-			throw new IOException();
+	// write lines of a finished chunk to the single output file, return number of sentences
+	private static int write(SplitChunk chunk, Writer[] writers) throws IOException {
+		if (chunk.lines != null) {
+			writeLines(chunk.lines, writers[0]);
 		}
-	}				
-	
-	
-	private static StanfordCoreNLP pipeline;
-
-	static {
-		Properties props = new Properties();
-		props.setProperty("annotators", "tokenize,ssplit");
-		pipeline = new StanfordCoreNLP(props);
+		return chunk.sentences;
 	}
 
-	public static List<Sentence> splitSentences(String text) {
-		CoreDocument coreDocument = pipeline.processToCoreDocument(text);
-		List<Sentence> sentences = new LinkedList<>();
-		int index = 1;
-		for (CoreSentence coreSentence : coreDocument.sentences()) {
-			Sentence sentence = new Sentence();
-			sentence.index = index++;
-			sentence.text = coreSentence.text();
-			sentence.tokens = coreSentence.tokens().stream().map(t -> t.originalText()).collect(Collectors.toList());
-			sentences.add(sentence);
+
+	private static void writeLines(List<String> lines, Writer writer) throws IOException {
+		for (String line : lines) {
+			writer.write(line);
+			writer.write(System.lineSeparator());
 		}
+	}
+
+
+	// number of bytes of a string encoded in UTF-8, without encoding it
+	private static int getUTF8Length(String text) {
+		int length = text.length();
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c >= 0x800) {
+				// 3 bytes, or 4 bytes for a surrogate pair
+				length += Character.isSurrogate(c) ? 1 : 2;
+			} else if (c >= 0x80) {
+				length += 1;
+			}
+		}
+		return length;
+	}
 
-		return sentences;
+
+	private static void printProgress(long readBytes, long abstracts, long sentences, long elapsedMs) {
+		double readMB = readBytes / 1024.0 / 1024.0;
+		double seconds = Math.max(1, elapsedMs) / 1000.0;
+		System.out.println(String.format(Locale.ROOT, "%.1f MB read (%.2f MB/s), %d abstracts read, %d sentences written.",
+				readMB, readMB / seconds, abstracts, sentences));
+	}
+
+
+	public static List<Sentence> splitSentences(String text) {
+		return PublicationGraphDatabase.splitSentences(Arrays.asList(text), 1).get(0);
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		int exitCode = new CommandLine(new SplitAbstractText()).execute(args);
+		System.exit(exitCode);
 	}
 }
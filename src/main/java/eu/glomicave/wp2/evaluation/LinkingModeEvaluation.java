@@ -0,0 +1,107 @@
+/* Compare recall and throughput of the parser-based and the gazetteer linking of sentences to lexical forms. */
+
+package eu.glomicave.wp2.evaluation;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+import eu.glomicave.data_import.extract_entities.ExtractEntities;
+import eu.glomicave.data_import.extract_entities.LexicalFormMatcher;
+
+/**
+ * Usage: LinkingModeEvaluation <lexical forms file> [sentences file] [max sentences]
+ *
+ * The lexical forms file has one lexical form per line. The sentences file is a TSV file with header and
+ * columns doi, sentence index, sentence (as written by SplitAbstractText).
+ *
+ * Links found by the parser-based mode are taken as reference: the recall of the gazetteer mode is the share of them
+ * also found by the gazetteer, links found only by the gazetteer are counted separately.
+ */
+public class LinkingModeEvaluation {
+
+	private static final String DEFAULT_SENTENCES_FILE = "./data/extract_entities/abstract_sentences.txt";
+	private static final int DEFAULT_MAX_SENTENCES = 1000;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: LinkingModeEvaluation <lexical forms file> [sentences file] [max sentences]");
+			return;
+		}
+		String sentencesFile = args.length > 1 ? args[1] : DEFAULT_SENTENCES_FILE;
+		int maxSentences = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_SENTENCES;
+
+		List<String> lexicalForms = new ArrayList<>();
+		try (BufferedReader br = new BufferedReader(new FileReader(args[0]))) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				if (!line.trim().isEmpty()) {
+					lexicalForms.add(line.trim());
+				}
+			}
+		}
+
+		long start = System.nanoTime();
+		LexicalFormMatcher matcher = new LexicalFormMatcher(lexicalForms);
+		// the trie is otherwise built lazily on the first match and counted in the matching time
+		matcher.buildTrie();
+		long buildMillis = (System.nanoTime() - start) / 1000000;
+		System.out.println(String.format(Locale.ROOT, "Lexical forms: %d, trie nodes: %d, built in %d ms.",
+				matcher.size(), matcher.getTrieSize(), buildMillis));
+
+		List<String> sentences = new ArrayList<>();
+		for (List<String> record : ExtractEntities.readAbstractSentences(sentencesFile)) {
+			if (record.size() > 2 && sentences.size() < maxSentences) {
+				sentences.add(record.get(2));
+			}
+		}
+
+		// warm up parser pipeline, so that its loading time is not counted
+		ExtractEntities.extractNamedEntities("The pipeline is loaded.");
+
+		long parserNanos = 0;
+		long gazetteerNanos = 0;
+		long parserLinks = 0;
+		long gazetteerLinks = 0;
+		long commonLinks = 0;
+
+		for (String sentence : sentences) {
+			start = System.nanoTime();
+			HashSet<String> parserForms = getLinkedForms(matcher.matchCandidates(ExtractEntities.extractNamedEntities(sentence)));
+			parserNanos += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			HashSet<String> gazetteerForms = getLinkedForms(matcher.matchText(sentence));
+			gazetteerNanos += System.nanoTime() - start;
+
+			parserLinks += parserForms.size();
+			gazetteerLinks += gazetteerForms.size();
+			for (String form : gazetteerForms) {
+				if (parserForms.contains(form)) {
+					commonLinks++;
+				}
+			}
+		}
+
+		System.out.println("Sentences: " + sentences.size());
+		System.out.println(String.format(Locale.ROOT, "%-10s %10s %12s %14s", "mode", "links", "total [ms]", "sentences/s"));
+		System.out.println(String.format(Locale.ROOT, "%-10s %10d %12d %14.1f", "parser", parserLinks, parserNanos / 1000000,
+				sentences.size() / (parserNanos / 1e9)));
+		System.out.println(String.format(Locale.ROOT, "%-10s %10d %12d %14.1f", "gazetteer", gazetteerLinks, gazetteerNanos / 1000000,
+				sentences.size() / (gazetteerNanos / 1e9)));
+		System.out.println(String.format(Locale.ROOT, "Recall of gazetteer w.r.t. parser links: %.3f (%d / %d)",
+				parserLinks > 0 ? (double) commonLinks / parserLinks : 1.0, commonLinks, parserLinks));
+		System.out.println("Links found only by gazetteer: " + (gazetteerLinks - commonLinks));
+	}
+
+	private static HashSet<String> getLinkedForms(List<LexicalFormMatcher.Match> matches) {
+		HashSet<String> forms = new HashSet<>();
+		for (LexicalFormMatcher.Match match : matches) {
+			forms.add(match.toString());
+		}
+		return forms;
+	}
+}
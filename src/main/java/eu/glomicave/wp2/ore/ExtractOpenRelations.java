@@ -0,0 +1,315 @@
+package eu.glomicave.wp2.ore;
+
+/**
+ * This script extracts open relations from the sentences of the knowledge graph and integrates them into the graph
+ */
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.neo4j.driver.Record;
+
+import edu.stanford.nlp.ie.util.RelationTriple;
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.naturalli.NaturalLogicAnnotations;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.CoreMap;
+import eu.glomicave.config.GlobalParamsConfig;
+import eu.glomicave.data_import.extract_entities.CoreNLPPipelinePool;
+import eu.glomicave.data_import.extract_entities.CoreNLPUtils;
+import eu.glomicave.persistence.CoreGraphDatabase;
+import eu.glomicave.persistence.PredefinedCategories;
+import eu.glomicave.persistence.UnitOfWork;
+
+/**
+ * Runs Stanford OpenIE over the SENTENCE nodes of the graph and loads the extracted triples as facts,
+ * without writing them into a CSV file first.
+ *
+ * The uids and texts of the sentences are read in pages of {@link GlobalParamsConfig#NODE_BATCH_SIZE} sentences,
+ * ordered by uid, and at most twice as many sentences as annotation threads wait for annotation, so that the memory
+ * does not grow with the number of sentences. The sentences are annotated in parallel by
+ * {@link GlobalParamsConfig#MAX_POOL_SIZE} threads (pipelines from {@link CoreNLPPipelinePool}), the triples are
+ * passed to one writer thread through a bounded queue of {@link GlobalParamsConfig#FACT_QUEUE_SIZE} facts. The annotation of the next sentences overlaps with the
+ * graph writes of the previous ones, and annotation threads wait when the writer falls behind. The writer commits
+ * in transactions of {@link GlobalParamsConfig#TRANSACTION_BATCH_SIZE} write statements, and at least every
+ * {@link #COMMIT_INTERVAL_MS} ms. If the writer fails, the annotation threads stop and the failure is thrown.
+ *
+ * OpenIE triples have no polarity, modality or attribution: the polarity is 'NEGATIVE' if the relation holds
+ * a negation, the modality is 'POSSIBILITY' if the relation holds a modal verb of possibility, no attribution is set.
+ */
+public class ExtractOpenRelations {
+	private static final Logger logger = LogManager.getLogger(ExtractOpenRelations.class);
+
+	static final String TEXT_FIELD = "text";
+	static final int ABRIDGE_MAX_NUM = 100;
+
+	static final String POSITIVE = "POSITIVE";
+	static final String NEGATIVE = "NEGATIVE";
+	static final String CERTAINTY = "CERTAINTY";
+	static final String POSSIBILITY = "POSSIBILITY";
+
+	// max time in ms between two commits of the writer
+	static final long COMMIT_INTERVAL_MS = 1000;
+	// time in ms an annotation thread waits for a free place in the queue before checking the writer again
+	static final long OFFER_TIMEOUT_MS = 1000;
+
+	// marks the end of the stream of facts
+	private static final ExtractedFact END = new ExtractedFact(null, null, null, null, null, null);
+
+
+	/**
+	 * Fact extracted from a sentence, as passed to the writer thread.
+	 */
+	static class ExtractedFact {
+		final String subject;
+		final String relation;
+		final String object;
+		final String polarity;
+		final String modality;
+		final String sentenceUID;
+
+		ExtractedFact(String subject, String relation, String object, String polarity, String modality, String sentenceUID) {
+			this.subject = subject;
+			this.relation = relation;
+			this.object = object;
+			this.polarity = polarity;
+			this.modality = modality;
+			this.sentenceUID = sentenceUID;
+		}
+	}
+
+
+	/**
+	 * Extracts OpenIE facts from all sentence nodes of the graph database and loads them into the graph.
+	 *
+	 * @param abridge - if True, process only first 100 sentences for the test.
+	 */
+	public static void addOpenRelationsFromSentences(boolean abridge) throws Exception {
+		int[] counts = IntegrateOpenRelations.countFactGraph();
+
+		logger.info("Extracting OpenIE relations from {} sentences.", CoreGraphDatabase.countNodeType(PredefinedCategories.SENTENCE.toString()));
+
+		BlockingQueue<ExtractedFact> queue = new ArrayBlockingQueue<>(Math.max(1, GlobalParamsConfig.FACT_QUEUE_SIZE));
+		AtomicLong sentences = new AtomicLong();
+		AtomicLong extracted = new AtomicLong();
+		AtomicLong written = new AtomicLong();
+		AtomicLong skipped = new AtomicLong();
+		AtomicReference<Throwable> writerFailure = new AtomicReference<>();
+
+		// Writer: single thread loading the facts into the graph
+		Thread writer = new Thread(() -> {
+			// the facts are written in batches of transactions, committed by size (in the unit of work) or by time
+			try (UnitOfWork work = CoreGraphDatabase.beginUnitOfWork()) {
+				long lastCommit = System.nanoTime();
+				while (true) {
+					ExtractedFact fact = queue.poll(COMMIT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+					if (fact == null || System.nanoTime() - lastCommit > TimeUnit.MILLISECONDS.toNanos(COMMIT_INTERVAL_MS)) {
+						work.commit();
+						lastCommit = System.nanoTime();
+					}
+					if (fact == null) {
+						continue;
+					}
+					if (fact == END) {
+						return;
+					}
+					try {
+						if (IntegrateOpenRelations.addFact(fact.subject, fact.relation, fact.object, fact.polarity,
+								fact.modality, null, fact.sentenceUID)) {
+							if (written.incrementAndGet() % 100 == 0) {
+								logger.info("{} facts written, {} facts in queue.", written.get(), queue.size());
+							}
+						} else {
+							skipped.incrementAndGet();
+						}
+					} catch (Exception e) {
+						skipped.incrementAndGet();
+						logger.error("Error writing fact '{}/{}/{}'.", fact.subject, fact.relation, fact.object, e);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				writerFailure.set(e);
+			} catch (RuntimeException | Error e) {
+				// e.g. failed commit, the facts of the transaction are lost
+				writerFailure.set(e);
+				logger.error("Fact writer failed.", e);
+			}
+		}, "fact-writer");
+		writer.start();
+
+		// Readers: OpenIE annotation of the sentences
+		CoreNLPPipelinePool pipelines = CoreNLPPipelinePool.get(CoreNLPUtils.PROFILE_OIE);
+		int threads = Math.max(1, GlobalParamsConfig.MAX_POOL_SIZE);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		// sentences submitted and not annotated yet
+		Semaphore pending = new Semaphore(2 * threads);
+		int submitted = 0;
+		String lastUID = null;
+		try {
+			pages:
+			while (writer.isAlive()) {
+				List<Record> page = CoreGraphDatabase.getNodePropertiesByLabel(PredefinedCategories.SENTENCE.toString(), lastUID,
+						Math.max(1, GlobalParamsConfig.NODE_BATCH_SIZE), TEXT_FIELD);
+				if (page == null) {
+					throw new Exception("Error reading sentences after uid '" + lastUID + "'.");
+				}
+				if (page.isEmpty()) {
+					break;
+				}
+				for (Record record : page) {
+					lastUID = record.get(IntegrateOpenRelations.UID_FIELD).asString();
+					if (abridge && submitted >= ABRIDGE_MAX_NUM) {
+						logger.info("! Shortened pipeline. Only {} sentences can be processed !", submitted);
+						break pages;
+					}
+					String sentenceUID = lastUID;
+					String text = record.get(TEXT_FIELD).asString(null);
+					if (text == null || text.trim().isEmpty()) {
+						continue;
+					}
+					pending.acquire();
+					pool.execute(() -> {
+						try {
+							annotate(sentenceUID, text, pipelines, queue, writer, sentences, extracted);
+						} finally {
+							pending.release();
+						}
+					});
+					submitted++;
+				}
+			}
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+			writer.interrupt();
+			Thread.currentThread().interrupt();
+			throw new Exception("Interrupted while extracting facts from sentences.", e);
+		} catch (Exception e) {
+			pool.shutdownNow();
+			writer.interrupt();
+			throw e;
+		}
+
+		pool.shutdown();
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+			enqueue(queue, END, writer);
+			writer.join();
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+			writer.interrupt();
+			Thread.currentThread().interrupt();
+			throw new Exception("Interrupted while extracting facts from sentences.", e);
+		}
+		if (writerFailure.get() != null) {
+			throw new Exception("Fact writer failed after " + written.get() + " facts.", writerFailure.get());
+		}
+
+		logger.info("Fact extraction finished. {} sentences processed, {} OpenIE triples extracted, {} facts written, {} skipped.",
+				sentences.get(), extracted.get(), written.get(), skipped.get());
+		CoreNLPPipelinePool.logStatistics();
+
+		IntegrateOpenRelations.logAddedFactGraph(counts);
+	}
+
+
+	/**
+	 * Extracts the OpenIE triples of a sentence and puts them into the queue of the writer.
+	 *
+	 * @param sentenceUID - uid of the sentence node
+	 * @param text - text of the sentence
+	 * @param pipelines - pool of OpenIE pipelines
+	 * @param queue - queue of the writer
+	 * @param writer - writer thread
+	 * @param sentences - count of annotated sentences
+	 * @param extracted - count of extracted triples
+	 */
+	private static void annotate(String sentenceUID, String text, CoreNLPPipelinePool pipelines, BlockingQueue<ExtractedFact> queue,
+			Thread writer, AtomicLong sentences, AtomicLong extracted) {
+		if (!writer.isAlive()) {
+			return;
+		}
+		StanfordCoreNLP pipeline = pipelines.borrow();
+		try {
+			Annotation document = new Annotation(text);
+			pipeline.annotate(document);
+			for (CoreMap sentence : document.get(SentencesAnnotation.class)) {
+				for (RelationTriple triple : sentence.get(NaturalLogicAnnotations.RelationTriplesAnnotation.class)) {
+					if (!enqueue(queue, toFact(triple, sentenceUID), writer)) {
+						// the failure of the writer is thrown once all annotation threads are done
+						return;
+					}
+					extracted.incrementAndGet();
+				}
+			}
+			sentences.incrementAndGet();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			logger.error("Error extracting facts from sentence '{}'.", sentenceUID, e);
+		} finally {
+			pipelines.release(pipeline);
+		}
+	}
+
+
+	/**
+	 * Put a fact into the queue of the writer, waiting while the queue is full and the writer is running.
+	 *
+	 * @param queue - queue of the writer
+	 * @param fact
+	 * @param writer - writer thread
+	 * @return false if the writer stopped, the fact is not queued then
+	 * @throws InterruptedException
+	 */
+	static boolean enqueue(BlockingQueue<ExtractedFact> queue, ExtractedFact fact, Thread writer) throws InterruptedException {
+		while (!queue.offer(fact, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+			if (!writer.isAlive()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Converts an OpenIE triple into a fact.
+	 *
+	 * @param triple - OpenIE triple
+	 * @param sentenceUID - uid of the sentence node the triple was extracted from
+	 * @return fact
+	 */
+	static ExtractedFact toFact(RelationTriple triple, String sentenceUID) {
+		String polarity = POSITIVE;
+		String modality = CERTAINTY;
+		for (CoreLabel token : triple.relation) {
+			String word = token.lemma() != null ? token.lemma() : token.word();
+			switch (word.toLowerCase()) {
+				case "not":
+				case "n't":
+				case "no":
+				case "never":
+					polarity = NEGATIVE;
+					break;
+				case "may":
+				case "might":
+				case "can":
+				case "could":
+					modality = POSSIBILITY;
+					break;
+			}
+		}
+		return new ExtractedFact(triple.subjectGloss(), triple.relationGloss(), triple.objectGloss(), polarity, modality, sentenceUID);
+	}
+}
@@ -9,6 +9,8 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -55,137 +57,76 @@ public class IntegrateOpenRelations {
 	 * @param s3filekey		path to the S3 object.
 	 */
 	public static void addOpenRelationsFromS3CSV(boolean abridge, String s3filekey) throws IOException {
-		int processed = 0;	
-		String[] fields;
-		
-		int factNodesCounts = CoreGraphDatabase.countNodeType(FACT);
-		int attributionNodesCounts = CoreGraphDatabase.countNodeType(ATTRIBUTION);
-		int modalityNodeCounts = CoreGraphDatabase.countNodeType(MODALITY);
-		int polarityNodeCounts = CoreGraphDatabase.countNodeType(POLARITY);
-		
-		int hasFactCounts = CoreGraphDatabase.countRelationType(HAS_FACT);
-		int factAppearsInCounts = CoreGraphDatabase.countRelationType(FACT_APPEARS_IN);
-		int hasAttributionCounts = CoreGraphDatabase.countRelationType(HAS_ATTRIBUTION);
-		int hasModalityCounts = CoreGraphDatabase.countRelationType(HAS_MODALITY);
-		int hasPolarityCounts = CoreGraphDatabase.countRelationType(HAS_POLARITY);
+		int[] counts = countFactGraph();
 		
 		logger.info("Loading OpenIE relations from S3 object '{}'.", s3filekey);
 		
+		// the facts are written in batches of transactions
 		try {
-			CSVReader csvReader = new CSVReaderBuilder(new InputStreamReader(AmazonS3.readFileUsingS3Client(s3filekey)))
-					//.withCSVParser(new CSVParserBuilder().withSeparator('\t').build())
-	                .build();
-			
-			fields = csvReader.readNext(); // skip header
-			while (fields != null) {
-				if (abridge && processed > 100) {
-					break;
-				}
-				
-				try {
-					fields = csvReader.readNext();
-					if (fields == null || fields.length < COLS_NUMBER) {
-						continue;
-					}				
-					String subject = fields[0];
-					String relation = fields[1];
-					String object = fields[2];
-					String polarity = fields[3];
-					String modality = fields[4];
-					String attribution = fields[5];
-					String sentenceUID = fields[7];
-
-					Node lexicalFormNodeSubj = OpenRelationsGraphDatabase.getLexicalFormNode(subject);
-					Node lexicalFormNodeObj = OpenRelationsGraphDatabase.getLexicalFormNode(object);
-						
-					// Add fact node only if subject is different from object to exclude self-loops
-					//if (lexicalFormNodeSubj != null && lexicalFormNodeObj != null && lexicalFormNodeSubj.id() == lexicalFormNodeObj.id()) continue;
-					if (lexicalFormNodeSubj != null && lexicalFormNodeObj != null 
-							&& lexicalFormNodeSubj.get(UID_FIELD) == lexicalFormNodeObj.get(UID_FIELD)) {
-						continue;
-					}
-					
-					Node factNode = OpenRelationsGraphDatabase.addFactNode(subject, relation, object, polarity, modality, attribution);
-					
-					// Add connections to fact node
-					if (lexicalFormNodeSubj != null) {
-						OpenRelationsGraphDatabase.addLexicalFormToFactConnection(lexicalFormNodeSubj, factNode);
-					}				
-					if (lexicalFormNodeObj != null) {
-						OpenRelationsGraphDatabase.addLexicalFormToFactConnection(lexicalFormNodeObj, factNode);
-					}				
-					
-					// Connect subject and object nodes with bidirectional relation OIE_RELATED_WITH
-					if ((lexicalFormNodeSubj != null) && (lexicalFormNodeObj != null)) {
-						OpenRelationsGraphDatabase.addSubjectObjectConnection(lexicalFormNodeSubj, lexicalFormNodeObj);
-					}
-					
-					// Add polarity node
-					Node polarityNode = OpenRelationsGraphDatabase.addPolarityNode(polarity);
-					OpenRelationsGraphDatabase.addFactToPolarityConnection(factNode, polarityNode);				
-					
-					// Add modality node
-					Node modalityNode = OpenRelationsGraphDatabase.addModalityNode(modality); 
-					OpenRelationsGraphDatabase.addFactToModalityConnection(factNode, modalityNode);				
-					
-					// Add attribution node and links
-					if(attribution != null && !attribution.trim().isEmpty()) {
-						Node attributionNode = OpenRelationsGraphDatabase.addAttributionNode(attribution);
-						OpenRelationsGraphDatabase.addFactToAttributionConnection(factNode, attributionNode);	
-					}				
-					
-					// Add connection to sentence
-					Node sentenceNode = OpenRelationsGraphDatabase.getSentenceNode(sentenceUID);
-					if (sentenceNode != null) {
-						OpenRelationsGraphDatabase.addFactToSentenceConnection(factNode, sentenceNode);
-					}
-					
-					processed++;
-					
-					logger.info("Record " + processed + " processed.");
-					
-				} catch(SocketException se) {
-					logger.error("Socket error. Trying to resume reading from line {}.", processed);
-					// reset connection
-					AmazonS3Config.getInstance().reconnect();
-					// resume reading from last processed line
-					csvReader = new CSVReader(new BufferedReader(new InputStreamReader(AmazonS3.readFileUsingS3Client(s3filekey))));
-					for (int i = 0; i <= processed; i++) {
-						csvReader.readNext();
-					}
-					continue;	
-					
-				} catch(Exception e1) {
-					logger.error("Error reading fact entry no. {} because of exception {}. Trying to resume.", processed, e1);
-					continue;
-				}
-			}
-			csvReader.close();
-			
+			CoreGraphDatabase.inUnitOfWork(() -> readFactsFromS3CSV(abridge, s3filekey));
 		} catch(Exception e2) {
 			logger.error("Error reading fact entries.", e2.getMessage(), e2);
 			throw new IOException();
 		}
 		
-		logger.info("Fact loading finished. {} OpenIE entries processed.", processed);
+		logAddedFactGraph(counts);
+	}
+	
+	private static void readFactsFromS3CSV(boolean abridge, String s3filekey) throws Exception {
+		int processed = 0;	
+		String[] fields;
 		
-		factNodesCounts = CoreGraphDatabase.countNodeType(FACT) - factNodesCounts;
-		attributionNodesCounts = CoreGraphDatabase.countNodeType(ATTRIBUTION) - attributionNodesCounts;
-		modalityNodeCounts = CoreGraphDatabase.countNodeType(MODALITY) - modalityNodeCounts;
-		polarityNodeCounts = CoreGraphDatabase.countNodeType(POLARITY) - polarityNodeCounts;
+		CSVReader csvReader = new CSVReaderBuilder(new InputStreamReader(AmazonS3.readFileUsingS3Client(s3filekey)))
+				//.withCSVParser(new CSVParserBuilder().withSeparator('\t').build())
+                .build();
 		
-		hasFactCounts = CoreGraphDatabase.countRelationType(HAS_FACT) - hasFactCounts;
-		factAppearsInCounts = CoreGraphDatabase.countRelationType(FACT_APPEARS_IN) - factAppearsInCounts;
-		hasAttributionCounts = CoreGraphDatabase.countRelationType(HAS_ATTRIBUTION) - hasAttributionCounts;
-		hasModalityCounts = CoreGraphDatabase.countRelationType(HAS_MODALITY) - hasModalityCounts;
-		hasPolarityCounts = CoreGraphDatabase.countRelationType(HAS_POLARITY) - hasPolarityCounts;
+		fields = csvReader.readNext(); // skip header
+		while (fields != null) {
+			if (abridge && processed > 100) {
+				break;
+			}
+			
+			try {
+				fields = csvReader.readNext();
+				if (fields == null || fields.length < COLS_NUMBER) {
+					continue;
+				}				
+				String subject = fields[0];
+				String relation = fields[1];
+				String object = fields[2];
+				String polarity = fields[3];
+				String modality = fields[4];
+				String attribution = fields[5];
+				String sentenceUID = fields[7];
+
+				if (!addFact(subject, relation, object, polarity, modality, attribution, 
+						OpenRelationsGraphDatabase.getSentenceNode(sentenceUID))) {
+					continue;
+				}
+				
+				processed++;
+				
+				logger.info("Record " + processed + " processed.");
+				
+			} catch(SocketException se) {
+				logger.error("Socket error. Trying to resume reading from line {}.", processed);
+				// reset connection
+				AmazonS3Config.getInstance().reconnect();
+				// resume reading from last processed line
+				csvReader = new CSVReader(new BufferedReader(new InputStreamReader(AmazonS3.readFileUsingS3Client(s3filekey))));
+				for (int i = 0; i <= processed; i++) {
+					csvReader.readNext();
+				}
+				continue;	
+				
+			} catch(Exception e1) {
+				logger.error("Error reading fact entry no. {} because of exception {}. Trying to resume.", processed, e1);
+				continue;
+			}
+		}
+		csvReader.close();
 		
-		logger.info("Added node types into Graph DB: "
-				+ "\n - {} facts, {} attributions, {} modalities, {} polarities."
-				+ "\nAdded relation types into Graph DB: : "
-				+ "\n - {} has_fact, {} fact_appears_in, {} has_attribution, {} has_modality, {} has_polarity.",
-				factNodesCounts, attributionNodesCounts, modalityNodeCounts, polarityNodeCounts, 
-				hasFactCounts, factAppearsInCounts, hasAttributionCounts, hasModalityCounts, hasPolarityCounts);
+		logger.info("Fact loading finished. {} OpenIE entries processed.", processed);
 	}
 	
 	
@@ -198,135 +139,193 @@ public class IntegrateOpenRelations {
 	 * @param filename		path to the file.
 	 */
 	public static void addOpenRelationsFromCSV(boolean abridge, String filename) throws Exception {
-		int processed = 0;
-		// count nodes
-		int factNodesCounts = CoreGraphDatabase.countNodeType(FACT);
-		int attributionNodesCounts = CoreGraphDatabase.countNodeType(ATTRIBUTION);
-		int modalityNodeCounts = CoreGraphDatabase.countNodeType(MODALITY);
-		int polarityNodeCounts = CoreGraphDatabase.countNodeType(POLARITY);
-		// count relations
-		int hasFactCounts = CoreGraphDatabase.countRelationType(HAS_FACT);
-		int factAppearsInCounts = CoreGraphDatabase.countRelationType(FACT_APPEARS_IN);
-		int hasAttributionCounts = CoreGraphDatabase.countRelationType(HAS_ATTRIBUTION);
-		int hasModalityCounts = CoreGraphDatabase.countRelationType(HAS_MODALITY);
-		int hasPolarityCounts = CoreGraphDatabase.countRelationType(HAS_POLARITY);
+		// count nodes and relations
+		int[] counts = countFactGraph();
 		
 		logger.info("Loading phenotypic traits from file: '{}'.", filename);
 		
+		// the facts are written in batches of transactions
 		try {
-			// count number of lines
-			BufferedReader bufferedReader = new BufferedReader(new FileReader(filename));
-			String input = "";
-			int count = 0;
-			while((input = bufferedReader.readLine()) != null) {
-			     count++;
-			}
-			bufferedReader.close();
-			logger.info("{} lines found.", count);
-
-			// read file as CSV and parse the data
-	    	CSVReader csvReader = new CSVReader(new FileReader(filename));
-			// skip header
-			String[] fields = csvReader.readNext(); 
-			while (fields != null) {
-				try {
-					fields = csvReader.readNext();
-					if (fields == null || fields.length < COLS_NUMBER) {
-						continue;
-					}
-					String subject = fields[0];
-					String relation = fields[1];
-					String object = fields[2];
-					String polarity = fields[3];
-					String modality = fields[4];
-					String attribution = fields[5];
-					String sentenceUID = fields[7];
-
-					Node lexicalFormNodeSubj = OpenRelationsGraphDatabase.getLexicalFormNode(subject);
-					Node lexicalFormNodeObj = OpenRelationsGraphDatabase.getLexicalFormNode(object);
-						
-					// Add fact node only if subject is different from object to exclude self-loops
-					//if (lexicalFormNodeSubj != null && lexicalFormNodeObj != null && lexicalFormNodeSubj.id() == lexicalFormNodeObj.id()) continue;
-					if (lexicalFormNodeSubj != null && lexicalFormNodeObj != null 
-							&& lexicalFormNodeSubj.get(UID_FIELD) == lexicalFormNodeObj.get(UID_FIELD)) {
-						continue;
-					}
-					
-					Node factNode = OpenRelationsGraphDatabase.addFactNode(subject, relation, object, polarity, modality, attribution);
-					
-					// Add connections to fact node
-					if (lexicalFormNodeSubj != null) {
-						OpenRelationsGraphDatabase.addLexicalFormToFactConnection(lexicalFormNodeSubj, factNode);
-					}				
-					if (lexicalFormNodeObj != null) {
-						OpenRelationsGraphDatabase.addLexicalFormToFactConnection(lexicalFormNodeObj, factNode);
-					}				
-					
-					// Connect subject and object nodes with bidirectional relation OIE_RELATED_WITH
-					if ((lexicalFormNodeSubj != null) && (lexicalFormNodeObj != null)) {
-						OpenRelationsGraphDatabase.addSubjectObjectConnection(lexicalFormNodeSubj, lexicalFormNodeObj);
-					}
-					
-					// Add polarity node
-					Node polarityNode = OpenRelationsGraphDatabase.addPolarityNode(polarity);
-					OpenRelationsGraphDatabase.addFactToPolarityConnection(factNode, polarityNode);				
-					
-					// Add modality node
-					Node modalityNode = OpenRelationsGraphDatabase.addModalityNode(modality); 
-					OpenRelationsGraphDatabase.addFactToModalityConnection(factNode, modalityNode);				
-					
-					// Add attribution node and links
-					if(attribution != null && !attribution.trim().isEmpty()) {
-						Node attributionNode = OpenRelationsGraphDatabase.addAttributionNode(attribution);
-						OpenRelationsGraphDatabase.addFactToAttributionConnection(factNode, attributionNode);	
-					}				
-					
-					// Add connection to sentence
-					Node sentenceNode = OpenRelationsGraphDatabase.getSentenceNode(sentenceUID);
-					if (sentenceNode != null) {
-						OpenRelationsGraphDatabase.addFactToSentenceConnection(factNode, sentenceNode);
-					}
-					
-					processed++;
-					
-					if (processed % 10 == 0) {
-						logger.info("Record " + processed + " processed.");
-					}
-					
-					if (abridge && processed > 100) {
-						break;
-					}
-				} catch(IOException e1) {
-					logger.error("Error reading fact record no. {}.", processed);
-					continue;
-				}
-			} 	
-			// close file
-			csvReader.close();	
+			CoreGraphDatabase.inUnitOfWork(() -> readFactsFromCSV(abridge, filename));
 		} catch(Exception e2) {
 			 logger.error("Error reading file with fact records due to exception: {}.", e2.getMessage());
 			 throw new Exception("Errors while loading facts, see the log history.");
 		}
 		
+		logAddedFactGraph(counts);
+	}
+	
+	private static void readFactsFromCSV(boolean abridge, String filename) throws Exception {
+		int processed = 0;
+		
+		// count number of lines
+		BufferedReader bufferedReader = new BufferedReader(new FileReader(filename));
+		String input = "";
+		int count = 0;
+		while((input = bufferedReader.readLine()) != null) {
+		     count++;
+		}
+		bufferedReader.close();
+		logger.info("{} lines found.", count);
+
+		// read file as CSV and parse the data
+    	CSVReader csvReader = new CSVReader(new FileReader(filename));
+		// skip header
+		String[] fields = csvReader.readNext(); 
+		while (fields != null) {
+			try {
+				fields = csvReader.readNext();
+				if (fields == null || fields.length < COLS_NUMBER) {
+					continue;
+				}
+				String subject = fields[0];
+				String relation = fields[1];
+				String object = fields[2];
+				String polarity = fields[3];
+				String modality = fields[4];
+				String attribution = fields[5];
+				String sentenceUID = fields[7];
+
+				if (!addFact(subject, relation, object, polarity, modality, attribution, 
+						OpenRelationsGraphDatabase.getSentenceNode(sentenceUID))) {
+					continue;
+				}
+				
+				processed++;
+				
+				if (processed % 10 == 0) {
+					logger.info("Record " + processed + " processed.");
+				}
+				
+				if (abridge && processed > 100) {
+					break;
+				}
+			} catch(IOException e1) {
+				logger.error("Error reading fact record no. {}.", processed);
+				continue;
+			}
+		} 	
+		// close file
+		csvReader.close();
+		
 		logger.info("Fact loading finished. {} fact records processed.", processed);
+	}
+
+	
+	/**
+	 * Adds one OpenIE fact into graph database: the fact node, its polarity, modality and attribution nodes, 
+	 * and its links to the lexical forms of subject and object and to the sentence it was extracted from.
+	 * Facts whose subject and object are the same lexical form are skipped.
+	 * 
+	 * @param subject - subject of the fact
+	 * @param relation - relation of the fact
+	 * @param object - object of the fact
+	 * @param polarity - 'POSITIVE' or 'NEGATIVE'
+	 * @param modality - 'CERTAINTY' or 'POSSIBILITY'
+	 * @param attribution - attribution of the fact (may be null or empty)
+	 * @param sentenceNode - sentence node of the fact (may be null)
+	 * @return true if the fact was added, false if it is a self-loop
+	 */
+	public static boolean addFact(String subject, String relation, String object, String polarity, String modality, 
+			String attribution, Node sentenceNode) {
+		return addFact(subject, relation, object, polarity, modality, attribution, 
+				sentenceNode != null ? sentenceNode.get(UID_FIELD).asString() : null);
+	}
+	
+	/**
+	 * Adds one OpenIE fact into graph database, see {@link #addFact(String, String, String, String, String, String, Node)}.
+	 * 
+	 * @param sentenceUID - uid of the sentence node of the fact (may be null)
+	 * @return true if the fact was added, false if it is a self-loop
+	 */
+	public static boolean addFact(String subject, String relation, String object, String polarity, String modality, 
+			String attribution, String sentenceUID) {
+		Node lexicalFormNodeSubj = OpenRelationsGraphDatabase.getLexicalFormNode(subject);
+		Node lexicalFormNodeObj = OpenRelationsGraphDatabase.getLexicalFormNode(object);
+			
+		// Add fact node only if subject is different from object to exclude self-loops
+		if (lexicalFormNodeSubj != null && lexicalFormNodeObj != null 
+				&& lexicalFormNodeSubj.get(UID_FIELD).equals(lexicalFormNodeObj.get(UID_FIELD))) {
+			return false;
+		}
+		
+		Node factNode = OpenRelationsGraphDatabase.addFactNode(subject, relation, object, polarity, modality, attribution);
+		
+		// Add connections to fact node
+		List<Node> lexicalFormNodes = new ArrayList<>();
+		if (lexicalFormNodeSubj != null) {
+			lexicalFormNodes.add(lexicalFormNodeSubj);
+		}				
+		if (lexicalFormNodeObj != null) {
+			lexicalFormNodes.add(lexicalFormNodeObj);
+		}				
+		if (!lexicalFormNodes.isEmpty()) {
+			OpenRelationsGraphDatabase.addLexicalFormsToFactConnections(lexicalFormNodes, factNode);
+		}
+		
+		// Connect subject and object nodes with bidirectional relation OIE_RELATED_WITH
+		if ((lexicalFormNodeSubj != null) && (lexicalFormNodeObj != null)) {
+			OpenRelationsGraphDatabase.addSubjectObjectConnection(lexicalFormNodeSubj, lexicalFormNodeObj);
+		}
+		
+		// Add polarity node
+		Node polarityNode = OpenRelationsGraphDatabase.addPolarityNode(polarity);
+		OpenRelationsGraphDatabase.addFactToPolarityConnection(factNode, polarityNode);				
+		
+		// Add modality node
+		Node modalityNode = OpenRelationsGraphDatabase.addModalityNode(modality); 
+		OpenRelationsGraphDatabase.addFactToModalityConnection(factNode, modalityNode);				
 		
-		factNodesCounts = CoreGraphDatabase.countNodeType(FACT) - factNodesCounts;
-		attributionNodesCounts = CoreGraphDatabase.countNodeType(ATTRIBUTION) - attributionNodesCounts;
-		modalityNodeCounts = CoreGraphDatabase.countNodeType(MODALITY) - modalityNodeCounts;
-		polarityNodeCounts = CoreGraphDatabase.countNodeType(POLARITY) - polarityNodeCounts;
+		// Add attribution node and links
+		if(attribution != null && !attribution.trim().isEmpty()) {
+			Node attributionNode = OpenRelationsGraphDatabase.addAttributionNode(attribution);
+			OpenRelationsGraphDatabase.addFactToAttributionConnection(factNode, attributionNode);	
+		}				
 		
-		hasFactCounts = CoreGraphDatabase.countRelationType(HAS_FACT) - hasFactCounts;
-		factAppearsInCounts = CoreGraphDatabase.countRelationType(FACT_APPEARS_IN) - factAppearsInCounts;
-		hasAttributionCounts = CoreGraphDatabase.countRelationType(HAS_ATTRIBUTION) - hasAttributionCounts;
-		hasModalityCounts = CoreGraphDatabase.countRelationType(HAS_MODALITY) - hasModalityCounts;
-		hasPolarityCounts = CoreGraphDatabase.countRelationType(HAS_POLARITY) - hasPolarityCounts;
+		// Add connection to sentence
+		if (sentenceUID != null) {
+			OpenRelationsGraphDatabase.addFactToSentenceConnection(factNode, sentenceUID);
+		}
+		
+		return true;
+	}
+
+	
+	/**
+	 * Counts the nodes and relations of the fact graph.
+	 * 
+	 * @return counts of facts, attributions, modalities, polarities and of relations
+	 * has_fact, fact_appears_in, has_attribution, has_modality, has_polarity
+	 */
+	static int[] countFactGraph() {
+		return new int[] {
+				CoreGraphDatabase.countNodeType(FACT),
+				CoreGraphDatabase.countNodeType(ATTRIBUTION),
+				CoreGraphDatabase.countNodeType(MODALITY),
+				CoreGraphDatabase.countNodeType(POLARITY),
+				CoreGraphDatabase.countRelationType(HAS_FACT),
+				CoreGraphDatabase.countRelationType(FACT_APPEARS_IN),
+				CoreGraphDatabase.countRelationType(HAS_ATTRIBUTION),
+				CoreGraphDatabase.countRelationType(HAS_MODALITY),
+				CoreGraphDatabase.countRelationType(HAS_POLARITY)};
+	}
+	
+	/**
+	 * Logs the number of nodes and relations added to the fact graph.
+	 * 
+	 * @param counts - counts before loading, see {@link #countFactGraph()}
+	 */
+	static void logAddedFactGraph(int[] counts) {
+		int[] added = countFactGraph();
+		for (int i = 0; i < added.length; i++) {
+			added[i] -= counts[i];
+		}
 		
 		logger.info("Added node types to the graph DB: "
 				+ "\n - {} facts, {} attributions, {} modalities, {} polarities."
-				+ "\nAdded relation types to the graph DB: : "
+				+ "\nAdded relation types to the graph DB: "
 				+ "\n - {} has_fact, {} fact_appears_in, {} has_attribution, {} has_modality, {} has_polarity.",
-				factNodesCounts, attributionNodesCounts, modalityNodeCounts, polarityNodeCounts, 
-				hasFactCounts, factAppearsInCounts, hasAttributionCounts, hasModalityCounts, hasPolarityCounts);
+				added[0], added[1], added[2], added[3], 
+				added[4], added[5], added[6], added[7], added[8]);
 	}
 }
-
@@ -37,7 +37,7 @@ public class CompressGraph {
 				Node l = record.get("l").asNode();
 				Relationship r = record.get("r").asRelationship();
 				//CoreGraphDatabase.createRelationship(l.id(), newNode.id(), r.type());
-				CoreGraphDatabase.createRelationship(l.get(UID_FIELD).asString(), newNode.get(UID_FIELD).asString(), r.type());
+				CoreGraphDatabase.createRelationship(l, newNode, r.type());
 			}
 
 			Node m = newNodeRecord.get("m").asNode();
@@ -46,13 +46,13 @@ public class CompressGraph {
 				Node l = record.get("l").asNode();
 				Relationship r = record.get("r").asRelationship();
 				//CoreGraphDatabase.createRelationship(l.id(), newNode.id(), r.type());
-				CoreGraphDatabase.createRelationship(l.get(UID_FIELD).asString(), newNode.get(UID_FIELD).asString(), r.type());
+				CoreGraphDatabase.createRelationship(l, newNode, r.type());
 			}
 
 			//CoreGraphDatabase.deleteNodeAndRelationshipsByNodeId(n.id());
 			//CoreGraphDatabase.deleteNodeAndRelationshipsByNodeId(m.id());
-			CoreGraphDatabase.deleteNodeAndRelationshipsByNodeId(n.get(UID_FIELD).asString());
-			CoreGraphDatabase.deleteNodeAndRelationshipsByNodeId(m.get(UID_FIELD).asString());
+			CoreGraphDatabase.deleteNodeAndRelationships(n);
+			CoreGraphDatabase.deleteNodeAndRelationships(m);
 		}
 
 		// remove relationship hierarchy:
@@ -63,9 +63,9 @@ public class CompressGraph {
 			Node o = record.get("o").asNode();
 
 			//CoreGraphDatabase.createRelationship(m.id(), o.id(), n.get("text").asString());
-			CoreGraphDatabase.createRelationship(m.get(UID_FIELD).asString(), o.get(UID_FIELD).asString(), n.get("text").asString());
+			CoreGraphDatabase.createRelationship(m, o, n.get("text").asString());
 			//CoreGraphDatabase.deleteNodeAndRelationshipsByNodeId(n.id());
-			CoreGraphDatabase.deleteNodeAndRelationshipsByNodeId(n.get(UID_FIELD).asString());
+			CoreGraphDatabase.deleteNodeAndRelationships(n);
 		}
 
 		// delete all sub-concepts that are not used:
@@ -84,13 +84,13 @@ public class CompressGraph {
 			Relationship r = record.get("r").asRelationship();
 
 			//CoreGraphDatabase.mergeRelationship(n.id(), o.id(), r.type());
-			CoreGraphDatabase.mergeRelationship(n.get(UID_FIELD).asString(), o.get(UID_FIELD).asString(), r.type());
+			CoreGraphDatabase.mergeRelationship(n, o, r.type());
 		}
 		records = CoreGraphDatabase.runCypherQuery("MATCH ()-[:" + PredefinedRelations.JOIN + "]->(m) return m");
 		for (Record record : records) {
 			Node m = record.get("m").asNode();
 			//CoreGraphDatabase.deleteNodeAndRelationshipsByNodeId(m.id());
-			CoreGraphDatabase.deleteNodeAndRelationshipsByNodeId(m.get(UID_FIELD).asString());
+			CoreGraphDatabase.deleteNodeAndRelationships(m);
 		}
 
 		CoreGraphDatabase.closeDriver();
@@ -6,6 +6,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map.Entry;
@@ -106,18 +107,19 @@ public class IntegrateWP4Traits {
 		wp4Traits.put("BC6_B_6", List.of("Hydrolytic bacteria", "Hydrolytic microbes"));
 		wp4Traits.put("PT_1", List.of("Tomato yield"));
 
-		for (Entry<String, List<String>> entry : wp4Traits.entrySet()) {
-			String traitName = entry.getKey();
-			List<String> lexicalForms = entry.getValue();
+		// the traits are written in batches of transactions
+		CoreGraphDatabase.inUnitOfWork(() -> {
+			for (Entry<String, List<String>> entry : wp4Traits.entrySet()) {
+				String traitName = entry.getKey();
+				List<String> lexicalForms = entry.getValue();
 
-			Node traitNode = NamedEntityGraphDatabase.addNamedEntityNode(WP4_TRAIT, traitName);
-			CoreGraphDatabase.addLabel(traitNode, PredefinedCategories.TRAIT.toString());
+				Node traitNode = NamedEntityGraphDatabase.addNamedEntityNode(WP4_TRAIT, traitName);
+				CoreGraphDatabase.addLabel(traitNode, PredefinedCategories.TRAIT.toString());
 
-			for (String lexicalForm : lexicalForms) {
-				Node lexicalFormNode = NamedEntityGraphDatabase.addLexicalFormNode(lexicalForm);
-				NamedEntityGraphDatabase.addNamedEntitiyToLexicalFormConnection(traitNode, lexicalFormNode);
+				NamedEntityGraphDatabase.addLexicalFormNodes(lexicalForms);
+				NamedEntityGraphDatabase.addNamedEntitiyToLexicalFormConnections(traitNode, lexicalForms);
 			}
-		}
+		});
 		
 		logger.info("WP4 phenotype data loaded.");	
 	}
@@ -128,67 +130,63 @@ public class IntegrateWP4Traits {
 	 *  Keep the traits file like: row_id, trait_uid, synonym_1, synonym_2, ...
 	 */
 	public static void addTraitsFromS3CSV(boolean abridge, String s3filekey) throws IOException, FileNotFoundException {
-		String[] fields = null;
-		
 		logger.info("Loading traits from S3 object: {}", s3filekey);
 		//try (CSVReader csvReader = new CSVReader(new BufferedReader(new InputStreamReader(AmazonS3.readFileUsingS3Client(s3filekey))))) {
-		int processed = 0;		
 		
 		// reconnect to S3
 		AmazonS3Config.getInstance().reconnect();
 		
+		// the traits are written in batches of transactions
 		try {
-			CSVReader csvReader = new CSVReader(new BufferedReader(new InputStreamReader(AmazonS3.readFileUsingS3Client(s3filekey))));
-			
-			fields = csvReader.readNext(); // skip header
-			while (fields != null) {
-				try {
-					fields = csvReader.readNext();
-					
-					if (fields == null) {
-						break;
-					}
-					
-					String traitName = fields[1];
-					Node traitNode = NamedEntityGraphDatabase.addNamedEntityNode(WP4_TRAIT, traitName);
-					CoreGraphDatabase.addLabel(traitNode, PredefinedCategories.TRAIT.toString());
-					for (int i = 2; i < fields.length; i++) {
-						String[] lexicalForms = fields[i].split(";");
-						// split synonyms into words
-						for (String lexicalForm : lexicalForms) {
-							if (!lexicalForm.trim().isEmpty()) {
-								Node lexicalFormNode = NamedEntityGraphDatabase.addLexicalFormNode(lexicalForm.trim());
-								NamedEntityGraphDatabase.addNamedEntitiyToLexicalFormConnection(traitNode, lexicalFormNode);
-							}
-						}
-					}
-					
-					processed++;
-					
-					if (processed % 10 == 0) {
-						logger.info("{} trait records processed.", processed);
-					}
-					
-					if (abridge && processed > 100) {
-						break;
-					}
-				} catch(SocketException e) {
-					logger.error("Socket error. Trying to resume reading from line {}.", processed, e);
-						
-					// reset connection
-					AmazonS3Config.getInstance().reconnect();
-					// resume reading from last processed line
-					csvReader = new CSVReader(new BufferedReader(new InputStreamReader(AmazonS3.readFileUsingS3Client(s3filekey))));
-					for (int i = 0; i <= processed; i++)
-						csvReader.readNext();
-					
-					continue;	
-				}	
-			}
+			CoreGraphDatabase.inUnitOfWork(() -> readTraitsFromS3CSV(abridge, s3filekey));
 		} catch(Exception e) {
 			logger.error("Error reading traits.", e);
 			throw new IOException();
 		}
+	}
+	
+	private static void readTraitsFromS3CSV(boolean abridge, String s3filekey) throws Exception {
+		String[] fields = null;
+		int processed = 0;
+		
+		CSVReader csvReader = new CSVReader(new BufferedReader(new InputStreamReader(AmazonS3.readFileUsingS3Client(s3filekey))));
+		
+		fields = csvReader.readNext(); // skip header
+		while (fields != null) {
+			try {
+				fields = csvReader.readNext();
+				
+				if (fields == null) {
+					break;
+				}
+				
+				String traitName = fields[1];
+				Node traitNode = NamedEntityGraphDatabase.addNamedEntityNode(WP4_TRAIT, traitName);
+				CoreGraphDatabase.addLabel(traitNode, PredefinedCategories.TRAIT.toString());
+				addTraitLexicalForms(traitNode, fields);
+				
+				processed++;
+				
+				if (processed % 10 == 0) {
+					logger.info("{} trait records processed.", processed);
+				}
+				
+				if (abridge && processed > 100) {
+					break;
+				}
+			} catch(SocketException e) {
+				logger.error("Socket error. Trying to resume reading from line {}.", processed, e);
+					
+				// reset connection
+				AmazonS3Config.getInstance().reconnect();
+				// resume reading from last processed line
+				csvReader = new CSVReader(new BufferedReader(new InputStreamReader(AmazonS3.readFileUsingS3Client(s3filekey))));
+				for (int i = 0; i <= processed; i++)
+					csvReader.readNext();
+				
+				continue;	
+			}	
+		}
 		
 		logger.info("{} records loaded", processed);
 	}
@@ -199,44 +197,59 @@ public class IntegrateWP4Traits {
 	 * Read from local CSV file.
 	 */
 	public static void addTraitsFromCSV(boolean abridge, String filepath) throws IOException, FileNotFoundException {
-		String[] fields = null;
-
 		logger.info("Loading phenotypic traits from file: {}", filepath);
 		
+	    // the traits are written in batches of transactions
+	    try {
+	    	CoreGraphDatabase.inUnitOfWork(() -> readTraitsFromCSV(abridge, filepath));
+		} catch(Exception e) {
+			logger.error("Error reading lexical forms for WP entities", e);
+			throw new IOException();
+		}
+	}
+	
+	private static void readTraitsFromCSV(boolean abridge, String filepath) throws Exception {
+		String[] fields = null;
 		int processed = 0;
 		
-	    try (CSVReader csvReader = new CSVReader(new FileReader(filepath))) {
+		try (CSVReader csvReader = new CSVReader(new FileReader(filepath))) {
 			csvReader.readNext(); // skip header
 			while ((fields = csvReader.readNext()) != null) {
 				String traitName = fields[1];
 				Node traitNode = NamedEntityGraphDatabase.addNamedEntityNode(WP4_TRAIT, traitName);
 				CoreGraphDatabase.addLabel(traitNode, PredefinedCategories.TRAIT.toString());
-				for (int i = 2; i < fields.length; i++) {
-					String[] lexicalForms = fields[i].split(";");
-					// split synonyms into words
-					for (String lexicalForm : lexicalForms) {
-						if (!lexicalForm.trim().isEmpty()) {
-							Node lexicalFormNode = NamedEntityGraphDatabase.addLexicalFormNode(lexicalForm.trim());
-							NamedEntityGraphDatabase.addNamedEntitiyToLexicalFormConnection(traitNode, lexicalFormNode);
-						}
-					}
-				}
-				
+				addTraitLexicalForms(traitNode, fields);
+			
 				processed++;
-				
+			
 				if (processed % 10 == 0) {
 					logger.info("{} trait records processed.", processed);
 				}
-				
+			
 				if (abridge && processed > 100) {
 					break;
 				}
 			}
-		} catch(Exception e) {
-			logger.error("Error reading lexical forms for WP entities", e);
-			throw new IOException();
 		}
-	    
+		
 		logger.info("{} records loaded", processed);
 	}
+	
+	/** 
+	 * Add the lexical forms of a trait record (fields from the third on, synonyms separated by ';') 
+	 * and connect the trait to them.
+	 */
+	private static void addTraitLexicalForms(Node traitNode, String[] fields) {
+		List<String> lexicalForms = new ArrayList<>();
+		for (int i = 2; i < fields.length; i++) {
+			// split synonyms into words
+			for (String lexicalForm : fields[i].split(";")) {
+				if (!lexicalForm.trim().isEmpty()) {
+					lexicalForms.add(lexicalForm.trim());
+				}
+			}
+		}
+		NamedEntityGraphDatabase.addLexicalFormNodes(lexicalForms);
+		NamedEntityGraphDatabase.addNamedEntitiyToLexicalFormConnections(traitNode, lexicalForms);
+	}
 }
@@ -6,10 +6,12 @@ import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.apache.jena.rdf.model.Model;
@@ -31,9 +33,11 @@ import software.amazon.awssdk.services.s3.model.CommonPrefix;
 import org.neo4j.driver.types.Node;
 
 import eu.glomicave.persistence.CoreGraphDatabase;
+import eu.glomicave.persistence.MergeSummary;
 import eu.glomicave.persistence.NamedEntityGraphDatabase;
 import eu.glomicave.persistence.PredefinedCategories;
 import eu.glomicave.persistence.PredefinedRelations;
+import eu.glomicave.persistence.RelationshipRow;
 import eu.glomicave.config.GlobalParamsConfig;
 import eu.glomicave.persistence.AmazonS3;
 
@@ -74,7 +78,8 @@ public class LoadWikipathwaysIntoGraphDB {
 
 				Model model = RDFDataMgr.loadModel(filePath.toUri().toString());
 
-				processWPModel(model);
+				// one transaction for the nodes and relations of the pathway
+				CoreGraphDatabase.inUnitOfWork(() -> processWPModel(model));
 			}
 
 			if (abridge) {
@@ -113,7 +118,8 @@ public class LoadWikipathwaysIntoGraphDB {
 		    }
 
 		    private void processCommand(Model model) {
-			    processWPModel(model);
+			    // one transaction for the nodes and relations of the pathway
+			    CoreGraphDatabase.inUnitOfWork(() -> processWPModel(model));
 		    }
 		    
 		    @Override
@@ -147,7 +153,12 @@ public class LoadWikipathwaysIntoGraphDB {
 			}
 			
 			pool.shutdown();
-	        while (!pool.isTerminated()) {}
+			try {
+				pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+			} catch (InterruptedException e) {
+				logger.error("Interrupted while waiting for all threads to finish.", e);
+				Thread.currentThread().interrupt();
+			}
 	        
 	        logger.info("Finished all threads.");
 			
@@ -198,6 +209,9 @@ public class LoadWikipathwaysIntoGraphDB {
 			CoreGraphDatabase.setProperty(pathwayNode, WP_DESCRIPTION, description);
 		}
 
+		// relations of the pathway parts, merged at the end
+		List<RelationshipRow> hasLFRelations = new ArrayList<>();
+		List<RelationshipRow> partOfRelations = new ArrayList<>();
 		ResIterator partsOfPathwayIterator = model.listResourcesWithProperty(DCTerms.isPartOf, pathway);
 		while (partsOfPathwayIterator.hasNext()) {
 			try {
@@ -205,14 +219,14 @@ public class LoadWikipathwaysIntoGraphDB {
 				Resource partOfPathway = partsOfPathwayIterator.next();
 	
 				if (partOfPathway.hasProperty(RDF.type, wpGeneProduct)) {
-					addPartOfPathwayToGraphDB(pathwayNode, partOfPathway, PredefinedCategories.GENE_PRODUCT.toString());
+					addPartOfPathwayToGraphDB(pathwayNode, partOfPathway, PredefinedCategories.GENE_PRODUCT.toString(), hasLFRelations, partOfRelations);
 				}
 				else if (partOfPathway.hasProperty(RDF.type, wpMetabolite)) {
-					addPartOfPathwayToGraphDB(pathwayNode, partOfPathway, PredefinedCategories.METABOLITE.toString());
+					addPartOfPathwayToGraphDB(pathwayNode, partOfPathway, PredefinedCategories.METABOLITE.toString(), hasLFRelations, partOfRelations);
 				}
 				else if (partOfPathway.hasProperty(RDF.type, wpPathway)) {
 					// if subpathway doesn't exist  - create and check also :
-					addPartOfPathwayToGraphDB(pathwayNode, partOfPathway, PredefinedCategories.PATHWAY.toString());
+					addPartOfPathwayToGraphDB(pathwayNode, partOfPathway, PredefinedCategories.PATHWAY.toString(), hasLFRelations, partOfRelations);
 				}
 	//			else if (partOfPathway.hasProperty(RDF.type, wpProtein)) {
 	//				// if subpathway doesn't exist  - create and check also :
@@ -232,28 +246,49 @@ public class LoadWikipathwaysIntoGraphDB {
 
 			if (partOfPathway.hasProperty(RDF.type, wpProtein)) {
 				// if subpathway doesn't exist  - create and check also :
-				addPartOfPathwayToGraphDB(pathwayNode, partOfPathway, PredefinedCategories.PROTEIN.toString());
+				addPartOfPathwayToGraphDB(pathwayNode, partOfPathway, PredefinedCategories.PROTEIN.toString(), hasLFRelations, partOfRelations);
 			}
 		}	
+		
+		mergePathwayRelations(hasLFRelations, partOfRelations);
 	}
 	
 	/**
-	 * Helper method to integrate a part of a pathway into GraphDB.
+	 * Helper method to integrate a part of a pathway into GraphDB. The relations of the part are collected
+	 * to be merged in batches (see {@link #mergePathwayRelations}).
 	 * 
 	 * @param pathwayNode
 	 * @param partOfPathway
 	 * @param category
+	 * @param hasLFRelations - HAS_LF relations of the pathway parts
+	 * @param partOfRelations - IS_PART_OF_PATHWAY relations of the pathway parts
 	 */
-	private static void addPartOfPathwayToGraphDB(Node pathwayNode, Resource partOfPathway, String category) {
+	private static void addPartOfPathwayToGraphDB(Node pathwayNode, Resource partOfPathway, String category, 
+			List<RelationshipRow> hasLFRelations, List<RelationshipRow> partOfRelations) {
 		Node node = NamedEntityGraphDatabase.addNamedEntityNode(WP, partOfPathway.getURI());
 		CoreGraphDatabase.addLabel(node, category);
 		//String lexicalForm = partOfPathway.getProperty(RDFS.label).getObject().toString();
 		String lexicalForm = partOfPathway.getProperty(RDFS.label).getObject().toString().replace("\"","").replace("\\","");
-		Node lexicalFormNode = NamedEntityGraphDatabase.addLexicalFormNode(lexicalForm);
-		NamedEntityGraphDatabase.addNamedEntitiyToLexicalFormConnection(node, lexicalFormNode);
-
+		NamedEntityGraphDatabase.addLexicalFormNode(lexicalForm);
+		
+		String nodeUID = node.get(CoreGraphDatabase.UID_FIELD).asString();
+		hasLFRelations.add(NamedEntityGraphDatabase.getNamedEntitiyToLexicalFormConnection(nodeUID, lexicalForm));
 		//CoreGraphDatabase.createRelationship(geneProductNode, pathwayNode, PredefinedRelations.IS_PART_OF_PATHWAY.toString());
-		CoreGraphDatabase.createRelationshipIfNotExistent(node, pathwayNode, PredefinedRelations.IS_PART_OF_PATHWAY.toString());
+		partOfRelations.add(new RelationshipRow(PredefinedCategories.NAMED_ENTITY.toString(), nodeUID, 
+				PredefinedCategories.NAMED_ENTITY.toString(), pathwayNode.get(CoreGraphDatabase.UID_FIELD).asString()));
+	}
+	
+	/**
+	 * Merge the relations of the parts of a pathway into GraphDB.
+	 * 
+	 * @param hasLFRelations - HAS_LF relations of the pathway parts
+	 * @param partOfRelations - IS_PART_OF_PATHWAY relations of the pathway parts
+	 */
+	private static void mergePathwayRelations(List<RelationshipRow> hasLFRelations, List<RelationshipRow> partOfRelations) {
+		MergeSummary hasLFSummary = CoreGraphDatabase.mergeRelationships(PredefinedRelations.HAS_LF.toString(), hasLFRelations);
+		MergeSummary partOfSummary = CoreGraphDatabase.mergeRelationships(PredefinedRelations.IS_PART_OF_PATHWAY.toString(), partOfRelations);
+		logger.info("'{}' relations: {}; '{}' relations: {}.", PredefinedRelations.HAS_LF.toString(), hasLFSummary, 
+				PredefinedRelations.IS_PART_OF_PATHWAY.toString(), partOfSummary);
 	}
 
 	
@@ -284,7 +319,8 @@ public class LoadWikipathwaysIntoGraphDB {
 				    	model.read(bufferedReader, null, "TTL");
 				    }
 				    
-				    processProteinDataFromWPModel(model);
+				    // one transaction for the nodes and relations of the pathway
+				    CoreGraphDatabase.inUnitOfWork(() -> processProteinDataFromWPModel(model));
 				}
 				
 				if (abridge) {
@@ -320,7 +356,8 @@ public class LoadWikipathwaysIntoGraphDB {
 
 				Model model = RDFDataMgr.loadModel(filePath.toUri().toString());
 
-				processProteinDataFromWPModel(model);
+				// one transaction for the nodes and relations of the pathway
+				CoreGraphDatabase.inUnitOfWork(() -> processProteinDataFromWPModel(model));
 			}
 
 			if (abridge) {
@@ -353,15 +390,20 @@ public class LoadWikipathwaysIntoGraphDB {
 		String organismName = pathway.getProperty(property).getString();
 		CoreGraphDatabase.setProperty(pathwayNode, ORGANISM_NAME, organismName);
 		
+		// relations of the pathway parts, merged at the end
+		List<RelationshipRow> hasLFRelations = new ArrayList<>();
+		List<RelationshipRow> partOfRelations = new ArrayList<>();
 		ResIterator partsOfPathwayIterator = model.listResourcesWithProperty(DCTerms.isPartOf, pathway);
 		while (partsOfPathwayIterator.hasNext()) {
 			Resource partOfPathway = partsOfPathwayIterator.next();
 			
 			if (partOfPathway.hasProperty(RDF.type, wpProtein)) {
 				// if subpathway doesn't exist  - create and check also 
-				addPartOfPathwayToGraphDB(pathwayNode, partOfPathway, PredefinedCategories.PROTEIN.toString());
+				addPartOfPathwayToGraphDB(pathwayNode, partOfPathway, PredefinedCategories.PROTEIN.toString(), hasLFRelations, partOfRelations);
 			}
 		}
+		
+		mergePathwayRelations(hasLFRelations, partOfRelations);
 	}
 	
 
@@ -390,7 +432,8 @@ public class LoadWikipathwaysIntoGraphDB {
 				    	model.read(bufferedReader, null, "TTL");
 				    }
 				    
-				    processMetaboliteDataFromWPModel(model);
+				    // one transaction for the nodes and relations of the pathway
+				    CoreGraphDatabase.inUnitOfWork(() -> processMetaboliteDataFromWPModel(model));
 				}
 				
 				if (abridge) {
@@ -427,7 +470,8 @@ public class LoadWikipathwaysIntoGraphDB {
 
 				Model model = RDFDataMgr.loadModel(filePath.toUri().toString());
 
-				processMetaboliteDataFromWPModel(model);
+				// one transaction for the nodes and relations of the pathway
+				CoreGraphDatabase.inUnitOfWork(() -> processMetaboliteDataFromWPModel(model));
 			}
 
 			if (abridge) {
@@ -461,15 +505,20 @@ public class LoadWikipathwaysIntoGraphDB {
 		String organismName = pathway.getProperty(property).getString();
 		CoreGraphDatabase.setProperty(pathwayNode, ORGANISM_NAME, organismName);
 		
+		// relations of the pathway parts, merged at the end
+		List<RelationshipRow> hasLFRelations = new ArrayList<>();
+		List<RelationshipRow> partOfRelations = new ArrayList<>();
 		ResIterator partsOfPathwayIterator = model.listResourcesWithProperty(DCTerms.isPartOf, pathway);
 		while (partsOfPathwayIterator.hasNext()) {
 			Resource partOfPathway = partsOfPathwayIterator.next();
 			
 			if (partOfPathway.hasProperty(RDF.type, wpMetabolite)) {
 				// if subpathway doesn't exist  - create and check also 
-				addPartOfPathwayToGraphDB(pathwayNode, partOfPathway, PredefinedCategories.METABOLITE.toString());
+				addPartOfPathwayToGraphDB(pathwayNode, partOfPathway, PredefinedCategories.METABOLITE.toString(), hasLFRelations, partOfRelations);
 			}
 		}
+		
+		mergePathwayRelations(hasLFRelations, partOfRelations);
 	}
 
 }
@@ -7,8 +7,11 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.net.SocketException;
 import com.opencsv.CSVReader;
 import org.neo4j.driver.types.Node;
@@ -67,9 +70,10 @@ public class NamedEntityInitialization {
 
 	    //private void processCommand(String[] fields, int uidIdx, int[] lfIds, String ontologyName, String entityCategory, int sourceIdx) {
 	    private void processCommand() {
+	    	// one transaction for the nodes and relations of the record
 	    	try {
-		    	NamedEntityInitialization.addNERecord(fields, uidColIdx, lfColIds, lfColStartIdx, 
-		    							entityCategory, entityCategoryColIdx, ontologyName, sourceOntologyColIdx);
+	    		CoreGraphDatabase.inUnitOfWork(() -> NamedEntityInitialization.addNERecord(fields, uidColIdx, lfColIds, lfColStartIdx, 
+		    							entityCategory, entityCategoryColIdx, ontologyName, sourceOntologyColIdx));
 			} catch (Exception e) {
 				logger.error(e);
 			}
@@ -106,7 +110,6 @@ public class NamedEntityInitialization {
 		//String[] fields = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)");
 		String uid = null;
 		Node namedEntityNode = null;
-		Node lexicalFormNode = null;
 		
 		// Read node uid
 		if (uidColIdx >= 0 && uidColIdx < fields.length) {
@@ -148,7 +151,8 @@ public class NamedEntityInitialization {
 			}
 		}
 		
-		// Read and create lexical forms
+		// Read lexical forms
+		List<String> lexicalForms = new ArrayList<>();
 		if (lfColIds != null) {	
 			// Add lexical forms
 			for (int i: lfColIds) {
@@ -157,12 +161,7 @@ public class NamedEntityInitialization {
 				}
 				String syn = fields[i];
 				if (!syn.trim().isEmpty()) {
-					lexicalFormNode = NamedEntityGraphDatabase.addLexicalFormNode(syn);
-					try {
-						NamedEntityGraphDatabase.addNamedEntitiyToLexicalFormConnection(namedEntityNode, lexicalFormNode);
-					} catch (Exception e) {
-						logger.error(e);
-					}
+					lexicalForms.add(syn);
 				}
 			}
 		} else if (lfColStartIdx >= 0 && lfColStartIdx < fields.length) {
@@ -170,18 +169,21 @@ public class NamedEntityInitialization {
 			for (int i = lfColStartIdx; i < fields.length; i++) {
 				String lf = fields[i];
 				if (!lf.trim().isEmpty()) {
-					lexicalFormNode = NamedEntityGraphDatabase.addLexicalFormNode(lf);
-					try {
-						NamedEntityGraphDatabase.addNamedEntitiyToLexicalFormConnection(namedEntityNode, lexicalFormNode);
-					} catch (Exception e) {
-						logger.error(e);
-					}
+					lexicalForms.add(lf);
 				}
 			}
 		} else {
 			logger.error("Values for lexical form column indices can't be interpreted.");
 			throw new IOException();
 		}
+		
+		// Create lexical form nodes of the record in one batch and connect them to the entity
+		NamedEntityGraphDatabase.addLexicalFormNodes(lexicalForms);
+		try {
+			NamedEntityGraphDatabase.addNamedEntitiyToLexicalFormConnections(namedEntityNode, lexicalForms);
+		} catch (Exception e) {
+			logger.error(e);
+		}
 	}
 
 	
@@ -267,7 +269,12 @@ public class NamedEntityInitialization {
 			}
 			// wait until all treads finish
 			pool.shutdown();
-	        while (!pool.isTerminated()) {}
+			try {
+				pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+			} catch (InterruptedException e) {
+				logger.error("Interrupted while waiting for all threads to finish.", e);
+				Thread.currentThread().interrupt();
+			}
 	        
 	        logger.info("Finished all threads");
 
@@ -469,7 +476,12 @@ public class NamedEntityInitialization {
 			}
 			// wait until all treads finish
 			pool.shutdown();
-	        while (!pool.isTerminated()) {}
+			try {
+				pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+			} catch (InterruptedException e) {
+				logger.error("Interrupted while waiting for all threads to finish.", e);
+				Thread.currentThread().interrupt();
+			}
 	        
 	        logger.info("Finished all threads");
 
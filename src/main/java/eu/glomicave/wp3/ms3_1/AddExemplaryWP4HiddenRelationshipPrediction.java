@@ -4,6 +4,7 @@ import org.neo4j.driver.types.Node;
 
 import eu.glomicave.persistence.CoreGraphDatabase;
 import eu.glomicave.persistence.NamedEntityGraphDatabase;
+import eu.glomicave.persistence.PredefinedCategories;
 
 public class AddExemplaryWP4HiddenRelationshipPrediction {
 
@@ -40,11 +41,11 @@ public class AddExemplaryWP4HiddenRelationshipPrediction {
 //		GraphDatabase.createRelationship(predictionNode1, alphaDglucopyranoseNode, TARGET);
 
 		//Node HXK2Node = CoreGraphDatabase.getNodeById(13234);
-		Node HXK2Node = CoreGraphDatabase.getNodeById("13234");
+		Node HXK2Node = CoreGraphDatabase.getNodeById(PredefinedCategories.NAMED_ENTITY.toString(), "13234");
 		CoreGraphDatabase.createRelationship(predictionNode2, HXK2Node, INPUT);
 
 		//Node tomatoYieldNode = CoreGraphDatabase.getNodeById(120584);
-		Node tomatoYieldNode = CoreGraphDatabase.getNodeById("120584");
+		Node tomatoYieldNode = CoreGraphDatabase.getNodeById(PredefinedCategories.NAMED_ENTITY.toString(), "120584");
 		CoreGraphDatabase.createRelationship(predictionNode1, tomatoYieldNode, TARGET);
 		CoreGraphDatabase.createRelationship(predictionNode2, tomatoYieldNode, TARGET);
 
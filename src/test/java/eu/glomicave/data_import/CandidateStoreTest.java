@@ -0,0 +1,89 @@
+package eu.glomicave.data_import;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import eu.glomicave.config.ExtractionMode;
+import eu.glomicave.config.GlobalParamsConfig;
+
+public class CandidateStoreTest {
+	private Path dir;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		dir = Files.createTempDirectory("candidate_store");
+		GlobalParamsConfig.CANDIDATE_STORE_DIR = dir.toString();
+	}
+
+	@AfterEach
+	void tearDown() {
+		CandidateStore.close();
+		GlobalParamsConfig.CANDIDATE_STORE_DIR = null;
+		GlobalParamsConfig.EXTRACTION_MODE = ExtractionMode.FULL;
+		GlobalParamsConfig.MAX_SUBCONSTITUENTS = 1000;
+	}
+
+	@Test
+	void disabledByDefault() {
+		GlobalParamsConfig.CANDIDATE_STORE_DIR = null;
+		CandidateStore.put("10.1000/disabled/1", Arrays.asList("heat shock protein"));
+		assertNull(CandidateStore.get("10.1000/disabled/1"));
+		assertNull(CandidateStore.getFile());
+	}
+
+	@Test
+	void storedCandidatesAreReadBack() {
+		CandidateStore.put("10.1000/a/1", Arrays.asList("heat shock protein", "protein"));
+		CandidateStore.put("10.1000/a/2", Collections.emptyList());
+
+		assertEquals(new HashSet<>(Arrays.asList("heat shock protein", "protein")), CandidateStore.get("10.1000/a/1"));
+		assertEquals(new HashSet<>(), CandidateStore.get("10.1000/a/2"));
+		assertNull(CandidateStore.get("10.1000/a/3"));
+	}
+
+	@Test
+	void storeFileIsReloadedWithSettingsLine() throws IOException {
+		CandidateStore.put("10.1000/b/1", Arrays.asList("drought", "drought stress"));
+		CandidateStore.put("10.1000/b/1", Arrays.asList("drought"));
+		Path file = CandidateStore.getFile();
+		CandidateStore.close();
+
+		List<String> lines = Files.readAllLines(file);
+		assertEquals("# " + CandidateStore.getSettings(), lines.get(0));
+		assertEquals(3, lines.size());
+
+		// other settings load another file, the same settings load the stored candidates again
+		GlobalParamsConfig.EXTRACTION_MODE = ExtractionMode.FAST;
+		assertNull(CandidateStore.get("10.1000/b/1"));
+		GlobalParamsConfig.EXTRACTION_MODE = ExtractionMode.FULL;
+		assertEquals(new HashSet<>(Arrays.asList("drought")), CandidateStore.get("10.1000/b/1"));
+	}
+
+	@Test
+	void settingsSelectTheStoreFile() {
+		Path full = CandidateStore.getFile();
+		GlobalParamsConfig.EXTRACTION_MODE = ExtractionMode.FAST;
+		Path fast = CandidateStore.getFile();
+		GlobalParamsConfig.EXTRACTION_MODE = ExtractionMode.FULL;
+		GlobalParamsConfig.MAX_SUBCONSTITUENTS = 10;
+		Path capped = CandidateStore.getFile();
+
+		assertNotEquals(full, fast);
+		assertNotEquals(full, capped);
+		assertTrue(full.startsWith(dir));
+	}
+}
@@ -0,0 +1,46 @@
+package eu.glomicave.data_import;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+public class SentenceDeduplicatorTest {
+
+	@Test
+	void firstSentenceWithATextIsTheRepresentative() {
+		SentenceDeduplicator deduplicator = new SentenceDeduplicator();
+		assertNull(deduplicator.add("10.1000/a/1", "All rights reserved."));
+		assertNull(deduplicator.add("10.1000/a/2", "Salt stress induces proline."));
+		assertEquals("10.1000/a/1", deduplicator.add("10.1000/b/3", "All rights reserved."));
+		assertEquals("10.1000/a/1", deduplicator.add("10.1000/c/5", "All rights reserved."));
+
+		assertEquals(4, deduplicator.getSentences());
+		assertEquals(2, deduplicator.getUniqueSentences());
+	}
+
+	@Test
+	void textsWithOtherWhitespaceAreNotDuplicates() {
+		// the copied relations hold spans in the text of the representative
+		SentenceDeduplicator deduplicator = new SentenceDeduplicator();
+		assertNull(deduplicator.add("10.1000/a/1", "Heat shock  protein 70 binds."));
+		assertNull(deduplicator.add("10.1000/b/1", "Heat shock protein 70 binds."));
+		assertNull(deduplicator.add("10.1000/c/1", " Heat shock protein 70 binds."));
+		assertNull(deduplicator.add("10.1000/d/1", "Heat shock\nprotein 70 binds."));
+
+		assertEquals(4, deduplicator.getUniqueSentences());
+	}
+
+	@Test
+	void textsWithTheSameHashAreNotDuplicates() {
+		// "Aa" and "BB" have the same String hash code
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		SentenceDeduplicator deduplicator = new SentenceDeduplicator();
+		assertNull(deduplicator.add("10.1000/a/1", "Aa"));
+		assertNull(deduplicator.add("10.1000/b/1", "BB"));
+		assertEquals("10.1000/a/1", deduplicator.add("10.1000/c/1", "Aa"));
+		assertEquals("10.1000/b/1", deduplicator.add("10.1000/d/1", "BB"));
+
+		assertEquals(2, deduplicator.getUniqueSentences());
+	}
+}
@@ -0,0 +1,125 @@
+package eu.glomicave.data_import;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.internal.InternalNode;
+import org.neo4j.driver.types.Node;
+
+import edu.stanford.nlp.ling.CoreLabel;
+
+import eu.glomicave.data_import.extract_entities.AnnotatedSentence;
+
+public class SentenceTokensTest {
+
+	private static Node sentenceNode(Map<String, Object> properties) {
+		Map<String, Value> values = new HashMap<>();
+		for (Map.Entry<String, Object> property : properties.entrySet()) {
+			values.put(property.getKey(), Values.value(property.getValue()));
+		}
+		return new InternalNode(1, Collections.singletonList("SENTENCE"), values);
+	}
+
+	private static CoreLabel token(String text, int begin) {
+		CoreLabel token = new CoreLabel();
+		token.setWord(text);
+		token.setOriginalText(text);
+		token.setBeginPosition(begin);
+		token.setEndPosition(begin + text.length());
+		return token;
+	}
+
+	@Test
+	void tokenListWithOffsets() {
+		Sentence sentence = new Sentence();
+		sentence.tokens = Arrays.asList("Na", ";", "K", "ratio");
+		sentence.tokenBegins = new int[] {0, 2, 3, 5};
+		sentence.tokenEnds = new int[] {2, 3, 4, 10};
+
+		SentenceTokens tokens = SentenceTokens.of(sentenceNode(SentenceTokens.toProperties(sentence)));
+		assertEquals(sentence.tokens, tokens);
+		assertTrue(tokens.hasOffsets());
+		for (int i = 0; i < tokens.size(); i++) {
+			assertEquals(sentence.tokenBegins[i], tokens.begin(i));
+			assertEquals(sentence.tokenEnds[i], tokens.end(i));
+		}
+	}
+
+	@Test
+	void tokenListWithoutOffsets() {
+		Sentence sentence = new Sentence();
+		sentence.tokens = Arrays.asList("drought", "stress");
+
+		Map<String, Object> properties = SentenceTokens.toProperties(sentence);
+		assertEquals(Collections.singleton(SentenceTokens.TOKENS_FIELD), properties.keySet());
+		SentenceTokens tokens = SentenceTokens.of(sentenceNode(properties));
+		assertEquals(sentence.tokens, tokens);
+		assertFalse(tokens.hasOffsets());
+	}
+
+	@Test
+	void offsetsOfAnotherLengthAreIgnored() {
+		Map<String, Object> properties = new HashMap<>();
+		properties.put(SentenceTokens.TOKENS_FIELD, Arrays.asList("drought", "stress"));
+		properties.put(SentenceTokens.TOKEN_BEGINS_FIELD, new int[] {0});
+		properties.put(SentenceTokens.TOKEN_ENDS_FIELD, new int[] {7});
+
+		SentenceTokens tokens = SentenceTokens.of(sentenceNode(properties));
+		assertEquals(Arrays.asList("drought", "stress"), tokens);
+		assertFalse(tokens.hasOffsets());
+	}
+
+	@Test
+	void legacyJoinedTokensAreSplit() {
+		Map<String, Object> properties = new HashMap<>();
+		properties.put(SentenceTokens.TOKENS_FIELD, "salt;stress;induces");
+
+		SentenceTokens tokens = SentenceTokens.of(sentenceNode(properties));
+		assertEquals(Arrays.asList("salt", "stress", "induces"), tokens);
+		assertFalse(tokens.hasOffsets());
+
+		properties.put(SentenceTokens.TOKENS_FIELD, "");
+		assertTrue(SentenceTokens.of(sentenceNode(properties)).isEmpty());
+	}
+
+	@Test
+	void nodeWithoutTokens() {
+		SentenceTokens tokens = SentenceTokens.of(sentenceNode(new HashMap<>()));
+		assertTrue(tokens.isEmpty());
+		assertFalse(tokens.hasOffsets());
+	}
+
+	@Test
+	void sentenceOffsetsAreRelativeToTheSentenceText() {
+		// second sentence of a document, starting at character 20
+		String text = "ABA; ABO levels";
+		List<CoreLabel> labels = new ArrayList<>();
+		labels.add(token("ABA", 20));
+		labels.add(token(";", 23));
+		labels.add(token("ABO", 25));
+		labels.add(token("levels", 29));
+
+		Sentence sentence = PublicationGraphDatabase.toSentence(new AnnotatedSentence(text, 20, labels, null), 2);
+		assertEquals(2, sentence.index);
+		assertEquals(text, sentence.text);
+		assertEquals(Arrays.asList("ABA", ";", "ABO", "levels"), sentence.tokens);
+		assertArrayEquals(new int[] {0, 3, 5, 9}, sentence.tokenBegins);
+		assertArrayEquals(new int[] {3, 4, 8, 15}, sentence.tokenEnds);
+		for (int i = 0; i < sentence.tokens.size(); i++) {
+			assertEquals(sentence.tokens.get(i), text.substring(sentence.tokenBegins[i], sentence.tokenEnds[i]));
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package eu.glomicave.data_import.extract_entities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.IndexedWord;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import org.junit.jupiter.api.Test;
+
+public class EncodedSentenceTest {
+
+    /** Words of a sentence, each given as "word/TAG" or "word/TAG/NER" **/
+    private static ObjectArrayList<IndexedWord> words(String... tokens) {
+        ObjectArrayList<IndexedWord> words = new ObjectArrayList<>();
+        for (int i = 0; i < tokens.length; i++) {
+            String [] parts = tokens[i].split("/");
+            CoreLabel label = new CoreLabel();
+            label.setIndex(i + 1);
+            label.setWord(parts[0]);
+            label.setValue(parts[0]);
+            label.setTag(parts[1]);
+            label.setLemma(parts[0].toLowerCase());
+            label.setNER(parts.length > 2 ? parts[2] : NE_TYPE.NO_NER);
+            words.add(new IndexedWord(label));
+        }
+        return words;
+    }
+
+    private static final ObjectArrayList<IndexedWord> SENTENCE = words(
+            "The/DT", "heat/NN", "shock/NN", "proteins/NNS", "HSP70/NNP/GENE", "HSP90/NNP/GENE", "are/VBP",
+            "being/VBG", "induced/VBN", "in/IN", "Arabidopsis/NNP/ORGANISM", "thaliana/NNP/ORGANISM", "(/-LRB-",
+            "-/HYPH", ")/-RRB-", ",/,", "very/RB", "strongly/RB", "early/JJ", "transient/JJ", "./.");
+
+    @Test
+    void tagsAreCodedByWordClass() {
+        for (String tag: new String[] {POS_TAG.NN, POS_TAG.NNS, POS_TAG.NNP, POS_TAG.NNPS}) {
+            assertTrue(POS_TAG.isNoun(POS_TAG.encode(tag)), tag);
+            assertFalse(POS_TAG.isVerb(POS_TAG.encode(tag)), tag);
+            assertEquals(tag, POS_TAG.decode(POS_TAG.encode(tag)));
+        }
+        for (String tag: new String[] {POS_TAG.VB, POS_TAG.VBD, POS_TAG.VBG, POS_TAG.VBN, POS_TAG.VBP, POS_TAG.VBZ}) {
+            assertTrue(POS_TAG.isVerb(POS_TAG.encode(tag)), tag);
+            assertFalse(POS_TAG.isNoun(POS_TAG.encode(tag)), tag);
+        }
+        for (String tag: new String[] {POS_TAG.JJ, POS_TAG.JJR, POS_TAG.JJS}) {
+            assertTrue(POS_TAG.isAdj(POS_TAG.encode(tag)), tag);
+        }
+        assertFalse(POS_TAG.isAdj(POS_TAG.encode(POS_TAG.RB)));
+        assertEquals(POS_TAG.CODE_OTHER, POS_TAG.encode("-LRB-"));
+        assertEquals(POS_TAG.CODE_OTHER, POS_TAG.encode(null));
+        assertNull(POS_TAG.decode(POS_TAG.CODE_OTHER));
+    }
+
+    @Test
+    void rangesArePacked() {
+        long range = EncodedSentence.range(3, 7);
+        assertEquals(3, EncodedSentence.begin(range));
+        assertEquals(7, EncodedSentence.end(range));
+        assertEquals(4, EncodedSentence.length(range));
+    }
+
+    @Test
+    void nounsAndVerbsAreIndexed() {
+        EncodedSentence encoded = new EncodedSentence(SENTENCE);
+        assertEquals(SENTENCE.size(), encoded.size());
+        assertArrayEquals(new int[] {1, 2, 3, 4, 5, 10, 11}, encoded.getNouns());
+        assertArrayEquals(new int[] {6, 7, 8}, encoded.getVerbs());
+        assertTrue(encoded.isAdj(18));
+        assertTrue(encoded.isNoNER(1));
+        assertFalse(encoded.isNoNER(4));
+    }
+
+    @Test
+    void chainedWordsAreTheWordsOfTheListFunctions() {
+        EncodedSentence encoded = new EncodedSentence(SENTENCE);
+        for (int i = 0; i < SENTENCE.size(); i++) {
+            String pivot = SENTENCE.get(i).word();
+            if (encoded.isNoun(i)) {
+                assertEquals(CoreNLPUtils.getChainedNouns(SENTENCE, i), encoded.getWords(encoded.getChainedNouns(i)), pivot);
+            }
+            if (encoded.isVerb(i)) {
+                assertEquals(CoreNLPUtils.getChainedVerbs(SENTENCE, i), encoded.getWords(encoded.getChainedVerbs(i)), pivot);
+            }
+            if (encoded.isNoNER(i)) {
+                assertEquals(CoreNLPUtils.getChainedTagNoNER(SENTENCE, i), encoded.getWords(encoded.getChainedTagNoNER(i)), pivot);
+            } else {
+                assertEquals(CoreNLPUtils.getChainedNERs(SENTENCE, i), encoded.getWords(encoded.getChainedNERs(i)), pivot);
+            }
+        }
+    }
+
+    @Test
+    void chainedWordRanges() {
+        EncodedSentence encoded = new EncodedSentence(SENTENCE);
+        // nouns are chained across NE types, NEs only with the same type
+        assertEquals("heat shock proteins HSP70 HSP90", encoded.getWordsString(encoded.getChainedNouns(2)));
+        assertEquals("HSP70 HSP90", encoded.getWordsString(encoded.getChainedNERs(5)));
+        assertEquals("Arabidopsis thaliana", encoded.getWordsString(encoded.getChainedNERs(10)));
+        assertEquals("are being induced", encoded.getWordsString(encoded.getChainedVerbs(7)));
+        assertEquals("heat shock", encoded.getWordsString(encoded.getChainedTagNoNER(1)));
+        assertEquals("early transient", encoded.getLemmaString(encoded.getChainedTagNoNER(19)));
+        // tags without code are chained only with the same tag
+        assertEquals("(", encoded.getWordsString(encoded.getChainedTagNoNER(12)));
+        assertEquals(EncodedSentence.range(12, 13), encoded.getChainedTagNoNER(12));
+    }
+}
@@ -0,0 +1,80 @@
+package eu.glomicave.data_import.extract_entities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.stanford.nlp.ling.CoreLabel;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class LexicalFormIndexTest {
+
+    /** Annotation of a lexical form, each token given as "word/TAG/lemma" **/
+    private static ObjectArrayList<AnnotatedSentence> annotate(String... tokens) {
+        List<CoreLabel> labels = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (String token: tokens) {
+            String [] parts = token.split("/");
+            CoreLabel label = new CoreLabel();
+            label.setWord(parts[0]);
+            label.setTag(parts[1]);
+            label.setLemma(parts[2]);
+            labels.add(label);
+            text.append(text.length() > 0 ? " " : "").append(parts[0]);
+        }
+        ObjectArrayList<AnnotatedSentence> sentences = new ObjectArrayList<>();
+        sentences.add(new AnnotatedSentence(text.toString(), labels, null));
+        return sentences;
+    }
+
+    @Test
+    void onlyPluralNounsAreLemmatized() {
+        assertEquals("heat shock protein", LexicalFormIndex.getLemmaString(
+                annotate("heat/NN/heat", "shock/NN/shock", "proteins/NNS/protein")));
+        assertEquals("Hox gene", LexicalFormIndex.getLemmaString(annotate("Hoxes/NNPS/Hox", "genes/NNS/gene")));
+        // singular nouns, verbs and adjectives keep their word
+        assertEquals("lens", LexicalFormIndex.getLemmaString(annotate("lens/NN/len")));
+        assertEquals("induced resistance", LexicalFormIndex.getLemmaString(
+                annotate("induced/VBN/induce", "resistance/NN/resistance")));
+        assertEquals("better yields", LexicalFormIndex.getLemmaString(annotate("better/JJR/good", "yields/VBZ/yield")));
+    }
+
+    @Test
+    void lemmaKeysOfPluralForms() {
+        LexicalFormIndex index = new LexicalFormIndex();
+        int proteins = index.add("heat shock proteins");
+        int lens = index.add("lens");
+
+        assertTrue(index.addLemma(proteins, LexicalFormIndex.getLemmaString(
+                annotate("heat/NN/heat", "shock/NN/shock", "proteins/NNS/protein"))));
+        assertFalse(index.addLemma(lens, LexicalFormIndex.getLemmaString(annotate("lens/NN/len"))));
+        // lemma equal to the form, or already added
+        assertFalse(index.addLemma(proteins, "heat shock protein"));
+        assertFalse(index.addLemma(proteins, "Heat shock proteins"));
+        assertEquals(1, index.getLemmaEntryCount());
+
+        assertEquals(proteins, index.lookupWithLemmas("heat shock protein"));
+        assertEquals(-1, index.lookup("heat shock protein"));
+        assertEquals(-1, index.lookupWithLemmas("len"));
+        assertEquals(lens, index.lookupWithLemmas("lens"));
+    }
+
+    @Test
+    void formWithTheKeyIsPreferredToLemmaEntry() {
+        LexicalFormIndex index = new LexicalFormIndex();
+        int proteins = index.add("heat shock proteins");
+        index.addLemma(proteins, "heat shock protein");
+        int protein = index.add("heat shock protein");
+
+        assertEquals(protein, index.lookupWithLemmas("heat shock protein"));
+        assertEquals(protein, index.getKeyId(LexicalFormNormalizer.normalize("heat shock protein")));
+        assertEquals(proteins, index.getId("heat shock proteins"));
+        assertEquals(2, index.size());
+    }
+}
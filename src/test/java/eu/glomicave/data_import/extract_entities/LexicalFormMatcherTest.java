@@ -0,0 +1,86 @@
+package eu.glomicave.data_import.extract_entities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class LexicalFormMatcherTest {
+
+    private static List<String> describe(List<LexicalFormMatcher.Match> matches) {
+        List<String> result = new ArrayList<>();
+        for (LexicalFormMatcher.Match match: matches) {
+            result.add(match + " [" + match.getBegin() + "," + match.getEnd() + ")");
+        }
+        return result;
+    }
+
+    @Test
+    void tokenizeSplitsPunctuationAndKeepsOffsets() {
+        IntArrayList offsets = new IntArrayList();
+        String [] tokens = LexicalFormMatcher.tokenize("TNF-alpha (p53)", offsets);
+        assertArrayEquals(new String[] {"TNF", "-", "alpha", "(", "p53", ")"}, tokens);
+        assertArrayEquals(new int[] {0, 3, 4, 10, 11, 14}, offsets.toIntArray());
+    }
+
+    @Test
+    void nestedAndOverlappingFormsAreAllMatched() {
+        LexicalFormMatcher matcher = new LexicalFormMatcher(Arrays.asList("heat shock", "heat shock protein", "protein"));
+        List<LexicalFormMatcher.Match> matches = matcher.matchText("The heat shock protein binds.");
+
+        assertEquals(Arrays.asList("heat shock [1,3)", "heat shock protein [1,4)", "protein [3,4)"), describe(matches));
+        assertEquals(4, matches.get(1).getCharBegin());
+        assertEquals(22, matches.get(1).getCharEnd());
+        assertEquals(3, matcher.getMaxFormLength());
+    }
+
+    @Test
+    void firstLetterCaseMatchesExactly() {
+        LexicalFormMatcher matcher = new LexicalFormMatcher(Arrays.asList("Drought stress"));
+
+        List<LexicalFormMatcher.Match> matches = matcher.matchText("drought stress reduces the yield");
+        assertEquals(1, matches.size());
+        assertFalse(matches.get(0).isLowerCase());
+
+        matches = matcher.matchText("DROUGHT STRESS reduces the yield");
+        assertEquals(1, matches.size());
+        assertTrue(matches.get(0).isLowerCase());
+    }
+
+    @Test
+    void shortFormsAreNotMatchedInLowercase() {
+        LexicalFormMatcher matcher = new LexicalFormMatcher(Arrays.asList("ABA"));
+        assertEquals(1, matcher.matchText("ABA levels").size());
+        assertTrue(matcher.matchText("aba levels").isEmpty());
+    }
+
+    @Test
+    void exactFormIsPreferredAmongFormsWithTheSameKey() {
+        LexicalFormMatcher matcher = new LexicalFormMatcher(Arrays.asList("NAC1", "nac1", "Nac1"));
+        assertEquals(Arrays.asList("nac1 [0,1)", "Nac1 [0,1)"), describe(matcher.matchText("nac1")));
+        assertEquals(Arrays.asList("NAC1 [0,1)"), describe(matcher.matchText("NAC1")));
+        assertEquals(Arrays.asList("Nac1 (lowercase) [0,1)"), describe(matcher.matchText("nAc1")));
+    }
+
+    @Test
+    void hyphenAndGreekVariantsMatchByNormalizationKey() {
+        LexicalFormMatcher matcher = new LexicalFormMatcher(Arrays.asList("TNF-alpha"));
+        List<LexicalFormMatcher.Match> matches = matcher.matchText("levels of TNF–α rise");
+        assertEquals(Arrays.asList("TNF-alpha (lowercase) [2,5)"), describe(matches));
+    }
+
+    @Test
+    void candidatesMatchIndependentlyOfFirstLetterCase() {
+        LexicalFormMatcher matcher = new LexicalFormMatcher(Arrays.asList("Abscisic acid", "ABA"));
+        List<LexicalFormMatcher.Match> matches = matcher.matchCandidates(Arrays.asList("abscisic acid", " ABA ", "aba", "ABSCISIC ACID"));
+        assertEquals(Arrays.asList("Abscisic acid [-1,-1)", "ABA [-1,-1)", "Abscisic acid (lowercase) [-1,-1)"), describe(matches));
+    }
+}
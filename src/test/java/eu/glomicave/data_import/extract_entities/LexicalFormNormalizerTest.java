@@ -0,0 +1,47 @@
+package eu.glomicave.data_import.extract_entities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class LexicalFormNormalizerTest {
+
+    @Test
+    void asciiFormsAreLowercased() {
+        assertEquals("heat shock protein", LexicalFormNormalizer.normalize("Heat Shock Protein"));
+        assertEquals("", LexicalFormNormalizer.normalize(""));
+    }
+
+    @Test
+    void whitespaceRunsAreCollapsedAndTrimmed() {
+        assertEquals("heat shock protein", LexicalFormNormalizer.normalize("  heat \t shock protein "));
+    }
+
+    @Test
+    void greekLettersAndHyphensAreNormalized() {
+        assertEquals("tnf-alpha", LexicalFormNormalizer.normalize("TNF-Α"));
+        assertEquals("tnf-alpha", LexicalFormNormalizer.normalize("TNF–α"));
+        assertEquals("il-1beta", LexicalFormNormalizer.normalize("IL−1β"));
+        // micro sign and final sigma
+        assertEquals("mum", LexicalFormNormalizer.normalize("µm"));
+        assertEquals("sigma", LexicalFormNormalizer.normalize("ς"));
+    }
+
+    @Test
+    void compatibilityCharactersAndSoftHyphensAreNormalized() {
+        assertEquals("co2", LexicalFormNormalizer.normalize("CO₂"));
+        assertEquals("fluorescence", LexicalFormNormalizer.normalize("\uFB02uores\u00ADcence"));
+        assertEquals("abc", LexicalFormNormalizer.normalize("ＡＢＣ"));
+    }
+
+    @Test
+    void hyphens() {
+        assertTrue(LexicalFormNormalizer.isHyphen('-'));
+        assertTrue(LexicalFormNormalizer.isHyphen('‐'));
+        assertTrue(LexicalFormNormalizer.isHyphen('−'));
+        assertFalse(LexicalFormNormalizer.isHyphen('_'));
+        assertFalse(LexicalFormNormalizer.isHyphen('\u00AD'));
+    }
+}
@@ -0,0 +1,99 @@
+package eu.glomicave.data_import.extract_entities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MappedDictionaryTest {
+    private static final String RESOURCE = "/minie-resources/non-subsective-adjectives-modal.dict";
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("dictionary");
+    }
+
+    @Test
+    void writtenWordsAreFound() throws IOException {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 10 * MappedDictionary.BLOCK_SIZE + 3; i++) {
+            words.add("protein" + i);
+        }
+        // shared prefixes longer than the 8 bytes of the block index, multi-byte characters
+        words.addAll(Arrays.asList("heat shock protein", "heat shock protein 70", "heat shock", "β-carotene", "Ω", "a"));
+        Path path = dir.resolve("words.bin");
+        MappedDictionary.write(words, path);
+
+        MappedDictionary dictionary = MappedDictionary.open(path);
+        assertEquals(words.size(), dictionary.size());
+        for (String word: words) {
+            assertTrue(dictionary.contains(word), word);
+        }
+        for (String word: Arrays.asList("", "protein", "protein1000", "heat shock protein 7", "heat", "β", "b", "zzz")) {
+            assertFalse(dictionary.contains(word), word);
+        }
+        assertFalse(dictionary.contains(null));
+    }
+
+    @Test
+    void entriesAreTrimmedAndDeduplicated() throws IOException {
+        Path path = dir.resolve("words.bin");
+        MappedDictionary.write(Arrays.asList(" drought ", "drought", "", "  ", "salt"), path);
+
+        MappedDictionary dictionary = MappedDictionary.open(path);
+        assertEquals(2, dictionary.size());
+        assertTrue(dictionary.contains("drought"));
+        assertTrue(dictionary.contains("salt"));
+        assertFalse(dictionary.contains(" drought "));
+    }
+
+    @Test
+    void emptyDictionary() throws IOException {
+        Path path = dir.resolve("words.bin");
+        MappedDictionary.write(new ArrayList<>(), path);
+
+        MappedDictionary dictionary = MappedDictionary.open(path);
+        assertEquals(0, dictionary.size());
+        assertFalse(dictionary.contains("drought"));
+    }
+
+    @Test
+    void resourceIsConvertedOnce() throws IOException {
+        Dictionary loaded = new Dictionary(RESOURCE);
+        Dictionary mapped = Dictionary.open(RESOURCE, dir.toString());
+
+        assertTrue(loaded.size() > 0);
+        assertEquals(loaded.size(), mapped.size());
+        assertTrue(mapped.words().isEmpty());
+        for (String word: loaded.words()) {
+            assertTrue(mapped.contains(word), word);
+        }
+
+        // the converted file is mapped again instead of converted
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+        assertEquals(loaded.size(), Dictionary.open(RESOURCE, dir.toString()).size());
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void resourceIsLoadedWithoutDirectory() throws IOException {
+        Dictionary dictionary = Dictionary.open(RESOURCE, null);
+        assertEquals(new Dictionary(RESOURCE).words(), dictionary.words());
+    }
+}
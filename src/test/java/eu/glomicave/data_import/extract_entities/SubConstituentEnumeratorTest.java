@@ -0,0 +1,190 @@
+package eu.glomicave.data_import.extract_entities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.trees.GrammaticalRelation;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+public class SubConstituentEnumeratorTest {
+
+    private static IndexedWord word(int index, String text, String tag) {
+        CoreLabel label = new CoreLabel();
+        label.setIndex(index);
+        label.setSentIndex(0);
+        label.setWord(text);
+        label.setValue(text);
+        label.setOriginalText(text);
+        label.setTag(tag);
+        label.setLemma(text.toLowerCase());
+        label.setNER(NE_TYPE.NO_NER);
+        return new IndexedWord(label);
+    }
+
+    private static void addEdge(SemanticGraph sg, IndexedWord governor, IndexedWord dependent, String relation) {
+        sg.addVertex(dependent);
+        sg.addEdge(governor, dependent, GrammaticalRelation.valueOf(relation), 1.0, false);
+    }
+
+    /** Phrase words as built by ExtractEntities: the root and its dependents, sorted by index **/
+    private static ObjectArrayList<IndexedWord> getPhraseWords(SemanticGraph sg, IndexedWord root) {
+        Set<IndexedWord> words = new HashSet<>(sg.getChildren(root));
+        words.add(root);
+        return CoreNLPUtils.getSortedWordsFromSetOfWords(words);
+    }
+
+    private static Set<String> generateOld(SemanticGraph sg, IndexedWord root, ObjectArrayList<IndexedWord> phraseWords) {
+        SubConstituent subconstituents = new SubConstituent(sg, root, phraseWords);
+        subconstituents.generateSubConstituentsFromLeft();
+        return new HashSet<>(subconstituents.getStringSubConstituents());
+    }
+
+    private static Set<String> generate(SemanticGraph sg, IndexedWord root, ObjectArrayList<IndexedWord> phraseWords, int cap) {
+        return new HashSet<>(SubConstituentEnumerator.generateFromLeft(sg, root, phraseWords, cap));
+    }
+
+    private static boolean hasRepeatedWord(String candidate) {
+        String [] words = candidate.split(" ");
+        return new HashSet<>(Arrays.asList(words)).size() < words.length;
+    }
+
+    /** Candidate without repetitions of a word **/
+    private static String removeRepeatedWords(String candidate) {
+        return String.join(" ", new LinkedHashSet<>(Arrays.asList(candidate.split(" "))));
+    }
+
+    @Test
+    void compoundNounEqualsSubConstituent() {
+        // small heat shock protein
+        IndexedWord small = word(1, "small", POS_TAG.JJ);
+        IndexedWord heat = word(2, "heat", POS_TAG.NN);
+        IndexedWord shock = word(3, "shock", POS_TAG.NN);
+        IndexedWord protein = word(4, "protein", POS_TAG.NN);
+        SemanticGraph sg = new SemanticGraph();
+        sg.addRoot(protein);
+        addEdge(sg, protein, small, "amod");
+        addEdge(sg, protein, heat, "compound");
+        addEdge(sg, protein, shock, "compound");
+
+        ObjectArrayList<IndexedWord> phraseWords = getPhraseWords(sg, protein);
+        Set<String> candidates = generate(sg, protein, phraseWords, 0);
+
+        assertEquals(generateOld(sg, protein, phraseWords), candidates);
+        assertTrue(candidates.contains("heat shock protein"));
+        assertTrue(candidates.contains("small heat shock protein"));
+        assertTrue(candidates.contains("small protein"));
+    }
+
+    @Test
+    void siblingModifiersEqualSubConstituent() {
+        // drought tolerant rice nitrate transporter: two modifier groups of the root
+        IndexedWord drought = word(1, "drought", POS_TAG.NN);
+        IndexedWord tolerant = word(2, "tolerant", POS_TAG.JJ);
+        IndexedWord rice = word(3, "rice", POS_TAG.NN);
+        IndexedWord nitrate = word(4, "nitrate", POS_TAG.NN);
+        IndexedWord transporter = word(5, "transporter", POS_TAG.NN);
+        SemanticGraph sg = new SemanticGraph();
+        sg.addRoot(transporter);
+        addEdge(sg, transporter, tolerant, "amod");
+        addEdge(sg, tolerant, drought, "obl:npmod");
+        addEdge(sg, transporter, rice, "compound");
+        addEdge(sg, transporter, nitrate, "compound");
+
+        ObjectArrayList<IndexedWord> phraseWords = getPhraseWords(sg, transporter);
+        Set<String> candidates = generate(sg, transporter, phraseWords, 0);
+
+        assertEquals(generateOld(sg, transporter, phraseWords), candidates);
+        assertTrue(candidates.contains("tolerant rice nitrate transporter"));
+    }
+
+    @Test
+    void sharedWordsAreNotRepeated() {
+        // cold shock domain protein, with all the words of the sub-trees in the phrase
+        IndexedWord cold = word(1, "cold", POS_TAG.JJ);
+        IndexedWord shock = word(2, "shock", POS_TAG.NN);
+        IndexedWord domain = word(3, "domain", POS_TAG.NN);
+        IndexedWord protein = word(4, "protein", POS_TAG.NN);
+        SemanticGraph sg = new SemanticGraph();
+        sg.addRoot(protein);
+        addEdge(sg, protein, domain, "compound");
+        addEdge(sg, domain, shock, "compound");
+        addEdge(sg, shock, cold, "amod");
+
+        // SubConstituent repeats the words shared by a chained candidate and a sub-tree candidate,
+        // the enumerator gives the same candidates without the repeated words
+        ObjectArrayList<IndexedWord> phraseWords = CoreNLPUtils.getSortedWordsFromSetOfWords(new HashSet<>(sg.vertexSet()));
+        Set<String> old = generateOld(sg, protein, phraseWords);
+        Set<String> candidates = generate(sg, protein, phraseWords, 0);
+
+        assertTrue(old.stream().anyMatch(SubConstituentEnumeratorTest::hasRepeatedWord));
+        assertEquals(old.stream().map(SubConstituentEnumeratorTest::removeRepeatedWords).collect(Collectors.toSet()), candidates);
+        assertTrue(candidates.contains("cold shock domain protein"));
+    }
+
+    @Test
+    void candidatesAreCappedPerPhrase() {
+        IndexedWord heat = word(1, "heat", POS_TAG.NN);
+        IndexedWord shock = word(2, "shock", POS_TAG.NN);
+        IndexedWord protein = word(3, "protein", POS_TAG.NN);
+        IndexedWord gene = word(4, "gene", POS_TAG.NN);
+        SemanticGraph sg = new SemanticGraph();
+        sg.addRoot(gene);
+        addEdge(sg, gene, heat, "compound");
+        addEdge(sg, gene, shock, "compound");
+        addEdge(sg, gene, protein, "compound");
+
+        ObjectArrayList<IndexedWord> phraseWords = getPhraseWords(sg, gene);
+        long truncated = SubConstituentEnumerator.getTruncatedPhrases();
+        Set<String> all = generate(sg, gene, phraseWords, 0);
+        assertEquals(truncated, SubConstituentEnumerator.getTruncatedPhrases());
+
+        Set<String> capped = generate(sg, gene, phraseWords, 2);
+        assertEquals(2, capped.size());
+        assertTrue(all.containsAll(capped));
+        assertEquals(truncated + 1, SubConstituentEnumerator.getTruncatedPhrases());
+
+        for (String candidate: all) {
+            assertFalse(hasRepeatedWord(candidate), candidate);
+        }
+    }
+
+    @Test
+    void longPhraseIsEnumeratedAroundTheRoot() {
+        // root with more dependents than bits of the word masks
+        int dependents = SubConstituentEnumerator.MAX_PHRASE_WORDS + 6;
+        IndexedWord root = word(dependents + 1, "protein", POS_TAG.NN);
+        SemanticGraph sg = new SemanticGraph();
+        sg.addRoot(root);
+        for (int i = 1; i <= dependents; i++) {
+            addEdge(sg, root, word(i, "w" + i, POS_TAG.NN), "compound");
+        }
+        ObjectArrayList<IndexedWord> phraseWords = getPhraseWords(sg, root);
+        assertEquals(dependents + 1, phraseWords.size());
+        Set<String> window = phraseWords.subList(phraseWords.size() - SubConstituentEnumerator.MAX_PHRASE_WORDS, phraseWords.size())
+                .stream().map(IndexedWord::lemma).collect(Collectors.toSet());
+
+        long truncated = SubConstituentEnumerator.getTruncatedPhrases();
+        Set<String> all = generate(sg, root, phraseWords, 0);
+        assertEquals(truncated + 1, SubConstituentEnumerator.getTruncatedPhrases());
+        assertFalse(all.isEmpty());
+        for (String candidate: all) {
+            assertTrue(window.containsAll(Arrays.asList(candidate.split(" "))), candidate);
+        }
+
+        assertEquals(10, generate(sg, root, phraseWords, 10).size());
+        assertEquals(truncated + 2, SubConstituentEnumerator.getTruncatedPhrases());
+    }
+}
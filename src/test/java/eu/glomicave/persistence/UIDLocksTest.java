@@ -0,0 +1,77 @@
+package eu.glomicave.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+public class UIDLocksTest {
+
+	@Test
+	void stripesAreRoundedToPowerOfTwo() {
+		assertEquals(256, new UIDLocks(256).size());
+		assertEquals(128, new UIDLocks(100).size());
+	}
+
+	@Test
+	void indexesAreDistinctAndAscending() {
+		UIDLocks locks = new UIDLocks(16);
+		List<String> uids = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			uids.add("uid" + i);
+		}
+		int[] indexes = locks.indexes("LEXICAL_FORM", uids);
+
+		assertArrayEquals(uids.stream().mapToInt(uid -> locks.index("LEXICAL_FORM", uid)).distinct().sorted().toArray(), indexes);
+		for (int i = 1; i < indexes.length; i++) {
+			assertTrue(indexes[i - 1] < indexes[i]);
+		}
+		// same node, same stripe
+		assertEquals(locks.index("LEXICAL_FORM", "uid1"), locks.indexes("LEXICAL_FORM", Arrays.asList("uid1", "uid1"))[0]);
+	}
+
+	@Test
+	void locksAreTakenAndReleased() {
+		UIDLocks locks = new UIDLocks(16);
+		int[] indexes = locks.lockAll("LEXICAL_FORM", Arrays.asList("a", "b", "c"));
+		for (int index : indexes) {
+			assertTrue(locks.isHeldByCurrentThread(index));
+		}
+		locks.unlockAll(indexes);
+		for (int index : indexes) {
+			assertFalse(locks.isHeldByCurrentThread(index));
+		}
+	}
+
+	@Test
+	void tryLockTakesNoStripeIfOneIsHeldByAnotherThread() throws InterruptedException {
+		UIDLocks locks = new UIDLocks(16);
+		int[] indexes = {1, 5, 9};
+		int[] held = {9};
+		locks.lockAll(held);
+
+		AtomicBoolean taken = new AtomicBoolean(true);
+		AtomicBoolean released = new AtomicBoolean(false);
+		Thread other = new Thread(() -> {
+			taken.set(locks.tryLockAll(indexes));
+			released.set(!locks.isHeldByCurrentThread(1) && !locks.isHeldByCurrentThread(5));
+		});
+		other.start();
+		other.join();
+		assertFalse(taken.get());
+		assertTrue(released.get());
+
+		// stripes held by the thread itself are taken again
+		assertTrue(locks.tryLockAll(indexes));
+		locks.unlockAll(indexes);
+		locks.unlockAll(held);
+		assertFalse(locks.isHeldByCurrentThread(9));
+	}
+}
@@ -0,0 +1,174 @@
+package eu.glomicave.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.summary.ResultSummary;
+import org.neo4j.driver.summary.SummaryCounters;
+
+public class UnitOfWorkTest {
+
+	/**
+	 * Session without database: statements starting with 'MERGE' are writes, the statements of the committed
+	 * transactions are recorded.
+	 */
+	private static class FakeSession {
+		private final List<List<String>> committed = Collections.synchronizedList(new ArrayList<>());
+
+		private Session session() {
+			return proxy(Session.class, (method, args) -> {
+				if (method.equals("beginTransaction")) {
+					return transaction(new ArrayList<>());
+				}
+				return null;
+			});
+		}
+
+		private Transaction transaction(List<String> statements) {
+			return proxy(Transaction.class, (method, args) -> {
+				switch (method) {
+				case "run":
+					statements.add((String) args[0]);
+					return result(((String) args[0]).startsWith("MERGE"));
+				case "commit":
+					committed.add(statements);
+					return null;
+				case "isOpen":
+					return true;
+				default:
+					return null;
+				}
+			});
+		}
+
+		private static Result result(boolean write) {
+			SummaryCounters counters = proxy(SummaryCounters.class, (method, args) -> method.equals("containsUpdates") ? write : null);
+			ResultSummary summary = proxy(ResultSummary.class, (method, args) -> method.equals("counters") ? counters : null);
+			return proxy(Result.class, (method, args) -> {
+				switch (method) {
+				case "list":
+					return new ArrayList<>();
+				case "consume":
+					return summary;
+				default:
+					return null;
+				}
+			});
+		}
+	}
+
+	private interface Handler {
+		Object invoke(String method, Object[] args);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, Handler handler) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+				(proxy, method, args) -> handler.invoke(method.getName(), args));
+	}
+
+	@Test
+	void writesAreCommittedInBatches() {
+		FakeSession fake = new FakeSession();
+		UnitOfWork work = new UnitOfWork(2, fake.session(), new UIDLocks(16));
+		work.run("MERGE (n:A {uid: '1'})", Collections.emptyMap(), Result::list);
+		work.run("MATCH (n:A) RETURN n", Collections.emptyMap(), Result::list);
+		assertEquals(0, fake.committed.size());
+		work.run("MERGE (n:A {uid: '2'})", Collections.emptyMap(), Result::list);
+		assertEquals(1, fake.committed.size());
+		assertEquals(3, fake.committed.get(0).size());
+
+		work.run("MERGE (n:A {uid: '3'})", Collections.emptyMap(), Result::list);
+		work.close();
+		assertEquals(2, fake.committed.size());
+		assertEquals(2, work.getCommits());
+		assertEquals(0, work.getRetries());
+	}
+
+	@Test
+	void stripesAreHeldUntilCommit() {
+		UIDLocks locks = new UIDLocks(16);
+		UnitOfWork work = new UnitOfWork(10, new FakeSession().session(), locks);
+		int[] stripes = locks.indexes("A", List.of("1", "2"));
+
+		work.lock(stripes);
+		work.run("MERGE (n:A {uid: '1'})", Collections.emptyMap(), Result::list);
+		work.lock(stripes);
+		work.run("MERGE (n:A {uid: '2'})", Collections.emptyMap(), Result::list);
+		for (int stripe : stripes) {
+			assertTrue(locks.isHeldByCurrentThread(stripe));
+		}
+
+		work.commit();
+		for (int stripe : stripes) {
+			assertFalse(locks.isHeldByCurrentThread(stripe));
+		}
+		work.close();
+	}
+
+	@Test
+	void stripesAreReleasedOnClose() {
+		UIDLocks locks = new UIDLocks(16);
+		UnitOfWork work = new UnitOfWork(10, new FakeSession().session(), locks);
+		int[] stripes = locks.indexes("A", List.of("1"));
+
+		work.lock(stripes);
+		work.close();
+		assertFalse(locks.isHeldByCurrentThread(stripes[0]));
+	}
+
+	@Test
+	void openTransactionIsCommittedBeforeWaitingForAStripe() throws InterruptedException {
+		FakeSession fake = new FakeSession();
+		UIDLocks locks = new UIDLocks(16);
+		int[] stripes = locks.indexes("A", List.of("1"));
+		int[] other = locks.indexes("A", List.of("2"));
+		locks.lockAll(stripes);
+
+		AtomicBoolean locked = new AtomicBoolean(false);
+		Thread writer = new Thread(() -> {
+			UnitOfWork work = new UnitOfWork(10, fake.session(), locks);
+			work.lock(other);
+			work.run("MERGE (n:A {uid: '2'})", Collections.emptyMap(), Result::list);
+			// the stripe is held by the main thread
+			work.lock(stripes);
+			locked.set(true);
+			work.close();
+		});
+		writer.setDaemon(true);
+		writer.start();
+
+		try {
+			long deadline = System.currentTimeMillis() + 10000;
+			while (fake.committed.isEmpty() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(1, fake.committed.size());
+			assertFalse(locked.get());
+			// the stripes of the committed transaction are released
+			boolean released = false;
+			while (!released && System.currentTimeMillis() < deadline) {
+				released = locks.tryLockAll(other);
+				Thread.sleep(10);
+			}
+			assertTrue(released);
+			locks.unlockAll(other);
+		} finally {
+			locks.unlockAll(stripes);
+		}
+		writer.join(10000);
+		assertTrue(locked.get());
+	}
+}